@@ -26,6 +26,7 @@
 import java.util.Locale;
 import java.util.Map;
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.EntryStreamOffsets;
 import org.apache.commons.compress.archivers.zip.ZipEncoding;
 import org.apache.commons.compress.utils.ArchiveUtils;
 
@@ -143,9 +144,18 @@
  * @NotThreadSafe
  */
 
-public class TarArchiveEntry implements ArchiveEntry, TarConstants {
+public class TarArchiveEntry implements ArchiveEntry, TarConstants, EntryStreamOffsets {
     private static final TarArchiveEntry[] EMPTY_TAR_ARCHIVE_ENTRIES = new TarArchiveEntry[0];
 
+    private static final byte[] MAGIC_GNU_BYTES = ArchiveUtils.toAsciiBytes(MAGIC_GNU);
+    private static final byte[] MAGIC_POSIX_BYTES = ArchiveUtils.toAsciiBytes(MAGIC_POSIX);
+    private static final byte[] MAGIC_XSTAR_BYTES = ArchiveUtils.toAsciiBytes(MAGIC_XSTAR);
+
+    /** Common values of the magic field as returned by TarUtils.parseName. */
+    private static final String[] COMMON_MAGICS = { "ustar", MAGIC_GNU };
+    /** Common values of the version field as returned by TarUtils.parseName. */
+    private static final String[] COMMON_VERSIONS = { VERSION_POSIX, " ", "0" };
+
     /**
      * Value used to indicate unknown mode, user/groupids, device numbers and modTime when parsing a file in lenient
      * mode an the archive contains illegal fields.
@@ -218,6 +228,9 @@ public class TarArchiveEntry implements ArchiveEntry, TarConstants {
     /** Extra, user supplied pax headers     */
     private final Map<String,String> extraPaxHeaders = new HashMap<>();
 
+    /** Position of the entry's data inside the archive, if known. */
+    private long dataOffset = OFFSET_UNKNOWN;
+
     /** Maximum length of a user's name in the tar file */
     public static final int MAX_NAMELEN = 31;
 
@@ -1314,9 +1327,9 @@ private void parseTarHeader(final byte[] header, final ZipEncoding encoding,
         linkName = oldStyle ? TarUtils.parseName(header, offset, NAMELEN)
             : TarUtils.parseName(header, offset, NAMELEN, encoding);
         offset += NAMELEN;
-        magic = TarUtils.parseName(header, offset, MAGICLEN);
+        magic = parseCommonName(header, offset, MAGICLEN, COMMON_MAGICS);
         offset += MAGICLEN;
-        version = TarUtils.parseName(header, offset, VERSIONLEN);
+        version = parseCommonName(header, offset, VERSIONLEN, COMMON_VERSIONS);
         offset += VERSIONLEN;
         userName = oldStyle ? TarUtils.parseName(header, offset, UNAMELEN)
             : TarUtils.parseName(header, offset, UNAMELEN, encoding);
@@ -1374,6 +1387,28 @@ private void parseTarHeader(final byte[] header, final ZipEncoding encoding,
         }
     }
 
+    /**
+     * Like TarUtils.parseName but avoids creating a new String if the
+     * field contains one of the given ASCII values.
+     */
+    private static String parseCommonName(final byte[] header, final int offset, final int length,
+                                          final String[] commonValues) {
+        for (final String value : commonValues) {
+            final int valueLength = value.length();
+            if (valueLength < length && header[offset + valueLength] != 0) {
+                continue;
+            }
+            int i = 0;
+            while (i < valueLength && header[offset + i] == value.charAt(i)) {
+                i++;
+            }
+            if (i == valueLength) {
+                return value;
+            }
+        }
+        return TarUtils.parseName(header, offset, length);
+    }
+
     private long parseOctalOrBinary(byte[] header, int offset, int length, boolean lenient) {
         if (lenient) {
             try {
@@ -1437,12 +1472,11 @@ private static String normalizeFileName(String fileName,
      * @return format type
      */
     private int evaluateType(final byte[] header) {
-        if (ArchiveUtils.matchAsciiBuffer(MAGIC_GNU, header, MAGIC_OFFSET, MAGICLEN)) {
+        if (matches(MAGIC_GNU_BYTES, header, MAGIC_OFFSET, MAGICLEN)) {
             return FORMAT_OLDGNU;
         }
-        if (ArchiveUtils.matchAsciiBuffer(MAGIC_POSIX, header, MAGIC_OFFSET, MAGICLEN)) {
-            if (ArchiveUtils.matchAsciiBuffer(MAGIC_XSTAR, header, XSTAR_MAGIC_OFFSET,
-                                              XSTAR_MAGIC_LEN)) {
+        if (matches(MAGIC_POSIX_BYTES, header, MAGIC_OFFSET, MAGICLEN)) {
+            if (matches(MAGIC_XSTAR_BYTES, header, XSTAR_MAGIC_OFFSET, XSTAR_MAGIC_LEN)) {
                 return FORMAT_XSTAR;
             }
             return FORMAT_POSIX;
@@ -1450,6 +1484,39 @@ private int evaluateType(final byte[] header) {
         return 0;
     }
 
+    private static boolean matches(final byte[] expected, final byte[] header, final int offset,
+                                   final int length) {
+        return ArchiveUtils.isEqual(expected, 0, expected.length, header, offset, length, false);
+    }
+
+    /**
+     * Gets the offset of the entry's data inside the archive.
+     *
+     * <p>Only known for entries read via {@link TarFile}.</p>
+     *
+     * @return the offset or {@code OFFSET_UNKNOWN}
+     * @since 1.19
+     */
+    @Override
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    void setDataOffset(final long dataOffset) {
+        this.dataOffset = dataOffset;
+    }
+
+    /**
+     * The data of a tar entry is always stored in one piece.
+     *
+     * @return true
+     * @since 1.19
+     */
+    @Override
+    public boolean isStreamContiguous() {
+        return true;
+    }
+
     void fillGNUSparse0xData(final Map<String, String> headers) {
         paxGNUSparse = true;
         realSize = Integer.parseInt(headers.get("GNU.sparse.size"));
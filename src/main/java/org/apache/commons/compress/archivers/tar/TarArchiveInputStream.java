@@ -23,6 +23,7 @@
 
 package org.apache.commons.compress.archivers.tar;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,7 +35,6 @@
 import org.apache.commons.compress.archivers.zip.ZipEncoding;
 import org.apache.commons.compress.archivers.zip.ZipEncodingHelper;
 import org.apache.commons.compress.utils.ArchiveUtils;
-import org.apache.commons.compress.utils.CharsetNames;
 import org.apache.commons.compress.utils.IOUtils;
 
 /**
@@ -53,6 +53,9 @@ public class TarArchiveInputStream extends ArchiveInputStream {
     /** The size the TAR header */
     private final int recordSize;
 
+    /** The buffer returned by readRecord, reused for every record */
+    private final byte[] recordBuffer;
+
     /** The size of a block */
     private final int blockSize;
 
@@ -175,6 +178,7 @@ public TarArchiveInputStream(final InputStream is, final int blockSize, final in
         this.encoding = encoding;
         this.zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
         this.recordSize = recordSize;
+        this.recordBuffer = new byte[recordSize];
         this.blockSize = blockSize;
         this.lenient = lenient;
     }
@@ -449,29 +453,40 @@ protected boolean isEOFRecord(final byte[] record) {
     /**
      * Read a record from the input stream and return the data.
      *
+     * <p>Starting with Compress 1.19 the same array is returned for
+     * every record, its content is only valid until the next call of
+     * this method.</p>
+     *
      * @return The record data or null if EOF has been hit.
      * @throws IOException on error
      */
     protected byte[] readRecord() throws IOException {
 
-        final byte[] record = new byte[recordSize];
-
-        final int readNow = IOUtils.readFully(is, record);
+        final int readNow = IOUtils.readFully(is, recordBuffer);
         count(readNow);
         if (readNow != recordSize) {
             return null;
         }
 
-        return record;
+        return recordBuffer;
+    }
+
+    /**
+     * The PAX parser reads single bytes, buffer them as the
+     * underlying stream may not be buffered. The buffer never reads
+     * beyond the current entry and the stream must not be closed.
+     */
+    private InputStream paxInputStream() {
+        return new BufferedInputStream(this, recordSize);
     }
 
     private void readGlobalPaxHeaders() throws IOException {
-        globalPaxHeaders = parsePaxHeaders(this);
+        globalPaxHeaders = parsePaxHeaders(paxInputStream());
         getNextEntry(); // Get the actual file entry
     }
 
     private void paxHeaders() throws IOException{
-        final Map<String, String> headers = parsePaxHeaders(this);
+        final Map<String, String> headers = parsePaxHeaders(paxInputStream());
         getNextEntry(); // Get the actual file entry
         applyPaxHeadersToCurrentEntry(headers);
     }
@@ -481,56 +496,7 @@ private void paxHeaders() throws IOException{
     // https://www.gnu.org/software/tar/manual/html_section/tar_92.html#SEC188
     Map<String, String> parsePaxHeaders(final InputStream i)
         throws IOException {
-        final Map<String, String> headers = new HashMap<>(globalPaxHeaders);
-        // Format is "length keyword=value\n";
-        while(true){ // get length
-            int ch;
-            int len = 0;
-            int read = 0;
-            while((ch = i.read()) != -1) {
-                read++;
-                if (ch == '\n') { // blank line in header
-                    break;
-                } else if (ch == ' '){ // End of length string
-                    // Get keyword
-                    final ByteArrayOutputStream coll = new ByteArrayOutputStream();
-                    while((ch = i.read()) != -1) {
-                        read++;
-                        if (ch == '='){ // end of keyword
-                            final String keyword = coll.toString(CharsetNames.UTF_8);
-                            // Get rest of entry
-                            final int restLen = len - read;
-                            if (restLen == 1) { // only NL
-                                headers.remove(keyword);
-                            } else {
-                                final byte[] rest = new byte[restLen];
-                                final int got = IOUtils.readFully(i, rest);
-                                if (got != restLen) {
-                                    throw new IOException("Failed to read "
-                                                          + "Paxheader. Expected "
-                                                          + restLen
-                                                          + " bytes, read "
-                                                          + got);
-                                }
-                                // Drop trailing NL
-                                final String value = new String(rest, 0,
-                                                          restLen - 1, CharsetNames.UTF_8);
-                                headers.put(keyword, value);
-                            }
-                            break;
-                        }
-                        coll.write((byte) ch);
-                    }
-                    break; // Processed single header
-                }
-                len *= 10;
-                len += ch - '0';
-            }
-            if (ch == -1){ // EOF
-                break;
-            }
-        }
-        return headers;
+        return TarUtils.parsePaxHeaders(i, globalPaxHeaders);
     }
 
     private void applyPaxHeadersToCurrentEntry(final Map<String, String> headers) {
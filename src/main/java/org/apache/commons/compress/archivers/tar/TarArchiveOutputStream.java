@@ -24,9 +24,11 @@
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
@@ -119,6 +121,10 @@ public class TarArchiveOutputStream extends ArchiveOutputStream {
     final String encoding;
 
     private boolean addPaxHeadersForNonAsciiNames = false;
+
+    /** Entries written so far if an index is created, null otherwise */
+    private List<TarArchiveEntry> indexedEntries;
+
     private static final ZipEncoding ASCII =
         ZipEncodingHelper.getZipEncoding("ASCII");
 
@@ -259,6 +265,45 @@ public void setAddPaxHeadersForNonAsciiNames(final boolean b) {
         addPaxHeadersForNonAsciiNames = b;
     }
 
+    /**
+     * Whether to record the entries written so {@link #getIndex} can
+     * return an index of the archive.
+     *
+     * <p>Must be called before the first entry is written.</p>
+     *
+     * @param createIndex whether to create an index
+     * @throws IllegalStateException if entries have already been written
+     * @since 1.19
+     */
+    public void setCreateIndex(final boolean createIndex) {
+        if (recordsWritten > 0) {
+            throw new IllegalStateException("Entries have already been written");
+        }
+        indexedEntries = createIndex ? new ArrayList<TarArchiveEntry>() : null;
+    }
+
+    /**
+     * Returns an index of the archive.
+     *
+     * <p>The index contains the entries passed to {@link
+     * #putArchiveEntry} - not copies of them - with their data
+     * offsets set.</p>
+     *
+     * @return the index
+     * @throws IllegalStateException if the archive has not been
+     * finished or {@link #setCreateIndex} has not been used
+     * @since 1.19
+     */
+    public TarIndex getIndex() {
+        if (indexedEntries == null) {
+            throw new IllegalStateException("No index has been created");
+        }
+        if (!finished) {
+            throw new IllegalStateException("The index is only available after the archive has been finished");
+        }
+        return new TarIndex(indexedEntries, null);
+    }
+
     @Deprecated
     @Override
     public int getCount() {
@@ -387,6 +432,11 @@ && handleLongName(entry, linkName, paxHeaders, "linkpath",
 
             entry.writeEntryHeader(recordBuf, zipEncoding, bigNumberMode == BIGNUMBER_STAR);
             writeRecord(recordBuf);
+            if (indexedEntries != null && !entry.isPaxHeader() && !entry.isGNULongNameEntry()
+                && !entry.isGNULongLinkEntry()) {
+                entry.setDataOffset((long) recordsWritten * RECORD_SIZE);
+                indexedEntries.add(entry);
+            }
 
             currBytes = 0;
 
@@ -0,0 +1,479 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipEncoding;
+import org.apache.commons.compress.archivers.zip.ZipEncodingHelper;
+import org.apache.commons.compress.compressors.gzip.GzipIndex;
+import org.apache.commons.compress.utils.ArchiveUtils;
+import org.apache.commons.compress.utils.BoundedSeekableByteChannelInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Provides random access to the entries of an uncompressed tar
+ * archive.
+ *
+ * <p>The constructor reads all headers of the archive once - jumping
+ * over the entries' data rather than reading it - and keeps the
+ * entries in memory. GNU long names and links as well as PAX headers
+ * are applied to the entries the same way {@link
+ * TarArchiveInputStream} does.</p>
+ *
+ * <p>Once it has been constructed an instance may be shared by
+ * several threads, each reading different (or the same) entries
+ * concurrently via {@link #getInputStream}. The streams themselves
+ * are not meant to be shared. If the archive is a {@link
+ * FileChannel} - as it is when the TarFile has been created from a
+ * {@link File} - all reads use positional reads and never block each
+ * other. Other {@link SeekableByteChannel}s are locked for the
+ * duration of each single read.</p>
+ *
+ * <p>If a {@link TarIndex} is available the archive can be opened
+ * without reading its headers. When the index contains a {@link
+ * GzipIndex} the channel is expected to be the gzip compressed
+ * archive and entries are read by decompressing only the part of the
+ * archive that contains their data.</p>
+ *
+ * @since 1.19
+ */
+public class TarFile implements Closeable {
+
+    private static final int PAX_BUFFER_SIZE = 8192;
+
+    private final SeekableByteChannel archive;
+
+    private final ZipEncoding zipEncoding;
+
+    private final boolean lenient;
+
+    /** All entries in the order they appear inside the archive. */
+    private final List<TarArchiveEntry> entries = new ArrayList<>();
+
+    /** Maps names to entries. */
+    private final Map<String, List<TarArchiveEntry>> nameMap = new HashMap<>();
+
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(TarConstants.DEFAULT_RCDSIZE);
+
+    /** Index of the compressed archive, null if the archive is not compressed. */
+    private final GzipIndex gzipIndex;
+
+    /**
+     * Opens the given file for reading, using the platform's default
+     * encoding for file names.
+     *
+     * @param f the archive.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public TarFile(final File f) throws IOException {
+        this(Files.newByteChannel(f.toPath(), EnumSet.of(StandardOpenOption.READ)), null, false, true);
+    }
+
+    /**
+     * Opens the given channel for reading, using the platform's
+     * default encoding for file names.
+     *
+     * <p>{@link
+     * org.apache.commons.compress.utils.SeekableInMemoryByteChannel}
+     * allows you to read from an in-memory archive.</p>
+     *
+     * @param channel the archive.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public TarFile(final SeekableByteChannel channel) throws IOException {
+        this(channel, null, false);
+    }
+
+    /**
+     * Opens the given channel for reading.
+     *
+     * @param channel the archive.
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @param lenient when set to true illegal values for group/userid, mode, device numbers and timestamp will be
+     * ignored and the fields set to {@link TarArchiveEntry#UNKNOWN}. When set to false such illegal fields cause an
+     * exception instead.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public TarFile(final SeekableByteChannel channel, final String encoding, final boolean lenient)
+        throws IOException {
+        this(channel, encoding, lenient, false);
+    }
+
+    /**
+     * Opens the given channel for reading using a previously created
+     * index instead of reading the archive's headers.
+     *
+     * @param channel the archive - gzip compressed if the index
+     * contains a {@link TarIndex#getGzipIndex gzip index}.
+     * @param index the index of the archive
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public TarFile(final SeekableByteChannel channel, final TarIndex index) throws IOException {
+        archive = channel;
+        zipEncoding = ZipEncodingHelper.getZipEncoding(null);
+        lenient = false;
+        gzipIndex = index.getGzipIndex();
+        for (final TarArchiveEntry entry : index.getEntries()) {
+            addToIndex(entry);
+        }
+    }
+
+    private TarFile(final SeekableByteChannel channel, final String encoding, final boolean lenient,
+                    final boolean closeOnError) throws IOException {
+        archive = channel;
+        gzipIndex = null;
+        zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
+        this.lenient = lenient;
+        boolean success = false;
+        try {
+            scanHeaders();
+            success = true;
+        } finally {
+            if (!success && closeOnError) {
+                IOUtils.closeQuietly(archive);
+            }
+        }
+    }
+
+    /**
+     * Closes the archive.
+     * @throws IOException if an error occurs closing the archive.
+     */
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
+    /**
+     * Returns all entries in the order they appear inside the archive.
+     *
+     * @return all entries
+     */
+    public List<TarArchiveEntry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the first entry with the given name.
+     *
+     * @param name name of the entry.
+     * @return the TarArchiveEntry corresponding to the given name -
+     * or {@code null} if not present.
+     */
+    public TarArchiveEntry getEntry(final String name) {
+        final List<TarArchiveEntry> entriesOfThatName = nameMap.get(name);
+        return entriesOfThatName != null ? entriesOfThatName.get(0) : null;
+    }
+
+    /**
+     * Returns all entries with the given name, tar archives may
+     * contain several entries of the same name when files have been
+     * appended to an archive.
+     *
+     * @param name name of the entry.
+     * @return the entries with the given name in the order they appear
+     * inside the archive, an empty list if there are none
+     */
+    public List<TarArchiveEntry> getEntries(final String name) {
+        final List<TarArchiveEntry> entriesOfThatName = nameMap.get(name);
+        return entriesOfThatName != null ? Collections.unmodifiableList(entriesOfThatName)
+            : Collections.<TarArchiveEntry>emptyList();
+    }
+
+    /**
+     * Whether this class is able to read the given entry.
+     *
+     * <p>May return false if the entry is a sparse file.</p>
+     *
+     * @param ae the entry
+     * @return whether the entry's data can be read
+     */
+    public boolean canReadEntryData(final ArchiveEntry ae) {
+        return ae instanceof TarArchiveEntry && !((TarArchiveEntry) ae).isSparse();
+    }
+
+    /**
+     * Returns an InputStream for reading the contents of the given entry.
+     *
+     * @param entry the entry to get the stream for.
+     * @return a stream to read the entry from - or {@code null} if
+     * the entry isn't part of this archive.
+     * @throws IOException if the archive is compressed and the data
+     * preceding the entry's data cannot be read.
+     */
+    public InputStream getInputStream(final TarArchiveEntry entry) throws IOException {
+        final List<TarArchiveEntry> entriesOfThatName = nameMap.get(entry.getName());
+        if (entriesOfThatName == null || !containsSameInstance(entriesOfThatName, entry)) {
+            return null;
+        }
+        final long size = entry.isDirectory() ? 0 : entry.getSize();
+        if (gzipIndex != null) {
+            return new BoundedEntryInputStream(gzipIndex.openStream(archive, entry.getDataOffset()), size);
+        }
+        return createBoundedInputStream(entry.getDataOffset(), size);
+    }
+
+    private static boolean containsSameInstance(final List<TarArchiveEntry> list, final TarArchiveEntry entry) {
+        for (final TarArchiveEntry e : list) {
+            if (e == entry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads all headers, skipping the entries' data.
+     *
+     * <p>GNU long name/link and PAX headers are collected until the
+     * header of the entry they belong to has been read. Like {@link
+     * TarArchiveInputStream} the first meta-data header wins if
+     * several of them provide the same information.</p>
+     */
+    private void scanHeaders() throws IOException {
+        Map<String, String> globalPaxHeaders = new HashMap<>();
+        final List<Object> pendingMetaData = new ArrayList<>();
+        long pos = 0;
+        while (true) {
+            final byte[] header = readRecord(pos);
+            if (header == null) {
+                break;
+            }
+            final TarArchiveEntry entry;
+            try {
+                entry = new TarArchiveEntry(header, zipEncoding, lenient);
+            } catch (final IllegalArgumentException e) {
+                throw new IOException("Error detected parsing the header", e);
+            }
+            final long dataOffset = pos + TarConstants.DEFAULT_RCDSIZE;
+
+            if (entry.isGNULongLinkEntry() || entry.isGNULongNameEntry()) {
+                pendingMetaData.add(new LongName(entry.isGNULongLinkEntry(),
+                    zipEncoding.decode(readLongNameData(dataOffset, entry.getSize()))));
+            } else if (entry.isGlobalPaxHeader()) {
+                globalPaxHeaders = TarUtils.parsePaxHeaders(paxInputStream(dataOffset, entry.getSize()),
+                    globalPaxHeaders);
+            } else if (entry.isPaxHeader()) {
+                pendingMetaData.add(TarUtils.parsePaxHeaders(paxInputStream(dataOffset, entry.getSize()),
+                    globalPaxHeaders));
+            } else {
+                pos = addEntry(entry, dataOffset, pendingMetaData, globalPaxHeaders);
+                pendingMetaData.clear();
+                if (pos < 0) {
+                    break;
+                }
+                continue;
+            }
+            pos = nextHeader(dataOffset, entry.getSize());
+        }
+    }
+
+    /**
+     * Applies the collected meta-data to the entry and adds it to the
+     * index.
+     *
+     * @return the position of the next header or -1 if the archive
+     * ended prematurely
+     */
+    @SuppressWarnings("unchecked")
+    private long addEntry(final TarArchiveEntry entry, long dataOffset, final List<Object> pendingMetaData,
+                          final Map<String, String> globalPaxHeaders) throws IOException {
+        if (!globalPaxHeaders.isEmpty()) {
+            entry.updateEntryFromPaxHeaders(globalPaxHeaders);
+        }
+        for (int i = pendingMetaData.size() - 1; i >= 0; i--) {
+            final Object metaData = pendingMetaData.get(i);
+            if (metaData instanceof LongName) {
+                final LongName longName = (LongName) metaData;
+                if (longName.isLink) {
+                    entry.setLinkName(longName.name);
+                } else {
+                    entry.setName(longName.name);
+                }
+            } else {
+                entry.updateEntryFromPaxHeaders((Map<String, String>) metaData);
+            }
+        }
+
+        if (entry.isOldGNUSparse() && entry.isExtended()) {
+            byte[] sparseHeader;
+            do {
+                sparseHeader = readRecord(dataOffset);
+                if (sparseHeader == null) {
+                    return -1;
+                }
+                dataOffset += TarConstants.DEFAULT_RCDSIZE;
+            } while (new TarArchiveSparseEntry(sparseHeader).isExtended());
+        }
+
+        entry.setDataOffset(dataOffset);
+        addToIndex(entry);
+        return nextHeader(dataOffset, entry.isDirectory() ? 0 : entry.getSize());
+    }
+
+    private void addToIndex(final TarArchiveEntry entry) {
+        entries.add(entry);
+        List<TarArchiveEntry> entriesOfThatName = nameMap.get(entry.getName());
+        if (entriesOfThatName == null) {
+            // names are almost always unique
+            entriesOfThatName = new ArrayList<>(1);
+            nameMap.put(entry.getName(), entriesOfThatName);
+        }
+        entriesOfThatName.add(entry);
+    }
+
+    private static long nextHeader(final long dataOffset, final long size) throws IOException {
+        final long records = (size + TarConstants.DEFAULT_RCDSIZE - 1) / TarConstants.DEFAULT_RCDSIZE;
+        final long next = dataOffset + records * TarConstants.DEFAULT_RCDSIZE;
+        if (size < 0 || next < dataOffset) {
+            throw new IOException("Broken archive, entry with size " + size + " at offset " + dataOffset);
+        }
+        return next;
+    }
+
+    /**
+     * Reads the record at the given position.
+     *
+     * @return the record or null if the end of the archive has been
+     * reached
+     */
+    private byte[] readRecord(final long pos) throws IOException {
+        recordBuffer.rewind();
+        try {
+            IOUtils.readFully(archive, recordBuffer, pos);
+        } catch (final EOFException ex) {
+            return null;
+        }
+        final byte[] record = recordBuffer.array();
+        return ArchiveUtils.isArrayZero(record, record.length) ? null : record.clone();
+    }
+
+    private byte[] readLongNameData(final long dataOffset, final long size) throws IOException {
+        final byte[] longNameData = IOUtils.toByteArray(createBoundedInputStream(dataOffset, size));
+        // remove trailing null terminator(s)
+        int length = longNameData.length;
+        while (length > 0 && longNameData[length - 1] == 0) {
+            --length;
+        }
+        if (length != longNameData.length) {
+            final byte[] l = new byte[length];
+            System.arraycopy(longNameData, 0, l, 0, length);
+            return l;
+        }
+        return longNameData;
+    }
+
+    private InputStream paxInputStream(final long dataOffset, final long size) {
+        return new BufferedInputStream(createBoundedInputStream(dataOffset, size),
+            (int) Math.max(1, Math.min(size, PAX_BUFFER_SIZE)));
+    }
+
+    /**
+     * Reads the data of a single entry of an uncompressed archive
+     * using positional reads.
+     */
+    private InputStream createBoundedInputStream(final long start, final long size) {
+        return new BoundedEntryInputStream(new BoundedSeekableByteChannelInputStream(archive, start, size), size);
+    }
+
+    private static final class LongName {
+        private final boolean isLink;
+        private final String name;
+
+        private LongName(final boolean isLink, final String name) {
+            this.isLink = isLink;
+            this.name = name;
+        }
+    }
+
+    /**
+     * InputStream reading the data of a single entry, fails if the
+     * archive ends before the entry's data.
+     */
+    private static class BoundedEntryInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+        private final byte[] singleByte = new byte[1];
+
+        BoundedEntryInputStream(final InputStream in, final long size) {
+            this.in = in;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int read = read(singleByte, 0, 1);
+            return read < 0 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len <= 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int ret = in.read(b, off, (int) Math.min(len, remaining));
+            if (ret < 0) {
+                throw new IOException("Truncated TAR archive");
+            }
+            remaining -= ret;
+            return ret;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0 || remaining <= 0) {
+                return 0;
+            }
+            final long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
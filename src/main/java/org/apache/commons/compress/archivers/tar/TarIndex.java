@@ -0,0 +1,322 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.compress.archivers.zip.ZipEncoding;
+import org.apache.commons.compress.archivers.zip.ZipEncodingHelper;
+import org.apache.commons.compress.compressors.gzip.GzipIndex;
+import org.apache.commons.compress.compressors.gzip.GzipIndexingInputStream;
+import org.apache.commons.compress.utils.CharsetNames;
+
+/**
+ * The entries of a tar archive together with the positions of their
+ * data, optionally combined with a {@link GzipIndex} if the archive
+ * is gzip compressed.
+ *
+ * <p>An index can be stored next to the archive via {@link #writeTo}
+ * and be used to open the archive again as {@link
+ * TarFile#TarFile(java.nio.channels.SeekableByteChannel, TarIndex)
+ * TarFile} without reading any of its headers - and for a gzip
+ * compressed archive without decompressing anything but the data of
+ * the entries that are actually read.</p>
+ *
+ * <p>Indexes are created by scanning an existing archive via {@link
+ * #create} or {@link #createFromGzip} or by {@link
+ * TarArchiveOutputStream} while the archive is written, see {@link
+ * TarArchiveOutputStream#setCreateIndex}.</p>
+ *
+ * <p>The persisted form contains all information {@link TarFile}
+ * needs but not necessarily every detail of the original headers,
+ * in particular sparse maps are not stored - {@link
+ * TarFile#canReadEntryData} is false for sparse entries anyway.</p>
+ *
+ * @since 1.19
+ */
+public class TarIndex {
+
+    private static final int MAGIC = 0x43435449; // CCTI
+    private static final int VERSION = 1;
+
+    private static final int PAX_GNU_SPARSE = 1;
+    private static final int STAR_SPARSE = 2;
+
+    private static final ZipEncoding UTF8 = ZipEncodingHelper.getZipEncoding(CharsetNames.UTF_8);
+
+    private final List<TarArchiveEntry> entries;
+    private final GzipIndex gzipIndex;
+
+    TarIndex(final List<TarArchiveEntry> entries, final GzipIndex gzipIndex) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.gzipIndex = gzipIndex;
+    }
+
+    /**
+     * Creates the index of an uncompressed archive, using the
+     * platform's default encoding for file names.
+     *
+     * @param tar the archive, the stream is read completely but not closed
+     * @return the index
+     * @throws IOException if reading the archive fails
+     */
+    public static TarIndex create(final InputStream tar) throws IOException {
+        return create(tar, null);
+    }
+
+    /**
+     * Creates the index of an uncompressed archive.
+     *
+     * @param tar the archive, the stream is read up to the end of
+     * the archive but not closed
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @return the index
+     * @throws IOException if reading the archive fails
+     */
+    public static TarIndex create(final InputStream tar, final String encoding) throws IOException {
+        return new TarIndex(scan(tar, encoding), null);
+    }
+
+    /**
+     * Creates the index of a gzip compressed archive with a
+     * checkpoint about every {@link GzipIndex#DEFAULT_SPAN} bytes,
+     * using the platform's default encoding for file names.
+     *
+     * @param tarGz the compressed archive, the stream is read
+     * completely but not closed
+     * @return the index
+     * @throws IOException if reading the archive fails
+     */
+    public static TarIndex createFromGzip(final InputStream tarGz) throws IOException {
+        return createFromGzip(tarGz, GzipIndex.DEFAULT_SPAN, null);
+    }
+
+    /**
+     * Creates the index of a gzip compressed archive.
+     *
+     * @param tarGz the compressed archive, the stream is read
+     * completely but not closed
+     * @param span the minimal number of uncompressed bytes between
+     * two checkpoints of the gzip index
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @return the index
+     * @throws IOException if reading the archive fails
+     */
+    public static TarIndex createFromGzip(final InputStream tarGz, final long span, final String encoding)
+        throws IOException {
+        final GzipIndexingInputStream gz = new GzipIndexingInputStream(tarGz, span);
+        final List<TarArchiveEntry> entries = scan(gz, encoding);
+        final byte[] buffer = new byte[8192];
+        while (gz.read(buffer) >= 0) { // NOPMD NOSONAR
+            // the index covers the whole compressed stream
+        }
+        return new TarIndex(entries, gz.getIndex());
+    }
+
+    private static List<TarArchiveEntry> scan(final InputStream in, final String encoding) throws IOException {
+        final List<TarArchiveEntry> entries = new ArrayList<>();
+        // not closed as this would close the stream passed in by the caller
+        final TarArchiveInputStream tis = new TarArchiveInputStream(in, encoding);
+        TarArchiveEntry entry;
+        while ((entry = tis.getNextTarEntry()) != null) {
+            entry.setDataOffset(tis.getBytesRead());
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns all entries in the order they appear inside the
+     * archive, their {@link TarArchiveEntry#getDataOffset data
+     * offsets} are positions inside the uncompressed archive.
+     *
+     * @return all entries
+     */
+    public List<TarArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the index of the compressed archive.
+     *
+     * @return the index of the compressed archive or null if the
+     * archive is not compressed
+     */
+    public GzipIndex getGzipIndex() {
+        return gzipIndex;
+    }
+
+    /**
+     * Creates an index with the same entries and the given gzip
+     * index.
+     *
+     * <p>Useful for combining the indexes created by {@link
+     * TarArchiveOutputStream} and {@link
+     * org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream}.</p>
+     *
+     * @param index the index of the compressed archive, may be null
+     * @return the new index
+     */
+    public TarIndex withGzipIndex(final GzipIndex index) {
+        return new TarIndex(entries, index);
+    }
+
+    /**
+     * Writes the index to a stream.
+     *
+     * @param out the stream to write to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final ByteArrayOutputStream section = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(section))) {
+            final byte[] header = new byte[TarConstants.DEFAULT_RCDSIZE];
+            data.writeInt(entries.size());
+            for (final TarArchiveEntry e : entries) {
+                data.writeLong(e.getDataOffset());
+                e.writeEntryHeader(header, UTF8, true);
+                data.write(header);
+                writeString(data, e.getName());
+                writeString(data, e.getLinkName());
+                writeString(data, e.getUserName());
+                writeString(data, e.getGroupName());
+                data.writeByte((e.isPaxGNUSparse() ? PAX_GNU_SPARSE : 0) | (e.isStarSparse() ? STAR_SPARSE : 0));
+                data.writeLong(e.getRealSize());
+                final Map<String, String> pax = e.getExtraPaxHeaders();
+                data.writeInt(pax.size());
+                for (final Map.Entry<String, String> h : pax.entrySet()) {
+                    writeString(data, h.getKey());
+                    writeString(data, h.getValue());
+                }
+            }
+        }
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(section.size());
+        section.writeTo(data);
+        data.writeBoolean(gzipIndex != null);
+        data.flush();
+        if (gzipIndex != null) {
+            gzipIndex.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo}.
+     *
+     * <p>Doesn't read beyond the end of the index.</p>
+     *
+     * @param in the stream to read from, it is not closed
+     * @return the index
+     * @throws IOException if reading fails or the stream doesn't
+     * contain an index
+     */
+    public static TarIndex read(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a tar index");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tar index version " + version);
+        }
+        final int sectionLength = data.readInt();
+        if (sectionLength < 0) {
+            throw new IOException("Corrupt tar index");
+        }
+        final byte[] section = new byte[sectionLength];
+        data.readFully(section);
+        final List<TarArchiveEntry> entries = new ArrayList<>();
+        try (DataInputStream entryData = new DataInputStream(new InflaterInputStream(
+                 new ByteArrayInputStream(section)))) {
+            final int count = entryData.readInt();
+            final byte[] header = new byte[TarConstants.DEFAULT_RCDSIZE];
+            for (int i = 0; i < count; i++) {
+                final long dataOffset = entryData.readLong();
+                entryData.readFully(header);
+                final TarArchiveEntry e = new TarArchiveEntry(header, UTF8, true);
+                e.setDataOffset(dataOffset);
+                final String name = readString(entryData);
+                final String linkName = readString(entryData);
+                final String userName = readString(entryData);
+                final String groupName = readString(entryData);
+                // the header may contain truncated values
+                if (!name.equals(e.getName())) {
+                    e.setName(name);
+                }
+                if (!linkName.equals(e.getLinkName())) {
+                    e.setLinkName(linkName);
+                }
+                e.setUserName(userName);
+                e.setGroupName(groupName);
+                final int sparse = entryData.readUnsignedByte();
+                final String realSize = String.valueOf(entryData.readLong());
+                if ((sparse & PAX_GNU_SPARSE) != 0) {
+                    final Map<String, String> headers = new HashMap<>();
+                    headers.put("GNU.sparse.realsize", realSize);
+                    headers.put("GNU.sparse.name", name);
+                    e.fillGNUSparse1xData(headers);
+                }
+                if ((sparse & STAR_SPARSE) != 0) {
+                    e.fillStarSparseData(Collections.singletonMap("SCHILY.realsize", realSize));
+                }
+                final int paxCount = entryData.readInt();
+                for (int j = 0; j < paxCount; j++) {
+                    e.addPaxHeader(readString(entryData), readString(entryData));
+                }
+                entries.add(e);
+            }
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException("Corrupt tar index", ex);
+        }
+        final GzipIndex gzipIndex = data.readBoolean() ? GzipIndex.read(in) : null;
+        return new TarIndex(entries, gzipIndex);
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] bytes = s.getBytes(CharsetNames.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt tar index, negative string length");
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, CharsetNames.UTF_8);
+    }
+}
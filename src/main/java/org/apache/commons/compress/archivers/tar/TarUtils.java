@@ -21,11 +21,20 @@
 import static org.apache.commons.compress.archivers.tar.TarConstants.CHKSUMLEN;
 import static org.apache.commons.compress.archivers.tar.TarConstants.CHKSUM_OFFSET;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.compress.archivers.zip.CharsetAccessor;
 import org.apache.commons.compress.archivers.zip.ZipEncoding;
 import org.apache.commons.compress.archivers.zip.ZipEncodingHelper;
+import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.IOUtils;
 
 /**
  * This class provides static utility methods to work with byte streams.
@@ -115,32 +124,26 @@ public static long parseOctal(final byte[] buffer, final int offset, final int l
         }
 
         // Skip leading spaces
-        while (start < end){
-            if (buffer[start] == ' '){
-                start++;
-            } else {
-                break;
-            }
+        while (start < end && buffer[start] == ' ') {
+            start++;
         }
 
         // Trim all trailing NULs and spaces.
         // The ustar and POSIX tar specs require a trailing NUL or
         // space but some implementations use the extra digit for big
         // sizes/uids/gids ...
-        byte trailer = buffer[end - 1];
-        while (start < end && (trailer == 0 || trailer == ' ')) {
+        while (start < end && (buffer[end - 1] == 0 || buffer[end - 1] == ' ')) {
             end--;
-            trailer = buffer[end - 1];
         }
 
         for ( ;start < end; start++) {
-            final byte currentByte = buffer[start];
             // CheckStyle:MagicNumber OFF
-            if (currentByte < '0' || currentByte > '7'){
+            final int digit = buffer[start] - '0';
+            if ((digit & ~7) != 0) {
                 throw new IllegalArgumentException(
-                        exceptionMessage(buffer, offset, length, start, currentByte));
+                        exceptionMessage(buffer, offset, length, start, buffer[start]));
             }
-            result = (result << 3) + (currentByte - '0'); // convert from ASCII
+            result = (result << 3) | digit; // convert from ASCII
             // CheckStyle:MagicNumber ON
         }
 
@@ -193,7 +196,7 @@ private static long parseBinaryLong(final byte[] buffer, final int offset,
         if (negative) {
             // 2's complement
             val--;
-            val ^= (long) Math.pow(2.0, (length - 1) * 8.0) - 1;
+            val ^= (1L << ((length - 1) * 8)) - 1;
         }
         return negative ? -val : val;
     }
@@ -202,6 +205,28 @@ private static long parseBinaryBigInteger(final byte[] buffer,
                                               final int offset,
                                               final int length,
                                               final boolean negative) {
+        // values that fit into a long - i.e. all realistic ones - only
+        // use the last eight bytes, the others are just sign extension
+        final byte signExtension = negative ? (byte) 0xff : 0;
+        final int firstSignificant = offset + length - 8;
+        int i = offset + 1;
+        while (i < firstSignificant && buffer[i] == signExtension) {
+            i++;
+        }
+        if (i == firstSignificant && (buffer[i] & 0x80) == (signExtension & 0x80)) {
+            long val = 0;
+            for (; i < offset + length; i++) {
+                val = (val << 8) | (buffer[i] & 0xff);
+            }
+            if (val == Long.MIN_VALUE) {
+                // -2^63 can't be negated
+                throw new IllegalArgumentException("At offset " + offset + ", "
+                                                   + length + " byte binary number"
+                                                   + " exceeds maximum signed long"
+                                                   + " value");
+            }
+            return val;
+        }
         final byte[] remainder = new byte[length - 1];
         System.arraycopy(buffer, offset + 1, remainder, 0, length - 1);
         BigInteger val = new BigInteger(remainder);
@@ -290,10 +315,15 @@ public static String parseName(final byte[] buffer, final int offset,
         throws IOException {
 
         int len = 0;
+        boolean ascii = true;
         for (int i = offset; len < length && buffer[i] != 0; i++) {
+            ascii &= buffer[i] > 0;
             len++;
         }
         if (len > 0) {
+            if (ascii && isAsciiCompatible(encoding)) {
+                return asciiString(buffer, offset, len);
+            }
             final byte[] b = new byte[len];
             System.arraycopy(buffer, offset, b, 0, len);
             return encoding.decode(b);
@@ -301,6 +331,28 @@ public static String parseName(final byte[] buffer, final int offset,
         return "";
     }
 
+    /**
+     * The common case, avoids copying the bytes and - unlike String's
+     * constructors taking a Charset - doesn't create a decoder.
+     */
+    @SuppressWarnings("deprecation")
+    private static String asciiString(final byte[] buffer, final int offset, final int length) {
+        return new String(buffer, 0, offset, length);
+    }
+
+    private static boolean isAsciiCompatible(final ZipEncoding encoding) {
+        if (encoding == FALLBACK_ENCODING) {
+            return true;
+        }
+        if (!(encoding instanceof CharsetAccessor)) {
+            return false;
+        }
+        final Charset charset = ((CharsetAccessor) encoding).getCharset();
+        return StandardCharsets.UTF_8.equals(charset)
+            || StandardCharsets.US_ASCII.equals(charset)
+            || StandardCharsets.ISO_8859_1.equals(charset);
+    }
+
     /**
      * Copy a name into a buffer.
      * Copies characters from the name into the buffer
@@ -601,14 +653,83 @@ public static boolean verifyCheckSum(final byte[] header) {
         long signedSum = 0;
 
         for (int i = 0; i < header.length; i++) {
-            byte b = header[i];
-            if (CHKSUM_OFFSET  <= i && i < CHKSUM_OFFSET + CHKSUMLEN) {
-                b = ' ';
-            }
+            final byte b = header[i];
             unsignedSum += 0xff & b;
             signedSum += b;
         }
+        // the checksum itself is treated as if it was filled with spaces
+        for (int i = CHKSUM_OFFSET; i < CHKSUM_OFFSET + CHKSUMLEN; i++) {
+            final byte b = header[i];
+            unsignedSum += ' ' - (0xff & b);
+            signedSum += ' ' - b;
+        }
         return storedSum == unsignedSum || storedSum == signedSum;
     }
 
+    /**
+     * Parses the content of a PAX extended header, starting with a
+     * copy of the given global headers.
+     *
+     * @param i the content of the header entry
+     * @param globalPaxHeaders headers of the last global PAX header
+     * @return the combined headers
+     * @throws IOException on error
+     */
+    // NOTE, using a Map here makes it impossible to ever support GNU
+    // sparse files using the PAX Format 0.0, see
+    // https://www.gnu.org/software/tar/manual/html_section/tar_92.html#SEC188
+    static Map<String, String> parsePaxHeaders(final InputStream i, final Map<String, String> globalPaxHeaders)
+        throws IOException {
+        final Map<String, String> headers = new HashMap<>(globalPaxHeaders);
+        // Format is "length keyword=value\n";
+        while(true){ // get length
+            int ch;
+            int len = 0;
+            int read = 0;
+            while((ch = i.read()) != -1) {
+                read++;
+                if (ch == '\n') { // blank line in header
+                    break;
+                } else if (ch == ' '){ // End of length string
+                    // Get keyword
+                    final ByteArrayOutputStream coll = new ByteArrayOutputStream();
+                    while((ch = i.read()) != -1) {
+                        read++;
+                        if (ch == '='){ // end of keyword
+                            final String keyword = coll.toString(CharsetNames.UTF_8);
+                            // Get rest of entry
+                            final int restLen = len - read;
+                            if (restLen == 1) { // only NL
+                                headers.remove(keyword);
+                            } else {
+                                final byte[] rest = new byte[restLen];
+                                final int got = IOUtils.readFully(i, rest);
+                                if (got != restLen) {
+                                    throw new IOException("Failed to read "
+                                                          + "Paxheader. Expected "
+                                                          + restLen
+                                                          + " bytes, read "
+                                                          + got);
+                                }
+                                // Drop trailing NL
+                                final String value = new String(rest, 0,
+                                                          restLen - 1, CharsetNames.UTF_8);
+                                headers.put(keyword, value);
+                            }
+                            break;
+                        }
+                        coll.write((byte) ch);
+                    }
+                    break; // Processed single header
+                }
+                len *= 10;
+                len += ch - '0';
+            }
+            if (ch == -1){ // EOF
+                break;
+            }
+        }
+        return headers;
+    }
+
 }
@@ -0,0 +1,200 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Maps entry names to the positions of the entries inside the
+ * central directory.
+ *
+ * <p>Rather than holding a String and a list per name this keeps a
+ * sorted array of name hashes combined with entry positions - eight
+ * bytes per entry - and resolves hash collisions by asking for the
+ * actual names of the candidates. A second array sorting the entries
+ * by name is only created once a prefix search is performed.</p>
+ *
+ * <p>Instances are thread-safe as long as the {@link Names} they've
+ * been created with are.</p>
+ *
+ * @since 1.19
+ */
+final class EntryNameIndex {
+
+    private static final int[] NO_ENTRIES = new int[0];
+
+    /**
+     * Provides the names of the entries of an archive.
+     */
+    interface Names {
+        /**
+         * Number of entries.
+         */
+        int size();
+
+        /**
+         * The name of the entry at the given position inside the
+         * central directory.
+         */
+        String nameOf(int entry);
+
+        /**
+         * The same value as {@code nameOf(entry).hashCode()}, but
+         * possibly calculated without creating the String.
+         */
+        int nameHashOf(int entry);
+    }
+
+    private final Names names;
+
+    /**
+     * The hash of an entry's name in the upper and the entry's
+     * position in the lower 32 bits, sorted. Entries with the same
+     * name are thus sorted in central directory order.
+     */
+    private final long[] byHash;
+
+    /**
+     * Positions of the entries sorted by name, created on demand.
+     */
+    private volatile int[] byName;
+
+    EntryNameIndex(final Names names) {
+        this.names = names;
+        final int size = names.size();
+        byHash = new long[size];
+        for (int i = 0; i < size; i++) {
+            byHash[i] = key(names.nameHashOf(i), i);
+        }
+        Arrays.sort(byHash);
+    }
+
+    /**
+     * Position of the first entry with the given name in central
+     * directory order or -1 if there is none.
+     */
+    int first(final String name) {
+        final int hash = name.hashCode();
+        for (int i = firstWithHash(hash); i < byHash.length && hashOf(byHash[i]) == hash; i++) {
+            final int entry = entryOf(byHash[i]);
+            if (name.equals(names.nameOf(entry))) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Positions of all entries with the given name in central
+     * directory order.
+     */
+    int[] all(final String name) {
+        final int hash = name.hashCode();
+        int[] result = NO_ENTRIES;
+        int count = 0;
+        for (int i = firstWithHash(hash); i < byHash.length && hashOf(byHash[i]) == hash; i++) {
+            final int entry = entryOf(byHash[i]);
+            if (name.equals(names.nameOf(entry))) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.max(2, 2 * count));
+                }
+                result[count++] = entry;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Positions of all entries whose names start with the given
+     * prefix sorted by name, entries of the same name in central
+     * directory order.
+     */
+    int[] withPrefix(final String prefix) {
+        final int[] sorted = sortedByName();
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (names.nameOf(sorted[mid]).compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < sorted.length && names.nameOf(sorted[end]).startsWith(prefix)) {
+            end++;
+        }
+        return Arrays.copyOfRange(sorted, low, end);
+    }
+
+    private int firstWithHash(final int hash) {
+        final int idx = Arrays.binarySearch(byHash, key(hash, 0));
+        // there is no entry with a negative position, so this is always the insertion point
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    private int[] sortedByName() {
+        int[] result = byName;
+        if (result == null) {
+            synchronized (this) {
+                result = byName;
+                if (result == null) {
+                    result = sortByName();
+                    byName = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int[] sortByName() {
+        final int size = names.size();
+        final String[] allNames = new String[size];
+        final Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            allNames[i] = names.nameOf(i);
+            positions[i] = i;
+        }
+        // stable, so entries of the same name stay in central directory order
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                return allNames[i1].compareTo(allNames[i2]);
+            }
+        });
+        final int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = positions[i];
+        }
+        return result;
+    }
+
+    private static long key(final int hash, final int entry) {
+        return ((long) hash << 32) | entry;
+    }
+
+    private static int hashOf(final long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int entryOf(final long key) {
+        return (int) key;
+    }
+}
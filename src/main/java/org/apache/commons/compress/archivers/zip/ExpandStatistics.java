@@ -0,0 +1,86 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+/**
+ * Provides information about a run of {@link ParallelZipExpander}.
+ *
+ * @since 1.19
+ */
+public class ExpandStatistics {
+    private final long entries;
+    private final long compressedBytes;
+    private final long uncompressedBytes;
+    private final long elapsed;
+
+    ExpandStatistics(final long entries, final long compressedBytes, final long uncompressedBytes,
+        final long elapsed) {
+        this.entries = entries;
+        this.compressedBytes = compressedBytes;
+        this.uncompressedBytes = uncompressedBytes;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * The number of files written.
+     * @return the number of files written
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * The number of bytes read from the archive.
+     * @return the number of bytes read from the archive
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * The number of bytes written to files.
+     * @return the number of bytes written to files
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * The number of milliseconds elapsed while expanding the archive.
+     * @return The number of milliseconds elapsed
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * The number of bytes written to files per second.
+     * @return the number of bytes written to files per second
+     */
+    public double getThroughput() {
+        return uncompressedBytes * 1000d / Math.max(1, elapsed);
+    }
+
+    @Override
+    public String toString() {
+        return "entries=" + entries + ", compressedBytes=" + compressedBytes
+            + ", uncompressedBytes=" + uncompressedBytes + ", elapsed=" + elapsed + "ms, throughput="
+            + (long) getThroughput() + " bytes/s";
+    }
+
+}
@@ -202,7 +202,16 @@ public void encode(final byte[] buf, final int offset) {
      * @return parsed flags
      */
     public static GeneralPurposeBit parse(final byte[] data, final int offset) {
-        final int generalPurposeFlag = ZipShort.getValue(data, offset);
+        return parse(ZipShort.getValue(data, offset));
+    }
+
+    /**
+     * Parses the supported flags from the given value.
+     *
+     * @param generalPurposeFlag the "general purpose bit flag" as read from the archive
+     * @return parsed flags
+     */
+    static GeneralPurposeBit parse(final int generalPurposeFlag) {
         final GeneralPurposeBit b = new GeneralPurposeBit();
         b.useDataDescriptor((generalPurposeFlag & DATA_DESCRIPTOR_FLAG) != 0);
         b.useUTF8ForNames((generalPurposeFlag & UFT8_NAMES_FLAG) != 0);
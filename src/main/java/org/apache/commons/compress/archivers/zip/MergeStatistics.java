@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+/**
+ * Provides information about a run of {@link ParallelZipMerger}.
+ *
+ * @since 1.19
+ */
+public class MergeStatistics {
+    private final long entries;
+    private final long duplicates;
+    private final long copiedBytes;
+    private final long elapsed;
+
+    MergeStatistics(final long entries, final long duplicates, final long copiedBytes, final long elapsed) {
+        this.entries = entries;
+        this.duplicates = duplicates;
+        this.copiedBytes = copiedBytes;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * The number of entries written to the target.
+     * @return the number of entries written
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * The number of entries of the sources that have not been written
+     * as another entry of the same name has been chosen.
+     * @return the number of duplicates dropped
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * The number of bytes of raw entry data copied.
+     * @return the number of bytes copied
+     */
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * The number of milliseconds elapsed while merging the archives.
+     * @return The number of milliseconds elapsed
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * The number of bytes of entry data copied per second.
+     * @return the number of bytes copied per second
+     */
+    public double getThroughput() {
+        return copiedBytes * 1000d / Math.max(1, elapsed);
+    }
+
+    @Override
+    public String toString() {
+        return "entries=" + entries + ", duplicates=" + duplicates + ", copiedBytes=" + copiedBytes
+            + ", elapsed=" + elapsed + "ms, throughput=" + (long) getThroughput() + " bytes/s";
+    }
+
+}
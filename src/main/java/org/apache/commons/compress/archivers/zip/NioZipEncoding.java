@@ -27,6 +27,7 @@
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A ZipEncoding, which uses a java.nio {@link
@@ -38,6 +39,7 @@ class NioZipEncoding implements ZipEncoding, CharsetAccessor {
 
     private final Charset charset;
     private final boolean useReplacement;
+    private final boolean asciiCompatible;
     private static final char REPLACEMENT = '?';
     private static final byte[] REPLACEMENT_BYTES = { (byte) REPLACEMENT };
     private static final String REPLACEMENT_STRING = String.valueOf(REPLACEMENT);
@@ -54,6 +56,9 @@ class NioZipEncoding implements ZipEncoding, CharsetAccessor {
     NioZipEncoding(final Charset charset, boolean useReplacement) {
         this.charset = charset;
         this.useReplacement = useReplacement;
+        asciiCompatible = StandardCharsets.UTF_8.equals(charset)
+            || StandardCharsets.US_ASCII.equals(charset)
+            || StandardCharsets.ISO_8859_1.equals(charset);
     }
 
     @Override
@@ -66,6 +71,9 @@ public Charset getCharset() {
      */
     @Override
     public boolean canEncode(final String name) {
+        if (asciiCompatible && isAscii(name)) {
+            return true;
+        }
         final CharsetEncoder enc = newEncoder();
 
         return enc.canEncode(name);
@@ -76,6 +84,14 @@ public boolean canEncode(final String name) {
      */
     @Override
     public ByteBuffer encode(final String name) {
+        if (asciiCompatible && isAscii(name)) {
+            // the common case, no need to create an encoder
+            final byte[] b = new byte[name.length()];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = (byte) name.charAt(i);
+            }
+            return ByteBuffer.wrap(b);
+        }
         final CharsetEncoder enc = newEncoder();
 
         final CharBuffer cb = CharBuffer.wrap(name);
@@ -145,6 +161,15 @@ private static ByteBuffer encodeFully(CharsetEncoder enc, CharBuffer cb, ByteBuf
         return o;
     }
 
+    private static boolean isAscii(final String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static CharBuffer encodeSurrogate(CharBuffer cb, char c) {
         cb.position(0).limit(6);
         cb.put('%');
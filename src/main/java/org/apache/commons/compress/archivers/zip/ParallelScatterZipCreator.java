@@ -31,7 +31,9 @@
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -43,6 +45,7 @@
 import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
 import org.apache.commons.compress.utils.BoundedInputStream;
+import org.apache.commons.compress.utils.ZlibPool;
 
 /**
  * Creates a zip using internally parallel thread executor, but ensuring consistent zip entries order
@@ -83,6 +86,17 @@
  *
  * zipCreator.waitFinishWriteTo();
  * </PRE>
+ *
+ * startWriteTo uses one of the executor's threads for writing unless
+ * a ThreadFactory for a dedicated writer thread is passed in.
+ *
+ * By default any number of entries may be waiting to be compressed or
+ * written. {@link #setMaxPendingEntries} and {@link #setMaxPendingBytes}
+ * limit the number of entries and compressed bytes that are in flight
+ * once {@link #startWriteTo} has been called, {@code addArchiveEntry}
+ * then blocks until the writer has caught up.
+ * {@link #getPendingEntries} and {@link #getPendingBytes} can be used
+ * to monitor the backlog.
  */
 public class ParallelScatterZipCreator {
 
@@ -91,6 +105,7 @@ public class ParallelScatterZipCreator {
     private final ExecutorService es;
     private final boolean closeExecutorService;
     private final ScatterGatherBackingStoreSupplier backingStoreSupplier;
+    private final int compressionLevel;
 
     private final List<ThreadBackingStore> threadBackingStores = synchronizedList(new ArrayList<ThreadBackingStore>());
 
@@ -98,6 +113,15 @@ public class ParallelScatterZipCreator {
     private Future<?> mainWriter;
     private Exception mainWriterEx;
 
+    // guards pendingEntries, pendingBytes and writerState
+    private final Object window = new Object();
+    private int maxPendingEntries = Integer.MAX_VALUE;
+    private long maxPendingBytes = Long.MAX_VALUE;
+    private int pendingEntries;
+    private long pendingBytes;
+    private static final int WRITER_NOT_STARTED = 0, WRITER_RUNNING = 1, WRITER_DONE = 2;
+    private int writerState = WRITER_NOT_STARTED;
+
     private final AtomicLong compressionElapsed = new AtomicLong();
     private final AtomicLong scatterElapsed = new AtomicLong();
 
@@ -119,16 +143,24 @@ InputStream createInputStream() {
 
     }
 
-    /** inner input/output Streams backing store, per Thread */
+    /** inner input/output Streams backing store and compressor, per Thread */
     private class ThreadBackingStore {
         ScatterGatherBackingStore backingStore;
         OutputStream ouputStream;
         InputStream inputStream;
+        // reused for all entries compressed by the thread, reset by StreamCompressor#deflate
+        Deflater deflater;
+        // the deflater goes back to this pool even if the default has been replaced meanwhile
+        ZlibPool zlibPool;
+        StreamCompressor streamCompressor;
 
         ThreadBackingStore(ScatterGatherBackingStore backingStore) throws IOException {
             this.backingStore = backingStore;
             this.ouputStream = createOutputStream();
             this.inputStream = backingStore.getInputStream();
+            this.zlibPool = ZlibPool.getDefault();
+            this.deflater = zlibPool.borrowDeflater(compressionLevel, true);
+            this.streamCompressor = StreamCompressor.create(ouputStream, deflater);
         }
 
         // ... adapter for non-existent method backingStore.createOutputStream();
@@ -227,14 +259,115 @@ public ParallelScatterZipCreator(
             final ExecutorService executorService,
             final boolean closeExecutorService,
             final ScatterGatherBackingStoreSupplier backingStoreSupplier) {
+        this(executorService, closeExecutorService, backingStoreSupplier, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Create a OrderedParallelScatterZipCreator
+     *
+     * @param executorService The executorService to use.
+     * @param closeExecutorService flag to close executor service at end
+     * @param backingStoreSupplier The supplier of backing store which shall be used
+     * @param compressionLevel The {@link Deflater} compression level used for DEFLATED entries
+     * @throws IllegalArgumentException if the compression level is invalid
+     * @since 1.19
+     */
+    public ParallelScatterZipCreator(
+            final ExecutorService executorService,
+            final boolean closeExecutorService,
+            final ScatterGatherBackingStoreSupplier backingStoreSupplier,
+            final int compressionLevel) {
+        if ((compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+                && compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
         this.es = executorService;
         this.closeExecutorService = closeExecutorService;
         this.backingStoreSupplier = backingStoreSupplier;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Limits the number of entries that have been added but not been
+     * written to the target stream, yet.
+     *
+     * <p>The limit is only enforced while {@link #startWriteTo
+     * writing} as nothing would drain the backlog otherwise.</p>
+     *
+     * @param maxPendingEntries the maximum number of pending entries
+     * @throws IllegalArgumentException if maxPendingEntries is not positive
+     * @since 1.19
+     */
+    public void setMaxPendingEntries(final int maxPendingEntries) {
+        if (maxPendingEntries < 1) {
+            throw new IllegalArgumentException("maxPendingEntries must be positive");
+        }
+        synchronized (window) {
+            this.maxPendingEntries = maxPendingEntries;
+            window.notifyAll();
+        }
+    }
+
+    /**
+     * Limits the number of compressed bytes waiting in backing stores
+     * to be written to the target stream.
+     *
+     * <p>The size of an entry is only known once it has been
+     * compressed, so the limit may be exceeded by the entries that
+     * are being compressed when it is reached. The limit is only
+     * enforced while {@link #startWriteTo writing} as nothing would
+     * drain the backlog otherwise.</p>
+     *
+     * @param maxPendingBytes the maximum number of pending bytes
+     * @throws IllegalArgumentException if maxPendingBytes is not positive
+     * @since 1.19
+     */
+    public void setMaxPendingBytes(final long maxPendingBytes) {
+        if (maxPendingBytes < 1) {
+            throw new IllegalArgumentException("maxPendingBytes must be positive");
+        }
+        synchronized (window) {
+            this.maxPendingBytes = maxPendingBytes;
+            window.notifyAll();
+        }
+    }
+
+    /**
+     * The number of entries that have been added but not been written
+     * to the target stream, yet.
+     *
+     * @return the number of pending entries
+     * @since 1.19
+     */
+    public int getPendingEntries() {
+        synchronized (window) {
+            return pendingEntries;
+        }
+    }
+
+    /**
+     * The number of compressed bytes waiting in backing stores to be
+     * written to the target stream.
+     *
+     * @return the number of pending bytes
+     * @since 1.19
+     */
+    public long getPendingBytes() {
+        synchronized (window) {
+            return pendingBytes;
+        }
     }
 
     /**
      * Adds an archive entry to this archive.
      *
+     * <p>The entry's method must be set, entries using {@link
+     * ZipEntry#STORED} are copied without compression, all others
+     * are DEFLATED.</p>
+     *
+     * <p>Blocks while the limits set via {@link #setMaxPendingEntries}
+     * or {@link #setMaxPendingBytes} are exceeded.</p>
+     *
      * @param zipArchiveEntry The entry to add.
      * @param source          The source input stream supplier
      */
@@ -243,6 +376,29 @@ public void addArchiveEntry(final ZipArchiveEntry zipArchiveEntry, final InputSt
         submit(createCallable(zipArchiveEntry, source));
     }
 
+    /**
+     * Adds an archive entry to this archive unless the limits set via
+     * {@link #setMaxPendingEntries} or {@link #setMaxPendingBytes}
+     * are still exceeded after waiting for the given time.
+     *
+     * @param zipArchiveEntry The entry to add.
+     * @param source          The source input stream supplier
+     * @param timeout         the maximum time to wait
+     * @param unit            the unit of the timeout argument
+     * @return true if the entry has been added
+     * @throws InterruptedException if interrupted while waiting
+     * @since 1.19
+     */
+    public boolean tryAddArchiveEntry(final ZipArchiveEntry zipArchiveEntry, final InputStreamSupplier source,
+            final long timeout, final TimeUnit unit) throws InterruptedException {
+        final Callable<ParallelScatterZipEntry> callable = createCallable(zipArchiveEntry, source);
+        if (!awaitWindow(unit.toNanos(timeout))) {
+            return false;
+        }
+        enqueue(callable);
+        return true;
+    }
+
     /**
      * Adds an archive entry to this archive.
      *
@@ -258,10 +414,63 @@ public void addArchiveEntry(final ZipArchiveEntryRequestSupplier zipArchiveEntry
      * @param callable the entry to be added
      */
     protected final void submit(final Callable<ParallelScatterZipEntry> callable) {
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                awaitWindow(Long.MAX_VALUE);
+                break;
+            } catch (final InterruptedException ex) { //NOSONAR
+                // keep waiting like Semaphore#acquireUninterruptibly
+                interrupted = true;
+            }
+        }
+        enqueue(callable);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(final Callable<ParallelScatterZipEntry> callable) {
+        synchronized (window) {
+            pendingEntries++;
+        }
         Future<ParallelScatterZipEntry> futureEntry = es.submit(callable);
         futureWriteQueue.add(futureEntry);
     }
 
+    /**
+     * Waits until there is room for another entry or the writer
+     * isn't running.
+     *
+     * @param nanos maximum time to wait, Long.MAX_VALUE means forever
+     * @return false if there still is no room after waiting
+     */
+    private boolean awaitWindow(final long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        synchronized (window) {
+            while (writerState == WRITER_RUNNING
+                   && (pendingEntries >= maxPendingEntries || pendingBytes >= maxPendingBytes)) {
+                if (nanos == Long.MAX_VALUE) {
+                    window.wait();
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(window, remaining);
+                }
+            }
+            return true;
+        }
+    }
+
+    private void setWriterState(final int state) {
+        synchronized (window) {
+            writerState = state;
+            window.notifyAll();
+        }
+    }
+
     /**
      * Create a callable that will compress the given archive entry.
      * 
@@ -309,28 +518,25 @@ protected ParallelScatterZipEntry compressEntryToAppend(
         long startTime = System.currentTimeMillis();
 
         final ThreadBackingStore threadBackingStore = tlScatterStreams.get();
-        OutputStream outputStream = threadBackingStore.ouputStream;
+        final StreamCompressor streamCompressor = threadBackingStore.streamCompressor;
 
-        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-        StreamCompressor streamCompressor = StreamCompressor.create(
-                outputStream, deflater);
-
-        streamCompressor.deflate(payloadStream, ze.getMethod());
+        final int method = ze.getMethod() == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+        streamCompressor.deflate(payloadStream, method);
 
         ze.setCrc(streamCompressor.getCrc32());
         long bytesWrittenForLastEntry = streamCompressor.getBytesWrittenForLastEntry();
         ze.setCompressedSize(bytesWrittenForLastEntry);
         ze.setSize(streamCompressor.getBytesRead());
-        ze.setMethod(ZipEntry.DEFLATED);
+        ze.setMethod(method);
         // za.setUnixMode(UnixStat.FILE_FLAG | 0664);
 
-        deflater.finish();
-        streamCompressor.close();
-
         ParallelScatterZipEntry res = new ParallelScatterZipEntry(ze, bytesWrittenForLastEntry, threadBackingStore);
+        synchronized (window) {
+            pendingBytes += bytesWrittenForLastEntry;
+        }
 
         long millis = System.currentTimeMillis() - startTime;
-        scatterElapsed.addAndGet(millis);
+        compressionElapsed.addAndGet(millis);
         return res;
     }
 
@@ -375,8 +581,45 @@ public boolean isCancelled() {
 		this.futureWriteQueue.add(completedMarker);
 	}
 
+    /**
+     * Starts writing entries to the target while they are still being
+     * added and compressed, using one of the executor service's threads.
+     *
+     * <p>The writer occupies a thread of the executor service until
+     * {@link #waitFinishWriteTo} has been called, so the executor
+     * service must provide at least two threads. Use {@link
+     * #startWriteTo(ZipArchiveOutputStream, ThreadFactory)} to keep
+     * all of its threads available for compression.</p>
+     *
+     * @param zipOutputStream the target to write to
+     */
     public void startWriteTo(final ZipArchiveOutputStream zipOutputStream) {
-        this.mainWriter = es.submit(new Runnable() {  // Does not work if es is FixedThreadPool(1) !!!
+        setWriterState(WRITER_RUNNING);
+        this.mainWriter = es.submit(createMainWriter(zipOutputStream));
+    }
+
+    /**
+     * Starts writing entries to the target while they are still being
+     * added and compressed, using a dedicated thread.
+     *
+     * <p>All threads of the executor service are used for compression,
+     * this works with single threaded executor services as well.</p>
+     *
+     * @param zipOutputStream the target to write to
+     * @param writerThreadFactory creates the thread that writes to the target
+     * @since 1.19
+     */
+    public void startWriteTo(final ZipArchiveOutputStream zipOutputStream,
+            final ThreadFactory writerThreadFactory) {
+        final FutureTask<?> writer = new FutureTask<>(createMainWriter(zipOutputStream), null);
+        final Thread thread = writerThreadFactory.newThread(writer);
+        setWriterState(WRITER_RUNNING);
+        this.mainWriter = writer;
+        thread.start();
+    }
+
+    private Runnable createMainWriter(final ZipArchiveOutputStream zipOutputStream) {
+        return new Runnable() {
             public void run() {
                 try {
                     mainWriterLoop(zipOutputStream);
@@ -385,10 +628,37 @@ public void run() {
                     // no rethrow! executed within thread
                 }
             }
-        });
+        };
     }
 
     private void mainWriterLoop(ZipArchiveOutputStream zipOutputStream) throws IOException, InterruptedException, ExecutionException {
+        boolean allEntriesWritten = false;
+        try {
+            writeEntries(zipOutputStream);
+            allEntriesWritten = true;
+        } finally {
+            // nobody is going to drain the window anymore
+            setWriterState(WRITER_DONE);
+
+            // cleanup on finish or failure
+            for(ThreadBackingStore threadBackingStore : threadBackingStores) {
+                // the StreamCompressor isn't closed as that would end the deflater
+                if (allEntriesWritten) {
+                    threadBackingStore.zlibPool.returnDeflater(threadBackingStore.deflater, compressionLevel, true);
+                } else {
+                    // compression tasks may still be using it, it must not be handed out again
+                    threadBackingStore.deflater.end();
+                }
+                try {
+                    threadBackingStore.backingStore.close();
+                } catch (IOException ex) { //NOSONAR
+                    // no way to properly log this
+                }
+            }
+        }
+    }
+
+    private void writeEntries(ZipArchiveOutputStream zipOutputStream) throws IOException, InterruptedException, ExecutionException {
         for(;;) {
             Future<ParallelScatterZipEntry> future = futureWriteQueue.take();
             ParallelScatterZipEntry entry = future.get();
@@ -405,14 +675,10 @@ private void mainWriterLoop(ZipArchiveOutputStream zipOutputStream) throws IOExc
 
             long millis = System.currentTimeMillis() - startTime;
             scatterElapsed.addAndGet(millis);
-        }
-
-        // cleanup on finish
-        for(ThreadBackingStore threadBackingStore : threadBackingStores) {
-            try {
-                threadBackingStore.backingStore.close();
-            } catch (IOException ex) { //NOSONAR
-                // no way to properly log this
+            synchronized (window) {
+                pendingEntries--;
+                pendingBytes -= entry.len;
+                window.notifyAll();
             }
         }
     }
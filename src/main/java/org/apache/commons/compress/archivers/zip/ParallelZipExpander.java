@@ -0,0 +1,277 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.compress.utils.ZlibPool;
+
+/**
+ * Expands a {@link ZipFile} into a directory using several threads.
+ *
+ * <p>Entries are processed in the order they appear inside the
+ * archive and handed to the executor in batches of neighboring
+ * entries so each thread reads a contiguous region of the
+ * archive. Directories are created by the calling thread before any
+ * file is written.</p>
+ *
+ * <p>Copy buffers are reused across entries and runs, at most as
+ * many are kept as there are available processors. Inflaters are
+ * taken from {@link ZlibPool#getDefault the default pool}. Reading
+ * a FileChannel based ZipFile from several threads doesn't require
+ * any locking, see {@link ZipFile}.</p>
+ *
+ * <p>Public methods of this class are expected to be called from a
+ * single client thread.</p>
+ *
+ * <pre>
+ * try (ZipFile zipFile = new ZipFile(archive);
+ *      ParallelZipExpander expander = new ParallelZipExpander()) {
+ *     ExpandStatistics stats = expander.expand(zipFile, targetDirectory);
+ * }
+ * </pre>
+ *
+ * @since 1.19
+ */
+public class ParallelZipExpander implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_BATCH_BYTES = 1024 * 1024;
+    private static final int MAX_BATCH_ENTRIES = 256;
+
+    private final ExecutorService es;
+    private final boolean closeExecutorService;
+    private final BlockingQueue<byte[]> buffers;
+
+    /**
+     * Creates a ParallelZipExpander with as many threads as there are
+     * available processors, as defined by {@link
+     * java.lang.Runtime#availableProcessors}.
+     */
+    public ParallelZipExpander() {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * Creates a ParallelZipExpander.
+     *
+     * @param executorService The executorService to use.
+     * @param closeExecutorService flag to shut down the executor service when this instance is closed
+     */
+    public ParallelZipExpander(final ExecutorService executorService, final boolean closeExecutorService) {
+        this.es = executorService;
+        this.closeExecutorService = closeExecutorService;
+        buffers = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Expands {@code archive} into {@code targetDirectory}.
+     *
+     * <p>Entries whose data cannot be read by {@link ZipFile} are
+     * skipped. If several entries share a name only the one that
+     * comes last in the central directory is written.</p>
+     *
+     * @param archive the archive to expand
+     * @param targetDirectory the directory to write to
+     * @return statistics about this run
+     * @throws IOException if an I/O error occurs or an entry would be
+     * written outside of {@code targetDirectory}
+     * @throws InterruptedException if interrupted while waiting for
+     * the entries to be written
+     */
+    public ExpandStatistics expand(final ZipFile archive, final File targetDirectory)
+        throws IOException, InterruptedException {
+        final long start = System.currentTimeMillis();
+        String targetDirPath = targetDirectory.getCanonicalPath();
+        if (!targetDirPath.endsWith(File.separator)) {
+            targetDirPath += File.separator;
+        }
+
+        final List<Future<long[]>> results = new ArrayList<>();
+        // interrupting the workers could close the archive's channel
+        final AtomicBoolean aborted = new AtomicBoolean();
+        try {
+            List<Target> batch = new ArrayList<>();
+            long batchBytes = 0;
+            final Enumeration<ZipArchiveEntry> entries = archive.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                final ZipArchiveEntry ze = entries.nextElement();
+                if (!isLastOfItsName(archive, ze) || !archive.canReadEntryData(ze)) {
+                    continue;
+                }
+                final File f = new File(targetDirectory, ze.getName());
+                if (!f.getCanonicalPath().startsWith(targetDirPath)) {
+                    throw new IOException("expanding " + ze.getName()
+                        + " would create file outside of " + targetDirectory);
+                }
+                // directories are created by this thread so workers never race on mkdirs
+                if (ze.isDirectory()) {
+                    if (!f.isDirectory() && !f.mkdirs()) {
+                        throw new IOException("failed to create directory " + f);
+                    }
+                    continue;
+                }
+                final File parent = f.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("failed to create directory " + parent);
+                }
+                batch.add(new Target(ze, f));
+                batchBytes += Math.max(0, ze.getCompressedSize());
+                if (batchBytes >= MAX_BATCH_BYTES || batch.size() >= MAX_BATCH_ENTRIES) {
+                    results.add(es.submit(createCallable(archive, batch, aborted)));
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                results.add(es.submit(createCallable(archive, batch, aborted)));
+            }
+
+            long files = 0, compressedBytes = 0, uncompressedBytes = 0;
+            for (final Future<long[]> result : results) {
+                final long[] counts = result.get();
+                files += counts[0];
+                compressedBytes += counts[1];
+                uncompressedBytes += counts[2];
+            }
+            return new ExpandStatistics(files, compressedBytes, uncompressedBytes,
+                System.currentTimeMillis() - start);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            // all tasks are done unless something went wrong
+            aborted.set(true);
+            for (final Future<long[]> result : results) {
+                result.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Releases the pooled buffers and shuts down the executor service
+     * if requested when this instance has been created.
+     *
+     * @throws IOException if interrupted while waiting for the
+     * executor service to terminate
+     */
+    @Override
+    public void close() throws IOException {
+        buffers.clear();
+        if (closeExecutorService) {
+            es.shutdown();
+            try {
+                es.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    private Callable<long[]> createCallable(final ZipFile archive, final List<Target> batch,
+        final AtomicBoolean aborted) {
+        return new Callable<long[]>() {
+            @Override
+            public long[] call() throws IOException {
+                return expand(archive, batch, aborted);
+            }
+        };
+    }
+
+    /**
+     * Whether the entry is the last one of its name in the central
+     * directory. Later entries overwrite earlier ones just like they
+     * do in {@link org.apache.commons.compress.archivers.examples.Expander}.
+     */
+    private static boolean isLastOfItsName(final ZipFile archive, final ZipArchiveEntry ze) {
+        ZipArchiveEntry last = null;
+        for (final ZipArchiveEntry e : archive.getEntries(ze.getName())) {
+            last = e;
+        }
+        return last == ze;
+    }
+
+    /**
+     * Writes the entries of a batch.
+     *
+     * <p>Stops early once {@code aborted} has been set.</p>
+     *
+     * @return the number of entries, compressed and uncompressed bytes
+     */
+    private long[] expand(final ZipFile archive, final List<Target> batch, final AtomicBoolean aborted)
+        throws IOException {
+        long compressedBytes = 0, uncompressedBytes = 0;
+        byte[] buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        try {
+            for (final Target target : batch) {
+                if (aborted.get()) {
+                    break;
+                }
+                try (InputStream in = archive.getInputStream(target.entry);
+                     OutputStream out = Files.newOutputStream(target.file.toPath())) {
+                    int n;
+                    while (!aborted.get() && -1 != (n = in.read(buffer))) {
+                        out.write(buffer, 0, n);
+                        uncompressedBytes += n;
+                    }
+                }
+                compressedBytes += target.entry.getCompressedSize();
+            }
+        } finally {
+            buffers.offer(buffer);
+        }
+        return new long[] { batch.size(), compressedBytes, uncompressedBytes };
+    }
+
+    private static final class Target {
+        private final ZipArchiveEntry entry;
+        private final File file;
+
+        private Target(final ZipArchiveEntry entry, final File file) {
+            this.entry = entry;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.compress.archivers.EntryStreamOffsets;
+
+/**
+ * Merges the entries of several {@link ZipFile}s into a single
+ * archive using several threads.
+ *
+ * <p>The entries are copied without recompressing them, like {@link
+ * ZipFile#copyRawEntries} does. All entries are collected and
+ * duplicates are resolved first. Then the local file headers are
+ * written, leaving gaps for the entries' data whose offsets are known
+ * at this point. The raw data of neighboring entries is copied into
+ * these gaps by the executor's threads in batches, using positional
+ * reads and writes, while the calling thread writes the remaining
+ * headers and finally the central directory.</p>
+ *
+ * <p>Names that occur in more than one source are resolved according
+ * to the {@link DuplicatePolicy}. The entry chosen takes the place of
+ * the first occurrence of the name. Duplicate directory entries are
+ * always merged into the first one.</p>
+ *
+ * <p>The sources must not have been opened with {@code
+ * ignoreLocalFileHeader} set to {@code true} as the location of the
+ * entries' data would be unknown. Reading a FileChannel based ZipFile
+ * from several threads doesn't require any locking, see {@link
+ * ZipFile}.</p>
+ *
+ * <p>Public methods of this class are expected to be called from a
+ * single client thread.</p>
+ *
+ * <pre>
+ * try (ParallelZipMerger merger = new ParallelZipMerger()) {
+ *     merger.setDuplicatePolicy(ParallelZipMerger.DuplicatePolicy.KEEP_FIRST);
+ *     MergeStatistics stats = merger.merge(zipFiles, target);
+ * }
+ * </pre>
+ *
+ * @since 1.19
+ */
+public class ParallelZipMerger implements Closeable {
+
+    /**
+     * How to deal with entries of the same name found in different
+     * sources or more than once in the same source.
+     */
+    public enum DuplicatePolicy {
+        /** Keeps the entry found first, in the order the sources have been given. */
+        KEEP_FIRST,
+        /** Keeps the entry found last, in the order the sources have been given. */
+        KEEP_LAST,
+        /** Fails with an exception. */
+        FAIL
+    }
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long MAX_BATCH_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_BATCH_ENTRIES = 256;
+
+    private final ExecutorService es;
+    private final boolean closeExecutorService;
+    private final BlockingQueue<ByteBuffer> buffers;
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.FAIL;
+    private Zip64Mode zip64Mode = Zip64Mode.AsNeeded;
+
+    /**
+     * Creates a ParallelZipMerger with as many threads as there are
+     * available processors, as defined by {@link
+     * java.lang.Runtime#availableProcessors}.
+     */
+    public ParallelZipMerger() {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * Creates a ParallelZipMerger.
+     *
+     * @param executorService The executorService to use.
+     * @param closeExecutorService flag to shut down the executor service when this instance is closed
+     */
+    public ParallelZipMerger(final ExecutorService executorService, final boolean closeExecutorService) {
+        this.es = executorService;
+        this.closeExecutorService = closeExecutorService;
+        buffers = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Sets how to deal with entries of the same name, defaults to
+     * {@link DuplicatePolicy#FAIL}.
+     *
+     * @param duplicatePolicy the policy to use
+     */
+    public void setDuplicatePolicy(final DuplicatePolicy duplicatePolicy) {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * Sets the Zip64 mode of the target, defaults to {@link Zip64Mode#AsNeeded}.
+     *
+     * @param zip64Mode the mode to use
+     * @see ZipArchiveOutputStream#setUseZip64
+     */
+    public void setUseZip64(final Zip64Mode zip64Mode) {
+        this.zip64Mode = zip64Mode;
+    }
+
+    /**
+     * Writes the entries of all sources to {@code target}, replacing
+     * its contents.
+     *
+     * @param sources the archives to merge
+     * @param target the file to write to
+     * @return statistics about this run
+     * @throws IOException if an I/O error occurs, an entry's data
+     * cannot be located or the duplicate policy is {@link
+     * DuplicatePolicy#FAIL} and a name occurs more than once
+     * @throws InterruptedException if interrupted while waiting for
+     * the entries to be copied
+     */
+    public MergeStatistics merge(final List<ZipFile> sources, final File target)
+        throws IOException, InterruptedException {
+        final long start = System.currentTimeMillis();
+        final Map<String, Source> selected = new LinkedHashMap<>();
+        long duplicates = 0;
+        for (final ZipFile zipFile : sources) {
+            final Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                final ZipArchiveEntry ze = entries.nextElement();
+                if (ze.getDataOffset() == EntryStreamOffsets.OFFSET_UNKNOWN) {
+                    throw new IOException("The location of " + ze.getName() + "'s data is unknown");
+                }
+                final Source s = selected.get(ze.getName());
+                if (s == null) {
+                    selected.put(ze.getName(), new Source(zipFile, ze));
+                    continue;
+                }
+                duplicates++;
+                if (ze.isDirectory()) {
+                    continue;
+                }
+                if (duplicatePolicy == DuplicatePolicy.FAIL) {
+                    throw new IOException("Duplicate entry " + ze.getName());
+                }
+                if (duplicatePolicy == DuplicatePolicy.KEEP_LAST) {
+                    // keeps the position of the first occurrence
+                    selected.put(ze.getName(), new Source(zipFile, ze));
+                }
+            }
+        }
+
+        final List<Future<Long>> results = new ArrayList<>();
+        // interrupting the workers could close the sources' channels
+        final AtomicBoolean aborted = new AtomicBoolean();
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             ZipArchiveOutputStream zos = new ZipArchiveOutputStream(channel)) {
+            zos.setUseZip64(zip64Mode);
+            List<Target> batch = new ArrayList<>();
+            long batchBytes = 0;
+            for (final Source s : selected.values()) {
+                final long dataOffset = zos.addRawArchiveEntryPlaceholder(s.entry);
+                final long size = s.entry.getCompressedSize();
+                // a batch only holds neighboring entries of a single source
+                if (!batch.isEmpty() && batch.get(0).source.zipFile != s.zipFile) {
+                    results.add(es.submit(createCallable(channel, batch, aborted)));
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(new Target(s, dataOffset));
+                batchBytes += size;
+                if (batchBytes >= MAX_BATCH_BYTES || batch.size() >= MAX_BATCH_ENTRIES) {
+                    results.add(es.submit(createCallable(channel, batch, aborted)));
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                results.add(es.submit(createCallable(channel, batch, aborted)));
+            }
+            zos.finish();
+
+            long copiedBytes = 0;
+            for (final Future<Long> result : results) {
+                copiedBytes += result.get();
+            }
+            return new MergeStatistics(selected.size(), duplicates, copiedBytes,
+                System.currentTimeMillis() - start);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            // all tasks are done unless something went wrong
+            aborted.set(true);
+            for (final Future<Long> result : results) {
+                result.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Releases the pooled buffers and shuts down the executor service
+     * if requested when this instance has been created.
+     *
+     * @throws IOException if interrupted while waiting for the
+     * executor service to terminate
+     */
+    @Override
+    public void close() throws IOException {
+        buffers.clear();
+        if (closeExecutorService) {
+            es.shutdown();
+            try {
+                es.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    private Callable<Long> createCallable(final FileChannel channel, final List<Target> batch,
+        final AtomicBoolean aborted) {
+        return new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                return copy(channel, batch, aborted);
+            }
+        };
+    }
+
+    /**
+     * Copies the data of a batch.
+     *
+     * <p>Stops early once {@code aborted} has been set.</p>
+     *
+     * @return the number of bytes copied
+     */
+    private long copy(final FileChannel channel, final List<Target> batch, final AtomicBoolean aborted)
+        throws IOException {
+        long copiedBytes = 0;
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        try {
+            for (final Target target : batch) {
+                final ZipArchiveEntry ze = target.source.entry;
+                final long from = ze.getDataOffset();
+                final long size = ze.getCompressedSize();
+                long done = 0;
+                while (done < size) {
+                    if (aborted.get()) {
+                        return copiedBytes;
+                    }
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), size - done));
+                    target.source.zipFile.readFully(buffer, from + done);
+                    buffer.flip();
+                    long to = target.dataOffset + done;
+                    while (buffer.hasRemaining()) {
+                        to += channel.write(buffer, to);
+                    }
+                    done += buffer.limit();
+                }
+                copiedBytes += size;
+            }
+        } finally {
+            buffers.offer(buffer);
+        }
+        return copiedBytes;
+    }
+
+    private static final class Source {
+        private final ZipFile zipFile;
+        private final ZipArchiveEntry entry;
+
+        private Source(final ZipFile zipFile, final ZipArchiveEntry entry) {
+            this.zipFile = zipFile;
+            this.entry = entry;
+        }
+    }
+
+    private static final class Target {
+        private final Source source;
+        private final long dataOffset;
+
+        private Target(final Source source, final long dataOffset) {
+            this.source = source;
+            this.dataOffset = dataOffset;
+        }
+    }
+}
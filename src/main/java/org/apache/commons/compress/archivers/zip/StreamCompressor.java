@@ -21,10 +21,12 @@
 
 import java.io.Closeable;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -277,6 +279,44 @@ public void writeCounted(final byte[] data, final int offset, final int length)
 
     protected abstract void writeOut(byte[] data, int offset, int length) throws IOException;
 
+    /**
+     * Writes a region of a file to the output as-is, counting the bytes
+     * like {@link #writeCounted(byte[], int, int)}.
+     */
+    void transferCounted(final FileChannel source, final long position, final long count) throws IOException {
+        transferOut(source, position, count);
+        writtenToOutputStreamForLastEntry += count;
+        totalWrittenToOutputStream += count;
+    }
+
+    /**
+     * Counts bytes that have been written to the output by other
+     * means, like {@link #writeCounted(byte[], int, int)} would.
+     */
+    void countExternallyWritten(final long count) {
+        writtenToOutputStreamForLastEntry += count;
+        totalWrittenToOutputStream += count;
+    }
+
+    /**
+     * Writes a region of a file to the output, the default
+     * implementation copies it through a buffer.
+     */
+    void transferOut(final FileChannel source, final long position, final long count) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate((int) Math.min(count, BUFFER_SIZE));
+        long done = 0;
+        while (done < count) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), count - done));
+            final int n = source.read(buf, position + done);
+            if (n < 0) {
+                throw new EOFException("Truncated ZIP file");
+            }
+            writeOut(buf.array(), 0, n);
+            done += n;
+        }
+    }
+
     private static final class ScatterGatherBackingStoreCompressor extends StreamCompressor {
         private final ScatterGatherBackingStore bs;
 
@@ -336,5 +376,23 @@ protected final void writeOut(final byte[] data, final int offset, final int len
                 throws IOException {
             channel.write(ByteBuffer.wrap(data, offset, length));
         }
+
+        @Override
+        void transferOut(final FileChannel source, final long position, final long count) throws IOException {
+            // may avoid copying the data to the Java heap altogether
+            long done = 0;
+            while (done < count) {
+                final long n = source.transferTo(position + done, count - done, channel);
+                if (n <= 0) {
+                    if (position + done >= source.size()) {
+                        throw new EOFException("Truncated ZIP file");
+                    }
+                    // the target didn't accept anything, copy the rest through a buffer
+                    super.transferOut(source, position + done, count - done);
+                    return;
+                }
+                done += n;
+            }
+        }
     }
 }
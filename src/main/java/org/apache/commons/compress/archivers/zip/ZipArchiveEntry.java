@@ -140,7 +140,8 @@ public enum CommentSource {
     private GeneralPurposeBit gpb = new GeneralPurposeBit();
     private static final ZipExtraField[] noExtraFields = new ZipExtraField[0];
     private long localHeaderOffset = OFFSET_UNKNOWN;
-    private long dataOffset = OFFSET_UNKNOWN;
+    // volatile as ZipFile may set it lazily from several threads
+    private volatile long dataOffset = OFFSET_UNKNOWN;
     private boolean isStreamContiguous = false;
     private NameSource nameSource = NameSource.NAME;
     private CommentSource commentSource = CommentSource.COMMENT;
@@ -18,8 +18,6 @@
  */
 package org.apache.commons.compress.archivers.zip;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +38,7 @@
 import org.apache.commons.compress.utils.ArchiveUtils;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.ZlibPool;
 
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DWORD;
 import static org.apache.commons.compress.archivers.zip.ZipConstants.SHORT;
@@ -75,6 +74,12 @@
  *
  * </ul>
  *
+ * <p>All reading and decompressing happens on the calling thread.
+ * When the wrapped stream is slow - a pipe or a network connection -
+ * wrapping it in a {@link
+ * org.apache.commons.compress.utils.ReadAheadInputStream} lets
+ * reading from it overlap with decompression.</p>
+ *
  * @see ZipFile
  * @NotThreadSafe
  */
@@ -92,8 +97,11 @@ public class ZipArchiveInputStream extends ArchiveInputStream implements InputSt
     /** Wrapped stream, will always be a PushbackInputStream. */
     private final InputStream in;
 
+    /** Pool the Inflater has been borrowed from. */
+    private final ZlibPool inflaterPool = ZlibPool.getDefault();
+
     /** Inflater used for all deflated entries. */
-    private final Inflater inf = new Inflater(true);
+    private final Inflater inf = inflaterPool.borrowInflater(true);
 
     /** Buffer used to read from the wrapped stream. */
     private final ByteBuffer buf = ByteBuffer.allocate(ZipArchiveOutputStream.BUFFER_SIZE);
@@ -109,10 +117,23 @@ public class ZipArchiveInputStream extends ArchiveInputStream implements InputSt
 
     /**
      * When reading a stored entry that uses the data descriptor this
-     * stream has to read the full entry and caches it.  This is the
-     * cache.
+     * stream has to look for the signature of the data descriptor or
+     * the next record. This is the number of bytes at the start of
+     * {@link #buf} that are known to be part of the entry's data.
+     */
+    private int storedDataEnd = 0;
+
+    /**
+     * Position inside of {@link #buf} where the search for the next
+     * signature continues.
      */
-    private ByteArrayInputStream lastStoredEntry = null;
+    private int storedScanStart = 0;
+
+    /**
+     * Whether the data descriptor of the current stored entry has
+     * been found and read.
+     */
+    private boolean storedDataDescriptorRead = false;
 
     /** Whether the stream will try to read STORED entries that use a data descriptor. */
     private boolean allowStoredEntriesWithDataDescriptor = false;
@@ -510,10 +531,7 @@ public long getUncompressedCount() {
     private int readStored(final byte[] buffer, final int offset, final int length) throws IOException {
 
         if (current.hasDataDescriptor) {
-            if (lastStoredEntry == null) {
-                readStoredEntry();
-            }
-            return lastStoredEntry.read(buffer, offset, length);
+            return readStoredWithDataDescriptor(buffer, offset, length);
         }
 
         final long csize = current.entry.getSize();
@@ -596,7 +614,7 @@ public void close() throws IOException {
             try {
                 in.close();
             } finally {
-                inf.end();
+                inflaterPool.returnInflater(inf, true);
             }
         }
     }
@@ -714,14 +732,16 @@ private void closeEntry() throws IOException {
             }
         }
 
-        if (lastStoredEntry == null && current.hasDataDescriptor) {
+        if (!storedDataDescriptorRead && current.hasDataDescriptor) {
             readDataDescriptor();
         }
 
         inf.reset();
         buf.clear().flip();
         current = null;
-        lastStoredEntry = null;
+        storedDataEnd = 0;
+        storedScanStart = 0;
+        storedDataDescriptorRead = false;
     }
 
     /**
@@ -866,51 +886,77 @@ private boolean supportsCompressedSizeFor(final ZipArchiveEntry entry) {
     }
 
     /**
-     * Caches a stored entry that uses the data descriptor.
+     * Reads a stored entry that uses the data descriptor.
      *
      * <ul>
-     *   <li>Reads a stored entry until the signature of a local file
-     *     header, central directory header or data descriptor has been
-     *     found.</li>
-     *   <li>Stores all entry data in lastStoredEntry.</p>
-     *   <li>Rewinds the stream to position at the data
+     *   <li>Reads the stored entry into {@link #buf} until the
+     *     signature of a local file header, central directory header
+     *     or data descriptor has been found.</li>
+     *   <li>Bytes that cannot be part of the data descriptor or a
+     *     signature are handed to the caller, the last bytes of the
+     *     buffer are kept until more data has been read.</li>
+     *   <li>Once a signature has been found, pushes back all bytes
+     *     following the entry's data and reads the data
      *     descriptor.</li>
-     *   <li>reads the data descriptor</li>
      * </ul>
      *
-     * <p>After calling this method the entry should know its size,
-     * the entry's data is cached and the stream is positioned at the
-     * next local file or central directory header.</p>
+     * <p>Only the buffer is needed, regardless of the size of the
+     * entry. After the data descriptor has been read the entry knows
+     * its size and the stream is positioned at the next local file or
+     * central directory header.</p>
      */
-    private void readStoredEntry() throws IOException {
-        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        int off = 0;
-        boolean done = false;
+    private int readStoredWithDataDescriptor(final byte[] buffer, final int offset, final int length)
+        throws IOException {
+        while (buf.position() >= storedDataEnd) {
+            if (storedDataDescriptorRead) {
+                return -1;
+            }
+            readAndScanStoredData();
+        }
+        final int toRead = Math.min(storedDataEnd - buf.position(), length);
+        buf.get(buffer, offset, toRead);
+        current.bytesRead += toRead;
+        return toRead;
+    }
 
+    private void readAndScanStoredData() throws IOException {
         // length of DD without signature
         final int ddLen = current.usesZip64 ? WORD + 2 * DWORD : 3 * WORD;
 
-        while (!done) {
-            final int r = in.read(buf.array(), off, ZipArchiveOutputStream.BUFFER_SIZE - off);
-            if (r <= 0) {
-                // read the whole archive without ever finding a
-                // central directory
-                throw new IOException("Truncated ZIP file");
-            }
-            if (r + off < 4) {
-                // buffer too small to check for a signature, loop
-                off += r;
-                continue;
-            }
-
-            done = bufferContainsSignature(bos, off, r, ddLen);
-            if (!done) {
-                off = cacheBytesRead(bos, off, r, ddLen);
-            }
+        // keep the bytes that could still be part of a data
+        // descriptor and an incomplete signature - 23 bytes max.
+        final byte[] b = buf.array();
+        final int kept = buf.remaining();
+        System.arraycopy(b, buf.position(), b, 0, kept);
+        storedScanStart -= buf.position();
+        buf.position(0);
+        buf.limit(kept);
+
+        final int r = in.read(b, kept, b.length - kept);
+        if (r <= 0) {
+            // read the whole archive without ever finding a
+            // central directory
+            throw new IOException("Truncated ZIP file");
+        }
+        count(r);
+        final int end = kept + r;
+        buf.limit(end);
+
+        final int sig = findSignature(b, storedScanStart, end);
+        if (sig >= 0) {
+            // a LFH or CFH is preceded by a data descriptor without signature
+            final int ddStart = b[sig + 2] == DD[2] ? sig : sig - ddLen;
+            // push back bytes read in excess as well as the data
+            // descriptor, then read data descriptor
+            pushback(b, ddStart, end - ddStart);
+            buf.limit(ddStart);
+            storedDataEnd = ddStart;
+            readDataDescriptor();
+            storedDataDescriptorRead = true;
+        } else {
+            storedScanStart = Math.max(storedScanStart, end - 3);
+            storedDataEnd = Math.max(0, end - ddLen - 3);
         }
-
-        final byte[] b = bos.toByteArray();
-        lastStoredEntry = new ByteArrayInputStream(b);
     }
 
     private static final byte[] LFH = ZipLong.LFH_SIG.getBytes();
@@ -918,64 +964,57 @@ private void readStoredEntry() throws IOException {
     private static final byte[] DD = ZipLong.DD_SIG.getBytes();
 
     /**
-     * Checks whether the current buffer contains the signature of a
-     * &quot;data descriptor&quot;, &quot;local file header&quot; or
-     * &quot;central directory entry&quot;.
-     *
-     * <p>If it contains such a signature, reads the data descriptor
-     * and positions the stream right after the data descriptor.</p>
+     * How far the search for a signature can advance based on the
+     * last byte of the current four byte window - zero if the byte
+     * could be the last byte of a signature.
      */
-    private boolean bufferContainsSignature(final ByteArrayOutputStream bos, final int offset, final int lastRead, final int expectedDDLen)
-            throws IOException {
-
-        boolean done = false;
-        int readTooMuch = 0;
-        for (int i = 0; !done && i < offset + lastRead - 4; i++) {
-            if (buf.array()[i] == LFH[0] && buf.array()[i + 1] == LFH[1]) {
-                if ((buf.array()[i + 2] == LFH[2] && buf.array()[i + 3] == LFH[3])
-                    || (buf.array()[i] == CFH[2] && buf.array()[i + 3] == CFH[3])) {
-                    // found a LFH or CFH:
-                    readTooMuch = offset + lastRead - i - expectedDDLen;
-                    done = true;
-                }
-                else if (buf.array()[i + 2] == DD[2] && buf.array()[i + 3] == DD[3]) {
-                    // found DD:
-                    readTooMuch = offset + lastRead - i;
-                    done = true;
-                }
-                if (done) {
-                    // * push back bytes read in excess as well as the data
-                    //   descriptor
-                    // * copy the remaining bytes to cache
-                    // * read data descriptor
-                    pushback(buf.array(), offset + lastRead - readTooMuch, readTooMuch);
-                    bos.write(buf.array(), 0, i);
-                    readDataDescriptor();
+    private static final byte[] SIGNATURE_SHIFT = new byte[256];
+
+    static {
+        Arrays.fill(SIGNATURE_SHIFT, (byte) WORD);
+        for (final byte[] sig : new byte[][] { LFH, CFH, DD }) {
+            for (int i = 0; i < WORD; i++) {
+                final int shift = WORD - 1 - i;
+                if (SIGNATURE_SHIFT[sig[i] & 0xff] > shift) {
+                    SIGNATURE_SHIFT[sig[i] & 0xff] = (byte) shift;
                 }
             }
         }
-        return done;
     }
 
     /**
-     * If the last read bytes could hold a data descriptor and an
-     * incomplete signature then save the last bytes to the front of
-     * the buffer and cache everything in front of the potential data
-     * descriptor into the given ByteArrayOutputStream.
+     * Searches for the signature of a &quot;data descriptor&quot;,
+     * &quot;local file header&quot; or &quot;central directory
+     * entry&quot;, skipping ahead based on the last byte of each
+     * window like Boyer-Moore-Horspool does.
+     *
+     * <p>A local file header or central directory entry is only
+     * accepted if there is enough room for a data descriptor in front
+     * of it.</p>
      *
-     * <p>Data descriptor plus incomplete signature (3 bytes in the
-     * worst case) can be 20 bytes max.</p>
+     * @return the offset of the signature or -1 if there is none in
+     * the given range
      */
-    private int cacheBytesRead(final ByteArrayOutputStream bos, int offset, final int lastRead, final int expecteDDLen) {
-        final int cacheable = offset + lastRead - expecteDDLen - 3;
-        if (cacheable > 0) {
-            bos.write(buf.array(), 0, cacheable);
-            System.arraycopy(buf.array(), cacheable, buf.array(), 0, expecteDDLen + 3);
-            offset = expecteDDLen + 3;
-        } else {
-            offset += lastRead;
+    private int findSignature(final byte[] b, final int from, final int end) {
+        final int ddLen = current.usesZip64 ? WORD + 2 * DWORD : 3 * WORD;
+        int i = from;
+        while (i <= end - WORD) {
+            final int shift = SIGNATURE_SHIFT[b[i + 3] & 0xff];
+            if (shift != 0) {
+                i += shift;
+                continue;
+            }
+            if (b[i] == LFH[0] && b[i + 1] == LFH[1]) {
+                if ((b[i + 2] == DD[2] && b[i + 3] == DD[3])
+                    || (i >= ddLen
+                        && ((b[i + 2] == LFH[2] && b[i + 3] == LFH[3])
+                            || (b[i + 2] == CFH[2] && b[i + 3] == CFH[3])))) {
+                    return i;
+                }
+            }
+            i++;
         }
-        return offset;
+        return -1;
     }
 
     private void pushback(final byte[] buf, final int offset, final int length) throws IOException {
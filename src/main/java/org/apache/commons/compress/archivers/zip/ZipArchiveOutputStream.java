@@ -24,20 +24,22 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
-import java.util.Calendar;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 import java.util.zip.Deflater;
 import java.util.zip.ZipException;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.utils.IOUtils;
 
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DATA_DESCRIPTOR_MIN_VERSION;
@@ -189,6 +191,29 @@ public class ZipArchiveOutputStream extends ArchiveOutputStream {
      */
     private long cdLength = 0;
 
+    /**
+     * Central directory records of the archive appended to, written
+     * before the records of the entries added by this stream.
+     */
+    private byte[] existingCentralDirectory;
+
+    /**
+     * Number of entries of the archive appended to.
+     */
+    private long existingEntries;
+
+    /**
+     * Receives the central file headers of entries as soon as they
+     * are closed if set.
+     */
+    private ScatterGatherBackingStore centralDirectoryStore;
+
+    /**
+     * Number of entries whose central file headers have been written
+     * to centralDirectoryStore.
+     */
+    private long storedEntries;
+
     /**
      * Helper, a 0 as ZipShort.
      */
@@ -264,7 +289,13 @@ public class ZipArchiveOutputStream extends ArchiveOutputStream {
     private Zip64Mode zip64Mode = Zip64Mode.AsNeeded;
 
     private final byte[] copyBuffer = new byte[32768];
-    private final Calendar calendarInstance = Calendar.getInstance();
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    /**
+     * Reused for all local and central file headers as well as data
+     * descriptors, grows when needed.
+     */
+    private byte[] headerBuffer = new byte[512];
 
     /**
      * Creates a new ZIP OutputStream filtering the underlying stream.
@@ -325,6 +356,80 @@ public ZipArchiveOutputStream(SeekableByteChannel channel) throws IOException {
         out = null;
     }
 
+    /**
+     * Creates a new ZIP OutputStream writing to a SeekableByteChannel
+     * that may already contain an archive.
+     *
+     * <p>If {@code append} is true and the channel isn't empty, the
+     * central directory of the existing archive is read and new
+     * entries are written where it used to start. When this stream is
+     * finished, the existing central directory records are written
+     * again, followed by the records of the new entries, so only the
+     * new data and the central directory are written rather than the
+     * whole archive. The channel must be readable and writable and is
+     * truncated when the stream is finished.</p>
+     *
+     * <p>The existing central directory is read into memory before
+     * anything is written, but new entries overwrite it in place. If
+     * appending fails or this stream is not finished, the channel is
+     * left without a central directory and doesn't contain a
+     * readable archive anymore. Work on a copy if the original
+     * archive must survive a failure.</p>
+     *
+     * <p>The comment of the existing archive is not preserved, use
+     * {@link #setComment} to set it again. Entries of the existing
+     * archive are not checked for names that are used again. {@link
+     * #getBytesWritten} only counts the data of entries added by this
+     * stream.</p>
+     *
+     * @param channel the channel to zip to
+     * @param append whether to append to the archive contained in channel
+     * @throws IOException if the existing archive cannot be read
+     * @since 1.19
+     */
+    public ZipArchiveOutputStream(final SeekableByteChannel channel, final boolean append) throws IOException {
+        this(channel);
+        if (append && channel.size() > 0) {
+            final ZipFile.CentralDirectoryRecords cd = ZipFile.readCentralDirectoryRecords(channel);
+            existingCentralDirectory = cd.records;
+            existingEntries = cd.count;
+            channel.position(cd.offset);
+            // offsets of new entries are relative to the start of the archive
+            streamCompressor.countExternallyWritten(cd.offset);
+            streamCompressor.reset();
+        }
+    }
+
+    /**
+     * Stores the central directory in the given store while entries
+     * are added rather than keeping all entries in memory until the
+     * archive is finished.
+     *
+     * <p>The central file header of each entry is created as soon as
+     * the entry is closed and written to the store, {@link #finish}
+     * copies the store's contents. This keeps the memory needed for
+     * archives with many entries constant, in particular when using
+     * an {@link
+     * org.apache.commons.compress.parallel.InMemoryScatterGatherBackingStore}
+     * that spills to disk. The store is closed when this stream is
+     * closed.</p>
+     *
+     * <p>As the headers are created early, changes to the encoding
+     * and related settings only affect entries added later and an
+     * offset requiring Zip64 extensions is detected when the entry
+     * is closed if {@link #setUseZip64} is {@link Zip64Mode#Never}.</p>
+     *
+     * @param store the store to hold the central directory
+     * @throws IllegalStateException if entries have already been added
+     * @since 1.19
+     */
+    public void setCentralDirectoryStore(final ScatterGatherBackingStore store) {
+        if (entry != null || !entries.isEmpty() || storedEntries > 0) {
+            throw new IllegalStateException("Entries have already been added");
+        }
+        centralDirectoryStore = store;
+    }
+
     /**
      * This method indicates whether this archive is writing to a
      * seekable stream (i.e., to a random access file).
@@ -473,6 +578,11 @@ public void finish() throws IOException {
         cdLength = streamCompressor.getTotalBytesWritten() - cdOffset;
         writeZip64CentralDirectory();
         writeCentralDirectoryEnd();
+        if (existingCentralDirectory != null) {
+            // the existing archive may have had a longer comment
+            channel.truncate(channel.position());
+            existingCentralDirectory = null;
+        }
         metaData.clear();
         entries.clear();
         streamCompressor.close();
@@ -481,10 +591,24 @@ public void finish() throws IOException {
 
     private void writeCentralDirectoryInChunks() throws IOException {
         final int NUM_PER_WRITE = 1000;
+        if (existingCentralDirectory != null) {
+            writeCounted(existingCentralDirectory);
+        }
+        if (centralDirectoryStore != null) {
+            centralDirectoryStore.closeForWriting();
+            try (InputStream cd = centralDirectoryStore.getInputStream()) {
+                int length;
+                while ((length = cd.read(copyBuffer)) >= 0) {
+                    streamCompressor.writeCounted(copyBuffer, 0, length);
+                }
+            }
+        }
         final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(70 * NUM_PER_WRITE);
         int count = 0;
         for (final ZipArchiveEntry ze : entries) {
-            byteArrayOutputStream.write(createCentralFileHeader(ze));
+            // may replace headerBuffer, so it must be read afterwards
+            final int len = createCentralFileHeader(ze);
+            byteArrayOutputStream.write(headerBuffer, 0, len);
             if (++count > NUM_PER_WRITE){
                 writeCounted(byteArrayOutputStream.toByteArray());
                 byteArrayOutputStream.reset();
@@ -542,6 +666,14 @@ private void closeEntry(final boolean actuallyNeedsZip64, final boolean phased)
         if (!phased) {
             writeDataDescriptor(entry.entry);
         }
+        if (centralDirectoryStore != null) {
+            final int len = createCentralFileHeader(entry.entry);
+            centralDirectoryStore.writeOut(headerBuffer, 0, len);
+            storedEntries++;
+            // the current entry is the only one in here
+            entries.clear();
+            metaData.clear();
+        }
         entry = null;
     }
 
@@ -574,6 +706,64 @@ private void preClose() throws IOException {
      */
     public void addRawArchiveEntry(final ZipArchiveEntry entry, final InputStream rawStream)
             throws IOException {
+        final boolean is2PhaseSource = putRawArchiveEntry(entry);
+        copyFromZipInputStream(rawStream);
+        closeCopiedEntry(is2PhaseSource);
+    }
+
+    /**
+     * Adds an archive entry whose raw data is the given region of a file.
+     *
+     * <p>Works like {@link #addRawArchiveEntry(ZipArchiveEntry,
+     * InputStream)} but lets the operating system copy the data
+     * directly if this stream writes to a channel.</p>
+     *
+     * @param entry The archive entry to add, its compressed size is
+     * the length of the region
+     * @param source the file holding the raw data
+     * @param start the offset of the raw data inside of source
+     * @throws IOException If copying fails
+     */
+    void addRawArchiveEntry(final ZipArchiveEntry entry, final FileChannel source, final long start)
+            throws IOException {
+        final long length = entry.getCompressedSize();
+        final boolean is2PhaseSource = putRawArchiveEntry(entry);
+        prepareCopy();
+        streamCompressor.transferCounted(source, start, length);
+        count(length);
+        closeCopiedEntry(is2PhaseSource);
+    }
+
+    /**
+     * Adds an archive entry whose raw data is going to be written by
+     * somebody else.
+     *
+     * <p>Writes the headers like {@link
+     * #addRawArchiveEntry(ZipArchiveEntry, InputStream)} but skips as
+     * many bytes as the entry's compressed size rather than writing
+     * any data. Only supported when writing to a channel.</p>
+     *
+     * @param entry The archive entry to add, crc, size and compressed
+     * size must be known
+     * @return the offset of the entry's data
+     * @throws IOException If writing the headers fails
+     */
+    long addRawArchiveEntryPlaceholder(final ZipArchiveEntry entry) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Placeholders require a channel");
+        }
+        final long length = entry.getCompressedSize();
+        final boolean is2PhaseSource = putRawArchiveEntry(entry);
+        prepareCopy();
+        final long dataStart = streamCompressor.getTotalBytesWritten();
+        channel.position(channel.position() + length);
+        streamCompressor.countExternallyWritten(length);
+        count(length);
+        closeCopiedEntry(is2PhaseSource);
+        return dataStart;
+    }
+
+    private boolean putRawArchiveEntry(final ZipArchiveEntry entry) throws IOException {
         final ZipArchiveEntry ae = new ZipArchiveEntry(entry);
         if (hasZip64Extra(ae)) {
             // Will be re-added as required. this may make the file generated with this method
@@ -585,8 +775,7 @@ public void addRawArchiveEntry(final ZipArchiveEntry entry, final InputStream ra
                 && ae.getSize() != ArchiveEntry.SIZE_UNKNOWN
                 && ae.getCompressedSize() != ArchiveEntry.SIZE_UNKNOWN;
         putArchiveEntry(ae, is2PhaseSource);
-        copyFromZipInputStream(rawStream);
-        closeCopiedEntry(is2PhaseSource);
+        return is2PhaseSource;
     }
 
     /**
@@ -683,8 +872,7 @@ private void rewriteSizesAndCrc(final boolean actuallyNeedsZip64)
         }
 
         if (hasZip64Extra(entry.entry)) {
-            final ByteBuffer name = getName(entry.entry);
-            final int nameLen = name.limit() - name.position();
+            final int nameLen = metaData.get(entry.entry).nameLength;
             // seek to ZIP64 extra, skip header and size information
             channel.position(entry.localDataStart + 3 * WORD + 2 * SHORT
                              + nameLen + 2 * SHORT);
@@ -937,11 +1125,7 @@ private void writeCounted(final byte[] data) throws IOException {
     }
 
     private void copyFromZipInputStream(final InputStream src) throws IOException {
-        if (entry == null) {
-            throw new IllegalStateException("No current entry");
-        }
-        ZipUtil.checkRequestedFeatures(entry.entry);
-        entry.hasWritten = true;
+        prepareCopy();
         int length;
         while ((length = src.read(copyBuffer)) >= 0 )
         {
@@ -950,6 +1134,14 @@ private void copyFromZipInputStream(final InputStream src) throws IOException {
         }
     }
 
+    private void prepareCopy() throws IOException {
+        if (entry == null) {
+            throw new IllegalStateException("No current entry");
+        }
+        ZipUtil.checkRequestedFeatures(entry.entry);
+        entry.hasWritten = true;
+    }
+
     /**
      * Closes this output stream and releases any system resources
      * associated with the stream.
@@ -1030,23 +1222,29 @@ protected void writeLocalFileHeader(final ZipArchiveEntry ze) throws IOException
 
     private void writeLocalFileHeader(final ZipArchiveEntry ze, final boolean phased) throws IOException {
         final boolean encodable = zipEncoding.canEncode(ze.getName());
-        final ByteBuffer name = getName(ze);
+        final ByteBuffer name = getName(ze, encodable);
 
         if (createUnicodeExtraFields != UnicodeExtraFieldPolicy.NEVER) {
             addUnicodeExtraFields(ze, encodable, name);
         }
 
         final long localHeaderStart = streamCompressor.getTotalBytesWritten();
-        final byte[] localHeader = createLocalFileHeader(ze, name, encodable, phased, localHeaderStart);
-        metaData.put(ze, new EntryMetaData(localHeaderStart, usesDataDescriptor(ze.getMethod(), phased)));
+        final int localHeaderLength = createLocalFileHeader(ze, name, encodable, phased, localHeaderStart);
+        metaData.put(ze, new EntryMetaData(localHeaderStart, usesDataDescriptor(ze.getMethod(), phased),
+            name.limit() - name.position(), encodable));
         entry.localDataStart = localHeaderStart + LFH_CRC_OFFSET; // At crc offset
-        writeCounted(localHeader);
+        streamCompressor.writeCounted(headerBuffer, 0, localHeaderLength);
         entry.dataStart = streamCompressor.getTotalBytesWritten();
     }
 
 
-    private byte[] createLocalFileHeader(final ZipArchiveEntry ze, final ByteBuffer name, final boolean encodable,
-                                         final boolean phased, long archiveOffset) {
+    /**
+     * Encodes the local file header into {@link #headerBuffer}.
+     *
+     * @return the length of the header
+     */
+    private int createLocalFileHeader(final ZipArchiveEntry ze, final ByteBuffer name, final boolean encodable,
+                                      final boolean phased, long archiveOffset) {
         ResourceAlignmentExtraField oldAlignmentEx =
             (ResourceAlignmentExtraField) ze.getExtraField(ResourceAlignmentExtraField.ID);
         if (oldAlignmentEx != null) {
@@ -1073,7 +1271,7 @@ private byte[] createLocalFileHeader(final ZipArchiveEntry ze, final ByteBuffer
         final byte[] extra = ze.getLocalFileDataExtra();
         final int nameLen = name.limit() - name.position();
         final int len = LFH_FILENAME_OFFSET + nameLen + extra.length;
-        final byte[] buf = new byte[len];
+        final byte[] buf = headerBuffer(len);
 
         System.arraycopy(LFH_SIG,  0, buf, LFH_SIG_OFFSET, WORD);
 
@@ -1089,7 +1287,7 @@ private byte[] createLocalFileHeader(final ZipArchiveEntry ze, final ByteBuffer
         // compression method
         putShort(zipMethod, buf, LFH_METHOD_OFFSET);
 
-        ZipUtil.toDosTime(calendarInstance, ze.getTime(), buf, LFH_TIME_OFFSET);
+        ZipUtil.toDosTime(timeZone, ze.getTime(), buf, LFH_TIME_OFFSET);
 
         // CRC
         if (phased){
@@ -1130,7 +1328,7 @@ private byte[] createLocalFileHeader(final ZipArchiveEntry ze, final ByteBuffer
         // extra fields
         System.arraycopy(extra, 0, buf, LFH_FILENAME_OFFSET + nameLen, extra.length);
 
-        return buf;
+        return len;
     }
 
 
@@ -1178,15 +1376,20 @@ protected void writeDataDescriptor(final ZipArchiveEntry ze) throws IOException
         if (!usesDataDescriptor(ze.getMethod(), false)) {
             return;
         }
-        writeCounted(DD_SIG);
-        writeCounted(ZipLong.getBytes(ze.getCrc()));
+        final byte[] buf = headerBuffer(2 * WORD + 2 * DWORD);
+        System.arraycopy(DD_SIG, 0, buf, 0, WORD);
+        putLong(ze.getCrc(), buf, WORD);
+        final int len;
         if (!hasZip64Extra(ze)) {
-            writeCounted(ZipLong.getBytes(ze.getCompressedSize()));
-            writeCounted(ZipLong.getBytes(ze.getSize()));
+            putLong(ze.getCompressedSize(), buf, 2 * WORD);
+            putLong(ze.getSize(), buf, 3 * WORD);
+            len = 4 * WORD;
         } else {
-            writeCounted(ZipEightByteInteger.getBytes(ze.getCompressedSize()));
-            writeCounted(ZipEightByteInteger.getBytes(ze.getSize()));
+            System.arraycopy(ZipEightByteInteger.getBytes(ze.getCompressedSize()), 0, buf, 2 * WORD, DWORD);
+            System.arraycopy(ZipEightByteInteger.getBytes(ze.getSize()), 0, buf, 2 * WORD + DWORD, DWORD);
+            len = 2 * WORD + 2 * DWORD;
         }
+        streamCompressor.writeCounted(buf, 0, len);
     }
 
     /**
@@ -1198,11 +1401,16 @@ protected void writeDataDescriptor(final ZipArchiveEntry ze) throws IOException
      * Zip64Mode#Never}.
      */
     protected void writeCentralFileHeader(final ZipArchiveEntry ze) throws IOException {
-        final byte[] centralFileHeader = createCentralFileHeader(ze);
-        writeCounted(centralFileHeader);
+        final int len = createCentralFileHeader(ze);
+        streamCompressor.writeCounted(headerBuffer, 0, len);
     }
 
-    private byte[] createCentralFileHeader(final ZipArchiveEntry ze) throws IOException {
+    /**
+     * Encodes the central file header into {@link #headerBuffer}.
+     *
+     * @return the length of the header
+     */
+    private int createCentralFileHeader(final ZipArchiveEntry ze) throws IOException {
 
         final EntryMetaData entryMetaData = metaData.get(ze);
         final boolean needsZip64Extra = hasZip64Extra(ze)
@@ -1222,32 +1430,29 @@ private byte[] createCentralFileHeader(final ZipArchiveEntry ze) throws IOExcept
 
         handleZip64Extra(ze, entryMetaData.offset, needsZip64Extra);
 
-        return createCentralFileHeader(ze, getName(ze), entryMetaData, needsZip64Extra);
+        return createCentralFileHeader(ze, entryMetaData, needsZip64Extra);
     }
 
     /**
      * Writes the central file header entry.
      * @param ze the entry to write
-     * @param name The encoded name
      * @param entryMetaData meta data for this file
+     * @return the length of the header
      * @throws IOException on error
      */
-    private byte[] createCentralFileHeader(final ZipArchiveEntry ze, final ByteBuffer name,
-                                           final EntryMetaData entryMetaData,
-                                           final boolean needsZip64Extra) throws IOException {
+    private int createCentralFileHeader(final ZipArchiveEntry ze, final EntryMetaData entryMetaData,
+                                        final boolean needsZip64Extra) throws IOException {
+        final ByteBuffer name = getName(ze, entryMetaData.encodable);
         final byte[] extra = ze.getCentralDirectoryExtra();
 
         // file comment length
-        String comm = ze.getComment();
-        if (comm == null) {
-            comm = "";
-        }
-
-        final ByteBuffer commentB = getEntryEncoding(ze).encode(comm);
+        final String comm = ze.getComment();
+        final ByteBuffer commentB = comm == null || comm.isEmpty() ? null
+            : getEntryEncoding(ze).encode(comm);
         final int nameLen = name.limit() - name.position();
-        final int commentLen = commentB.limit() - commentB.position();
+        final int commentLen = commentB == null ? 0 : commentB.limit() - commentB.position();
         final int len= CFH_FILENAME_OFFSET + nameLen + extra.length + commentLen;
-        final byte[] buf = new byte[len];
+        final byte[] buf = headerBuffer(len);
 
         System.arraycopy(CFH_SIG,  0, buf, CFH_SIG_OFFSET, WORD);
 
@@ -1257,17 +1462,16 @@ private byte[] createCentralFileHeader(final ZipArchiveEntry ze, final ByteBuffe
                 buf, CFH_VERSION_MADE_BY_OFFSET);
 
         final int zipMethod = ze.getMethod();
-        final boolean encodable = zipEncoding.canEncode(ze.getName());
         putShort(versionNeededToExtract(zipMethod, needsZip64Extra, entryMetaData.usesDataDescriptor),
             buf, CFH_VERSION_NEEDED_OFFSET);
-        getGeneralPurposeBits(!encodable && fallbackToUTF8, entryMetaData.usesDataDescriptor).encode(buf, CFH_GPB_OFFSET);
+        getGeneralPurposeBits(!entryMetaData.encodable && fallbackToUTF8, entryMetaData.usesDataDescriptor).encode(buf, CFH_GPB_OFFSET);
 
         // compression method
         putShort(zipMethod, buf, CFH_METHOD_OFFSET);
 
 
         // last mod. time and date
-        ZipUtil.toDosTime(calendarInstance, ze.getTime(), buf, CFH_TIME_OFFSET);
+        ZipUtil.toDosTime(timeZone, ze.getTime(), buf, CFH_TIME_OFFSET);
 
         // CRC
         // compressed length
@@ -1315,8 +1519,10 @@ private byte[] createCentralFileHeader(final ZipArchiveEntry ze, final ByteBuffe
         final int commentStart = extraStart + extra.length;
 
         // file comment
-        System.arraycopy(commentB.array(), commentB.arrayOffset(), buf, commentStart, commentLen);
-        return buf;
+        if (commentB != null) {
+            System.arraycopy(commentB.array(), commentB.arrayOffset(), buf, commentStart, commentLen);
+        }
+        return len;
     }
 
     /**
@@ -1359,7 +1565,7 @@ protected void writeCentralDirectoryEnd() throws IOException {
         writeCounted(ZERO);
 
         // number of entries
-        final int numberOfEntries = entries.size();
+        final long numberOfEntries = getNumberOfEntries();
         if (numberOfEntries > ZIP64_MAGIC_SHORT
             && zip64Mode == Zip64Mode.Never) {
             throw new Zip64RequiredException(Zip64RequiredException
@@ -1370,7 +1576,7 @@ protected void writeCentralDirectoryEnd() throws IOException {
                                              .ARCHIVE_TOO_BIG_MESSAGE);
         }
 
-        final byte[] num = ZipShort.getBytes(Math.min(numberOfEntries,
+        final byte[] num = ZipShort.getBytes((int) Math.min(numberOfEntries,
                                                 ZIP64_MAGIC_SHORT));
         writeCounted(num);
         writeCounted(num);
@@ -1399,7 +1605,7 @@ protected void writeZip64CentralDirectory() throws IOException {
 
         if (!hasUsedZip64
             && (cdOffset >= ZIP64_MAGIC || cdLength >= ZIP64_MAGIC
-                || entries.size() >= ZIP64_MAGIC_SHORT)) {
+                || getNumberOfEntries() >= ZIP64_MAGIC_SHORT)) {
             // actually "will use"
             hasUsedZip64 = true;
         }
@@ -1433,7 +1639,7 @@ protected void writeZip64CentralDirectory() throws IOException {
         writeOut(LZERO);
 
         // number of entries
-        final byte[] num = ZipEightByteInteger.getBytes(entries.size());
+        final byte[] num = ZipEightByteInteger.getBytes(getNumberOfEntries());
         writeOut(num);
         writeOut(num);
 
@@ -1454,6 +1660,10 @@ protected void writeZip64CentralDirectory() throws IOException {
         writeOut(ONE);
     }
 
+    private long getNumberOfEntries() {
+        return existingEntries + storedEntries + entries.size();
+    }
+
     /**
      * Write bytes to output or random access file.
      * @param data the byte array to write
@@ -1591,8 +1801,17 @@ private ZipEncoding getEntryEncoding(final ZipArchiveEntry ze) {
             ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
     }
 
-    private ByteBuffer getName(final ZipArchiveEntry ze) throws IOException {
-        return getEntryEncoding(ze).encode(ze.getName());
+    private ByteBuffer getName(final ZipArchiveEntry ze, final boolean encodable) throws IOException {
+        final ZipEncoding encoding = !encodable && fallbackToUTF8
+            ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
+        return encoding.encode(ze.getName());
+    }
+
+    private byte[] headerBuffer(final int length) {
+        if (headerBuffer.length < length) {
+            headerBuffer = new byte[Math.max(length, 2 * headerBuffer.length)];
+        }
+        return headerBuffer;
     }
 
     /**
@@ -1608,8 +1827,14 @@ void destroy() throws IOException {
                 channel.close();
             }
         } finally {
-            if (out != null) {
-                out.close();
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } finally {
+                if (centralDirectoryStore != null) {
+                    centralDirectoryStore.close();
+                }
             }
         }
     }
@@ -1688,9 +1913,14 @@ private CurrentEntry(final ZipArchiveEntry entry) {
     private static final class EntryMetaData {
         private final long offset;
         private final boolean usesDataDescriptor;
-        private EntryMetaData(long offset, boolean usesDataDescriptor) {
+        // length of the encoded name inside the local file header
+        private final int nameLength;
+        private final boolean encodable;
+        private EntryMetaData(long offset, boolean usesDataDescriptor, int nameLength, boolean encodable) {
             this.offset = offset;
             this.usesDataDescriptor = usesDataDescriptor;
+            this.nameLength = nameLength;
+            this.encodable = encodable;
         }
     }
 }
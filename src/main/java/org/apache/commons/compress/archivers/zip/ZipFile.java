@@ -26,28 +26,34 @@
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.zip.Inflater;
 import java.util.zip.ZipException;
 
 import org.apache.commons.compress.archivers.EntryStreamOffsets;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.deflate64.Deflate64CompressorInputStream;
+import org.apache.commons.compress.utils.BoundedSeekableByteChannelInputStream;
 import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.ZlibPool;
 
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DWORD;
 import static org.apache.commons.compress.archivers.zip.ZipConstants.SHORT;
@@ -85,9 +91,18 @@
  *   <li>close is allowed to throw IOException.</li>
  * </ul>
  *
+ * <p>Once it has been constructed an instance may be shared by
+ * several threads, each reading different (or the same) entries
+ * concurrently via {@link #getInputStream} or {@link
+ * #getRawInputStream}. The streams themselves are not meant to be
+ * shared. If the archive is a {@link FileChannel} - as it is when the
+ * ZipFile has been created from a {@link File} - all reads use
+ * positional reads and never block each other. Other {@link
+ * SeekableByteChannel}s are locked for the duration of each single
+ * read.</p>
+ *
  */
 public class ZipFile implements Closeable {
-    private static final int HASH_SIZE = 509;
     static final int NIBLET_MASK = 0x0f;
     static final int BYTE_SHIFT = 8;
     private static final int POS_0 = 0;
@@ -95,19 +110,39 @@ public class ZipFile implements Closeable {
     private static final int POS_2 = 2;
     private static final int POS_3 = 3;
     private static final byte[] ONE_ZERO_BYTE = new byte[1];
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Central directories of at least this size are memory mapped
+     * rather than copied to the heap if the archive is a FileChannel
+     * and the central directory is kept in memory.
+     */
+    private static final int CD_MAPPING_THRESHOLD = 1 << 20;
+
+    /**
+     * Size of the buffer used to read central directories that are
+     * neither mapped nor kept in memory completely.
+     *
+     * <p>Must be bigger than the biggest possible central directory
+     * record.</p>
+     */
+    private static final int CD_WINDOW_SIZE = 1 << 20;
 
     /**
      * List of entries in the order they appear inside the central
      * directory.
      */
-    private final List<ZipArchiveEntry> entries =
-        new LinkedList<>();
+    private List<ZipArchiveEntry> entries;
+
+    /**
+     * Maps names to entries, created when first needed.
+     */
+    private EntryNameIndex nameIndex;
 
     /**
-     * Maps String to list of ZipArchiveEntrys, name -> actual entries.
+     * Offset of the first central directory record.
      */
-    private final Map<String, LinkedList<ZipArchiveEntry>> nameMap =
-        new HashMap<>(HASH_SIZE);
+    private long centralDirectoryOffset;
 
     /**
      * The encoding to use for filenames and the file comment.
@@ -144,13 +179,11 @@ public class ZipFile implements Closeable {
     private volatile boolean closed = true;
 
     // cached buffers - must only be used locally in the class (COMPRESS-172 - reduce garbage collection)
+    // and only while the constructor runs, reading entries may happen concurrently
     private final byte[] dwordBuf = new byte[DWORD];
     private final byte[] wordBuf = new byte[WORD];
-    private final byte[] cfhBuf = new byte[CFH_LEN];
-    private final byte[] shortBuf = new byte[SHORT];
     private final ByteBuffer dwordBbuf = ByteBuffer.wrap(dwordBuf);
     private final ByteBuffer wordBbuf = ByteBuffer.wrap(wordBuf);
-    private final ByteBuffer cfhBbuf = ByteBuffer.wrap(cfhBuf);
 
     /**
      * Opens the given file for reading, assuming "UTF8" for file names.
@@ -233,6 +266,13 @@ public ZipFile(final File f, final String encoding, final boolean useUnicodeExtr
      * {@link #getRawInputStream} is always going to return {@code null} if {@code ignoreLocalFileHeader} is {@code
      * true}.</p>
      *
+     * <p>If {@code ignoreLocalFileHeader} is {@code true} the central directory is kept in memory - memory mapped if
+     * it is big - and {@link ZipArchiveEntry} instances are only created from it when they are accessed for the first
+     * time. This makes opening archives with many entries a lot cheaper, but means the mapped region may stay around
+     * until it gets garbage collected, even after the archive has been closed. Broken central directory records will
+     * cause {@code RuntimeException}s when the corresponding entry is accessed rather than when the archive is
+     * opened.</p>
+     *
      * @param f the archive.
      * @param encoding the encoding to use for file names, use null
      * for the platform's default encoding
@@ -329,6 +369,13 @@ public ZipFile(final SeekableByteChannel channel, final String archiveName,
      * {@link #getRawInputStream} is always going to return {@code null} if {@code ignoreLocalFileHeader} is {@code
      * true}.</p>
      *
+     * <p>If {@code ignoreLocalFileHeader} is {@code true} the central directory is kept in memory - memory mapped if
+     * it is big - and {@link ZipArchiveEntry} instances are only created from it when they are accessed for the first
+     * time. This makes opening archives with many entries a lot cheaper, but means the mapped region may stay around
+     * until it gets garbage collected, even after the archive has been closed. Broken central directory records will
+     * cause {@code RuntimeException}s when the corresponding entry is accessed rather than when the archive is
+     * opened.</p>
+     *
      * @param channel the archive.
      * @param archiveName name of the archive, used for error messages only.
      * @param encoding the encoding to use for file names, use null
@@ -359,12 +406,13 @@ private ZipFile(final SeekableByteChannel channel, final String archiveName,
         archive = channel;
         boolean success = false;
         try {
-            final Map<ZipArchiveEntry, NameAndComment> entriesWithoutUTF8Flag =
-                populateFromCentralDirectory();
-            if (!ignoreLocalFileHeader) {
+            if (ignoreLocalFileHeader) {
+                indexCentralDirectory();
+            } else {
+                final Map<ZipArchiveEntry, NameAndComment> entriesWithoutUTF8Flag =
+                    populateFromCentralDirectory();
                 resolveLocalFileHeaderData(entriesWithoutUTF8Flag);
             }
-            fillNameMap();
             success = true;
         } finally {
             closed = !success;
@@ -447,8 +495,8 @@ public Enumeration<ZipArchiveEntry> getEntriesInPhysicalOrder() {
      * {@code null} if not present.
      */
     public ZipArchiveEntry getEntry(final String name) {
-        final LinkedList<ZipArchiveEntry> entriesOfThatName = nameMap.get(name);
-        return entriesOfThatName != null ? entriesOfThatName.getFirst() : null;
+        final int index = nameIndex().first(name);
+        return index >= 0 ? entries.get(index) : null;
     }
 
     /**
@@ -461,9 +509,7 @@ public ZipArchiveEntry getEntry(final String name) {
      * @since 1.6
      */
     public Iterable<ZipArchiveEntry> getEntries(final String name) {
-        final List<ZipArchiveEntry> entriesOfThatName = nameMap.get(name);
-        return entriesOfThatName != null ? entriesOfThatName
-            : Collections.<ZipArchiveEntry>emptyList();
+        return Arrays.asList(toEntries(nameIndex().all(name)));
     }
 
     /**
@@ -476,14 +522,31 @@ public Iterable<ZipArchiveEntry> getEntries(final String name) {
      * @since 1.6
      */
     public Iterable<ZipArchiveEntry> getEntriesInPhysicalOrder(final String name) {
-        ZipArchiveEntry[] entriesOfThatName = new ZipArchiveEntry[0];
-        if (nameMap.containsKey(name)) {
-            entriesOfThatName = nameMap.get(name).toArray(entriesOfThatName);
-            Arrays.sort(entriesOfThatName, offsetComparator);
-        }
+        final ZipArchiveEntry[] entriesOfThatName = toEntries(nameIndex().all(name));
+        Arrays.sort(entriesOfThatName, offsetComparator);
         return Arrays.asList(entriesOfThatName);
     }
 
+    /**
+     * Returns all entries whose names start with the given prefix,
+     * sorted by name.
+     *
+     * <p>Passing in the name of a directory - including the trailing
+     * slash - lists the directory's contents recursively, entries of
+     * the same name are returned in the order they appear within the
+     * archive's central directory.</p>
+     *
+     * <p>The first invocation of this method sorts the names of all
+     * entries, later invocations only need a binary search.</p>
+     *
+     * @param prefix the prefix of the names to look for
+     * @return the entries whose names start with the given prefix
+     * @since 1.19
+     */
+    public Iterable<ZipArchiveEntry> getEntriesWithPrefix(final String prefix) {
+        return Arrays.asList(toEntries(nameIndex().withPrefix(prefix)));
+    }
+
     /**
      * Whether this class is able to read the given entry.
      *
@@ -524,6 +587,11 @@ public InputStream getRawInputStream(final ZipArchiveEntry ze) {
      * Compression and all other attributes will be as in this file.
      * <p>This method transfers entries based on the central directory of the zip file.</p>
      *
+     * <p>If this file has been opened from a {@link File} or {@link
+     * FileChannel} and the target writes to a channel, the data is
+     * copied using {@link FileChannel#transferTo} which may avoid
+     * copying it to the Java heap.</p>
+     *
      * @param target The zipArchiveOutputStream to write the entries to
      * @param predicate A predicate that selects which entries to write
      * @throws IOException on error
@@ -534,7 +602,13 @@ public void copyRawEntries(final ZipArchiveOutputStream target, final ZipArchive
         while (src.hasMoreElements()) {
             final ZipArchiveEntry entry = src.nextElement();
             if (predicate.test( entry)) {
-                target.addRawArchiveEntry(entry, getRawInputStream(entry));
+                final long start = entry.getDataOffset();
+                if (archive instanceof FileChannel && target.isSeekable()
+                    && start != EntryStreamOffsets.OFFSET_UNKNOWN) {
+                    target.addRawArchiveEntry(entry, (FileChannel) archive, start);
+                } else {
+                    target.addRawArchiveEntry(entry, getRawInputStream(entry));
+                }
             }
         }
     }
@@ -570,7 +644,8 @@ public InputStream getInputStream(final ZipArchiveEntry ze)
                 return new ExplodingInputStream(ze.getGeneralPurposeBit().getSlidingDictionarySize(),
                         ze.getGeneralPurposeBit().getNumberOfShannonFanoTrees(), is);
             case DEFLATED:
-                final Inflater inflater = new Inflater(true);
+                final ZlibPool pool = ZlibPool.getDefault();
+                final Inflater inflater = pool.borrowInflater(true);
                 // Inflater with nowrap=true has this odd contract for a zero padding
                 // byte following the data stream; this used to be zlib's requirement
                 // and has been fixed a long time ago, but the contract persists so
@@ -578,12 +653,17 @@ public InputStream getInputStream(final ZipArchiveEntry ze)
                 // https://docs.oracle.com/javase/7/docs/api/java/util/zip/Inflater.html#Inflater(boolean)
                 return new InflaterInputStreamWithStatistics(new SequenceInputStream(is, new ByteArrayInputStream(ONE_ZERO_BYTE)),
                     inflater) {
+                    private boolean returned;
+
                     @Override
                     public void close() throws IOException {
                         try {
                             super.close();
                         } finally {
-                            inflater.end();
+                            if (!returned) {
+                                returned = true;
+                                pool.returnInflater(inflater, true);
+                            }
                         }
                     }
                 };
@@ -673,8 +753,36 @@ protected void finalize() throws Throwable {
         /* external file attributes        */ + WORD
         /* relative offset of local header */ + WORD;
 
-    private static final long CFH_SIG =
-        ZipLong.getValue(ZipArchiveOutputStream.CFH_SIG);
+    /**
+     * Signature of a central directory record as read from a little
+     * endian ByteBuffer.
+     */
+    private static final int CFH_SIG_INT =
+        (int) ZipLong.getValue(ZipArchiveOutputStream.CFH_SIG);
+
+    /**
+     * Reads the central directory records of an existing archive so
+     * they can be written again after new entries have been appended.
+     *
+     * <p>The channel is not closed.</p>
+     */
+    static CentralDirectoryRecords readCentralDirectoryRecords(final SeekableByteChannel channel)
+        throws IOException {
+        final ZipFile zf = new ZipFile(channel, "archive to append to", ZipEncodingHelper.UTF8, false,
+            false, true);
+        // the channel belongs to the caller, this keeps finalize from closing it
+        zf.closed = true;
+        final LazyEntries entries = (LazyEntries) zf.entries;
+        final int count = entries.recordOffsets.length;
+        final int length = count == 0 ? 0 : entries.recordOffsets[count - 1]
+            + centralDirectoryRecordLength(entries.centralDirectory, entries.recordOffsets[count - 1]);
+        // copied as the buffer may map the region of the file that is going to be overwritten
+        final byte[] records = new byte[length];
+        final ByteBuffer cd = entries.centralDirectory.duplicate();
+        cd.position(0);
+        cd.get(records);
+        return new CentralDirectoryRecords(zf.centralDirectoryOffset, count, records);
+    }
 
     /**
      * Reads the central directory of the given archive and populates
@@ -692,52 +800,152 @@ private Map<ZipArchiveEntry, NameAndComment> populateFromCentralDirectory()
         final HashMap<ZipArchiveEntry, NameAndComment> noUTF8Flag =
             new HashMap<>();
 
-        positionAtCentralDirectory();
+        final CentralDirectoryBuffer cd = readCentralDirectory(false);
+        final ByteBuffer buf = cd.buffer;
+        final List<ZipArchiveEntry> result = new ArrayList<>();
 
-        wordBbuf.rewind();
-        IOUtils.readFully(archive, wordBbuf);
-        long sig = ZipLong.getValue(wordBuf);
+        boolean found = false;
+        while (cd.ensure(WORD) && buf.getInt(buf.position()) == CFH_SIG_INT) {
+            if (!cd.ensure(WORD + CFH_LEN)) {
+                throw new EOFException();
+            }
+            final int recordLength = centralDirectoryRecordLength(buf, buf.position());
+            if (!cd.ensure(recordLength)) {
+                throw new EOFException();
+            }
+            result.add(readCentralDirectoryEntry(buf, buf.position(), noUTF8Flag));
+            buf.position(buf.position() + recordLength);
+            found = true;
+        }
 
-        if (sig != CFH_SIG && startsWithLocalFileHeader()) {
+        if (!found && startsWithLocalFileHeader()) {
             throw new IOException("central directory is empty, can't expand"
                                   + " corrupt archive.");
         }
+        entries = result;
+        return noUTF8Flag;
+    }
 
-        while (sig == CFH_SIG) {
-            readCentralDirectoryEntry(noUTF8Flag);
-            wordBbuf.rewind();
-            IOUtils.readFully(archive, wordBbuf);
-            sig = ZipLong.getValue(wordBuf);
+    /**
+     * Locates all records of the central directory without parsing
+     * them and sets up {@link #entries} to create ZipArchiveEntry
+     * instances when they are accessed.
+     */
+    private void indexCentralDirectory() throws IOException {
+        final ByteBuffer buf = readCentralDirectory(true).buffer;
+        final int limit = buf.limit();
+        int[] offsets = new int[16];
+        int count = 0;
+        int off = 0;
+        while (off + WORD <= limit && buf.getInt(off) == CFH_SIG_INT) {
+            if (off + WORD + CFH_LEN > limit) {
+                throw new EOFException();
+            }
+            final int recordLength = centralDirectoryRecordLength(buf, off);
+            if (off + recordLength > limit) {
+                throw new EOFException();
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            }
+            offsets[count++] = off;
+            off += recordLength;
         }
-        return noUTF8Flag;
+
+        if (count == 0 && startsWithLocalFileHeader()) {
+            throw new IOException("central directory is empty, can't expand"
+                                  + " corrupt archive.");
+        }
+        entries = new LazyEntries(buf, Arrays.copyOf(offsets, count));
+    }
+
+    /**
+     * Reads the region of the archive that holds the central
+     * directory.
+     *
+     * <p>The region ends at the end of central directory record,
+     * which may include the Zip64 end of central directory structures
+     * that follow the last central directory record.</p>
+     *
+     * @param keepCompletely whether the whole central directory must
+     * be held by the returned buffer, otherwise only a window may be
+     * read that is refilled on demand.
+     */
+    private CentralDirectoryBuffer readCentralDirectory(final boolean keepCompletely)
+        throws IOException {
+        final long end = positionAtCentralDirectory();
+        final long start = archive.position();
+        centralDirectoryOffset = start;
+        final long length = Math.max(0, end - start);
+        if (!keepCompletely) {
+            final ByteBuffer window = ByteBuffer.allocate((int) Math.min(length, CD_WINDOW_SIZE));
+            window.flip();
+            return new CentralDirectoryBuffer(archive, window, start, end);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException("central directory of " + length
+                                   + " bytes is too big to be read at once");
+        }
+        // only mapped when kept, a mapping is released by the garbage
+        // collector rather than by close()
+        if (archive instanceof FileChannel && length >= CD_MAPPING_THRESHOLD) {
+            final ByteBuffer mapped = ((FileChannel) archive).map(FileChannel.MapMode.READ_ONLY, start, length);
+            return new CentralDirectoryBuffer(archive, mapped, end, end);
+        }
+        final ByteBuffer buf = ByteBuffer.allocate((int) length);
+        buf.flip();
+        return new CentralDirectoryBuffer(archive, buf, start, end);
+    }
+
+    /**
+     * Length of the central directory record starting at the given
+     * offset, including its signature.
+     */
+    private static int centralDirectoryRecordLength(final ByteBuffer cd, final int offset) {
+        final int lengthsOffset = offset + WORD + CFH_LEN - 5 * SHORT - 2 * WORD;
+        return WORD + CFH_LEN + shortAt(cd, lengthsOffset) + shortAt(cd, lengthsOffset + SHORT)
+            + shortAt(cd, lengthsOffset + 2 * SHORT);
+    }
+
+    private static int shortAt(final ByteBuffer buf, final int offset) {
+        return buf.getShort(offset) & 0xffff;
+    }
+
+    private static long wordAt(final ByteBuffer buf, final int offset) {
+        return buf.getInt(offset) & 0xffffffffL;
     }
 
     /**
-     * Reads an individual entry of the central directory, creats an
-     * ZipArchiveEntry from it and adds it to the global maps.
+     * Parses an individual record of the central directory and
+     * creates a ZipArchiveEntry from it.
      *
+     * <p>Only uses absolute reads on the buffer so it can be invoked
+     * concurrently when entries are created lazily.</p>
+     *
+     * @param cd the buffer holding the record
+     * @param recordOffset offset of the record's signature inside the buffer
      * @param noUTF8Flag map used to collect entries that don't have
      * their UTF-8 flag set and whose name will be set by data read
      * from the local file header later.  The current entry may be
-     * added to this map.
+     * added to this map. May be null if names and comments are not
+     * going to be read from the local file header.
      */
-    private void
-        readCentralDirectoryEntry(final Map<ZipArchiveEntry, NameAndComment> noUTF8Flag)
+    private Entry readCentralDirectoryEntry(final ByteBuffer cd, final int recordOffset,
+                                            final Map<ZipArchiveEntry, NameAndComment> noUTF8Flag)
         throws IOException {
-        cfhBbuf.rewind();
-        IOUtils.readFully(archive, cfhBbuf);
-        int off = 0;
+        int off = recordOffset + WORD;
         final Entry ze = new Entry();
 
-        final int versionMadeBy = ZipShort.getValue(cfhBuf, off);
+        final int versionMadeBy = shortAt(cd, off);
         off += SHORT;
         ze.setVersionMadeBy(versionMadeBy);
         ze.setPlatform((versionMadeBy >> BYTE_SHIFT) & NIBLET_MASK);
 
-        ze.setVersionRequired(ZipShort.getValue(cfhBuf, off));
+        ze.setVersionRequired(shortAt(cd, off));
         off += SHORT; // version required
 
-        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(cfhBuf, off);
+        final int rawFlag = shortAt(cd, off);
+        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(rawFlag);
         final boolean hasUTF8Flag = gpFlag.usesUTF8ForNames();
         final ZipEncoding entryEncoding =
             hasUTF8Flag ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
@@ -745,69 +953,82 @@ private Map<ZipArchiveEntry, NameAndComment> populateFromCentralDirectory()
             ze.setNameSource(ZipArchiveEntry.NameSource.NAME_WITH_EFS_FLAG);
         }
         ze.setGeneralPurposeBit(gpFlag);
-        ze.setRawFlag(ZipShort.getValue(cfhBuf, off));
+        ze.setRawFlag(rawFlag);
 
         off += SHORT;
 
         //noinspection MagicConstant
-        ze.setMethod(ZipShort.getValue(cfhBuf, off));
+        ze.setMethod(shortAt(cd, off));
         off += SHORT;
 
-        final long time = ZipUtil.dosToJavaTime(ZipLong.getValue(cfhBuf, off));
+        final long time = ZipUtil.dosToJavaTime(wordAt(cd, off));
         ze.setTime(time);
         off += WORD;
 
-        ze.setCrc(ZipLong.getValue(cfhBuf, off));
+        ze.setCrc(wordAt(cd, off));
         off += WORD;
 
-        ze.setCompressedSize(ZipLong.getValue(cfhBuf, off));
+        ze.setCompressedSize(wordAt(cd, off));
         off += WORD;
 
-        ze.setSize(ZipLong.getValue(cfhBuf, off));
+        ze.setSize(wordAt(cd, off));
         off += WORD;
 
-        final int fileNameLen = ZipShort.getValue(cfhBuf, off);
+        final int fileNameLen = shortAt(cd, off);
         off += SHORT;
 
-        final int extraLen = ZipShort.getValue(cfhBuf, off);
+        final int extraLen = shortAt(cd, off);
         off += SHORT;
 
-        final int commentLen = ZipShort.getValue(cfhBuf, off);
+        final int commentLen = shortAt(cd, off);
         off += SHORT;
 
-        final int diskStart = ZipShort.getValue(cfhBuf, off);
+        final int diskStart = shortAt(cd, off);
         off += SHORT;
 
-        ze.setInternalAttributes(ZipShort.getValue(cfhBuf, off));
+        ze.setInternalAttributes(shortAt(cd, off));
         off += SHORT;
 
-        ze.setExternalAttributes(ZipLong.getValue(cfhBuf, off));
+        ze.setExternalAttributes(wordAt(cd, off));
         off += WORD;
 
-        final byte[] fileName = new byte[fileNameLen];
-        IOUtils.readFully(archive, ByteBuffer.wrap(fileName));
-        ze.setName(entryEncoding.decode(fileName), fileName);
-
         // LFH offset,
-        ze.setLocalHeaderOffset(ZipLong.getValue(cfhBuf, off));
+        ze.setLocalHeaderOffset(wordAt(cd, off));
+        off += WORD;
         // data offset will be filled later
-        entries.add(ze);
 
-        final byte[] cdExtraData = new byte[extraLen];
-        IOUtils.readFully(archive, ByteBuffer.wrap(cdExtraData));
-        ze.setCentralDirectoryExtra(cdExtraData);
+        final byte[] fileName = bytesAt(cd, off, fileNameLen);
+        ze.setName(entryEncoding.decode(fileName), fileName);
+        off += fileNameLen;
+
+        // avoid parsing an empty array, this happens for many if not most entries
+        if (extraLen > 0) {
+            ze.setCentralDirectoryExtra(bytesAt(cd, off, extraLen));
+        }
+        off += extraLen;
 
         setSizesAndOffsetFromZip64Extra(ze, diskStart);
 
-        final byte[] comment = new byte[commentLen];
-        IOUtils.readFully(archive, ByteBuffer.wrap(comment));
-        ze.setComment(entryEncoding.decode(comment));
+        final byte[] comment = bytesAt(cd, off, commentLen);
+        ze.setComment(commentLen == 0 ? "" : entryEncoding.decode(comment));
 
-        if (!hasUTF8Flag && useUnicodeExtraFields) {
+        if (!hasUTF8Flag && useUnicodeExtraFields && noUTF8Flag != null) {
             noUTF8Flag.put(ze, new NameAndComment(fileName, comment));
         }
 
         ze.setStreamContiguous(true);
+        return ze;
+    }
+
+    private static byte[] bytesAt(final ByteBuffer buf, final int offset, final int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        final byte[] b = new byte[length];
+        final ByteBuffer view = buf.duplicate();
+        view.position(offset);
+        view.get(b);
+        return b;
     }
 
     /**
@@ -953,10 +1174,13 @@ private void setSizesAndOffsetFromZip64Extra(final ZipArchiveEntry ze,
      * locator&quot; or the &quot;End of central dir record&quot;, parses
      * it and positions the stream at the first central directory
      * record.
+     *
+     * @return the offset of the &quot;End of central dir record&quot;
      */
-    private void positionAtCentralDirectory()
+    private long positionAtCentralDirectory()
         throws IOException {
         positionAtEndOfCentralDirectoryRecord();
+        final long eocdOffset = archive.position();
         boolean found = false;
         final boolean searchedForZip64EOCD =
             archive.position() > ZIP64_EOCDL_LENGTH;
@@ -976,6 +1200,7 @@ private void positionAtCentralDirectory()
         } else {
             positionAtCentralDirectory64();
         }
+        return eocdOffset;
     }
 
     /**
@@ -1121,12 +1346,9 @@ private void resolveLocalFileHeaderData(final Map<ZipArchiveEntry, NameAndCommen
             // entries is filled in populateFromCentralDirectory and
             // never modified
             final Entry ze = (Entry) zipArchiveEntry;
-            int[] lens = setDataOffset(ze);
-            final int fileNameLen = lens[0];
-            final int extraFieldLen = lens[1];
-            skipBytes(fileNameLen);
-            final byte[] localExtraData = new byte[extraFieldLen];
-            IOUtils.readFully(archive, ByteBuffer.wrap(localExtraData));
+            final int[] lens = setDataOffset(ze);
+            final byte[] localExtraData = new byte[lens[1]];
+            readFully(ByteBuffer.wrap(localExtraData), ze.getDataOffset() - localExtraData.length);
             ze.setExtra(localExtraData);
 
             if (entriesWithoutUTF8Flag.containsKey(ze)) {
@@ -1137,37 +1359,65 @@ private void resolveLocalFileHeaderData(final Map<ZipArchiveEntry, NameAndCommen
         }
     }
 
-    private void fillNameMap() {
-        for (final ZipArchiveEntry ze : entries) {
-            // entries is filled in populateFromCentralDirectory and
-            // never modified
-            final String name = ze.getName();
-            LinkedList<ZipArchiveEntry> entriesOfThatName = nameMap.get(name);
-            if (entriesOfThatName == null) {
-                entriesOfThatName = new LinkedList<>();
-                nameMap.put(name, entriesOfThatName);
-            }
-            entriesOfThatName.addLast(ze);
+    /**
+     * The index of entry names, created on first access.
+     */
+    private synchronized EntryNameIndex nameIndex() {
+        if (nameIndex == null) {
+            // entries is filled in populateFromCentralDirectory or
+            // indexCentralDirectory and never modified
+            nameIndex = new EntryNameIndex(entries instanceof LazyEntries ? (LazyEntries) entries
+                : new EntryNameIndex.Names() {
+                    @Override
+                    public int size() {
+                        return entries.size();
+                    }
+
+                    @Override
+                    public String nameOf(final int entry) {
+                        return entries.get(entry).getName();
+                    }
+
+                    @Override
+                    public int nameHashOf(final int entry) {
+                        return nameOf(entry).hashCode();
+                    }
+                });
         }
+        return nameIndex;
     }
 
-    private int[] setDataOffset(ZipArchiveEntry ze) throws IOException {
+    private ZipArchiveEntry[] toEntries(final int[] indices) {
+        final ZipArchiveEntry[] result = new ZipArchiveEntry[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = entries.get(indices[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the name and extra field lengths of the entry's local
+     * file header and records the offset of the entry's data.
+     *
+     * <p>Doesn't touch the archive's position or any shared buffer,
+     * so it may be invoked by several threads at the same time - all
+     * of them are going to store the same value.</p>
+     *
+     * @return the lengths of the file name and the extra field
+     */
+    private int[] setDataOffset(final ZipArchiveEntry ze) throws IOException {
         final long offset = ze.getLocalHeaderOffset();
-        archive.position(offset + LFH_OFFSET_FOR_FILENAME_LENGTH);
-        wordBbuf.rewind();
-        IOUtils.readFully(archive, wordBbuf);
-        wordBbuf.flip();
-        wordBbuf.get(shortBuf);
-        final int fileNameLen = ZipShort.getValue(shortBuf);
-        wordBbuf.get(shortBuf);
-        final int extraFieldLen = ZipShort.getValue(shortBuf);
+        final ByteBuffer lengths = ByteBuffer.allocate(WORD);
+        readFully(lengths, offset + LFH_OFFSET_FOR_FILENAME_LENGTH);
+        final int fileNameLen = ZipShort.getValue(lengths.array(), 0);
+        final int extraFieldLen = ZipShort.getValue(lengths.array(), SHORT);
         ze.setDataOffset(offset + LFH_OFFSET_FOR_FILENAME_LENGTH
                          + SHORT + SHORT + fileNameLen + extraFieldLen);
         return new int[] { fileNameLen, extraFieldLen };
     }
 
-    private long getDataOffset(ZipArchiveEntry ze) throws IOException {
-        long s = ze.getDataOffset();
+    private long getDataOffset(final ZipArchiveEntry ze) throws IOException {
+        final long s = ze.getDataOffset();
         if (s == EntryStreamOffsets.OFFSET_UNKNOWN) {
             setDataOffset(ze);
             return ze.getDataOffset();
@@ -1175,6 +1425,16 @@ private long getDataOffset(ZipArchiveEntry ze) throws IOException {
         return s;
     }
 
+    /**
+     * Fills the buffer with bytes read from the given position of the
+     * archive without relying on the archive's position.
+     *
+     * @see IOUtils#readFully(SeekableByteChannel, ByteBuffer, long)
+     */
+    void readFully(final ByteBuffer buf, final long pos) throws IOException {
+        IOUtils.readFully(archive, buf, pos);
+    }
+
     /**
      * Checks whether the archive starts with a LFH.  If it doesn't,
      * it may be an empty archive.
@@ -1187,106 +1447,187 @@ private boolean startsWithLocalFileHeader() throws IOException {
     }
 
     /**
-     * Creates new BoundedInputStream, according to implementation of
-     * underlying archive channel.
+     * Creates a stream reading a range of the archive without relying
+     * on the archive's position.
      */
-    private BoundedInputStream createBoundedInputStream(long start, long remaining) {
-        return archive instanceof FileChannel ?
-            new BoundedFileChannelInputStream(start, remaining) :
-            new BoundedInputStream(start, remaining);
+    private InputStream createBoundedInputStream(final long start, final long remaining) {
+        return new BoundedSeekableByteChannelInputStream(archive, start, remaining);
     }
 
     /**
-     * InputStream that delegates requests to the underlying
-     * SeekableByteChannel, making sure that only bytes from a certain
-     * range can be read.
+     * The central directory, or a window into it.
      */
-    private class BoundedInputStream extends InputStream {
-        private ByteBuffer singleByteBuffer;
+    private static final class CentralDirectoryBuffer {
+        private final SeekableByteChannel channel;
+        private final ByteBuffer buffer;
         private final long end;
-        private long loc;
+        private long nextRead;
+
+        /**
+         * @param channel the archive
+         * @param buffer buffer that may already contain data, in
+         * "read mode" when passed in
+         * @param nextRead position of the archive to read from when
+         * the buffer needs more data
+         * @param end end of the central directory region
+         */
+        CentralDirectoryBuffer(final SeekableByteChannel channel, final ByteBuffer buffer,
+                               final long nextRead, final long end) throws IOException {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.nextRead = nextRead;
+            this.end = end;
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            ensure(buffer.capacity());
+        }
 
-        BoundedInputStream(final long start, final long remaining) {
-            this.end = start+remaining;
-            if (this.end < start) {
-                // check for potential vulnerability due to overflow
-                throw new IllegalArgumentException("Invalid length of stream at offset="+start+", length="+remaining);
+        /**
+         * Makes sure the given number of bytes are available in the
+         * buffer starting at its position.
+         *
+         * @return false if the central directory region doesn't
+         * contain that many bytes anymore.
+         */
+        boolean ensure(final int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return true;
             }
-            loc = start;
+            if (nextRead >= end) {
+                return false;
+            }
+            buffer.compact();
+            final int toRead = (int) Math.min(buffer.remaining(), end - nextRead);
+            buffer.limit(buffer.position() + toRead);
+            channel.position(nextRead);
+            IOUtils.readFully(channel, buffer);
+            nextRead += toRead;
+            buffer.flip();
+            return buffer.remaining() >= count;
+        }
+    }
+
+    /**
+     * Entries of an archive that are created from the central
+     * directory when they are accessed for the first time.
+     *
+     * <p>Names can be obtained without creating the entries.</p>
+     */
+    private final class LazyEntries extends AbstractList<ZipArchiveEntry>
+        implements RandomAccess, EntryNameIndex.Names {
+        private final ByteBuffer centralDirectory;
+        private final int[] recordOffsets;
+        private final AtomicReferenceArray<ZipArchiveEntry> created;
+        private final boolean utf8;
+
+        LazyEntries(final ByteBuffer centralDirectory, final int[] recordOffsets) {
+            this.centralDirectory = centralDirectory;
+            utf8 = ZipEncodingHelper.isUTF8(encoding);
+            this.recordOffsets = recordOffsets;
+            created = new AtomicReferenceArray<>(recordOffsets.length);
         }
 
         @Override
-        public synchronized int read() throws IOException {
-            if (loc >= end) {
-                return -1;
+        public ZipArchiveEntry get(final int index) {
+            final ZipArchiveEntry existing = created.get(index);
+            if (existing != null) {
+                return existing;
             }
-            if (singleByteBuffer == null) {
-                singleByteBuffer = ByteBuffer.allocate(1);
+            final ZipArchiveEntry ze;
+            try {
+                ze = readCentralDirectoryEntry(centralDirectory, recordOffsets[index], null);
+            } catch (final IOException e) {
+                throw new RuntimeException("Error parsing central directory record for entry #" //NOSONAR
+                                           + index + " - " + e.getMessage(), e);
             }
-            else {
-                singleByteBuffer.rewind();
+            // another thread may have won the race, make sure the same instance is returned to everybody
+            return created.compareAndSet(index, null, ze) ? ze : created.get(index);
+        }
+
+        @Override
+        public int size() {
+            return recordOffsets.length;
+        }
+
+        @Override
+        public String nameOf(final int index) {
+            final ZipArchiveEntry existing = created.get(index);
+            if (existing != null) {
+                return existing.getName();
             }
-            int read = read(loc, singleByteBuffer);
-            if (read < 0) {
-                return read;
+            final int off = recordOffsets[index];
+            final String name;
+            try {
+                name = nameEncoding(off).decode(bytesAt(centralDirectory, off + WORD + CFH_LEN,
+                                                        nameLength(off)));
+            } catch (final IOException e) {
+                throw new RuntimeException("Error decoding name of entry #" //NOSONAR
+                                           + index + " - " + e.getMessage(), e);
             }
-            loc++;
-            return singleByteBuffer.get() & 0xff;
+            return isFatWithoutSlash(off, name) ? name.replace('\\', '/') : name;
         }
 
         @Override
-        public synchronized int read(final byte[] b, final int off, int len) throws IOException {
-            if (len <= 0) {
-                return 0;
+        public int nameHashOf(final int index) {
+            final int off = recordOffsets[index];
+            if (nameEncoding(off) != ZipEncodingHelper.UTF8_ZIP_ENCODING && !utf8) {
+                return nameOf(index).hashCode();
             }
-
-            if (len > end-loc) {
-                if (loc >= end) {
-                    return -1;
+            // names consisting of ASCII characters only have the
+            // same hash as the UTF-8 encoded bytes
+            final int nameOffset = off + WORD + CFH_LEN;
+            final int nameEnd = nameOffset + nameLength(off);
+            boolean slash = false;
+            for (int i = nameOffset; i < nameEnd; i++) {
+                final byte b = centralDirectory.get(i);
+                if (b < 0) {
+                    return nameOf(index).hashCode();
                 }
-                len = (int)(end-loc);
+                slash |= b == '/';
             }
-
-            ByteBuffer buf;
-            buf = ByteBuffer.wrap(b, off, len);
-            int ret = read(loc, buf);
-            if (ret > 0) {
-                loc += ret;
-                return ret;
+            final boolean replaceBackslash = !slash && isFat(off);
+            int hash = 0;
+            for (int i = nameOffset; i < nameEnd; i++) {
+                final byte b = centralDirectory.get(i);
+                hash = 31 * hash + (replaceBackslash && b == '\\' ? '/' : b);
             }
-            return ret;
+            return hash;
         }
 
-        protected int read(long pos, ByteBuffer buf) throws IOException {
-            int read;
-            synchronized (archive) {
-                archive.position(pos);
-                read = archive.read(buf);
-            }
-            buf.flip();
-            return read;
+        private int nameLength(final int recordOffset) {
+            return shortAt(centralDirectory, recordOffset + WORD + CFH_LEN - 5 * SHORT - 2 * WORD);
         }
-    }
 
-    /**
-     * Lock-free implementation of BoundedInputStream. The
-     * implementation uses positioned reads on the underlying archive
-     * file channel and therefore performs significantly faster in
-     * concurrent environment.
-     */
-    private class BoundedFileChannelInputStream extends BoundedInputStream {
-        private final FileChannel archive;
+        private ZipEncoding nameEncoding(final int recordOffset) {
+            return GeneralPurposeBit.parse(shortAt(centralDirectory, recordOffset + WORD + 2 * SHORT))
+                .usesUTF8ForNames() ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
+        }
 
-        BoundedFileChannelInputStream(final long start, final long remaining) {
-            super(start, remaining);
-            archive = (FileChannel)ZipFile.this.archive;
+        private boolean isFat(final int recordOffset) {
+            return ((shortAt(centralDirectory, recordOffset + WORD) >> BYTE_SHIFT) & NIBLET_MASK)
+                == ZipArchiveEntry.PLATFORM_FAT;
         }
 
-        @Override
-        protected int read(long pos, ByteBuffer buf) throws IOException {
-            int read = archive.read(buf, pos);
-            buf.flip();
-            return read;
+        /**
+         * Mirrors the logic of ZipArchiveEntry#setName(String) which
+         * replaces backslashes for names created on FAT platforms.
+         */
+        private boolean isFatWithoutSlash(final int recordOffset, final String name) {
+            return isFat(recordOffset) && !name.contains("/");
+        }
+    }
+
+    /**
+     * The raw central directory records of an archive.
+     */
+    static final class CentralDirectoryRecords {
+        final long offset;
+        final int count;
+        final byte[] records;
+
+        private CentralDirectoryRecords(final long offset, final int count, final byte[] records) {
+            this.offset = offset;
+            this.count = count;
+            this.records = records;
         }
     }
 
@@ -21,6 +21,7 @@
 import java.math.BigInteger;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 
@@ -34,6 +35,10 @@ public abstract class ZipUtil {
      */
     private static final byte[] DOS_TIME_MIN = ZipLong.getBytes(0x00002100L);
 
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private static final long DAYS_PER_ERA = 146097;
+    private static final long DAYS_0000_03_01_TO_1970_01_01 = 719468;
+
     /**
      * Convert a Date object to a DOS date/time field.
      * @param time the <code>Date</code> to convert
@@ -67,24 +72,48 @@ public static byte[] toDosTime(final long t) {
      *         must be non-negative and no larger than <tt>buf.length-4</tt>
      */
     public static void toDosTime(final long t, final byte[] buf, final int offset) {
-        toDosTime(Calendar.getInstance(), t, buf, offset);
+        toDosTime(TimeZone.getDefault(), t, buf, offset);
     }
 
-    static void toDosTime(final Calendar c, final long t, final byte[] buf, final int offset) {
-        c.setTimeInMillis(t);
+    /**
+     * Converts a Java time to a DOS date/time field in the given time
+     * zone without going through a Calendar.
+     *
+     * <p>Computes the date using the proleptic Gregorian calendar,
+     * which is the same as Calendar's for all dates DOS date/time
+     * fields can represent.</p>
+     */
+    static void toDosTime(final TimeZone tz, final long t, final byte[] buf, final int offset) {
+        final long local = t + tz.getOffset(t);
+        long days = local / MILLIS_PER_DAY;
+        long millisOfDay = local % MILLIS_PER_DAY;
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+
+        // see http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        final long z = days + DAYS_0000_03_01_TO_1970_01_01;
+        final long era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+        final int dayOfEra = (int) (z - era * DAYS_PER_ERA);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        final int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
 
-        final int year = c.get(Calendar.YEAR);
         if (year < 1980) {
             System.arraycopy(DOS_TIME_MIN, 0, buf, offset, DOS_TIME_MIN.length);// stop callers from changing the array
             return;
         }
-        final int month = c.get(Calendar.MONTH) + 1;
-        final long value =  ((year - 1980) << 25)
+        final int secondOfDay = (int) (millisOfDay / 1000);
+        final long value =  (((int) year - 1980) << 25)
                 |         (month << 21)
-                |         (c.get(Calendar.DAY_OF_MONTH) << 16)
-                |         (c.get(Calendar.HOUR_OF_DAY) << 11)
-                |         (c.get(Calendar.MINUTE) << 5)
-                |         (c.get(Calendar.SECOND) >> 1);
+                |         (day << 16)
+                |         ((secondOfDay / 3600) << 11)
+                |         (((secondOfDay / 60) % 60) << 5)
+                |         ((secondOfDay % 60) >> 1);
         ZipLong.putLong(value, buf, offset);
     }
 
@@ -67,6 +67,15 @@ public class BZip2CompressorInputStream extends CompressorInputStream
     private BitInputStream bin;
     private final boolean decompressConcatenated;
 
+    /**
+     * Whether the stream only contains a single block without any
+     * stream header - see the package private constructor.
+     */
+    private final boolean singleBlock;
+    private long bitsReadAtEndOfBlock = -1;
+
+    private final BZip2Index.Builder indexBuilder;
+
     private static final int EOF = 0;
     private static final int START_BLOCK_STATE = 1;
     private static final int RAND_PART_A_STATE = 2;
@@ -128,14 +137,52 @@ public BZip2CompressorInputStream(final InputStream in) throws IOException {
      *             if {@code in == null}, the stream content is malformed, or an I/O error occurs.
      */
     public BZip2CompressorInputStream(final InputStream in, final boolean decompressConcatenated) throws IOException {
+        this(in, decompressConcatenated, null);
+    }
+
+    /**
+     * Constructs a new BZip2CompressorInputStream which reports the
+     * start of each block to the given builder.
+     */
+    BZip2CompressorInputStream(final InputStream in, final boolean decompressConcatenated,
+        final BZip2Index.Builder indexBuilder) throws IOException {
+        this.indexBuilder = indexBuilder;
         this.bin = new BitInputStream(in == System.in ? new CloseShieldFilterInputStream(in) : in,
             ByteOrder.BIG_ENDIAN);
         this.decompressConcatenated = decompressConcatenated;
+        this.singleBlock = false;
 
         init(true);
         initBlock();
     }
 
+    /**
+     * Constructs a stream that decompresses a single block.
+     *
+     * <p>The input starts with the block header magic after
+     * skipping {@code skipBits} bits, the stream returns EOF once
+     * the block has been read completely and the block's CRC has
+     * been verified.</p>
+     *
+     * @param in the input positioned at the byte containing the
+     * first bit of the block
+     * @param blockSize100k the blocksize of the bzip2 stream the
+     * block belongs to, limits the size of the block
+     * @param skipBits number of bits to skip before the block starts
+     */
+    BZip2CompressorInputStream(final InputStream in, final int blockSize100k, final int skipBits)
+        throws IOException {
+        this.bin = new BitInputStream(in, ByteOrder.BIG_ENDIAN);
+        this.decompressConcatenated = false;
+        this.singleBlock = true;
+        this.indexBuilder = null;
+        this.blockSize100k = blockSize100k;
+        if (skipBits > 0) {
+            bsR(bin, skipBits);
+        }
+        initBlock();
+    }
+
     @Override
     public int read() throws IOException {
         if (this.bin != null) {
@@ -190,6 +237,30 @@ public long getCompressedCount() {
         return bin.getBytesRead();
     }
 
+    /**
+     * The number of bits read from the input up to the end of the
+     * block - including the bits skipped initially - in single block
+     * mode, -1 if the block hasn't been read, yet.
+     */
+    long getBitsReadAtEndOfBlock() {
+        return bitsReadAtEndOfBlock;
+    }
+
+    /**
+     * The CRC stored inside the header of the current block.
+     */
+    int getStoredBlockCRC() {
+        return storedBlockCRC;
+    }
+
+    /**
+     * The length of the current block - the data after the initial
+     * run-length encoding.
+     */
+    int getBlockLength() {
+        return last + 1;
+    }
+
     private void makeMaps() {
         final boolean[] inUse = this.data.inUse;
         final byte[] seqToUnseq = this.data.seqToUnseq;
@@ -276,6 +347,10 @@ private boolean init(final boolean isFirstStream) throws IOException {
     }
 
     private void initBlock() throws IOException {
+        if (singleBlock && bitsReadAtEndOfBlock >= 0) {
+            this.currentState = EOF;
+            return;
+        }
         BitInputStream bin = this.bin;
         char magic0;
         char magic1;
@@ -283,8 +358,10 @@ private void initBlock() throws IOException {
         char magic3;
         char magic4;
         char magic5;
+        long blockStart;
 
         while (true) {
+            blockStart = bin.getBytesRead() * 8 - bin.bitsCached();
             // Get the block magic bytes.
             magic0 = bsGetUByte(bin);
             magic1 = bsGetUByte(bin);
@@ -294,7 +371,7 @@ private void initBlock() throws IOException {
             magic5 = bsGetUByte(bin);
 
             // If isn't end of stream magic, break out of the loop.
-            if (magic0 != 0x17 || magic1 != 0x72 || magic2 != 0x45
+            if (singleBlock || magic0 != 0x17 || magic1 != 0x72 || magic2 != 0x45
                     || magic3 != 0x38 || magic4 != 0x50 || magic5 != 0x90) {
                 break;
             }
@@ -317,6 +394,9 @@ private void initBlock() throws IOException {
             this.currentState = EOF;
             throw new IOException("bad block header");
         }
+        if (indexBuilder != null) {
+            indexBuilder.blockStarted(blockStart, getUncompressedCount(), blockSize100k);
+        }
         this.storedBlockCRC = bsGetInt(bin);
         this.blockRandomised = bsR(bin, 1) == 1;
 
@@ -330,6 +410,9 @@ private void initBlock() throws IOException {
 
         // currBlockNo++;
         getAndMoveToFrontDecode();
+        if (singleBlock) {
+            bitsReadAtEndOfBlock = bin.getBytesRead() * 8 - bin.bitsCached();
+        }
 
         this.crc.initialiseCRC();
         this.currentState = START_BLOCK_STATE;
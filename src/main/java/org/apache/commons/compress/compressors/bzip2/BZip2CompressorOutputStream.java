@@ -20,6 +20,7 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.apache.commons.compress.compressors.CompressorOutputStream;
 
@@ -324,6 +325,15 @@ private static void hbMakeCodeLengths(final byte[] len, final int[] freq,
     private OutputStream out;
     private volatile boolean closed;
 
+    /**
+     * Whether only the compressed blocks are written, without the
+     * stream header and trailer - used by {@link
+     * ParallelBZip2CompressorOutputStream}.
+     */
+    private final boolean blocksOnly;
+    private int[] blockCRCs = new int[0];
+    private int bitsInLastByte;
+
     /**
      * Chooses a blocksize based on the given length of the data to compress.
      *
@@ -376,6 +386,20 @@ public BZip2CompressorOutputStream(final OutputStream out)
      * @see #MAX_BLOCKSIZE
      */
     public BZip2CompressorOutputStream(final OutputStream out, final int blockSize) throws IOException {
+        this(out, blockSize, false);
+    }
+
+    /**
+     * Constructs a new {@code BZip2CompressorOutputStream} that
+     * optionally writes nothing but the compressed blocks.
+     *
+     * <p>If {@code blocksOnly} is true neither the stream header nor
+     * the end of stream marker and combined CRC are written and the
+     * last byte is padded with zero bits, see {@link
+     * #getBitsInLastByte} and {@link #getBlockCRCs}.</p>
+     */
+    BZip2CompressorOutputStream(final OutputStream out, final int blockSize, final boolean blocksOnly)
+        throws IOException {
         if (blockSize < 1) {
             throw new IllegalArgumentException("blockSize(" + blockSize + ") < 1");
         }
@@ -385,6 +409,7 @@ public BZip2CompressorOutputStream(final OutputStream out, final int blockSize)
 
         this.blockSize100k = blockSize;
         this.out = out;
+        this.blocksOnly = blocksOnly;
 
         /* 20 is just a paranoia constant */
         this.allowableBlockSize = (this.blockSize100k * BZip2Constants.BASEBLOCKSIZE) - 20;
@@ -488,7 +513,12 @@ public void finish() throws IOException {
                 }
                 this.currentChar = -1;
                 endBlock();
-                endCompression();
+                if (blocksOnly) {
+                    bitsInLastByte = bsLive == 0 ? 0 : ((bsLive - 1) & 7) + 1;
+                    bsFinishedWithStream();
+                } else {
+                    endCompression();
+                }
             } finally {
                 this.out = null;
                 this.blockSorter = null;
@@ -524,15 +554,16 @@ public void flush() throws IOException {
      * @throws IOException if the magic bytes could not been written
      */
     private void init() throws IOException {
-        bsPutUByte('B');
-        bsPutUByte('Z');
-
         this.data = new Data(this.blockSize100k);
         this.blockSorter = new BlockSort(this.data);
 
-        // huffmanised magic bytes
-        bsPutUByte('h');
-        bsPutUByte('0' + this.blockSize100k);
+        if (!blocksOnly) {
+            bsPutUByte('B');
+            bsPutUByte('Z');
+            // huffmanised magic bytes
+            bsPutUByte('h');
+            bsPutUByte('0' + this.blockSize100k);
+        }
 
         this.combinedCRC = 0;
         initBlock();
@@ -560,6 +591,10 @@ private void endBlock() throws IOException {
         if (this.last == -1) {
             return;
         }
+        if (blocksOnly) {
+            blockCRCs = Arrays.copyOf(blockCRCs, blockCRCs.length + 1);
+            blockCRCs[blockCRCs.length - 1] = blockCRC;
+        }
 
         /* sort the block and establish posn of original string */
         blockSort();
@@ -618,6 +653,22 @@ public final int getBlockSize() {
         return this.blockSize100k;
     }
 
+    /**
+     * The CRCs of all blocks written so far, in order.
+     */
+    int[] getBlockCRCs() {
+        return blockCRCs;
+    }
+
+    /**
+     * The number of bits of the last byte written by {@link #finish}
+     * that belong to the last block, only valid in blocks only mode.
+     * The remaining bits are the zero bits used as padding.
+     */
+    int getBitsInLastByte() {
+        return bitsInLastByte;
+    }
+
     @Override
     public void write(final byte[] buf, int offs, final int len)
         throws IOException {
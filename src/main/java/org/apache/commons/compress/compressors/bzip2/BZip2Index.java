@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.utils.BoundedSeekableByteChannelInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Allows reading bzip2 compressed data starting at an arbitrary
+ * position of the uncompressed data without decompressing everything
+ * in front of it.
+ *
+ * <p>bzip2 blocks can be decompressed independently of each other,
+ * so the index simply records where each block starts inside the
+ * compressed data - in bits as blocks don't start at byte boundaries
+ * - and the corresponding position inside the uncompressed data.
+ * Reading starts at the block containing the requested position, so
+ * at most one block has to be decompressed and skipped.</p>
+ *
+ * <p>An index is created via {@link #create} which decompresses an
+ * existing stream - including concatenated streams - once. It can be
+ * stored and loaded again via {@link #writeTo} and {@link
+ * #read}.</p>
+ *
+ * @Immutable
+ * @since 1.19
+ */
+public class BZip2Index {
+
+    private static final int MAGIC = 0x43434249; // CCBI
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final List<Block> blocks;
+    private final long uncompressedSize;
+
+    BZip2Index(final List<Block> blocks, final long uncompressedSize) {
+        this.blocks = Collections.unmodifiableList(new ArrayList<>(blocks));
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    /**
+     * Creates the index by decompressing a stream.
+     *
+     * <p>All offsets are relative to the current position of the
+     * stream.</p>
+     *
+     * @param in the compressed data, the stream is read completely
+     * but not closed
+     * @return the index
+     * @throws IOException if reading the stream fails
+     */
+    public static BZip2Index create(final InputStream in) throws IOException {
+        final Builder builder = new Builder();
+        // not closed as this would close the stream passed in by the caller
+        final BZip2CompressorInputStream bzip2 = new BZip2CompressorInputStream(in, true, builder);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        while (bzip2.read(buffer) >= 0) { // NOPMD NOSONAR
+            // the index covers the whole compressed stream
+        }
+        return builder.build(bzip2.getUncompressedCount());
+    }
+
+    /**
+     * The size of the uncompressed data.
+     *
+     * @return the size of the uncompressed data
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    /**
+     * The number of blocks of the compressed data.
+     *
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns a stream providing the uncompressed data starting at
+     * the given position.
+     *
+     * <p>The stream uses positional reads on {@link FileChannel}s and
+     * only locks other channels for the duration of each single read,
+     * so several streams may read from the same channel
+     * concurrently. Closing the stream doesn't close the channel.</p>
+     *
+     * <p>The CRC of each block that is read completely is verified,
+     * the combined CRCs of the streams are not.</p>
+     *
+     * @param channel the compressed data this index has been created for
+     * @param offset position inside of the uncompressed data
+     * @return a stream reading the uncompressed data from the given position
+     * @throws IOException if the data cannot be read
+     * @throws IllegalArgumentException if the offset is negative or
+     * bigger than the size of the uncompressed data
+     */
+    public InputStream openStream(final SeekableByteChannel channel, final long offset) throws IOException {
+        if (offset < 0 || offset > uncompressedSize) {
+            throw new IllegalArgumentException("Offset " + offset + " is outside of the uncompressed data");
+        }
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (blocks.get(mid).uncompressedOffset <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final BlockInputStream in = new BlockInputStream(channel, low);
+        if (!blocks.isEmpty()) {
+            final long toSkip = offset - blocks.get(low).uncompressedOffset;
+            if (IOUtils.skip(in, toSkip) != toSkip) {
+                in.close();
+                throw new EOFException("Truncated bzip2 stream");
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Writes the index to a stream.
+     *
+     * @param out the stream to write to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(uncompressedSize);
+        data.writeInt(blocks.size());
+        for (final Block b : blocks) {
+            data.writeLong(b.bitOffset);
+            data.writeLong(b.uncompressedOffset);
+            data.writeByte(b.blockSize100k);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo}.
+     *
+     * <p>Doesn't read beyond the end of the index.</p>
+     *
+     * @param in the stream to read from, it is not closed
+     * @return the index
+     * @throws IOException if reading fails or the stream doesn't
+     * contain an index
+     */
+    public static BZip2Index read(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a bzip2 index");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported bzip2 index version " + version);
+        }
+        final long uncompressedSize = data.readLong();
+        final int count = data.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt bzip2 index, negative number of blocks");
+        }
+        final List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final long bitOffset = data.readLong();
+            final long uncompressedOffset = data.readLong();
+            final int blockSize100k = data.readUnsignedByte();
+            if (blockSize100k < BZip2CompressorOutputStream.MIN_BLOCKSIZE
+                || blockSize100k > BZip2CompressorOutputStream.MAX_BLOCKSIZE) {
+                throw new IOException("Corrupt bzip2 index, invalid block size " + blockSize100k);
+            }
+            blocks.add(new Block(bitOffset, uncompressedOffset, blockSize100k));
+        }
+        return new BZip2Index(blocks, uncompressedSize);
+    }
+
+    /**
+     * The start of a block.
+     */
+    static final class Block {
+        /** Position of the block's first bit inside the compressed data. */
+        final long bitOffset;
+        /** Position inside the uncompressed data. */
+        final long uncompressedOffset;
+        /** The block size of the stream containing the block. */
+        final int blockSize100k;
+
+        Block(final long bitOffset, final long uncompressedOffset, final int blockSize100k) {
+            this.bitOffset = bitOffset;
+            this.uncompressedOffset = uncompressedOffset;
+            this.blockSize100k = blockSize100k;
+        }
+    }
+
+    /**
+     * Collects the blocks reported by {@link BZip2CompressorInputStream}.
+     */
+    static final class Builder {
+        private final List<Block> blocks = new ArrayList<>();
+
+        void blockStarted(final long bitOffset, final long uncompressedOffset, final int blockSize100k) {
+            blocks.add(new Block(bitOffset, uncompressedOffset, blockSize100k));
+        }
+
+        BZip2Index build(final long uncompressedSize) {
+            return new BZip2Index(blocks, uncompressedSize);
+        }
+    }
+
+    /**
+     * Decompresses one block after the other starting with a given
+     * block.
+     */
+    private class BlockInputStream extends InputStream {
+        private final SeekableByteChannel channel;
+        private final byte[] singleByte = new byte[1];
+        private int block;
+        private BZip2CompressorInputStream current;
+        private boolean closed;
+
+        BlockInputStream(final SeekableByteChannel channel, final int block) throws IOException {
+            this.channel = channel;
+            this.block = block;
+            if (block < blocks.size()) {
+                start();
+            }
+        }
+
+        private void start() throws IOException {
+            final Block b = blocks.get(block);
+            final long start = b.bitOffset >>> 3;
+            current = new BZip2CompressorInputStream(new BufferedInputStream(
+                new BoundedSeekableByteChannelInputStream(channel, start, channel.size() - start), BUFFER_SIZE),
+                b.blockSize100k, (int) (b.bitOffset & 7));
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int n = read(singleByte, 0, 1);
+            return n < 0 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) {
+                throw new IOException("The stream is closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (current != null) {
+                final int n = current.read(b, off, len);
+                if (n >= 0) {
+                    return n;
+                }
+                current = null;
+                if (++block < blocks.size()) {
+                    start();
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            current = null;
+        }
+    }
+}
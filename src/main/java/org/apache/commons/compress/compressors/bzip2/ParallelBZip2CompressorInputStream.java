@@ -0,0 +1,611 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.utils.InputStreamStatistics;
+
+/**
+ * An input stream that decompresses from the BZip2 format using
+ * several threads.
+ *
+ * <p>bzip2 blocks don't depend on each other and start with a 48 bit
+ * magic number - which isn't aligned to byte boundaries. This stream
+ * scans the input for the magic numbers of blocks and of the end of
+ * streams, decompresses the blocks found in between using the tasks
+ * of an {@link ExecutorService} and returns their contents in
+ * order.</p>
+ *
+ * <p>The magic number may appear inside of the compressed data by
+ * chance. If a block cannot be decompressed or doesn't end where the
+ * next magic number starts, the block is merged with the following
+ * candidate and decompressed again, so the result is always the same
+ * as the one of {@link BZip2CompressorInputStream}. The CRCs of all
+ * blocks and the combined CRC of each stream are verified.</p>
+ *
+ * <p>Input is read ahead so several blocks can be decompressed at the
+ * same time. Unlike {@link BZip2CompressorInputStream} this stream
+ * never leaves the input positioned directly after the end of a
+ * bzip2 stream. Each task in flight holds on to about five times the
+ * block size in memory plus the decompressed data, the number of
+ * blocks scanned ahead is limited to twice the number of
+ * threads.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.19
+ */
+public class ParallelBZip2CompressorInputStream extends CompressorInputStream
+    implements InputStreamStatistics {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xFFFFFFFFFFFFL;
+
+    /**
+     * For each byte value the bit offsets of a magic number that make
+     * the byte the fourth byte of a block magic (bits 0 to 7) or end
+     * of stream magic (bits 8 to 15).
+     */
+    private static final int[] MAGIC_SHIFTS = new int[256];
+
+    static {
+        for (int s = 0; s < 8; s++) {
+            MAGIC_SHIFTS[(int) (BLOCK_MAGIC >>> (16 + s)) & 0xff] |= 1 << s;
+            MAGIC_SHIFTS[(int) (EOS_MAGIC >>> (16 + s)) & 0xff] |= 1 << (s + 8);
+        }
+    }
+
+    private static final int HEADER = 0;
+    private static final int BLOCK = 1;
+    private static final int END_OF_STREAM = 2;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * No segment is longer than a block of the biggest block size
+     * plus the surrounding magic numbers and headers. The scanner may
+     * run ahead into a stream of a different block size.
+     */
+    private static final int MAX_SEGMENT_SIZE = (int) (maxBlockBits(9) >>> 3) + 64;
+
+    private final InputStream in;
+    private final boolean decompressConcatenated;
+    private final ExecutorService executorService;
+    private final boolean closeExecutorService;
+    private final int maxPendingSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Queue<byte[]> bufferPool = new ConcurrentLinkedQueue<>();
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private final byte[] oneByte = new byte[1];
+
+    // scanner state
+    private long bytesScanned;
+    private long register;
+    private boolean inputExhausted;
+    private byte[] openBytes = new byte[MIN_SEGMENT_SIZE];
+    private int openLength;
+    private long openStartByte;
+    private int openType = HEADER;
+    private long openStartBit;
+
+    // decoder state
+    private int blockSize100k;
+    private long expectedBit;
+    private int computedCombinedCRC;
+    private DecodedBlock current;
+    private int currentOffset;
+    private boolean endReached;
+    private boolean closed;
+
+    /**
+     * Creates a stream using as many threads as there are processors
+     * (or min 2), as defined by {@link
+     * java.lang.Runtime#availableProcessors}. This doesn't support
+     * decompressing concatenated .bz2 files.
+     *
+     * @param in the InputStream from which this object should be created
+     * @throws IOException if the stream doesn't start with a bzip2
+     * stream header or an I/O error occurs
+     */
+    public ParallelBZip2CompressorInputStream(final InputStream in) throws IOException {
+        this(in, false);
+    }
+
+    /**
+     * Creates a stream using as many threads as there are processors
+     * (or min 2), as defined by {@link
+     * java.lang.Runtime#availableProcessors}.
+     *
+     * @param in the InputStream from which this object should be created
+     * @param decompressConcatenated if true, decompress until the
+     * end of the input; if false, stop after the first .bz2 stream
+     * @throws IOException if the stream doesn't start with a bzip2
+     * stream header or an I/O error occurs
+     */
+    public ParallelBZip2CompressorInputStream(final InputStream in, final boolean decompressConcatenated)
+        throws IOException {
+        this(in, decompressConcatenated, Executors.newFixedThreadPool(defaultThreads()), true,
+            defaultThreads());
+    }
+
+    /**
+     * Creates a stream.
+     *
+     * @param in the InputStream from which this object should be created
+     * @param decompressConcatenated if true, decompress until the
+     * end of the input; if false, stop after the first .bz2 stream
+     * @param executorService the executorService to decompress blocks with
+     * @param closeExecutorService flag to shut down the executor
+     * service when the stream is closed
+     * @param threads the number of threads of the executor service
+     * that may be used, up to twice as many blocks are scanned ahead
+     * @throws IOException if the stream doesn't start with a bzip2
+     * stream header or an I/O error occurs
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public ParallelBZip2CompressorInputStream(final InputStream in, final boolean decompressConcatenated,
+        final ExecutorService executorService, final boolean closeExecutorService, final int threads)
+        throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads(" + threads + ") < 1");
+        }
+        this.in = in;
+        this.decompressConcatenated = decompressConcatenated;
+        this.executorService = executorService;
+        this.closeExecutorService = closeExecutorService;
+        this.maxPendingSegments = 2 * threads;
+        while (bytesScanned < 4 && scan()) { // NOPMD NOSONAR
+        }
+        // the header may already have been split off by a block's magic
+        final byte[] header = segments.isEmpty() ? openBytes : segments.peekFirst().bytes;
+        final long headerLength = Math.min(bytesScanned, 4);
+        if (headerLength < 3 || header[0] != 'B' || header[1] != 'Z' || header[2] != 'h') {
+            releaseResources();
+            throw new IOException("Stream is not in the BZip2 format");
+        }
+        if (headerLength < 4 || header[3] < '1' || header[3] > '9') {
+            releaseResources();
+            throw new IOException("BZip2 block size is invalid");
+        }
+        blockSize100k = header[3] - '0';
+        expectedBit = 32;
+    }
+
+    private static int defaultThreads() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || currentOffset == current.length) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, current.length - currentOffset);
+        System.arraycopy(current.buffer, currentOffset, b, off, n);
+        currentOffset += n;
+        count(n);
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            releaseResources();
+        } finally {
+            if (in != System.in) {
+                in.close();
+            }
+        }
+    }
+
+    private void releaseResources() {
+        for (final Segment s : segments) {
+            if (s.future != null) {
+                s.future.cancel(true);
+            }
+        }
+        segments.clear();
+        current = null;
+        bufferPool.clear();
+        if (closeExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of bytes read from the input - including the
+     * ones read ahead.
+     */
+    @Override
+    public long getCompressedCount() {
+        return bytesScanned;
+    }
+
+    /**
+     * Makes the next block the current one.
+     *
+     * @return false if the end of the (last) stream has been reached
+     */
+    private boolean nextBlock() throws IOException {
+        if (current != null) {
+            bufferPool.offer(current.buffer);
+            current = null;
+        }
+        while (!endReached) {
+            final Segment s = nextSegment();
+            if (s == null) {
+                throw new IOException("unexpected end of stream");
+            }
+            if (s.startBit > expectedBit) {
+                cancel(s);
+                throw new IOException("bad block header");
+            }
+            if (s.startBit < expectedBit) {
+                // data that has already been consumed by merging segments
+                cancel(s);
+                continue;
+            }
+            if (s.type == BLOCK) {
+                current = decodeBlock(s);
+                currentOffset = 0;
+                return true;
+            }
+            if (s.type == END_OF_STREAM) {
+                endOfStream(s);
+            }
+        }
+        return false;
+    }
+
+    private DecodedBlock decodeBlock(Segment s) throws IOException {
+        DecodedBlock block = null;
+        IOException failure = null;
+        try {
+            block = await(s.future);
+        } catch (final IOException ex) {
+            failure = ex;
+        }
+        // the block has been cut short by a magic number found inside
+        // of the compressed data by chance, retry with the next segment
+        while (block == null || block.endBit != s.endBit) {
+            if (block != null) {
+                bufferPool.offer(block.buffer);
+            }
+            final Segment next = s.endBit - s.startBit > maxBlockBits() ? null : nextSegment();
+            if (next == null) {
+                throw failure != null ? failure : new IOException("stream corrupted");
+            }
+            s = merge(s, next);
+            block = null;
+            try {
+                block = decode(s.bytes, s.length, s.startBit, bufferPool.poll());
+                failure = null;
+            } catch (final IOException ex) {
+                failure = ex;
+            }
+        }
+        if (block.blockLength > blockSize100k * BZip2Constants.BASEBLOCKSIZE) {
+            throw new IOException("block overrun while expanding RLE in MTF, "
+                + block.blockLength + " exceeds " + blockSize100k * BZip2Constants.BASEBLOCKSIZE);
+        }
+        computedCombinedCRC = ((computedCombinedCRC << 1) | (computedCombinedCRC >>> 31)) ^ block.crc;
+        expectedBit = s.endBit;
+        return block;
+    }
+
+    /**
+     * An upper bound for the size of a compressed block, no symbol
+     * is encoded with more than 20 bits.
+     */
+    private long maxBlockBits() {
+        return maxBlockBits(blockSize100k);
+    }
+
+    private static long maxBlockBits(final int blockSize100k) {
+        return 20L * (blockSize100k * BZip2Constants.BASEBLOCKSIZE + 1) + 8L * 65536;
+    }
+
+    private void endOfStream(Segment s) throws IOException {
+        final long crcEnd = s.startBit + 80;
+        while (s.endBit < crcEnd) {
+            final Segment next = nextSegment();
+            if (next == null) {
+                throw new IOException("unexpected end of stream");
+            }
+            s = merge(s, next);
+        }
+        if ((int) bits(s, s.startBit + 48, 32) != computedCombinedCRC) {
+            throw new IOException("BZip2 CRC error");
+        }
+        final long nextStreamBit = (crcEnd + 7) & ~7L;
+        if (!decompressConcatenated || (s.endBit <= nextStreamBit && peekSegment() == null)) {
+            endReached = true;
+            return;
+        }
+        while (s.endBit < nextStreamBit + 32) {
+            final Segment next = nextSegment();
+            if (next == null) {
+                throw new IOException("Garbage after a valid BZip2 stream");
+            }
+            s = merge(s, next);
+        }
+        if (bits(s, nextStreamBit, 8) != 'B' || bits(s, nextStreamBit + 8, 8) != 'Z'
+            || bits(s, nextStreamBit + 16, 8) != 'h') {
+            throw new IOException("Garbage after a valid BZip2 stream");
+        }
+        final int blockSize = (int) bits(s, nextStreamBit + 24, 8);
+        if (blockSize < '1' || blockSize > '9') {
+            throw new IOException("BZip2 block size is invalid");
+        }
+        blockSize100k = blockSize - '0';
+        computedCombinedCRC = 0;
+        expectedBit = nextStreamBit + 32;
+    }
+
+    private static long bits(final Segment s, final long startBit, final int count) {
+        final long offset = startBit - ((s.startBit >>> 3) << 3);
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            final long bit = offset + i;
+            value = (value << 1) | ((s.bytes[(int) (bit >>> 3)] >>> (7 - (bit & 7))) & 1);
+        }
+        return value;
+    }
+
+    /**
+     * Combines two adjacent segments into one that has the type of
+     * the first one.
+     */
+    private Segment merge(final Segment first, final Segment second) {
+        cancel(second);
+        final int keep = (int) ((second.startBit >>> 3) - (first.startBit >>> 3));
+        final byte[] bytes = Arrays.copyOf(first.bytes, keep + second.length);
+        System.arraycopy(second.bytes, 0, bytes, keep, second.length);
+        return new Segment(first.type, first.startBit, second.endBit, bytes, keep + second.length);
+    }
+
+    private void cancel(final Segment s) {
+        if (s.future != null && !s.future.cancel(false) && !s.future.isCancelled()) {
+            try {
+                bufferPool.offer(await(s.future).buffer);
+            } catch (final IOException ex) { // NOPMD NOSONAR
+                // result isn't needed anyway
+            }
+        }
+    }
+
+    private Segment nextSegment() throws IOException {
+        final Segment s = peekSegment();
+        if (s != null) {
+            segments.removeFirst();
+        }
+        return s;
+    }
+
+    /**
+     * Scans ahead so the decoders are kept busy and returns the next
+     * segment without removing it.
+     */
+    private Segment peekSegment() throws IOException {
+        while (segments.isEmpty() && scan()) { // NOPMD NOSONAR
+        }
+        while (segments.size() < maxPendingSegments && scan()) { // NOPMD NOSONAR
+        }
+        return segments.peekFirst();
+    }
+
+    /**
+     * Reads the next chunk of input and looks for magic numbers.
+     *
+     * @return false if the end of input has been reached
+     */
+    private boolean scan() throws IOException {
+        if (inputExhausted) {
+            return false;
+        }
+        final int n = in.read(readBuffer);
+        if (n < 0) {
+            inputExhausted = true;
+            if (bytesScanned > 0) {
+                closeSegment(bytesScanned * 8);
+            }
+            return false;
+        }
+        if (openLength + n > openBytes.length) {
+            openBytes = Arrays.copyOf(openBytes, Math.max(openLength + n, 2 * openBytes.length));
+        }
+        System.arraycopy(readBuffer, 0, openBytes, openLength, n);
+        openLength += n;
+        for (int i = 0; i < n; i++) {
+            register = (register << 8) | (readBuffer[i] & 0xff);
+            // a magic number starting at byte bytesScanned - 7 now
+            // is completely inside of the register
+            if (++bytesScanned >= 7) {
+                final int shifts = MAGIC_SHIFTS[(int) (register >>> 24) & 0xff];
+                if (shifts != 0) {
+                    findMagic(shifts);
+                }
+            }
+        }
+        if (openLength > MAX_SEGMENT_SIZE) {
+            if (openType != END_OF_STREAM) {
+                throw new IOException("stream corrupted");
+            }
+            // anything but garbage after the end of a stream would have started a new segment
+            inputExhausted = true;
+            closeSegment(bytesScanned * 8);
+            return false;
+        }
+        return true;
+    }
+
+    private void findMagic(final int shifts) {
+        for (int s = 0; s < 8; s++) {
+            final long candidate = (register >>> (8 - s)) & MAGIC_MASK;
+            if ((shifts & (1 << s)) != 0 && candidate == BLOCK_MAGIC) {
+                startSegment(BLOCK, (bytesScanned - 7) * 8 + s);
+            } else if ((shifts & (1 << (s + 8))) != 0 && candidate == EOS_MAGIC) {
+                startSegment(END_OF_STREAM, (bytesScanned - 7) * 8 + s);
+            }
+        }
+    }
+
+    private void startSegment(final int type, final long startBit) {
+        final byte[] previous = openBytes;
+        final int previousLength = openLength;
+        closeSegment(startBit);
+        final int keepFrom = (int) ((startBit >>> 3) - openStartByte);
+        openBytes = new byte[Math.max(MIN_SEGMENT_SIZE, previous.length)];
+        openLength = previousLength - keepFrom;
+        System.arraycopy(previous, keepFrom, openBytes, 0, openLength);
+        openStartByte = startBit >>> 3;
+        openStartBit = startBit;
+        openType = type;
+    }
+
+    private void closeSegment(final long endBit) {
+        final int length = (int) (((endBit + 7) >>> 3) - openStartByte);
+        final Segment s = new Segment(openType, openStartBit, endBit, openBytes, length);
+        if (openType == BLOCK) {
+            final Queue<byte[]> pool = bufferPool;
+            s.future = executorService.submit(new Callable<DecodedBlock>() {
+                @Override
+                public DecodedBlock call() throws IOException {
+                    return decode(s.bytes, s.length, s.startBit, pool.poll());
+                }
+            });
+        }
+        segments.add(s);
+    }
+
+    /**
+     * Decompresses a block that starts at the given bit offset of the
+     * first byte.
+     */
+    private static DecodedBlock decode(final byte[] bytes, final int length, final long startBit,
+        final byte[] buffer) throws IOException {
+        try {
+            final BZip2CompressorInputStream bzip2 = new BZip2CompressorInputStream(
+                new ByteArrayInputStream(bytes, 0, length), BZip2CompressorOutputStream.MAX_BLOCKSIZE,
+                (int) (startBit & 7));
+            byte[] out = buffer == null ? new byte[BZip2Constants.BASEBLOCKSIZE] : buffer;
+            int outLength = 0;
+            int n;
+            while ((n = bzip2.read(out, outLength, out.length - outLength)) >= 0) {
+                outLength += n;
+                if (outLength == out.length) {
+                    out = Arrays.copyOf(out, 2 * out.length);
+                }
+            }
+            return new DecodedBlock(out, outLength, bzip2.getStoredBlockCRC(), bzip2.getBlockLength(),
+                ((startBit >>> 3) << 3) + bzip2.getBitsReadAtEndOfBlock());
+        } catch (final RuntimeException ex) {
+            throw new IOException("stream corrupted", ex);
+        }
+    }
+
+    private static DecodedBlock await(final Future<DecodedBlock> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("interrupted while decompressing")
+                .initCause(ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * A range of the input between two magic numbers, or between
+     * the start of the input and the first magic number.
+     */
+    private static final class Segment {
+        private final int type;
+        private final long startBit;
+        private final long endBit;
+        /** Input starting with the byte that contains startBit. */
+        private final byte[] bytes;
+        private final int length;
+        private Future<DecodedBlock> future;
+
+        private Segment(final int type, final long startBit, final long endBit, final byte[] bytes,
+            final int length) {
+            this.type = type;
+            this.startBit = startBit;
+            this.endBit = endBit;
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    private static final class DecodedBlock {
+        private final byte[] buffer;
+        private final int length;
+        private final int crc;
+        private final int blockLength;
+        private final long endBit;
+
+        private DecodedBlock(final byte[] buffer, final int length, final int crc, final int blockLength,
+            final long endBit) {
+            this.buffer = buffer;
+            this.length = length;
+            this.crc = crc;
+            this.blockLength = blockLength;
+            this.endBit = endBit;
+        }
+    }
+}
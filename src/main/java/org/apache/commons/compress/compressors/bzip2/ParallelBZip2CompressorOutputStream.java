@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.CompressorOutputStream;
+
+/**
+ * An output stream that compresses into the BZip2 format using
+ * several threads.
+ *
+ * <p>The uncompressed data is split into chunks of about the block
+ * size, each chunk is compressed into one or more bzip2 blocks by a
+ * task of an {@link ExecutorService} and the results are
+ * concatenated in order - just like pbzip2 does it. The result is a
+ * single bzip2 stream that can be read by {@link
+ * BZip2CompressorInputStream} or any other bzip2 decompressor. The
+ * output is usually not identical to the one created by {@link
+ * BZip2CompressorOutputStream} as block boundaries may differ
+ * slightly.</p>
+ *
+ * <p>Each task in flight holds on to about nine times the block size
+ * in memory, the number of tasks waiting for their result to be
+ * written is limited to twice the number of threads.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.19
+ */
+public class ParallelBZip2CompressorOutputStream extends CompressorOutputStream {
+
+    private static final int OUT_BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final int blockSize100k;
+    private final int chunkSize;
+    private final ExecutorService executorService;
+    private final boolean closeExecutorService;
+    private final int maxPendingChunks;
+    private final Deque<Future<CompressedChunk>> pending = new ArrayDeque<>();
+    private final byte[] oneByte = new byte[1];
+    private final byte[] outBuffer = new byte[OUT_BUFFER_SIZE];
+    private byte[] chunk;
+    private int chunkLength;
+    private int outLength;
+    private int bsBuff;
+    private int bsLive;
+    private int combinedCRC;
+    private boolean finished;
+
+    /**
+     * Creates a stream with a blocksize of 900k using as many threads
+     * as there are processors (or min 2), as defined by {@link
+     * java.lang.Runtime#availableProcessors}.
+     *
+     * @param out the destination stream
+     * @throws IOException if writing the stream header fails
+     */
+    public ParallelBZip2CompressorOutputStream(final OutputStream out) throws IOException {
+        this(out, BZip2CompressorOutputStream.MAX_BLOCKSIZE);
+    }
+
+    /**
+     * Creates a stream using as many threads as there are processors
+     * (or min 2), as defined by {@link
+     * java.lang.Runtime#availableProcessors}.
+     *
+     * @param out the destination stream
+     * @param blockSize the blockSize as 100k units
+     * @throws IOException if writing the stream header fails
+     * @throws IllegalArgumentException if <code>(blockSize &lt; 1)
+     * || (blockSize &gt; 9)</code>
+     */
+    public ParallelBZip2CompressorOutputStream(final OutputStream out, final int blockSize) throws IOException {
+        this(out, blockSize, Executors.newFixedThreadPool(defaultThreads()), true, defaultThreads());
+    }
+
+    /**
+     * Creates a stream.
+     *
+     * @param out the destination stream
+     * @param blockSize the blockSize as 100k units
+     * @param executorService the executorService to compress blocks with
+     * @param closeExecutorService flag to shut down the executor
+     * service when the stream is finished
+     * @param threads the number of threads of the executor service
+     * that may be used, up to twice as many compressed blocks are
+     * kept in memory while waiting to be written
+     * @throws IOException if writing the stream header fails
+     * @throws IllegalArgumentException if <code>(blockSize &lt; 1)
+     * || (blockSize &gt; 9)</code> or threads is not positive
+     */
+    public ParallelBZip2CompressorOutputStream(final OutputStream out, final int blockSize,
+        final ExecutorService executorService, final boolean closeExecutorService, final int threads)
+        throws IOException {
+        if (blockSize < BZip2CompressorOutputStream.MIN_BLOCKSIZE) {
+            throw new IllegalArgumentException("blockSize(" + blockSize + ") < 1");
+        }
+        if (blockSize > BZip2CompressorOutputStream.MAX_BLOCKSIZE) {
+            throw new IllegalArgumentException("blockSize(" + blockSize + ") > 9");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads(" + threads + ") < 1");
+        }
+        this.out = out;
+        this.blockSize100k = blockSize;
+        // as many bytes as BZip2CompressorOutputStream puts into a
+        // block if the first step of run-length encoding doesn't
+        // change the size
+        this.chunkSize = blockSize * BZip2Constants.BASEBLOCKSIZE - 19;
+        this.executorService = executorService;
+        this.closeExecutorService = closeExecutorService;
+        this.maxPendingChunks = 2 * threads;
+        bsW(8, 'B');
+        bsW(8, 'Z');
+        bsW(8, 'h');
+        bsW(8, '0' + blockSize);
+    }
+
+    private static int defaultThreads() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the blocksize parameter specified at construction time.
+     * @return the blocksize parameter specified at construction time
+     */
+    public int getBlockSize() {
+        return blockSize100k;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        oneByte[0] = (byte) b;
+        write(oneByte, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] buf, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("stream closed");
+        }
+        while (len > 0) {
+            if (chunk == null) {
+                chunk = new byte[chunkSize];
+            }
+            final int n = Math.min(len, chunkSize - chunkLength);
+            System.arraycopy(buf, off, chunk, chunkLength, n);
+            chunkLength += n;
+            off += n;
+            len -= n;
+            if (chunkLength == chunkSize) {
+                submitChunk();
+            }
+        }
+    }
+
+    /**
+     * Compresses all remaining data and writes the end of the stream
+     * without closing the underlying stream.
+     *
+     * <p>Shuts down the executor service if the stream has been
+     * asked to do so.</p>
+     *
+     * @throws IOException if compressing or writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (chunkLength > 0) {
+                submitChunk();
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending.removeFirst());
+            }
+            // end of stream marker, see BZip2CompressorOutputStream#endCompression
+            bsW(24, 0x177245);
+            bsW(24, 0x385090);
+            bsW(16, combinedCRC >>> 16);
+            bsW(16, combinedCRC & 0xffff);
+            while (bsLive > 0) {
+                putByte(bsBuff >>> 24);
+                bsBuff <<= 8;
+                bsLive -= 8;
+            }
+            flushOutBuffer();
+        } finally {
+            for (final Future<CompressedChunk> f : pending) {
+                f.cancel(true);
+            }
+            pending.clear();
+            chunk = null;
+            if (closeExecutorService) {
+                executorService.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Flushes the underlying stream.
+     *
+     * <p>Data that has not been compressed, yet, is not affected,
+     * just like with {@link BZip2CompressorOutputStream#flush}.</p>
+     */
+    @Override
+    public void flush() throws IOException {
+        flushOutBuffer();
+        out.flush();
+    }
+
+    private void submitChunk() throws IOException {
+        final byte[] data = chunk;
+        final int length = chunkLength;
+        chunk = null;
+        chunkLength = 0;
+        pending.add(executorService.submit(new Callable<CompressedChunk>() {
+            @Override
+            public CompressedChunk call() throws IOException {
+                return compress(data, length, blockSize100k);
+            }
+        }));
+        while (pending.size() > maxPendingChunks) {
+            writeChunk(pending.removeFirst());
+        }
+    }
+
+    private static CompressedChunk compress(final byte[] data, final int length, final int blockSize)
+        throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2);
+        final BZip2CompressorOutputStream bzip2 = new BZip2CompressorOutputStream(bos, blockSize, true);
+        bzip2.write(data, 0, length);
+        bzip2.finish();
+        return new CompressedChunk(bos.toByteArray(), bzip2.getBitsInLastByte(), bzip2.getBlockCRCs());
+    }
+
+    private void writeChunk(final Future<CompressedChunk> future) throws IOException {
+        final CompressedChunk c;
+        try {
+            c = future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("interrupted while compressing")
+                .initCause(ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        for (final int blockCRC : c.blockCRCs) {
+            combinedCRC = ((combinedCRC << 1) | (combinedCRC >>> 31)) ^ blockCRC;
+        }
+        final byte[] bits = c.bits;
+        if (bits.length == 0) {
+            return;
+        }
+        final int fullBytes = bits.length - 1;
+        while (bsLive >= 8) {
+            putByte(bsBuff >>> 24);
+            bsBuff <<= 8;
+            bsLive -= 8;
+        }
+        if (bsLive == 0) {
+            // byte aligned, no need to shift
+            flushOutBuffer();
+            out.write(bits, 0, fullBytes);
+        } else {
+            for (int i = 0; i < fullBytes; i++) {
+                bsW(8, bits[i] & 0xff);
+            }
+        }
+        bsW(c.bitsInLastByte, (bits[fullBytes] & 0xff) >>> (8 - c.bitsInLastByte));
+    }
+
+    /**
+     * Writes the n lowest bits of v, n must not exceed 24.
+     */
+    private void bsW(final int n, final int v) throws IOException {
+        while (bsLive >= 8) {
+            putByte(bsBuff >>> 24);
+            bsBuff <<= 8;
+            bsLive -= 8;
+        }
+        bsBuff |= v << (32 - bsLive - n);
+        bsLive += n;
+    }
+
+    private void putByte(final int b) throws IOException {
+        if (outLength == OUT_BUFFER_SIZE) {
+            flushOutBuffer();
+        }
+        outBuffer[outLength++] = (byte) b;
+    }
+
+    private void flushOutBuffer() throws IOException {
+        if (outLength > 0) {
+            out.write(outBuffer, 0, outLength);
+            outLength = 0;
+        }
+    }
+
+    private static final class CompressedChunk {
+        private final byte[] bits;
+        private final int bitsInLastByte;
+        private final int[] blockCRCs;
+
+        private CompressedChunk(final byte[] bits, final int bitsInLastByte, final int[] blockCRCs) {
+            this.bits = bits;
+            this.bitsInLastByte = bitsInLastByte;
+            this.blockCRCs = blockCRCs;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.compressors.deflate64;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.commons.compress.utils.BitInputStream;
+
+/**
+ * Decodes a raw deflate stream and tells where its blocks start.
+ *
+ * <p>This class is not part of the supported API and may change or
+ * be removed without notice. It only exists so {@link
+ * org.apache.commons.compress.compressors.gzip.GzipIndexingInputStream}
+ * can use the decoder of this package.</p>
+ *
+ * @since 1.19
+ * @NotThreadSafe
+ */
+public final class DeflateBlockDecoder implements Closeable {
+
+    /** Size of the window of a deflate stream. */
+    public static final int WINDOW_SIZE = HuffmanDecoder.DEFLATE_WINDOW_SIZE;
+
+    private final HuffmanDecoder decoder;
+
+    /**
+     * Creates a decoder reading from a stream that is positioned at
+     * the start of a block.
+     *
+     * @param reader the stream to read from, its position tells how
+     * much of the stream has been consumed
+     */
+    public DeflateBlockDecoder(final BitInputStream reader) {
+        decoder = new HuffmanDecoder(reader, false, null);
+    }
+
+    /**
+     * Decodes data into the given array.
+     *
+     * @param b the array to fill
+     * @param off the offset of the first byte to write
+     * @param len the maximum number of bytes to write
+     * @return the number of bytes decoded or -1 if the end of the
+     * final block has been reached
+     * @throws IOException if the stream cannot be read or is corrupt
+     */
+    public int decode(final byte[] b, final int off, final int len) throws IOException {
+        return decoder.decode(b, off, len);
+    }
+
+    /**
+     * Whether the next bits to read are the header of a block.
+     *
+     * @return true if all blocks read so far have been decoded
+     * completely and the last one of them was not the final block
+     */
+    public boolean isAtBlockBoundary() {
+        return decoder.isAtBlockBoundary();
+    }
+
+    /**
+     * Copies the most recently decoded bytes - at most as many as fit
+     * into the buffer - to the buffer.
+     *
+     * @param buffer the buffer to fill
+     * @return the number of bytes copied, they are at the start of
+     * the buffer
+     */
+    public int getWindow(final byte[] buffer) {
+        return decoder.getWindow(buffer);
+    }
+
+    @Override
+    public void close() {
+        decoder.close();
+    }
+}
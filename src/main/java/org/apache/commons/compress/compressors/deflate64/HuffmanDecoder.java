@@ -28,8 +28,16 @@
 
 import static org.apache.commons.compress.compressors.deflate64.HuffmanState.*;
 
+/**
+ * Decodes raw deflate64 or deflate streams.
+ *
+ * @see DeflateBlockDecoder
+ */
 class HuffmanDecoder implements Closeable {
-    
+
+    /** Size of the window of a deflate (rather than deflate64) stream. */
+    static final int DEFLATE_WINDOW_SIZE = 1 << 15;
+
     /**
      * <pre>
      * --------------------------------------------------------------------
@@ -106,19 +114,58 @@ class HuffmanDecoder implements Closeable {
         Arrays.fill(FIXED_DISTANCE, 5);
     }
 
+    /** Longest code allowed by the format. */
+    private static final int MAX_CODE_LENGTH = 15;
+
+    /**
+     * Number of bits used to index the primary tables, longer codes
+     * are looked up in sub-tables.
+     */
+    private static final int LITERAL_TABLE_BITS = 9;
+    private static final int DISTANCE_TABLE_BITS = 7;
+    private static final int CODE_LENGTH_TABLE_BITS = 7;
+
+    private static final HuffmanTable FIXED_LITERAL_TABLE = new HuffmanTable(FIXED_LITERALS, LITERAL_TABLE_BITS);
+    private static final HuffmanTable FIXED_DISTANCE_TABLE = new HuffmanTable(FIXED_DISTANCE, DISTANCE_TABLE_BITS);
+
     private boolean finalBlock = false;
     private DecoderState state;
     private BitInputStream reader;
     private final InputStream in;
+    private final boolean deflate64;
 
     private final DecodingMemory memory = new DecodingMemory();
 
     HuffmanDecoder(InputStream in) {
         this.reader = new BitInputStream(in, ByteOrder.LITTLE_ENDIAN);
         this.in = in;
+        deflate64 = true;
         state = new InitialState();
     }
 
+    /**
+     * Creates a decoder reading from a stream that is positioned at
+     * the start of a block.
+     *
+     * <p>All bits are read via the given reader, so the reader's
+     * position tells how much of the stream has been consumed.</p>
+     *
+     * @param reader the stream to read from
+     * @param deflate64 whether to decode deflate64 rather than deflate
+     * @param window the uncompressed data that precedes the block,
+     * may be null. At most the last 32 KiB (64 KiB for deflate64) are
+     * used.
+     */
+    HuffmanDecoder(BitInputStream reader, boolean deflate64, byte[] window) {
+        this.reader = reader;
+        this.in = null;
+        this.deflate64 = deflate64;
+        state = new InitialState();
+        if (window != null) {
+            memory.add(window, 0, window.length);
+        }
+    }
+
     @Override
     public void close() {
         state = new InitialState();
@@ -139,11 +186,12 @@ public int decode(byte[] b, int off, int len) throws IOException {
                     switchToUncompressedState();
                     break;
                 case 1:
-                    state = new HuffmanCodes(FIXED_CODES, FIXED_LITERALS, FIXED_DISTANCE);
+                    state = new HuffmanCodes(FIXED_CODES, FIXED_LITERAL_TABLE, FIXED_DISTANCE_TABLE);
                     break;
                 case 2:
                     int[][] tables = readDynamicTables();
-                    state = new HuffmanCodes(DYNAMIC_CODES, tables[0], tables[1]);
+                    state = new HuffmanCodes(DYNAMIC_CODES, new HuffmanTable(tables[0], LITERAL_TABLE_BITS),
+                        new HuffmanTable(tables[1], DISTANCE_TABLE_BITS));
                     break;
                 default:
                     throw new IllegalStateException("Unsupported compression: " + mode);
@@ -162,6 +210,37 @@ long getBytesRead() {
         return reader.getBytesRead();
     }
 
+    /**
+     * Whether the next bits to read are the header of a block.
+     *
+     * @return true if all blocks read so far have been decoded
+     * completely and the last one of them was not the final block
+     */
+    boolean isAtBlockBoundary() {
+        return !finalBlock && state.state() == INITIAL;
+    }
+
+    /**
+     * Whether the final block has been decoded completely.
+     *
+     * @return true if the end of the stream has been reached
+     */
+    boolean isFinished() {
+        return finalBlock && !state.hasData();
+    }
+
+    /**
+     * Copies the most recently decoded bytes - at most as many as fit
+     * into the buffer - to the buffer.
+     *
+     * @param buffer the buffer to fill
+     * @return the number of bytes copied, they are at the start of
+     * the buffer
+     */
+    int getWindow(byte[] buffer) {
+        return memory.copyTail(buffer);
+    }
+
     private void switchToUncompressedState() throws IOException {
         reader.alignWithByteBoundary();
         long bLen = readBits(16);
@@ -219,7 +298,7 @@ int read(byte[] b, int off, int len) throws IOException {
             int readSoFar = 0;
             while (readSoFar < max) {
                 int readNow;
-                if (reader.bitsCached() > 0) {
+                if (reader.bitsCached() > 0 || in == null) {
                     byte next = (byte) readBits(Byte.SIZE);
                     b[off + readSoFar] = memory.add(next);
                     readNow = 1;
@@ -272,17 +351,17 @@ int available() {
     private class HuffmanCodes extends DecoderState {
         private boolean endOfBlock = false;
         private final HuffmanState state;
-        private final BinaryTreeNode lengthTree;
-        private final BinaryTreeNode distanceTree;
+        private final HuffmanTable lengthTable;
+        private final HuffmanTable distanceTable;
 
         private int runBufferPos = 0;
         private byte[] runBuffer = new byte[0];
         private int runBufferLength = 0;
 
-        HuffmanCodes(HuffmanState state, int[] lengths, int[] distance) {
+        HuffmanCodes(HuffmanState state, HuffmanTable lengthTable, HuffmanTable distanceTable) {
             this.state = state;
-            lengthTree = buildTree(lengths);
-            distanceTree = buildTree(distance);
+            this.lengthTable = lengthTable;
+            this.distanceTable = distanceTable;
         }
 
         @Override
@@ -302,16 +381,17 @@ private int decodeNext(byte[] b, int off, int len) throws IOException {
             int result = copyFromRunBuffer(b, off, len);
 
             while (result < len) {
-                int symbol = nextSymbol(reader, lengthTree);
+                int symbol = lengthTable.decode(reader);
                 if (symbol < 256) {
                     b[off + result++] = memory.add((byte) symbol);
                 } else if (symbol > 256) {
-                    int runMask = RUN_LENGTH_TABLE[symbol - 257];
+                    // deflate uses code 285 for a run of 258 bytes without extra bits
+                    int runMask = symbol == 285 && !deflate64 ? 258 << 5 : RUN_LENGTH_TABLE[symbol - 257];
                     int run = runMask >>> 5;
                     int runXtra = runMask & 0x1F;
                     run += readBits(runXtra);
 
-                    int distSym = nextSymbol(reader, distanceTree);
+                    int distSym = distanceTable.decode(reader);
 
                     int distMask = DISTANCE_TABLE[distSym];
                     int dist = distMask >>> 4;
@@ -357,15 +437,6 @@ int available() {
         }
     }
 
-    private static int nextSymbol(BitInputStream reader, BinaryTreeNode tree) throws IOException {
-        BinaryTreeNode node = tree;
-        while (node != null && node.literal == -1) {
-            long bit = readBits(reader, 1);
-            node = bit == 0 ? node.leftNode : node.rightNode;
-        }
-        return node != null ? node.literal : -1;
-    }
-
     private static void populateDynamicTables(BitInputStream reader, int[] literals, int[] distances) throws IOException {
         int codeLengths = (int) (readBits(reader, 4) + 4);
 
@@ -374,7 +445,7 @@ private static void populateDynamicTables(BitInputStream reader, int[] literals,
             codeLengthValues[CODE_LENGTHS_ORDER[cLen]] = (int) readBits(reader, 3);
         }
 
-        BinaryTreeNode codeLengthTree = buildTree(codeLengthValues);
+        HuffmanTable codeLengthTable = new HuffmanTable(codeLengthValues, CODE_LENGTH_TABLE_BITS);
 
         final int[] auxBuffer = new int[literals.length + distances.length];
 
@@ -386,7 +457,7 @@ private static void populateDynamicTables(BitInputStream reader, int[] literals,
                 auxBuffer[off++] = value;
                 length--;
             } else {
-                int symbol = nextSymbol(reader, codeLengthTree);
+                int symbol = codeLengthTable.decode(reader);
                 if (symbol < 16) {
                     value = symbol;
                     auxBuffer[off++] = value;
@@ -406,76 +477,136 @@ private static void populateDynamicTables(BitInputStream reader, int[] literals,
         System.arraycopy(auxBuffer, literals.length, distances, 0, distances.length);
     }
 
-    private static class BinaryTreeNode {
-        private final int bits;
-        int literal = -1;
-        BinaryTreeNode leftNode;
-        BinaryTreeNode rightNode;
-
-        private BinaryTreeNode(int bits) {
-            this.bits = bits;
-        }
-
-        void leaf(int symbol) {
-            literal = symbol;
-            leftNode = null;
-            rightNode = null;
-        }
-
-        BinaryTreeNode left() {
-            if (leftNode == null && literal == -1) {
-                leftNode = new BinaryTreeNode(bits + 1);
+    /**
+     * Decodes Huffman codes via table lookups rather than walking a
+     * tree bit by bit.
+     *
+     * <p>Deflate stores codes starting with their most significant
+     * bit, so the tables are indexed by the bit-reversed codes. The
+     * primary table is indexed by the next {@code rootBits} bits of
+     * the stream and its entries hold the symbol shifted left by five
+     * bits combined with the length of its code. Codes longer than
+     * {@code rootBits} are found in sub-tables, for those the primary
+     * table holds the negated offset of the sub-table shifted left by
+     * five bits combined with the number of bits used to index
+     * it. Entries for bit patterns that don't start with a valid code
+     * are zero.</p>
+     */
+    private static final class HuffmanTable {
+        private final int[] entries;
+        private final int rootBits;
+        private final int rootMask;
+
+        HuffmanTable(final int[] codeLengths, final int maxRootBits) {
+            final int[] blCount = new int[MAX_CODE_LENGTH + 1];
+            int maxLength = 0;
+            for (final int len : codeLengths) {
+                blCount[len]++;
+                maxLength = Math.max(maxLength, len);
             }
-            return leftNode;
-        }
-
-        BinaryTreeNode right() {
-            if (rightNode == null && literal == -1) {
-                rightNode = new BinaryTreeNode(bits + 1);
+            blCount[0] = 0;
+            int left = 1;
+            final int[] nextCode = new int[MAX_CODE_LENGTH + 1];
+            int code = 0;
+            for (int len = 1; len <= MAX_CODE_LENGTH; len++) {
+                left = (left << 1) - blCount[len];
+                if (left < 0) {
+                    throw new IllegalStateException("Over-subscribed set of code lengths");
+                }
+                code = (code + blCount[len - 1]) << 1;
+                nextCode[len] = code;
             }
-            return rightNode;
-        }
-    }
 
-    private static BinaryTreeNode buildTree(int[] litTable) {
-        int[] literalCodes = getCodes(litTable);
+            rootBits = Math.max(1, Math.min(maxRootBits, maxLength));
+            rootMask = (1 << rootBits) - 1;
+            final int[] reversedCodes = new int[codeLengths.length];
+            final int[] subTableBits = new int[1 << rootBits];
+            for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+                final int len = codeLengths[symbol];
+                if (len != 0) {
+                    final int reversed = Integer.reverse(nextCode[len]++) >>> (Integer.SIZE - len);
+                    reversedCodes[symbol] = reversed;
+                    if (len > rootBits) {
+                        final int prefix = reversed & rootMask;
+                        subTableBits[prefix] = Math.max(subTableBits[prefix], len - rootBits);
+                    }
+                }
+            }
 
-        BinaryTreeNode root = new BinaryTreeNode(0);
+            int size = 1 << rootBits;
+            for (final int bits : subTableBits) {
+                if (bits > 0) {
+                    size += 1 << bits;
+                }
+            }
+            entries = new int[size];
+            int offset = 1 << rootBits;
+            for (int prefix = 0; prefix < subTableBits.length; prefix++) {
+                if (subTableBits[prefix] > 0) {
+                    entries[prefix] = -((offset << 5) | subTableBits[prefix]);
+                    offset += 1 << subTableBits[prefix];
+                }
+            }
 
-        for (int i = 0; i < litTable.length; i++) {
-            int len = litTable[i];
-            if (len != 0) {
-                BinaryTreeNode node = root;
-                int lit = literalCodes[len - 1];
-                for (int p = len - 1; p >= 0; p--) {
-                    int bit = lit & (1 << p);
-                    node = bit == 0 ? node.left() : node.right();
+            for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+                final int len = codeLengths[symbol];
+                if (len == 0) {
+                    continue;
+                }
+                final int entry = (symbol << 5) | len;
+                final int reversed = reversedCodes[symbol];
+                if (len <= rootBits) {
+                    for (int i = reversed; i <= rootMask; i += 1 << len) {
+                        entries[i] = entry;
+                    }
+                } else {
+                    final int link = -entries[reversed & rootMask];
+                    final int base = link >>> 5;
+                    final int subTableSize = 1 << (link & 0x1F);
+                    for (int i = reversed >>> rootBits; i < subTableSize; i += 1 << (len - rootBits)) {
+                        entries[base + i] = entry;
+                    }
                 }
-                node.leaf(i);
-                literalCodes[len - 1]++;
             }
         }
-        return root;
-    }
 
-    private static int[] getCodes(int[] litTable) {
-        int max = 0;
-        int[] blCount = new int[65];
-
-        for (int aLitTable : litTable) {
-            max = Math.max(max, aLitTable);
-            blCount[aLitTable]++;
+        /**
+         * Reads the next code and returns its symbol.
+         *
+         * <p>Never reads a byte from the stream that doesn't contain
+         * any bit of the code, so the decoder doesn't consume data
+         * following the end of the compressed stream.</p>
+         */
+        int decode(final BitInputStream reader) throws IOException {
+            int available = Math.min(reader.bitsCached(), MAX_CODE_LENGTH);
+            while (true) {
+                final int entry = lookup(reader.peekBits(available));
+                final int len = entry & 0x1F;
+                if (len != 0 && len <= available) {
+                    reader.readBits(len);
+                    return entry >>> 5;
+                }
+                if (available == MAX_CODE_LENGTH) {
+                    throw new IllegalStateException("Invalid Huffman code");
+                }
+                // pulls in the next byte
+                reader.peekBits(available + 1);
+                final int cached = Math.min(reader.bitsCached(), MAX_CODE_LENGTH);
+                if (cached <= available) {
+                    throw new EOFException("Truncated Deflate64 Stream");
+                }
+                available = cached;
+            }
         }
-        blCount = Arrays.copyOf(blCount, max + 1);
 
-        int code = 0;
-        int[] nextCode = new int[max + 1];
-        for (int i = 0; i <= max; i++) {
-            code = (code + blCount[i]) << 1;
-            nextCode[i] = code;
+        private int lookup(final long bits) {
+            final int entry = entries[(int) bits & rootMask];
+            if (entry >= 0) {
+                return entry;
+            }
+            final int link = -entry;
+            return entries[(link >>> 5) + ((int) (bits >>> rootBits) & ((1 << (link & 0x1F)) - 1))];
         }
-
-        return nextCode;
     }
 
     private static class DecodingMemory {
@@ -500,9 +631,29 @@ byte add(byte b) {
         }
 
         void add(byte[] b, int off, int len) {
-            for (int i = off; i < off + len; i++) {
-                add(b[i]);
+            if (len >= memory.length) {
+                // only the tail is going to be used
+                System.arraycopy(b, off + len - memory.length, memory, 0, memory.length);
+                wHead = 0;
+                wrappedAround = true;
+                return;
             }
+            final int first = Math.min(len, memory.length - wHead);
+            System.arraycopy(b, off, memory, wHead, first);
+            System.arraycopy(b, off + first, memory, 0, len - first);
+            if (wHead + len >= memory.length) {
+                wrappedAround = true;
+            }
+            wHead = (wHead + len) & mask;
+        }
+
+        int copyTail(byte[] buff) {
+            int len = Math.min(buff.length, wrappedAround ? memory.length : wHead);
+            int start = (wHead - len) & mask;
+            int first = Math.min(len, memory.length - start);
+            System.arraycopy(memory, start, buff, 0, first);
+            System.arraycopy(memory, 0, buff, first, len - first);
+            return len;
         }
 
         void recordToBuffer(int distance, int length, byte[] buff) {
@@ -513,9 +664,16 @@ void recordToBuffer(int distance, int length, byte[] buff) {
             if (!wrappedAround && start >= wHead) {
                 throw new IllegalStateException("Attempt to read beyond memory: dist=" + distance);
             }
-            for (int i = 0, pos = start; i < length; i++, pos = incCounter(pos)) {
-                buff[i] = add(memory[pos]);
+            // when the run is longer than the distance it repeats the
+            // last distance bytes
+            final int copied = Math.min(distance, length);
+            final int first = Math.min(copied, memory.length - start);
+            System.arraycopy(memory, start, buff, 0, first);
+            System.arraycopy(memory, 0, buff, first, copied - first);
+            for (int done = copied; done < length; done += done) {
+                System.arraycopy(buff, 0, buff, done, Math.min(done, length - done));
             }
+            add(buff, 0, length);
         }
 
         private int incCounter(int counter) {
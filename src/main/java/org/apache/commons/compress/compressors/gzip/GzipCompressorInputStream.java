@@ -36,6 +36,7 @@
 import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.ZlibPool;
 
 /**
  * Input stream that decompresses .gz files.
@@ -99,8 +100,11 @@ public class GzipCompressorInputStream extends CompressorInputStream
     // Amount of data in buf.
     private int bufUsed;
 
+    // Pool the decompressor has been borrowed from
+    private final ZlibPool inflaterPool = ZlibPool.getDefault();
+
     // Decompressor
-    private Inflater inf = new Inflater(true);
+    private Inflater inf = inflaterPool.borrowInflater(true);
 
     // CRC32 from uncompressed data
     private final CRC32 crc = new CRC32();
@@ -354,7 +358,7 @@ public int read(final byte[] b, int off, int len) throws IOException {
 
                 // See if this is the end of the file.
                 if (!decompressConcatenated || !init(false)) {
-                    inf.end();
+                    inflaterPool.returnInflater(inf, true);
                     inf = null;
                     endReached = true;
                     return size == 0 ? -1 : size;
@@ -386,7 +390,7 @@ public static boolean matches(final byte[] signature, final int length) {
     @Override
     public void close() throws IOException {
         if (inf != null) {
-            inf.end();
+            inflaterPool.returnInflater(inf, true);
             inf = null;
         }
 
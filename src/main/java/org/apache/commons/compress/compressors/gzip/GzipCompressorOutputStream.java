@@ -22,6 +22,8 @@
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
@@ -29,6 +31,7 @@
 
 import org.apache.commons.compress.compressors.CompressorOutputStream;
 import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.CountingOutputStream;
 
 /**
  * Compressed output stream using the gzip format. This implementation improves
@@ -61,6 +64,21 @@ public class GzipCompressorOutputStream extends CompressorOutputStream {
     /** The checksum of the uncompressed data */
     private final CRC32 crc = new CRC32();
 
+    /** Distance between two checkpoints of the index, 0 if no index is created */
+    private final long indexSpan;
+
+    /** Counts the compressed bytes if an index is created */
+    private final CountingOutputStream countingOut;
+
+    /** The checkpoints of the index */
+    private final List<GzipIndex.Checkpoint> checkpoints = new ArrayList<>();
+
+    /** Uncompressed bytes written since the last checkpoint */
+    private long sinceLastCheckpoint;
+
+    /** Number of uncompressed bytes, -1 until the stream has been finished */
+    private long uncompressedSize = -1;
+
     /**
      * Creates a gzip compressed output stream with the default parameters.
      * @param out the stream to compress to
@@ -79,10 +97,35 @@ public GzipCompressorOutputStream(final OutputStream out) throws IOException {
      * @since 1.7
      */
     public GzipCompressorOutputStream(final OutputStream out, final GzipParameters parameters) throws IOException {
-        this.out = out;
+        this.indexSpan = parameters.getIndexSpan();
+        this.countingOut = indexSpan > 0 ? new CountingOutputStream(out) : null;
+        this.out = indexSpan > 0 ? countingOut : out;
         this.deflater = new Deflater(parameters.getCompressionLevel(), true);
 
         writeHeader(parameters);
+        if (indexSpan > 0) {
+            checkpoints.add(new GzipIndex.Checkpoint(countingOut.getBytesWritten() * 8, 0, true, new byte[0]));
+        }
+    }
+
+    /**
+     * Returns the index of the compressed data.
+     *
+     * @return the index
+     * @throws IllegalStateException if the stream has not been
+     * finished or no index span has been set in the parameters
+     * @see GzipParameters#setIndexSpan
+     * @since 1.19
+     */
+    public GzipIndex getIndex() {
+        if (indexSpan <= 0) {
+            throw new IllegalStateException("No index span has been set");
+        }
+        // the deflater may already have been ended by close
+        if (uncompressedSize < 0) {
+            throw new IllegalStateException("The index is only available after the stream has been finished");
+        }
+        return new GzipIndex(checkpoints, uncompressedSize);
     }
 
     private void writeHeader(final GzipParameters parameters) throws IOException {
@@ -155,7 +198,26 @@ public void write(final byte[] buffer, final int offset, final int length) throw
         if (deflater.finished()) {
             throw new IOException("Cannot write more data, the end of the compressed data stream has been reached");
 
-        } else if (length > 0) {
+        } else if (indexSpan > 0) {
+            int off = offset;
+            int remaining = length;
+            while (remaining > 0) {
+                final int chunk = (int) Math.min(remaining, indexSpan - sinceLastCheckpoint);
+                deflate(buffer, off, chunk);
+                off += chunk;
+                remaining -= chunk;
+                sinceLastCheckpoint += chunk;
+                if (sinceLastCheckpoint == indexSpan) {
+                    addCheckpoint();
+                }
+            }
+        } else {
+            deflate(buffer, offset, length);
+        }
+    }
+
+    private void deflate(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length > 0) {
             deflater.setInput(buffer, offset, length);
 
             while (!deflater.needsInput()) {
@@ -166,6 +228,21 @@ public void write(final byte[] buffer, final int offset, final int length) throw
         }
     }
 
+    /**
+     * Flushes the deflater so the following data starts at a byte
+     * boundary and doesn't refer to any earlier data.
+     */
+    private void addCheckpoint() throws IOException {
+        int length;
+        do {
+            length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.FULL_FLUSH);
+            out.write(deflateBuffer, 0, length);
+        } while (length == deflateBuffer.length);
+        checkpoints.add(new GzipIndex.Checkpoint(countingOut.getBytesWritten() * 8, deflater.getBytesRead(), false,
+            new byte[0]));
+        sinceLastCheckpoint = 0;
+    }
+
     private void deflate() throws IOException {
         final int length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
         if (length > 0) {
@@ -188,6 +265,7 @@ public void finish() throws IOException {
             }
 
             writeTrailer();
+            uncompressedSize = deflater.getBytesRead();
         }
     }
 
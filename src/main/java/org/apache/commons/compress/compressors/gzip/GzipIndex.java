@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.compress.compressors.deflate64.DeflateBlockDecoder;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.ZlibPool;
+
+/**
+ * Allows reading gzip compressed data starting at an arbitrary
+ * position of the uncompressed data without decompressing everything
+ * in front of it.
+ *
+ * <p>The index consists of checkpoints. Each of them records the
+ * position of a deflate block boundary inside the compressed data -
+ * in bits as blocks don't need to start at a byte boundary -, the
+ * corresponding position inside the uncompressed data and the 32 KiB
+ * of uncompressed data preceding it that later blocks may refer to.
+ * Reading starts at the last checkpoint in front of the requested
+ * position, so at most the distance between two checkpoints has to
+ * be decompressed and skipped.</p>
+ *
+ * <p>An index is created by {@link GzipIndexingInputStream} while
+ * decompressing an existing stream or by {@link
+ * GzipCompressorOutputStream} while compressing if {@link
+ * GzipParameters#setIndexSpan} has been used. It can be stored and
+ * loaded again via {@link #writeTo} and {@link #read}.</p>
+ *
+ * @Immutable
+ * @since 1.19
+ */
+public class GzipIndex {
+
+    /** Default distance between two checkpoints, 1 MiB of uncompressed data. */
+    public static final long DEFAULT_SPAN = 1 << 20;
+
+    private static final int MAGIC = 0x43434749; // CCGI
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final List<Checkpoint> checkpoints;
+    private final long uncompressedSize;
+
+    GzipIndex(final List<Checkpoint> checkpoints, final long uncompressedSize) {
+        this.checkpoints = Collections.unmodifiableList(new ArrayList<>(checkpoints));
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    /**
+     * The size of the uncompressed data.
+     *
+     * @return the size of the uncompressed data
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    List<Checkpoint> getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * Returns a stream providing the uncompressed data starting at
+     * the given position.
+     *
+     * <p>The stream uses positional reads on {@link FileChannel}s and
+     * only locks other channels for the duration of each single read,
+     * so several streams may read from the same channel
+     * concurrently. Closing the stream doesn't close the channel.</p>
+     *
+     * @param channel the compressed data this index has been created for
+     * @param offset position inside of the uncompressed data
+     * @return a stream reading the uncompressed data from the given position
+     * @throws IOException if the data cannot be read
+     * @throws IllegalArgumentException if the offset is negative or
+     * bigger than the size of the uncompressed data
+     */
+    public InputStream openStream(final SeekableByteChannel channel, final long offset) throws IOException {
+        if (offset < 0 || offset > uncompressedSize) {
+            throw new IllegalArgumentException("Offset " + offset + " is outside of the uncompressed data");
+        }
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (checkpoints.get(mid).uncompressedOffset <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final CheckpointInputStream in = new CheckpointInputStream(channel, low);
+        final long toSkip = offset - checkpoints.get(low).uncompressedOffset;
+        if (IOUtils.skip(in, toSkip) != toSkip) {
+            in.close();
+            throw new EOFException("Truncated gzip stream");
+        }
+        return in;
+    }
+
+    /**
+     * Writes the index to a stream.
+     *
+     * @param out the stream to write to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(uncompressedSize);
+        data.writeInt(checkpoints.size());
+        for (final Checkpoint c : checkpoints) {
+            data.writeLong(c.bitOffset);
+            data.writeLong(c.uncompressedOffset);
+            data.writeBoolean(c.memberStart);
+            data.writeInt(c.compressedWindow.length);
+            data.write(c.compressedWindow);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo}.
+     *
+     * <p>Doesn't read beyond the end of the index.</p>
+     *
+     * @param in the stream to read from, it is not closed
+     * @return the index
+     * @throws IOException if reading fails or the stream doesn't
+     * contain an index
+     */
+    public static GzipIndex read(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a gzip index");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gzip index version " + version);
+        }
+        final long uncompressedSize = data.readLong();
+        final int count = data.readInt();
+        final List<Checkpoint> checkpoints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final long bitOffset = data.readLong();
+            final long uncompressedOffset = data.readLong();
+            final boolean memberStart = data.readBoolean();
+            final int windowLength = data.readInt();
+            if (windowLength < 0 || windowLength > 2 * DeflateBlockDecoder.WINDOW_SIZE) {
+                throw new IOException("Corrupt gzip index, invalid window length " + windowLength);
+            }
+            final byte[] window = new byte[windowLength];
+            data.readFully(window);
+            checkpoints.add(new Checkpoint(bitOffset, uncompressedOffset, memberStart, window));
+        }
+        if (checkpoints.isEmpty()) {
+            throw new IOException("Corrupt gzip index without checkpoints");
+        }
+        return new GzipIndex(checkpoints, uncompressedSize);
+    }
+
+    /**
+     * A position inside the compressed data where decompression can
+     * start.
+     */
+    static final class Checkpoint {
+        /** Position of the block's first bit inside the compressed data. */
+        final long bitOffset;
+        /** Position inside the uncompressed data. */
+        final long uncompressedOffset;
+        /** Whether this is the start of a gzip member. */
+        final boolean memberStart;
+        /** The data preceding the checkpoint, compressed using raw deflate. */
+        final byte[] compressedWindow;
+
+        Checkpoint(final long bitOffset, final long uncompressedOffset, final boolean memberStart,
+                   final byte[] compressedWindow) {
+            this.bitOffset = bitOffset;
+            this.uncompressedOffset = uncompressedOffset;
+            this.memberStart = memberStart;
+            this.compressedWindow = compressedWindow;
+        }
+
+        static Checkpoint create(final long bitOffset, final long uncompressedOffset, final boolean memberStart,
+                                 final byte[] window, final int windowLength) {
+            if (windowLength == 0) {
+                return new Checkpoint(bitOffset, uncompressedOffset, memberStart, new byte[0]);
+            }
+            final ZlibPool pool = ZlibPool.getDefault();
+            final Deflater deflater = pool.borrowDeflater(Deflater.BEST_SPEED, true);
+            try {
+                deflater.setInput(window, 0, windowLength);
+                deflater.finish();
+                final byte[] buffer = new byte[windowLength + 64];
+                int length = 0;
+                while (!deflater.finished()) {
+                    length += deflater.deflate(buffer, length, buffer.length - length);
+                }
+                final byte[] compressed = new byte[length];
+                System.arraycopy(buffer, 0, compressed, 0, length);
+                return new Checkpoint(bitOffset, uncompressedOffset, memberStart, compressed);
+            } finally {
+                pool.returnDeflater(deflater, Deflater.BEST_SPEED, true);
+            }
+        }
+
+        byte[] getWindow(final Inflater inflater) throws IOException {
+            if (compressedWindow.length == 0) {
+                return compressedWindow;
+            }
+            final byte[] window = new byte[2 * DeflateBlockDecoder.WINDOW_SIZE];
+            inflater.setInput(compressedWindow);
+            int length = 0;
+            try {
+                while (!inflater.finished() && length < window.length) {
+                    final int n = inflater.inflate(window, length, window.length - length);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Corrupt gzip index, truncated window");
+                    }
+                    length += n;
+                }
+            } catch (final DataFormatException ex) {
+                throw new IOException("Corrupt gzip index", ex);
+            } finally {
+                inflater.reset();
+            }
+            final byte[] result = new byte[length];
+            System.arraycopy(window, 0, result, 0, length);
+            return result;
+        }
+    }
+
+    /**
+     * Decompresses the data starting at a checkpoint using an
+     * Inflater.
+     *
+     * <p>Inflater can only start at a byte boundary, so if the
+     * checkpoint's block starts in the middle of a byte all input is
+     * shifted by the number of bits preceding the block.</p>
+     */
+    private class CheckpointInputStream extends InputStream {
+        private final SeekableByteChannel channel;
+        private final ZlibPool pool = ZlibPool.getDefault();
+        private Inflater inflater = pool.borrowInflater(true);
+        private final byte[] raw = new byte[BUFFER_SIZE];
+        private final byte[] shifted = new byte[BUFFER_SIZE];
+        private final byte[] singleByte = new byte[1];
+        private int checkpoint;
+        private long position;
+        private int shift;
+        private int carry;
+        private boolean channelExhausted;
+
+        CheckpointInputStream(final SeekableByteChannel channel, final int checkpoint) throws IOException {
+            this.channel = channel;
+            start(checkpoint);
+        }
+
+        private void start(final int index) throws IOException {
+            final Checkpoint c = checkpoints.get(index);
+            checkpoint = index;
+            inflater.reset();
+            final byte[] window = c.getWindow(inflater);
+            if (window.length > 0) {
+                inflater.setDictionary(window);
+            }
+            position = c.bitOffset >>> 3;
+            shift = (int) (c.bitOffset & 7);
+            carry = -1;
+            channelExhausted = false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int n = read(singleByte, 0, 1);
+            return n < 0 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (inflater == null) {
+                throw new IOException("The stream is closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                final int n;
+                try {
+                    n = inflater.inflate(b, off, len);
+                } catch (final DataFormatException ex) {
+                    throw new IOException("Gzip-compressed data is corrupt", ex);
+                }
+                if (n > 0) {
+                    return n;
+                }
+                if (inflater.finished()) {
+                    final int next = nextMember();
+                    if (next < 0) {
+                        return -1;
+                    }
+                    start(next);
+                } else if (inflater.needsInput()) {
+                    fill();
+                } else {
+                    throw new IOException("Gzip-compressed data is corrupt");
+                }
+            }
+        }
+
+        private int nextMember() {
+            for (int i = checkpoint + 1; i < checkpoints.size(); i++) {
+                if (checkpoints.get(i).memberStart) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void fill() throws IOException {
+            if (channelExhausted) {
+                throw new EOFException("Truncated gzip stream");
+            }
+            final int n = IOUtils.read(channel, ByteBuffer.wrap(raw), position);
+            if (n < 0) {
+                channelExhausted = true;
+                if (carry < 0) {
+                    throw new EOFException("Truncated gzip stream");
+                }
+                shifted[0] = (byte) carry;
+                carry = -1;
+                inflater.setInput(shifted, 0, 1);
+                return;
+            }
+            position += n;
+            if (shift == 0) {
+                inflater.setInput(raw, 0, n);
+                return;
+            }
+            int length = 0;
+            for (int i = 0; i < n; i++) {
+                final int next = raw[i] & 0xff;
+                if (carry >= 0) {
+                    shifted[length++] = (byte) (carry | (next << (8 - shift)));
+                }
+                carry = next >>> shift;
+            }
+            if (length == 0) {
+                fill();
+            } else {
+                inflater.setInput(shifted, 0, length);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) {
+                pool.returnInflater(inflater, true);
+                inflater = null;
+            }
+        }
+    }
+}
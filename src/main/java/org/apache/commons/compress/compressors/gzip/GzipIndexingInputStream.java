@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.compressors.deflate64.DeflateBlockDecoder;
+import org.apache.commons.compress.utils.BitInputStream;
+import org.apache.commons.compress.utils.InputStreamStatistics;
+
+/**
+ * Decompresses a gzip stream - including concatenated members - and
+ * builds a {@link GzipIndex} for it while doing so.
+ *
+ * <p>This stream uses a pure Java decoder as {@link
+ * java.util.zip.Inflater} doesn't reveal where the deflate blocks
+ * start, it is a lot slower than {@link
+ * GzipCompressorInputStream}. Use it once in order to create the
+ * index, and use the index to read from the compressed data
+ * later.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.19
+ */
+public class GzipIndexingInputStream extends CompressorInputStream implements InputStreamStatistics {
+
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+    private static final int FRESERVED = 0xE0;
+
+    private final InputStream in;
+    private final BitInputStream bits;
+    private final long span;
+    private final CRC32 crc = new CRC32();
+    private final List<GzipIndex.Checkpoint> checkpoints = new ArrayList<>();
+    private final byte[] window = new byte[DeflateBlockDecoder.WINDOW_SIZE];
+    private final byte[] oneByte = new byte[1];
+    private DeflateBlockDecoder decoder;
+    private long memberSize;
+    private long sinceLastCheckpoint;
+    private boolean endReached;
+
+    /**
+     * Creates a stream with a checkpoint about every {@link
+     * GzipIndex#DEFAULT_SPAN} bytes.
+     *
+     * @param in the gzip compressed stream
+     * @throws IOException if the stream doesn't start with a valid gzip header
+     */
+    public GzipIndexingInputStream(final InputStream in) throws IOException {
+        this(in, GzipIndex.DEFAULT_SPAN);
+    }
+
+    /**
+     * Creates a stream.
+     *
+     * @param in the gzip compressed stream
+     * @param span the minimal number of uncompressed bytes between
+     * two checkpoints. Checkpoints can only be created at block
+     * boundaries so the actual distance depends on the size of the
+     * deflate blocks.
+     * @throws IOException if the stream doesn't start with a valid gzip header
+     * @throws IllegalArgumentException if span is not positive
+     */
+    public GzipIndexingInputStream(final InputStream in, final long span) throws IOException {
+        if (span <= 0) {
+            throw new IllegalArgumentException("span must be positive");
+        }
+        this.in = in;
+        this.bits = new BitInputStream(new BufferedInputStream(in), ByteOrder.LITTLE_ENDIAN);
+        this.span = span;
+        init(true);
+    }
+
+    /**
+     * Returns the index for the whole stream.
+     *
+     * @return the index
+     * @throws IllegalStateException if the end of the stream has not
+     * been reached, yet
+     */
+    public GzipIndex getIndex() {
+        if (!endReached) {
+            throw new IllegalStateException("The index is only available after the whole stream has been read");
+        }
+        return new GzipIndex(checkpoints, getUncompressedCount());
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!endReached) {
+            if (decoder.isAtBlockBoundary() && sinceLastCheckpoint >= span) {
+                final int windowLength = decoder.getWindow(window);
+                checkpoints.add(GzipIndex.Checkpoint.create(bitPosition(), getUncompressedCount(), false,
+                    window, windowLength));
+                sinceLastCheckpoint = 0;
+            }
+            final int n = decoder.decode(b, off, len);
+            if (n > 0) {
+                crc.update(b, off, n);
+                memberSize += n;
+                sinceLastCheckpoint += n;
+                count(n);
+                return n;
+            }
+            if (n < 0) {
+                endOfMember();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (decoder != null) {
+            decoder.close();
+        }
+        if (in != System.in) {
+            bits.close();
+        }
+    }
+
+    @Override
+    public long getCompressedCount() {
+        return bits.getBytesRead();
+    }
+
+    private long bitPosition() {
+        return bits.getBytesRead() * 8 - bits.bitsCached();
+    }
+
+    private void endOfMember() throws IOException {
+        bits.alignWithByteBoundary();
+        if (readLittleEndian(4) != crc.getValue()) {
+            throw new IOException("Gzip-compressed data is corrupt (CRC32 error)");
+        }
+        if (readLittleEndian(4) != (memberSize & 0xffffffffL)) {
+            throw new IOException("Gzip-compressed data is corrupt (uncompressed size mismatch)");
+        }
+        if (!init(false)) {
+            decoder.close();
+            endReached = true;
+        }
+    }
+
+    private boolean init(final boolean isFirstMember) throws IOException {
+        final long magic0 = bits.readBits(8);
+        if (magic0 == -1 && !isFirstMember) {
+            return false;
+        }
+        if (magic0 != 31 || bits.readBits(8) != 139) {
+            throw new IOException(isFirstMember
+                                  ? "Input is not in the .gz format"
+                                  : "Garbage after a valid .gz stream");
+        }
+        final int method = readByte();
+        if (method != Deflater.DEFLATED) {
+            throw new IOException("Unsupported compression method "
+                                  + method + " in the .gz header");
+        }
+        final int flg = readByte();
+        if ((flg & FRESERVED) != 0) {
+            throw new IOException("Reserved flags are set in the .gz header");
+        }
+        // modification time, extra flags and operating system
+        skipHeaderBytes(6);
+        if ((flg & FEXTRA) != 0) {
+            skipHeaderBytes(readLittleEndian(2));
+        }
+        if ((flg & FNAME) != 0) {
+            skipToNull();
+        }
+        if ((flg & FCOMMENT) != 0) {
+            skipToNull();
+        }
+        if ((flg & FHCRC) != 0) {
+            skipHeaderBytes(2);
+        }
+
+        checkpoints.add(new GzipIndex.Checkpoint(bitPosition(), getUncompressedCount(), true, new byte[0]));
+        sinceLastCheckpoint = 0;
+        crc.reset();
+        memberSize = 0;
+        decoder = new DeflateBlockDecoder(bits);
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        final long b = bits.readBits(8);
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return (int) b;
+    }
+
+    private long readLittleEndian(final int length) throws IOException {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (long) readByte() << (8 * i);
+        }
+        return value;
+    }
+
+    private void skipHeaderBytes(final long length) throws IOException {
+        for (long i = 0; i < length; i++) {
+            readByte();
+        }
+    }
+
+    private void skipToNull() throws IOException {
+        while (readByte() != 0) { // NOPMD NOSONAR
+        }
+    }
+}
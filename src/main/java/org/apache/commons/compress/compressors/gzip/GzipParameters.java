@@ -33,6 +33,7 @@ public class GzipParameters {
     private String filename;
     private String comment;
     private int operatingSystem = 255; // Unknown OS by default
+    private long indexSpan;
 
     public int getCompressionLevel() {
         return compressionLevel;
@@ -118,4 +119,36 @@ public int getOperatingSystem() {
     public void setOperatingSystem(final int operatingSystem) {
         this.operatingSystem = operatingSystem;
     }
+
+    /**
+     * The number of uncompressed bytes between two checkpoints of
+     * the index created by {@link GzipCompressorOutputStream}.
+     *
+     * @return the span, 0 if no index is created
+     * @since 1.19
+     */
+    public long getIndexSpan() {
+        return indexSpan;
+    }
+
+    /**
+     * Makes {@link GzipCompressorOutputStream} create a {@link
+     * GzipIndex} with a checkpoint every {@code indexSpan}
+     * uncompressed bytes.
+     *
+     * <p>The compressor flushes the deflater completely at each
+     * checkpoint so the compressed data is a bit bigger - the smaller
+     * the span the bigger the effect.</p>
+     *
+     * @param indexSpan the span, 0 - the default - means no index is
+     * created
+     * @throws IllegalArgumentException if the span is negative
+     * @since 1.19
+     */
+    public void setIndexSpan(final long indexSpan) {
+        if (indexSpan < 0) {
+            throw new IllegalArgumentException("indexSpan must not be negative");
+        }
+        this.indexSpan = indexSpan;
+    }
 }
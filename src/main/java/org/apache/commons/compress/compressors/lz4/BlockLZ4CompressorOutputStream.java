@@ -83,10 +83,14 @@ public class BlockLZ4CompressorOutputStream extends CompressorOutputStream {
 
     private boolean finished = false;
 
-    private Deque<Pair> pairs = new LinkedList<>();
+    private LinkedList<Pair> pairs = new LinkedList<>();
+    // sum of the lengths of all pairs but the last one, which may still grow
+    private int pairsLength;
     // keeps track of the last window-size bytes (64k) in order to be
     // able to expand back-references when needed
-    private Deque<byte[]> expandedBlocks = new LinkedList<>();
+    private final byte[] window = new byte[BlockLZ4CompressorInputStream.WINDOW_SIZE];
+    // position inside of window the next byte is recorded at
+    private int windowHead;
 
     /**
      * Creates a new LZ4 output stream.
@@ -183,20 +187,23 @@ public void prefill(byte[] data, int off, int len) {
     private void addLiteralBlock(LZ77Compressor.LiteralBlock block) throws IOException {
         Pair last = writeBlocksAndReturnUnfinishedPair(block.getLength());
         recordLiteral(last.addLiteral(block));
-        clearUnusedBlocksAndPairs();
+        clearUnusedPairs();
     }
 
     private void addBackReference(LZ77Compressor.BackReference block) throws IOException {
         Pair last = writeBlocksAndReturnUnfinishedPair(block.getLength());
         last.setBackReference(block);
         recordBackReference(block);
-        clearUnusedBlocksAndPairs();
+        clearUnusedPairs();
     }
 
     private Pair writeBlocksAndReturnUnfinishedPair(int length) throws IOException {
         writeWritablePairs(length);
         Pair last = pairs.peekLast();
         if (last == null || last.hasBackReference()) {
+            if (last != null) {
+                pairsLength += last.length();
+            }
             last = new Pair();
             pairs.addLast(last);
         }
@@ -204,103 +211,60 @@ private Pair writeBlocksAndReturnUnfinishedPair(int length) throws IOException {
     }
 
     private void recordLiteral(byte[] b) {
-        expandedBlocks.addFirst(b);
-    }
-
-    private void clearUnusedBlocksAndPairs() {
-        clearUnusedBlocks();
-        clearUnusedPairs();
-    }
-
-    private void clearUnusedBlocks() {
-        int blockLengths = 0;
-        int blocksToKeep = 0;
-        for (byte[] b : expandedBlocks) {
-            blocksToKeep++;
-            blockLengths += b.length;
-            if (blockLengths >= BlockLZ4CompressorInputStream.WINDOW_SIZE) {
-                break;
-            }
-        }
-        final int size = expandedBlocks.size();
-        for (int i = blocksToKeep; i < size; i++) {
-            expandedBlocks.removeLast();
+        final int mask = window.length - 1;
+        // only the last window-size bytes are needed
+        int off = Math.max(0, b.length - window.length);
+        while (off < b.length) {
+            final int len = Math.min(b.length - off, window.length - windowHead);
+            System.arraycopy(b, off, window, windowHead, len);
+            windowHead = (windowHead + len) & mask;
+            off += len;
         }
     }
 
     private void recordBackReference(LZ77Compressor.BackReference block) {
-        expandedBlocks.addFirst(expand(block.getOffset(), block.getLength()));
+        final int mask = window.length - 1;
+        final int offset = block.getOffset();
+        int remaining = block.getLength();
+        while (remaining > 0) {
+            final int from = (windowHead - offset) & mask;
+            // copying at most offset bytes at once makes overlapping
+            // back-references repeat the last offset bytes
+            final int len = Math.min(Math.min(remaining, offset),
+                Math.min(window.length - from, window.length - windowHead));
+            System.arraycopy(window, from, window, windowHead, len);
+            windowHead = (windowHead + len) & mask;
+            remaining -= len;
+        }
     }
 
+    /**
+     * Returns a copy of the <code>length</code> bytes starting
+     * <code>offset</code> bytes before the end of the data recorded
+     * so far, <code>length</code> must not be bigger than
+     * <code>offset</code>.
+     */
     private byte[] expand(final int offset, final int length) {
-        byte[] expanded = new byte[length];
-        if (offset == 1) { // surprisingly common special case
-            byte[] block = expandedBlocks.peekFirst();
-            byte b = block[block.length - 1];
-            if (b != 0) { // the fresh array contains 0s anyway
-                Arrays.fill(expanded, b);
-            }
-        } else {
-            expandFromList(expanded, offset, length);
-        }
+        final byte[] expanded = new byte[length];
+        final int from = (windowHead - offset) & (window.length - 1);
+        final int first = Math.min(length, window.length - from);
+        System.arraycopy(window, from, expanded, 0, first);
+        System.arraycopy(window, 0, expanded, first, length - first);
         return expanded;
     }
 
-    private void expandFromList(final byte[] expanded, int offset, int length) {
-        int offsetRemaining = offset;
-        int lengthRemaining = length;
-        int writeOffset = 0;
-        while (lengthRemaining > 0) {
-            // find block that contains offsetRemaining
-            byte[] block = null;
-            int copyLen, copyOffset;
-            if (offsetRemaining > 0) {
-                int blockOffset = 0;
-                for (byte[] b : expandedBlocks) {
-                    if (b.length + blockOffset >= offsetRemaining) {
-                        block = b;
-                        break;
-                    }
-                    blockOffset += b.length;
-                }
-                if (block == null) {
-                    // should not be possible
-                    throw new IllegalStateException("failed to find a block containing offset " + offset);
-                }
-                copyOffset = blockOffset + block.length - offsetRemaining;
-                copyLen = Math.min(lengthRemaining, block.length - copyOffset);
-            } else {
-                // offsetRemaining is negative or 0 and points into the expanded bytes
-                block = expanded;
-                copyOffset = -offsetRemaining;
-                copyLen = Math.min(lengthRemaining, writeOffset + offsetRemaining);
-            }
-            System.arraycopy(block, copyOffset, expanded, writeOffset, copyLen);
-            offsetRemaining -= copyLen;
-            lengthRemaining -= copyLen;
-            writeOffset += copyLen;
-        }
-    }
-
     private void clearUnusedPairs() {
-        int pairLengths = 0;
-        int pairsToKeep = 0;
-        for (Iterator<Pair> it = pairs.descendingIterator(); it.hasNext(); ) {
-            Pair p = it.next();
-            pairsToKeep++;
-            pairLengths += p.length();
-            if (pairLengths >= BlockLZ4CompressorInputStream.WINDOW_SIZE) {
-                break;
-            }
-        }
-        final int size = pairs.size();
-        for (int i = pairsToKeep; i < size; i++) {
+        // keep the most recent pairs that cover the window as well as all pairs not written, yet
+        int totalLength = pairsLength + pairs.peekLast().length();
+        while (pairs.size() > 1) {
             Pair p = pairs.peekFirst();
-            if (p.hasBeenWritten()) {
-                pairs.removeFirst();
-            } else {
+            final int length = p.length();
+            if (!p.hasBeenWritten() || totalLength - length < BlockLZ4CompressorInputStream.WINDOW_SIZE) {
                 break;
             }
+            pairs.removeFirst();
+            pairsLength -= length;
+            totalLength -= length;
         }
     }
 
@@ -312,21 +276,23 @@ private void writeFinalLiteralBlock() throws IOException {
             }
         }
         pairs.clear();
+        pairsLength = 0;
     }
 
     private void writeWritablePairs(int lengthOfBlocksAfterLastPair) throws IOException {
         int unwrittenLength = lengthOfBlocksAfterLastPair;
+        int unwrittenPairs = 0;
         for (Iterator<Pair> it = pairs.descendingIterator(); it.hasNext(); ) {
             Pair p = it.next();
             if (p.hasBeenWritten()) {
                 break;
             }
             unwrittenLength += p.length();
+            unwrittenPairs++;
         }
-        for (Pair p : pairs) {
-            if (p.hasBeenWritten()) {
-                continue;
-            }
+        // pairs are written in order, so only the last unwrittenPairs pairs need to be looked at
+        for (Iterator<Pair> it = pairs.listIterator(pairs.size() - unwrittenPairs); it.hasNext(); ) {
+            Pair p = it.next();
             unwrittenLength -= p.length();
             if (p.canBeWritten(unwrittenLength)) {
                 p.writeTo(os);
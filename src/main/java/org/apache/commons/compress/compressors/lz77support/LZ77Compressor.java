@@ -36,8 +36,9 @@
  *
  * <p>This class attempts to extract the core logic - finding
  * back-references - so it can be re-used. It follows the algorithm
- * explained in section 4 of RFC 1951 (DEFLATE) and currently doesn't
- * implement the "lazy match" optimization. The three-byte hash
+ * explained in section 4 of RFC 1951 (DEFLATE) including the "lazy
+ * match" optimization and optionally the hash-table-only "fast" mode
+ * of LZ4's and Snappy's reference implementations. The three-byte hash
  * function used in this class is the same as the one used by zlib and
  * InfoZIP's ZIP implementation of DEFLATE. The whole class is
  * strongly inspired by InfoZIP's implementation.</p>
@@ -247,6 +248,12 @@ public interface Callback {
     // bytes of the last match that can only be performed once more
     // data has been read
     private int missedInserts = 0;
+    // whether insertHash must be recalculated before the next
+    // insertString call as positions have been skipped in fast mode
+    private boolean hashNeedsReset = false;
+    // number of positions without a match since the last match, used
+    // to accelerate skipping in fast mode
+    private int misses = 0;
 
     /**
      * Initializes a compressor with parameters and a callback.
@@ -358,6 +365,9 @@ public void prefill(byte[] data) {
     private static final int HASH_SIZE = 1 << 15;
     private static final int HASH_MASK = HASH_SIZE - 1;
     private static final int H_SHIFT = 5;
+    // in fast mode the step width increases by one after each
+    // 2^SKIP_TRIGGER positions without a match
+    private static final int SKIP_TRIGGER = 6;
 
     /**
      * Assumes we are calculating the hash for three consecutive bytes
@@ -419,18 +429,30 @@ private void compress() throws IOException {
         final int minMatch = params.getMinBackReferenceLength();
         final boolean lazy = params.getLazyMatching();
         final int lazyThreshold = params.getLazyMatchingThreshold();
+        final int lazyDepth = params.getLazyMatchingDepth();
+        final boolean fast = params.getFastMatching();
+        final int maxLiteralLength = params.getMaxLiteralLength();
 
         while (lookahead >= minMatch) {
             catchUpMissedInserts();
+            if (hashNeedsReset) {
+                resetHash(currentPosition);
+            }
             int matchLength = 0;
             int hashHead = insertString(currentPosition);
             if (hashHead != NO_MATCH && hashHead - currentPosition <= params.getMaxOffset()) {
                 // sets matchStart as a side effect
                 matchLength = longestMatch(hashHead);
 
-                if (lazy && matchLength <= lazyThreshold && lookahead > minMatch) {
+                for (int depth = 0; lazy && depth < lazyDepth && matchLength <= lazyThreshold
+                         && lookahead > minMatch && currentPosition - blockStart < maxLiteralLength; depth++) {
                     // try to find a longer match using the next position
+                    final int position = currentPosition;
                     matchLength = longestMatchForNextPosition(matchLength);
+                    if (currentPosition == position) {
+                        // the next position isn't any better
+                        break;
+                    }
                 }
             }
             if (matchLength >= minMatch) {
@@ -440,15 +462,28 @@ private void compress() throws IOException {
                     blockStart = NO_MATCH;
                 }
                 flushBackReference(matchLength);
-                insertStringsInMatch(matchLength);
+                if (fast) {
+                    // like LZ4 and Snappy don't hash the positions inside of the match
+                    hashNeedsReset = true;
+                } else {
+                    insertStringsInMatch(matchLength);
+                }
+                misses = 0;
                 lookahead -= matchLength;
                 currentPosition += matchLength;
                 blockStart = currentPosition;
             } else {
                 // no match, append to current or start a new literal
-                lookahead--;
-                currentPosition++;
-                if (currentPosition - blockStart >= params.getMaxLiteralLength()) {
+                int step = 1;
+                if (fast) {
+                    // skip faster and faster over data that doesn't seem to be compressible
+                    step = Math.min(1 + (misses++ >>> SKIP_TRIGGER),
+                        Math.min(lookahead, maxLiteralLength - (currentPosition - blockStart)));
+                    hashNeedsReset |= step > 1;
+                }
+                lookahead -= step;
+                currentPosition += step;
+                if (currentPosition - blockStart >= maxLiteralLength) {
                     flushLiteralBlock();
                     blockStart = currentPosition;
                 }
@@ -471,6 +506,16 @@ private int insertString(int pos) {
         return hashHead;
     }
 
+    /**
+     * Sets <code>insertHash</code> so the next <code>insertString</code>
+     * call for <code>pos</code> yields the proper hash even if
+     * previous positions have not been inserted.
+     */
+    private void resetHash(int pos) {
+        insertHash = (((window[pos] & 0xFF) << H_SHIFT) ^ (window[pos + 1] & 0xFF)) & HASH_MASK;
+        hashNeedsReset = false;
+    }
+
     private int longestMatchForNextPosition(final int prevMatchLength) {
         // save a bunch of values to restore them if the next match isn't better than the current one
         final int prevMatchStart = matchStart;
@@ -535,21 +580,23 @@ private int longestMatch(int matchHead) {
         final int maxPossibleLength = Math.min(params.getMaxBackReferenceLength(), lookahead);
         final int minIndex = Math.max(0, currentPosition - params.getMaxOffset());
         final int niceBackReferenceLength = Math.min(maxPossibleLength, params.getNiceBackReferenceLength());
-        final int maxCandidates = params.getMaxCandidates();
+        final int maxCandidates = params.getFastMatching() ? 1 : params.getMaxCandidates();
         for (int candidates = 0; candidates < maxCandidates && matchHead >= minIndex; candidates++) {
-            int currentLength = 0;
-            for (int i = 0; i < maxPossibleLength; i++) {
-                if (window[matchHead + i] != window[currentPosition + i]) {
-                    break;
+            // the candidate can only be longer than the longest match
+            // found so far if it matches at the latter's end
+            if (window[matchHead + longestMatchLength] == window[currentPosition + longestMatchLength]) {
+                int currentLength = 0;
+                while (currentLength < maxPossibleLength
+                       && window[matchHead + currentLength] == window[currentPosition + currentLength]) {
+                    currentLength++;
                 }
-                currentLength++;
-            }
-            if (currentLength > longestMatchLength) {
-                longestMatchLength = currentLength;
-                matchStart = matchHead;
-                if (currentLength >= niceBackReferenceLength) {
-                    // no need to search any further
-                    break;
+                if (currentLength > longestMatchLength) {
+                    longestMatchLength = currentLength;
+                    matchStart = matchHead;
+                    if (currentLength >= niceBackReferenceLength) {
+                        // no need to search any further
+                        break;
+                    }
                 }
             }
             matchHead = prev[matchHead & wMask];
@@ -53,8 +53,8 @@ public static Builder builder(int windowSize) {
     public static class Builder {
         private final int windowSize;
         private int minBackReferenceLength, maxBackReferenceLength, maxOffset, maxLiteralLength;
-        private Integer niceBackReferenceLength, maxCandidates, lazyThreshold;
-        private Boolean lazyMatches;
+        private Integer niceBackReferenceLength, maxCandidates, lazyThreshold, lazyDepth;
+        private Boolean lazyMatches, fastMatching;
 
         private Builder(int windowSize) {
             if (windowSize < 2 || !isPowerOfTwo(windowSize)) {
@@ -210,6 +210,41 @@ public Builder withLazyThreshold(int threshold) {
             return this;
         }
 
+        /**
+         * Sets the number of subsequent positions lazy matching looks at.
+         *
+         * <p>If lazy matching finds a longer back-reference for the next position, the byte at the current position
+         * becomes part of a literal block. With a depth bigger than one this is repeated for the following positions
+         * until either the depth has been reached or the next position doesn't yield a longer back-reference.</p>
+         *
+         * <p>Only used if lazy matching is enabled, the default is one.</p>
+         * @param depth the number of subsequent positions to look at. Values smaller than one are interpreted as one.
+         * @return the builder
+         * @since 1.19
+         */
+        public Builder withLazyMatchingDepth(int depth) {
+            lazyDepth = Math.max(1, depth);
+            return this;
+        }
+
+        /**
+         * Sets whether only the most recent position with the same hash should be consulted.
+         *
+         * <p>This mimics the reference implementations of LZ4 and Snappy: there is only a single back-reference
+         * candidate, the positions inside of back-references found are not added to the dictionary and the compressor
+         * skips faster and faster over data where it doesn't find any back-references. This speeds up compression
+         * considerably at the cost of compression ratio.</p>
+         *
+         * <p>Fast matching is disabled by default.</p>
+         * @param fast whether to use fast matching
+         * @return the builder
+         * @since 1.19
+         */
+        public Builder withFastMatching(boolean fast) {
+            fastMatching = fast;
+            return this;
+        }
+
         /**
          * Changes the default setting for "nice back-reference length" and "maximum number of candidates" for improved
          * compression speed at the cost of compression ratio.
@@ -250,19 +285,21 @@ public Parameters build() {
             int candidates = maxCandidates != null ? maxCandidates : Math.max(256, windowSize / 128);
             boolean lazy = lazyMatches == null || lazyMatches;
             int threshold = lazy ? (lazyThreshold != null ? lazyThreshold : niceLen) : minBackReferenceLength;
+            int depth = lazyDepth != null ? lazyDepth : 1;
+            boolean fast = fastMatching != null && fastMatching;
 
             return new Parameters(windowSize, minBackReferenceLength, maxBackReferenceLength,
-                maxOffset, maxLiteralLength, niceLen, candidates, lazy, threshold);
+                maxOffset, maxLiteralLength, niceLen, candidates, lazy, threshold, depth, fast);
         }
     }
 
     private final int windowSize, minBackReferenceLength, maxBackReferenceLength, maxOffset, maxLiteralLength,
-        niceBackReferenceLength, maxCandidates, lazyThreshold;
-    private final boolean lazyMatching;
+        niceBackReferenceLength, maxCandidates, lazyThreshold, lazyDepth;
+    private final boolean lazyMatching, fastMatching;
 
     private Parameters(int windowSize, int minBackReferenceLength, int maxBackReferenceLength, int maxOffset,
             int maxLiteralLength, int niceBackReferenceLength, int maxCandidates, boolean lazyMatching,
-            int lazyThreshold) {
+            int lazyThreshold, int lazyDepth, boolean fastMatching) {
         this.windowSize = windowSize;
         this.minBackReferenceLength = minBackReferenceLength;
         this.maxBackReferenceLength = maxBackReferenceLength;
@@ -272,6 +309,8 @@ private Parameters(int windowSize, int minBackReferenceLength, int maxBackRefere
         this.maxCandidates = maxCandidates;
         this.lazyMatching = lazyMatching;
         this.lazyThreshold = lazyThreshold;
+        this.lazyDepth = lazyDepth;
+        this.fastMatching = fastMatching;
     }
 
     /**
@@ -343,6 +382,24 @@ public int getLazyMatchingThreshold() {
         return lazyThreshold;
     }
 
+    /**
+     * Gets the number of subsequent positions lazy matching looks at.
+     * @return the number of subsequent positions lazy matching looks at
+     * @since 1.19
+     */
+    public int getLazyMatchingDepth() {
+        return lazyDepth;
+    }
+
+    /**
+     * Gets whether only the most recent position with the same hash is consulted.
+     * @return whether only the most recent position with the same hash is consulted
+     * @since 1.19
+     */
+    public boolean getFastMatching() {
+        return fastMatching;
+    }
+
     private static final boolean isPowerOfTwo(int x) {
         // pre-condition: x > 0
         return (x & (x - 1)) == 0;
@@ -0,0 +1,247 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ScatterGatherBackingStore that keeps its data in memory, either on
+ * the heap or in direct ByteBuffers, and spills to a temporary file
+ * once a threshold has been reached.
+ *
+ * <p>Memory is allocated in chunks as data is written. The first
+ * {@code spillThreshold} bytes stay in memory, everything written
+ * after that goes to a temporary file that is created when needed and
+ * deleted when the store is closed.</p>
+ *
+ * <p>Streams returned by {@link #getInputStream} see all data written
+ * so far, even data written after the stream has been created.</p>
+ *
+ * @since 1.19
+ */
+public class InMemoryScatterGatherBackingStore implements ScatterGatherBackingStore {
+
+    /** Default size of the chunks of memory allocated, 64 KiB. */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /** Default number of bytes kept in memory, 64 MiB. */
+    public static final long DEFAULT_SPILL_THRESHOLD = 64 * 1024 * 1024;
+
+    private final long spillThreshold;
+    private final int chunkSize;
+    private final boolean direct;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long inMemory;
+    private File spillFile;
+    private FileChannel spillChannel;
+    private long spilled;
+    private boolean closedForWriting;
+    private boolean closed;
+
+    /**
+     * Creates a store that keeps up to {@link #DEFAULT_SPILL_THRESHOLD}
+     * bytes on the heap.
+     */
+    public InMemoryScatterGatherBackingStore() {
+        this(DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * Creates a store that keeps up to the given number of bytes on
+     * the heap.
+     *
+     * @param spillThreshold number of bytes to keep in memory
+     */
+    public InMemoryScatterGatherBackingStore(final long spillThreshold) {
+        this(spillThreshold, DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param spillThreshold number of bytes to keep in memory
+     * @param chunkSize size of the chunks of memory to allocate
+     * @param direct whether to use direct ByteBuffers rather than the heap
+     * @throws IllegalArgumentException if spillThreshold is negative
+     * or chunkSize is not positive
+     */
+    public InMemoryScatterGatherBackingStore(final long spillThreshold, final int chunkSize,
+        final boolean direct) {
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("spillThreshold must not be negative");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.spillThreshold = spillThreshold;
+        this.chunkSize = chunkSize;
+        this.direct = direct;
+    }
+
+    /**
+     * Whether part of the data has been written to a temporary file.
+     *
+     * @return true if the spill threshold has been exceeded
+     */
+    public synchronized boolean hasSpilled() {
+        return spillChannel != null;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new StoreInputStream();
+    }
+
+    @Override
+    public synchronized void writeOut(final byte[] data, final int offset, final int length) throws IOException {
+        if (closedForWriting) {
+            throw new IOException("The store is closed for writing");
+        }
+        int off = offset;
+        int remaining = length;
+        while (remaining > 0 && inMemory < spillThreshold) {
+            ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (chunk == null || !chunk.hasRemaining()) {
+                final int size = (int) Math.min(chunkSize, spillThreshold - inMemory);
+                chunk = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+                chunks.add(chunk);
+            }
+            final int n = Math.min(remaining, chunk.remaining());
+            chunk.put(data, off, n);
+            inMemory += n;
+            off += n;
+            remaining -= n;
+        }
+        if (remaining > 0) {
+            spill(ByteBuffer.wrap(data, off, remaining));
+        }
+    }
+
+    @Override
+    public synchronized void closeForWriting() throws IOException {
+        closedForWriting = true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closedForWriting = true;
+        chunks.clear();
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } finally {
+                if (spillFile.exists() && !spillFile.delete()) {
+                    spillFile.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    private void spill(final ByteBuffer buf) throws IOException {
+        if (spillChannel == null) {
+            spillFile = File.createTempFile("scattergather", ".spill");
+            spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        }
+        while (buf.hasRemaining()) {
+            spilled += spillChannel.write(buf, spilled);
+        }
+    }
+
+    /**
+     * Copies up to len bytes starting at pos into b.
+     *
+     * @return the number of bytes copied or -1 if pos is at the end
+     * of the data written so far
+     */
+    private synchronized int read(final long pos, final byte[] b, final int off, final int len)
+        throws IOException {
+        if (closed) {
+            throw new IOException("The store has been closed");
+        }
+        if (pos >= inMemory + spilled) {
+            return -1;
+        }
+        if (pos < inMemory) {
+            // all chunks but the last one are full
+            final int index = (int) (pos / chunkSize);
+            final ByteBuffer chunk = chunks.get(index).duplicate();
+            final int inChunk = (int) (pos - (long) index * chunkSize);
+            final int n = Math.min(len, chunk.position() - inChunk);
+            chunk.position(inChunk);
+            chunk.get(b, off, n);
+            return n;
+        }
+        final ByteBuffer buf = ByteBuffer.wrap(b, off, (int) Math.min(len, inMemory + spilled - pos));
+        while (buf.hasRemaining()) {
+            if (spillChannel.read(buf, pos - inMemory + buf.position() - off) < 0) {
+                break;
+            }
+        }
+        return buf.position() - off;
+    }
+
+    private class StoreInputStream extends InputStream {
+        private final byte[] single = new byte[1];
+        private long pos;
+
+        @Override
+        public int read() throws IOException {
+            final int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            final int n = InMemoryScatterGatherBackingStore.this.read(pos, b, off, len);
+            if (n > 0) {
+                pos += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = Math.max(0, Math.min(n, available()));
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            synchronized (InMemoryScatterGatherBackingStore.this) {
+                return (int) Math.min(Integer.MAX_VALUE, Math.max(0, inMemory + spilled - pos));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.parallel;
+
+/**
+ * Supplies {@link InMemoryScatterGatherBackingStore} instances.
+ *
+ * <p>ParallelScatterZipCreator uses one store per thread, so up to
+ * the number of threads times {@code spillThreshold} bytes may be
+ * held in memory.</p>
+ *
+ * @since 1.19
+ */
+public class InMemoryScatterGatherBackingStoreSupplier implements ScatterGatherBackingStoreSupplier {
+    private final long spillThreshold;
+    private final int chunkSize;
+    private final boolean direct;
+
+    /**
+     * Creates a supplier for stores that keep up to {@link
+     * InMemoryScatterGatherBackingStore#DEFAULT_SPILL_THRESHOLD} bytes
+     * on the heap.
+     */
+    public InMemoryScatterGatherBackingStoreSupplier() {
+        this(InMemoryScatterGatherBackingStore.DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * Creates a supplier for stores that keep up to the given number
+     * of bytes on the heap.
+     *
+     * @param spillThreshold number of bytes each store keeps in memory
+     */
+    public InMemoryScatterGatherBackingStoreSupplier(final long spillThreshold) {
+        this(spillThreshold, InMemoryScatterGatherBackingStore.DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * Creates a supplier.
+     *
+     * @param spillThreshold number of bytes each store keeps in memory
+     * @param chunkSize size of the chunks of memory to allocate
+     * @param direct whether to use direct ByteBuffers rather than the heap
+     * @throws IllegalArgumentException if spillThreshold is negative
+     * or chunkSize is not positive
+     */
+    public InMemoryScatterGatherBackingStoreSupplier(final long spillThreshold, final int chunkSize,
+        final boolean direct) {
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("spillThreshold must not be negative");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.spillThreshold = spillThreshold;
+        this.chunkSize = chunkSize;
+        this.direct = direct;
+    }
+
+    @Override
+    public ScatterGatherBackingStore get() {
+        return new InMemoryScatterGatherBackingStore(spillThreshold, chunkSize, direct);
+    }
+}
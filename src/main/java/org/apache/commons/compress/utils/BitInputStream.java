@@ -92,6 +92,37 @@ public long readBits(final int count) throws IOException {
         return readCachedBits(count);
     }
 
+    /**
+     * Returns the next bits without consuming them.
+     *
+     * <p>Only reads as many bytes from the underlying stream as are
+     * needed to provide the requested number of bits.</p>
+     *
+     * @param count the number of bits to peek at, must be a
+     * non-negative number not bigger than 56.
+     * @return the bits concatenated as a long using the stream's byte
+     *         order. If the end of the underlying stream has been reached
+     *         before {@code count} bits could be read, the missing bits
+     *         are zeros - use {@link #bitsCached} to find out how many
+     *         bits are actually available.
+     * @throws IOException on error
+     * @since 1.19
+     */
+    public long peekBits(final int count) throws IOException {
+        if (count < 0 || count > MAXIMUM_CACHE_SIZE - Byte.SIZE + 1) {
+            throw new IllegalArgumentException("count must not be negative or greater than "
+                + (MAXIMUM_CACHE_SIZE - Byte.SIZE + 1));
+        }
+        ensureCache(count);
+        if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
+            return bitsCached & MASKS[count];
+        }
+        if (bitsCachedSize >= count) {
+            return (bitsCached >> (bitsCachedSize - count)) & MASKS[count];
+        }
+        return (bitsCached << (count - bitsCachedSize)) & MASKS[count];
+    }
+
     /**
      * Returns the number of bits that can be read from this input
      * stream without reading from the underlying input stream at all.
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A stream that reads a range of a channel without relying on the
+ * channel's position.
+ *
+ * <p>Several streams may read from the same channel at the same
+ * time, see {@link IOUtils#read(SeekableByteChannel, ByteBuffer,
+ * long)}. Reading stops early if the channel ends before the range
+ * does.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.19
+ */
+public class BoundedSeekableByteChannelInputStream extends InputStream {
+    private final SeekableByteChannel channel;
+    private final long end;
+    private long loc;
+    private final byte[] singleByte = new byte[1];
+
+    /**
+     * Creates the stream that will at most read the given amount of
+     * bytes from the given channel.
+     * @param channel the channel to read from
+     * @param start the position of the first byte to read
+     * @param remaining the maximum amount of bytes to read
+     * @throws IllegalArgumentException if the range exceeds the
+     * largest possible position
+     */
+    public BoundedSeekableByteChannelInputStream(final SeekableByteChannel channel, final long start,
+        final long remaining) {
+        this.channel = channel;
+        this.end = start + remaining;
+        if (this.end < start) {
+            // check for potential vulnerability due to overflow
+            throw new IllegalArgumentException("Invalid length of stream at offset=" + start
+                + ", length=" + remaining);
+        }
+        loc = start;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int read = read(singleByte, 0, 1);
+        return read <= 0 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        if (loc >= end) {
+            return -1;
+        }
+        final int ret = IOUtils.read(channel, ByteBuffer.wrap(b, off, (int) Math.min(len, end - loc)), loc);
+        if (ret > 0) {
+            loc += ret;
+        }
+        return ret;
+    }
+
+    @Override
+    public long skip(final long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        final long skipped = Math.min(n, end - loc);
+        loc += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns the number of bytes left in the range, fewer may be
+     * readable if the channel ends early.
+     */
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - loc);
+    }
+
+    @Override
+    public void close() {
+        // the channel is controlled externally
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link ZlibPool} that keeps a limited number of idle instances
+ * per key.
+ *
+ * <p>Instances returned while the pool already holds the maximum
+ * number of idle instances for their key are ended immediately. The
+ * pool never blocks, if no idle instance is available a new one is
+ * created.</p>
+ *
+ * @since 1.19
+ * @ThreadSafe
+ */
+public class BoundedZlibPool extends ZlibPool {
+
+    private static final int MIN_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    private static final int MAX_LEVEL = Deflater.BEST_COMPRESSION;
+
+    // indexed by nowrap ? 1 : 0
+    private final List<BlockingQueue<Inflater>> inflaters;
+    // indexed by 2 * (level - MIN_LEVEL) + (nowrap ? 1 : 0)
+    private final List<BlockingQueue<Deflater>> deflaters;
+    private final Counters inflaterCounters = new Counters();
+    private final Counters deflaterCounters = new Counters();
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxIdlePerKey the maximum number of idle instances kept
+     * for each combination of nowrap and compression level.
+     * @throws IllegalArgumentException if maxIdlePerKey is not positive
+     */
+    public BoundedZlibPool(final int maxIdlePerKey) {
+        if (maxIdlePerKey < 1) {
+            throw new IllegalArgumentException("maxIdlePerKey must be positive");
+        }
+        inflaters = new ArrayList<>(2);
+        for (int i = 0; i < 2; i++) {
+            inflaters.add(new ArrayBlockingQueue<Inflater>(maxIdlePerKey));
+        }
+        final int deflaterKeys = 2 * (MAX_LEVEL - MIN_LEVEL + 1);
+        deflaters = new ArrayList<>(deflaterKeys);
+        for (int i = 0; i < deflaterKeys; i++) {
+            deflaters.add(new ArrayBlockingQueue<Deflater>(maxIdlePerKey));
+        }
+    }
+
+    @Override
+    public Inflater borrowInflater(final boolean nowrap) {
+        final Inflater inflater = inflaters.get(nowrap ? 1 : 0).poll();
+        inflaterCounters.borrowed(inflater != null);
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    @Override
+    public void returnInflater(final Inflater inflater, final boolean nowrap) {
+        inflaterCounters.returned.incrementAndGet();
+        inflater.reset();
+        if (!inflaters.get(nowrap ? 1 : 0).offer(inflater)) {
+            inflaterCounters.discarded.incrementAndGet();
+            inflater.end();
+        }
+    }
+
+    @Override
+    public Deflater borrowDeflater(final int level, final boolean nowrap) {
+        final int key = deflaterKey(level, nowrap);
+        final Deflater deflater = key < 0 ? null : deflaters.get(key).poll();
+        deflaterCounters.borrowed(deflater != null);
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    @Override
+    public void returnDeflater(final Deflater deflater, final int level, final boolean nowrap) {
+        deflaterCounters.returned.incrementAndGet();
+        final int key = deflaterKey(level, nowrap);
+        if (key >= 0) {
+            deflater.reset();
+            // borrowers may have changed them
+            deflater.setLevel(level);
+            deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+            if (deflaters.get(key).offer(deflater)) {
+                return;
+            }
+        }
+        deflaterCounters.discarded.incrementAndGet();
+        deflater.end();
+    }
+
+    /**
+     * Ends all idle instances.
+     *
+     * <p>The pool remains usable.</p>
+     */
+    public void clear() {
+        for (final BlockingQueue<Inflater> queue : inflaters) {
+            for (Inflater inflater = queue.poll(); inflater != null; inflater = queue.poll()) {
+                inflater.end();
+            }
+        }
+        for (final BlockingQueue<Deflater> queue : deflaters) {
+            for (Deflater deflater = queue.poll(); deflater != null; deflater = queue.poll()) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Statistics about the Inflaters handed out by this pool.
+     *
+     * @return a snapshot of the current statistics
+     */
+    public Statistics getInflaterStatistics() {
+        long idle = 0;
+        for (final BlockingQueue<Inflater> queue : inflaters) {
+            idle += queue.size();
+        }
+        return inflaterCounters.snapshot(idle);
+    }
+
+    /**
+     * Statistics about the Deflaters handed out by this pool.
+     *
+     * @return a snapshot of the current statistics
+     */
+    public Statistics getDeflaterStatistics() {
+        long idle = 0;
+        for (final BlockingQueue<Deflater> queue : deflaters) {
+            idle += queue.size();
+        }
+        return deflaterCounters.snapshot(idle);
+    }
+
+    private static int deflaterKey(final int level, final boolean nowrap) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            return -1;
+        }
+        return 2 * (level - MIN_LEVEL) + (nowrap ? 1 : 0);
+    }
+
+    private static final class Counters {
+        private final AtomicLong borrowed = new AtomicLong();
+        private final AtomicLong reused = new AtomicLong();
+        private final AtomicLong returned = new AtomicLong();
+        private final AtomicLong discarded = new AtomicLong();
+
+        private void borrowed(final boolean fromPool) {
+            borrowed.incrementAndGet();
+            if (fromPool) {
+                reused.incrementAndGet();
+            }
+        }
+
+        private Statistics snapshot(final long idle) {
+            return new Statistics(borrowed.get(), reused.get(), returned.get(), discarded.get(), idle);
+        }
+    }
+
+    /**
+     * Usage statistics of a pool.
+     */
+    public static final class Statistics {
+        private final long borrowed;
+        private final long reused;
+        private final long returned;
+        private final long discarded;
+        private final long idle;
+
+        Statistics(final long borrowed, final long reused, final long returned, final long discarded,
+            final long idle) {
+            this.borrowed = borrowed;
+            this.reused = reused;
+            this.returned = returned;
+            this.discarded = discarded;
+            this.idle = idle;
+        }
+
+        /**
+         * The number of instances handed out.
+         * @return the number of instances handed out
+         */
+        public long getBorrowed() {
+            return borrowed;
+        }
+
+        /**
+         * The number of instances handed out that have been taken
+         * from the pool rather than created.
+         * @return the number of reused instances
+         */
+        public long getReused() {
+            return reused;
+        }
+
+        /**
+         * The fraction of instances handed out that have been taken
+         * from the pool.
+         * @return a value between 0 and 1
+         */
+        public double getHitRate() {
+            return borrowed == 0 ? 0 : (double) reused / borrowed;
+        }
+
+        /**
+         * The number of instances given back.
+         * @return the number of instances given back
+         */
+        public long getReturned() {
+            return returned;
+        }
+
+        /**
+         * The number of instances that have been ended when they
+         * were given back as the pool was full.
+         * @return the number of discarded instances
+         */
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        /**
+         * The number of instances that have been handed out but not
+         * been given back, yet.
+         * @return the number of outstanding instances
+         */
+        public long getOutstanding() {
+            return borrowed - returned;
+        }
+
+        /**
+         * The number of instances currently held by the pool.
+         * @return the number of idle instances
+         */
+        public long getIdle() {
+            return idle;
+        }
+
+        @Override
+        public String toString() {
+            return "borrowed=" + borrowed + ", reused=" + reused + ", returned=" + returned
+                + ", discarded=" + discarded + ", outstanding=" + getOutstanding() + ", idle=" + idle;
+        }
+    }
+}
@@ -25,7 +25,9 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 
 /**
  * Utility functions
@@ -203,6 +205,63 @@ public static void readFully(ReadableByteChannel channel, ByteBuffer b) throws I
         }
     }
 
+    /**
+     * Reads {@code b.remaining()} bytes from the given channel
+     * starting at the given position without relying on the
+     * channel's position.
+     *
+     * <p>Uses positional reads for {@link FileChannel}s, other
+     * channels are locked while their position is set and read, so
+     * several threads may read from the same channel this way.</p>
+     *
+     * @param channel the channel to read from
+     * @param b the buffer into which the data is read.
+     * @param position the position of the channel to start reading at
+     * @throws IOException - if an I/O error occurs.
+     * @throws EOFException - if the channel reaches the end before reading all the bytes.
+     * @since 1.19
+     */
+    public static void readFully(final SeekableByteChannel channel, final ByteBuffer b, final long position)
+        throws IOException {
+        long pos = position;
+        while (b.hasRemaining()) {
+            final int readNow = read(channel, b, pos);
+            if (readNow <= 0) {
+                throw new EOFException();
+            }
+            pos += readNow;
+        }
+    }
+
+    /**
+     * Reads at most {@code b.remaining()} bytes from the given
+     * channel starting at the given position without relying on the
+     * channel's position.
+     *
+     * <p>Uses a single positional read for {@link FileChannel}s,
+     * other channels are locked while their position is set and
+     * read, so several threads may read from the same channel this
+     * way.</p>
+     *
+     * @param channel the channel to read from
+     * @param b the buffer into which the data is read.
+     * @param position the position of the channel to start reading at
+     * @return the number of bytes read, -1 if the position is at or
+     * after the end of the channel
+     * @throws IOException - if an I/O error occurs.
+     * @since 1.19
+     */
+    public static int read(final SeekableByteChannel channel, final ByteBuffer b, final long position)
+        throws IOException {
+        if (channel instanceof FileChannel) {
+            return ((FileChannel) channel).read(b, position);
+        }
+        synchronized (channel) {
+            channel.position(position);
+            return channel.read(b);
+        }
+    }
+
     // toByteArray(InputStream) copied from:
     // commons/proper/io/trunk/src/main/java/org/apache/commons/io/IOUtils.java?revision=1428941
     // January 8th, 2013
@@ -0,0 +1,251 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A stream that reads from a wrapped stream on a background thread.
+ *
+ * <p>The background thread fills a fixed number of buffers and hands
+ * them to the reading thread in order, so reading from a slow or
+ * network backed stream overlaps with whatever the reading thread
+ * does with the data - like decompressing it inside of {@link
+ * org.apache.commons.compress.archivers.zip.ZipArchiveInputStream}.
+ * The background thread blocks once all buffers are filled.</p>
+ *
+ * <pre>
+ * try (ZipArchiveInputStream zin = new ZipArchiveInputStream(new ReadAheadInputStream(socketStream))) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * <p>Exceptions thrown by the wrapped stream are thrown by the read
+ * call that would have returned the data following the last
+ * successfully read byte and by all read calls after it. Closing this stream closes the wrapped
+ * stream and stops the background thread.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.19
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    /** Default size of a buffer, 64 KiB. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** Default number of buffers. */
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+
+    private static final Chunk EOF = new Chunk(0);
+
+    private final InputStream in;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread reader;
+    private final byte[] single = new byte[1];
+    private Chunk current;
+    private int pos;
+    private volatile boolean closed;
+
+    /**
+     * Creates a stream using {@link #DEFAULT_BUFFER_COUNT} buffers of
+     * {@link #DEFAULT_BUFFER_SIZE} bytes and a daemon thread.
+     *
+     * @param in the stream to read from
+     */
+    public ReadAheadInputStream(final InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "commons-compress-read-ahead");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Creates a stream.
+     *
+     * @param in the stream to read from
+     * @param bufferSize the size of each buffer
+     * @param bufferCount the number of buffers, at most {@code
+     * bufferSize * bufferCount} bytes are read ahead
+     * @param threadFactory creates the thread reading from {@code in}
+     * @throws IllegalArgumentException if bufferSize or bufferCount is
+     * not positive
+     */
+    public ReadAheadInputStream(final InputStream in, final int bufferSize, final int bufferCount,
+        final ThreadFactory threadFactory) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        if (bufferCount < 1) {
+            throw new IllegalArgumentException("bufferCount must be positive");
+        }
+        this.in = in;
+        free = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        // one more slot for EOF or an exception
+        filled = new ArrayBlockingQueue<>(bufferCount + 1);
+        reader = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                readAhead();
+            }
+        });
+        reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int n = Math.min(len, current.length - pos);
+        System.arraycopy(current.data, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && nextChunk()) {
+            final int s = (int) Math.min(n - skipped, current.length - pos);
+            pos += s;
+            skipped += s;
+        }
+        return skipped;
+    }
+
+    /**
+     * The number of bytes that can be read without blocking, only
+     * counts the current buffer.
+     */
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+        return current == null || current == EOF ? 0 : current.length - pos;
+    }
+
+    /**
+     * Closes the wrapped stream and stops the background thread.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            in.close();
+        } finally {
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * Makes sure {@link #current} has bytes left to read.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+        if (current != null && current.exception != null) {
+            throw current.exception;
+        }
+        while (current != EOF && (current == null || pos >= current.length)) {
+            if (current != null) {
+                free.add(current);
+            }
+            try {
+                current = filled.take();
+            } catch (final InterruptedException ex) {
+                current = null;
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for data");
+            }
+            pos = 0;
+            if (current.exception != null) {
+                // the background thread has stopped, keep failing
+                throw current.exception;
+            }
+        }
+        return current != EOF;
+    }
+
+    private void readAhead() {
+        try {
+            while (!closed) {
+                final Chunk chunk = free.take();
+                final int n = in.read(chunk.data);
+                if (n < 0) {
+                    filled.put(EOF);
+                    return;
+                }
+                chunk.length = n;
+                filled.put(chunk);
+            }
+        } catch (final InterruptedException ex) {
+            // closed
+        } catch (final IOException ex) {
+            if (!closed) {
+                final Chunk error = new Chunk(0);
+                error.exception = ex;
+                filled.add(error);
+            }
+        } catch (final RuntimeException ex) {
+            if (!closed) {
+                final Chunk error = new Chunk(0);
+                error.exception = new IOException(ex);
+                filled.add(error);
+            }
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+        private int length;
+        private IOException exception;
+
+        private Chunk(final int size) {
+            data = new byte[size];
+        }
+    }
+}
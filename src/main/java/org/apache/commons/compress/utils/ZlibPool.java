@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.utils;
+
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Hands out {@link Inflater} and {@link Deflater} instances and
+ * takes them back once they are no longer needed.
+ *
+ * <p>Each Inflater and Deflater holds native zlib state that is only
+ * released by {@code end()} or the finalizer, creating a new instance
+ * per stream or archive entry is expensive when many small entries are
+ * processed. ZipFile, ZipArchiveInputStream,
+ * GzipCompressorInputStream and ParallelScatterZipCreator obtain
+ * their instances from {@link #getDefault the default pool}.</p>
+ *
+ * <p>Instances must be returned using the same key (nowrap and
+ * level) they have been borrowed with and must not be used - or
+ * ended - after they have been returned. Instances that never get
+ * returned are simply garbage collected.</p>
+ *
+ * <p>Implementations must be thread-safe.</p>
+ *
+ * @since 1.19
+ * @ThreadSafe
+ */
+public abstract class ZlibPool {
+
+    private static final ZlibPool NON_POOLING = new ZlibPool() {
+        @Override
+        public Inflater borrowInflater(final boolean nowrap) {
+            return new Inflater(nowrap);
+        }
+
+        @Override
+        public void returnInflater(final Inflater inflater, final boolean nowrap) {
+            inflater.end();
+        }
+
+        @Override
+        public Deflater borrowDeflater(final int level, final boolean nowrap) {
+            return new Deflater(level, nowrap);
+        }
+
+        @Override
+        public void returnDeflater(final Deflater deflater, final int level, final boolean nowrap) {
+            deflater.end();
+        }
+    };
+
+    private static volatile ZlibPool defaultPool =
+        new BoundedZlibPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The pool used by Commons Compress' streams and archives.
+     *
+     * <p>Unless {@link #setDefault} has been used this is a {@link
+     * BoundedZlibPool} keeping up to one idle instance per available
+     * processor for each key.</p>
+     *
+     * @return the pool used by Commons Compress
+     */
+    public static ZlibPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Replaces the pool used by Commons Compress.
+     *
+     * <p>Instances borrowed from the previous pool are still returned
+     * to it.</p>
+     *
+     * @param pool the new pool, {@code null} disables pooling
+     */
+    public static void setDefault(final ZlibPool pool) {
+        defaultPool = pool == null ? NON_POOLING : pool;
+    }
+
+    /**
+     * A pool that always creates new instances and ends them when they
+     * are returned.
+     *
+     * @return a pool that doesn't pool
+     */
+    public static ZlibPool nonPooling() {
+        return NON_POOLING;
+    }
+
+    /**
+     * Obtains an Inflater.
+     *
+     * @param nowrap whether the Inflater must handle raw deflate
+     * streams without zlib header and checksum
+     * @return an Inflater in its initial state
+     */
+    public abstract Inflater borrowInflater(boolean nowrap);
+
+    /**
+     * Hands back an Inflater obtained by {@link #borrowInflater}.
+     *
+     * @param inflater the Inflater
+     * @param nowrap the value used when borrowing the Inflater
+     */
+    public abstract void returnInflater(Inflater inflater, boolean nowrap);
+
+    /**
+     * Obtains a Deflater.
+     *
+     * @param level the compression level
+     * @param nowrap whether the Deflater must create raw deflate
+     * streams without zlib header and checksum
+     * @return a Deflater in its initial state
+     */
+    public abstract Deflater borrowDeflater(int level, boolean nowrap);
+
+    /**
+     * Hands back a Deflater obtained by {@link #borrowDeflater}.
+     *
+     * @param deflater the Deflater
+     * @param level the value used when borrowing the Deflater
+     * @param nowrap the value used when borrowing the Deflater
+     */
+    public abstract void returnDeflater(Deflater deflater, int level, boolean nowrap);
+}
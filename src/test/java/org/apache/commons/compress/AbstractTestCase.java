@@ -35,6 +35,7 @@
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -136,6 +137,59 @@ public static boolean tryHardToDelete(final File f) {
         return true;
     }
 
+    /**
+     * Creates reproducible data for round trips through compressors.
+     *
+     * <p>The data mixes random bytes, text-like bytes, repetitions of
+     * earlier data within 32 KiB and - if requested - runs of a
+     * single byte. Without runs no byte equals its predecessor, so
+     * bzip2's run-length encoding doesn't shrink the data and each
+     * block holds the same number of bytes.</p>
+     *
+     * @param size the number of bytes to create, also used as seed
+     * @param withRuns whether to include runs of a single byte
+     * @return the data
+     */
+    public static byte[] createTestData(final int size, final boolean withRuns) {
+        final Random r = new Random(size);
+        final byte[] data = new byte[size];
+        int i = 0;
+        while (i < size) {
+            final int len = Math.min(size - i, r.nextInt(400) + 1);
+            switch (r.nextInt(withRuns ? 4 : 3)) {
+            case 0:
+                for (int j = 0; j < len; j++) {
+                    data[i + j] = (byte) r.nextInt(256);
+                }
+                break;
+            case 1:
+                for (int j = 0; j < len; j++) {
+                    data[i + j] = (byte) ('a' + r.nextInt(r.nextInt(26) + 1));
+                }
+                break;
+            case 2:
+                // possibly overlapping
+                final int distance = r.nextInt(Math.min(i, 1 << 15) + 1) + 1;
+                for (int j = 0; j < len; j++) {
+                    data[i + j] = i + j >= distance ? data[i + j - distance] : 0;
+                }
+                break;
+            default:
+                Arrays.fill(data, i, i + len, (byte) r.nextInt(4));
+                break;
+            }
+            i += len;
+        }
+        if (!withRuns) {
+            for (i = 1; i < size; i++) {
+                if (data[i] == data[i - 1]) {
+                    data[i]++;
+                }
+            }
+        }
+        return data;
+    }
+
     /**
      * Creates an archive of textbased files in several directories. The
      * archivername is the factory identifier for the archiver, for example zip,
@@ -424,6 +424,60 @@ public void testCopyRawZip64EntryFromFile()
         }
     }
 
+    @Test
+    public void testCopyRawEntriesToChannelAndStreamCopyTheSameData()
+            throws IOException {
+
+        final File[] tmp = createTempDirAndFile();
+        final File source = File.createTempFile("src.", ".zip", tmp[0]);
+        final Map<String, byte[]> contents = new HashMap<>();
+        try (final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(source)) {
+            for (int i = 0; i < 10; i++) {
+                final byte[] data = new byte[100000 * i + 1];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) (j * i + j / 1000);
+                }
+                final ZipArchiveEntry entry = new ZipArchiveEntry("file" + i);
+                entry.setMethod(i % 2 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                zos.putArchiveEntry(entry);
+                zos.write(data);
+                zos.closeArchiveEntry();
+                contents.put(entry.getName(), data);
+            }
+        }
+
+        final File toChannel = File.createTempFile("channel.", ".zip", tmp[0]);
+        final File toStream = File.createTempFile("stream.", ".zip", tmp[0]);
+        try (final ZipFile zf = new ZipFile(source)) {
+            long compressedSize = 0;
+            for (final Enumeration<ZipArchiveEntry> e = zf.getEntries(); e.hasMoreElements(); ) {
+                compressedSize += e.nextElement().getCompressedSize();
+            }
+            try (final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(toChannel)) {
+                assertTrue(zos.isSeekable());
+                zf.copyRawEntries(zos, allFilesPredicate);
+                assertEquals(compressedSize, zos.getBytesWritten());
+            }
+            try (final OutputStream os = new FileOutputStream(toStream);
+                 final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(os)) {
+                zf.copyRawEntries(zos, allFilesPredicate);
+            }
+        }
+
+        for (final File result : new File[] { toChannel, toStream }) {
+            try (final ZipFile zf = new ZipFile(result)) {
+                int entries = 0;
+                for (final Enumeration<ZipArchiveEntry> e = zf.getEntries(); e.hasMoreElements(); entries++) {
+                    final ZipArchiveEntry entry = e.nextElement();
+                    try (final InputStream in = zf.getInputStream(entry)) {
+                        assertArrayEquals(entry.getName(), contents.get(entry.getName()), IOUtils.toByteArray(in));
+                    }
+                }
+                assertEquals(contents.size(), entries);
+            }
+        }
+    }
+
     @Test
     public void testUnixModeInAddRaw() throws IOException {
 
@@ -0,0 +1,249 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import static org.apache.commons.compress.AbstractTestCase.getFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class TarFileTest {
+
+    @Test
+    public void readsEntriesWithGnuLongNames() throws Exception {
+        assertSameAsStream(createArchive(TarArchiveOutputStream.LONGFILE_GNU), CharsetNames.UTF_8);
+    }
+
+    @Test
+    public void readsEntriesWithPaxHeaders() throws Exception {
+        assertSameAsStream(createArchive(TarArchiveOutputStream.LONGFILE_POSIX), CharsetNames.UTF_8);
+    }
+
+    @Test
+    public void readsTestArchives() throws Exception {
+        for (final String name : new String[] { "bla.tar", "COMPRESS-114.tar",
+                "COMPRESS-197.tar", "COMPRESS-324.tar", "COMPRESS-356.tar",
+                "oldgnu_sparse.tar", "pax_gnu_sparse.tar", "posix00_sparse.tar", "posix01_sparse.tar",
+                "archive_with_trailer.tar" }) {
+            final byte[] archive;
+            try (InputStream in = new FileInputStream(getFile(name))) {
+                archive = IOUtils.toByteArray(in);
+            }
+            assertSameAsStream(archive, CharsetNames.ISO_8859_1);
+        }
+    }
+
+    @Test
+    public void appliesGlobalPaxHeaders() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(bos)) {
+            final byte[] global = "20 uname=globaluser\n".getBytes(CharsetNames.UTF_8);
+            final TarArchiveEntry g = new TarArchiveEntry("pax_global_header");
+            g.setSize(global.length);
+            tos.putArchiveEntry(g);
+            tos.write(global);
+            tos.closeArchiveEntry();
+            final TarArchiveEntry e = new TarArchiveEntry("a.txt");
+            e.setUserName("local");
+            tos.putArchiveEntry(e);
+            tos.closeArchiveEntry();
+        }
+        // TarArchiveOutputStream doesn't write global headers with
+        // keys it knows, turn the first entry into one
+        final byte[] archive = bos.toByteArray();
+        archive[TarConstants.CHKSUM_OFFSET + TarConstants.CHKSUMLEN] = TarConstants.LF_PAX_GLOBAL_EXTENDED_HEADER;
+        final byte[] header = Arrays.copyOf(archive, TarConstants.DEFAULT_RCDSIZE);
+        for (int i = 0; i < TarConstants.CHKSUMLEN; i++) {
+            header[TarConstants.CHKSUM_OFFSET + i] = ' ';
+        }
+        TarUtils.formatCheckSumOctalBytes(TarUtils.computeCheckSum(header), archive, TarConstants.CHKSUM_OFFSET,
+            TarConstants.CHKSUMLEN);
+
+        assertSameAsStream(archive);
+        try (TarFile tf = new TarFile(new SeekableInMemoryByteChannel(archive))) {
+            assertEquals(1, tf.getEntries().size());
+            assertEquals("globaluser", tf.getEntry("a.txt").getUserName());
+        }
+    }
+
+    @Test
+    public void readsFromFileConcurrently() throws Exception {
+        final File f = File.createTempFile("tarfile-test", ".tar");
+        f.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(createArchive(TarArchiveOutputStream.LONGFILE_POSIX));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (TarFile tf = new TarFile(FileChannel.open(f.toPath()), CharsetNames.UTF_8, false)) {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                for (final TarArchiveEntry e : tf.getEntries()) {
+                    if (e.isDirectory()) {
+                        continue;
+                    }
+                    results.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws IOException {
+                            try (InputStream in = tf.getInputStream(e)) {
+                                return Arrays.equals(content(e.getName()), IOUtils.toByteArray(in));
+                            }
+                        }
+                    }));
+                }
+            }
+            for (final Future<Boolean> r : results) {
+                assertTrue(r.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        f.delete();
+    }
+
+    @Test
+    public void indexesEntriesByName() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(bos)) {
+            for (final String content : new String[] { "first", "second" }) {
+                final byte[] data = content.getBytes(CharsetNames.UTF_8);
+                final TarArchiveEntry e = new TarArchiveEntry("same.txt");
+                e.setSize(data.length);
+                tos.putArchiveEntry(e);
+                tos.write(data);
+                tos.closeArchiveEntry();
+            }
+        }
+        try (TarFile tf = new TarFile(new SeekableInMemoryByteChannel(bos.toByteArray()))) {
+            assertEquals(2, tf.getEntries("same.txt").size());
+            assertEquals(0, tf.getEntries("other.txt").size());
+            assertNull(tf.getEntry("other.txt"));
+            assertNull(tf.getInputStream(new TarArchiveEntry("same.txt")));
+            try (InputStream in = tf.getInputStream(tf.getEntry("same.txt"))) {
+                assertEquals("first", new String(IOUtils.toByteArray(in), CharsetNames.UTF_8));
+            }
+            try (InputStream in = tf.getInputStream(tf.getEntries("same.txt").get(1))) {
+                assertEquals("second", new String(IOUtils.toByteArray(in), CharsetNames.UTF_8));
+            }
+            assertEquals(512, tf.getEntry("same.txt").getDataOffset());
+            assertEquals(1536, tf.getEntries("same.txt").get(1).getDataOffset());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void throwsOnTruncatedEntryData() throws Exception {
+        final byte[] archive = createArchive(TarArchiveOutputStream.LONGFILE_GNU);
+        final byte[] truncated;
+        final TarArchiveEntry last;
+        try (TarFile tf = new TarFile(new SeekableInMemoryByteChannel(archive), CharsetNames.UTF_8, false)) {
+            last = tf.getEntries().get(tf.getEntries().size() - 1);
+            truncated = new byte[(int) (last.getDataOffset() + last.getSize() / 2)];
+        }
+        System.arraycopy(archive, 0, truncated, 0, truncated.length);
+        try (TarFile tf = new TarFile(new SeekableInMemoryByteChannel(truncated), CharsetNames.UTF_8, false)) {
+            try (InputStream in = tf.getInputStream(tf.getEntry(last.getName()))) {
+                IOUtils.toByteArray(in);
+            }
+        }
+    }
+
+    private static void assertSameAsStream(final byte[] archive) throws IOException {
+        assertSameAsStream(archive, null);
+    }
+
+    private static void assertSameAsStream(final byte[] archive, final String encoding) throws IOException {
+        try (TarFile tf = new TarFile(new SeekableInMemoryByteChannel(archive), encoding, false);
+             TarArchiveInputStream tis = new TarArchiveInputStream(new ByteArrayInputStream(archive), encoding)) {
+            final List<TarArchiveEntry> entries = tf.getEntries();
+            int i = 0;
+            TarArchiveEntry expected;
+            while ((expected = tis.getNextTarEntry()) != null) {
+                final TarArchiveEntry actual = entries.get(i++);
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.getLinkName(), actual.getLinkName());
+                assertEquals(expected.getSize(), actual.getSize());
+                assertEquals(expected.getUserName(), actual.getUserName());
+                assertEquals(expected.getModTime(), actual.getModTime());
+                assertEquals(expected.isSparse(), actual.isSparse());
+                assertEquals(tis.canReadEntryData(expected), tf.canReadEntryData(actual));
+                assertTrue(actual.isStreamContiguous());
+                try (InputStream in = tf.getInputStream(actual)) {
+                    assertArrayEquals(expected.getName(), IOUtils.toByteArray(tis), IOUtils.toByteArray(in));
+                }
+            }
+            assertEquals(i, entries.size());
+        }
+    }
+
+    private static byte[] createArchive(final int longFileMode) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(bos, CharsetNames.UTF_8)) {
+            tos.setLongFileMode(longFileMode);
+            tos.setAddPaxHeadersForNonAsciiNames(longFileMode == TarArchiveOutputStream.LONGFILE_POSIX);
+            final TarArchiveEntry dir = new TarArchiveEntry("dir/");
+            tos.putArchiveEntry(dir);
+            tos.closeArchiveEntry();
+            for (int i = 0; i < 20; i++) {
+                final String name = name(i);
+                final byte[] data = content(name);
+                final TarArchiveEntry e = new TarArchiveEntry(name);
+                e.setSize(data.length);
+                tos.putArchiveEntry(e);
+                tos.write(data);
+                tos.closeArchiveEntry();
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static String name(final int i) {
+        final StringBuilder sb = new StringBuilder("dir/");
+        for (int j = 0; j < i * 13; j++) {
+            sb.append((char) ('a' + j % 26));
+        }
+        return sb.append(i % 3 == 0 ? "ä" : "").append(i).append(".bin").toString();
+    }
+
+    private static byte[] content(final String name) {
+        final byte[] data = new byte[Math.abs(name.hashCode() % 5000)];
+        new Random(name.hashCode()).nextBytes(data);
+        return data;
+    }
+}
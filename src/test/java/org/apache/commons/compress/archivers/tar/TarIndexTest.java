@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import static org.apache.commons.compress.AbstractTestCase.getFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class TarIndexTest {
+
+    @Test
+    public void persistedIndexOpensArchive() throws Exception {
+        final byte[] archive = createArchive(null);
+        final TarIndex index = persistAndRead(TarIndex.create(new ByteArrayInputStream(archive),
+            CharsetNames.UTF_8));
+        assertNull(index.getGzipIndex());
+        assertSameAsTarFile(archive, new TarFile(new SeekableInMemoryByteChannel(archive), index));
+    }
+
+    @Test
+    public void persistedIndexOfTestArchives() throws Exception {
+        for (final String name : new String[] { "bla.tar", "COMPRESS-114.tar", "COMPRESS-324.tar",
+                "pax_gnu_sparse.tar", "posix00_sparse.tar", "posix01_sparse.tar" }) {
+            final byte[] archive;
+            try (InputStream in = new FileInputStream(getFile(name))) {
+                archive = IOUtils.toByteArray(in);
+            }
+            final TarIndex index = persistAndRead(TarIndex.create(new ByteArrayInputStream(archive),
+                CharsetNames.ISO_8859_1));
+            try (TarFile expected = new TarFile(new SeekableInMemoryByteChannel(archive), CharsetNames.ISO_8859_1,
+                     false);
+                 TarFile actual = new TarFile(new SeekableInMemoryByteChannel(archive), index)) {
+                assertSame(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void outputStreamCreatesIndex() throws Exception {
+        final TarIndex[] index = new TarIndex[1];
+        final byte[] archive = createArchive(index);
+        try (TarFile expected = new TarFile(new SeekableInMemoryByteChannel(archive), CharsetNames.UTF_8, false);
+             TarFile actual = new TarFile(new SeekableInMemoryByteChannel(archive), persistAndRead(index[0]))) {
+            assertSame(expected, actual);
+        }
+    }
+
+    @Test
+    public void indexOfGzipCompressedArchive() throws Exception {
+        final byte[] archive = createArchive(null);
+        final byte[] compressed = gzip(archive, new GzipParameters());
+        final TarIndex index = persistAndRead(TarIndex.createFromGzip(new ByteArrayInputStream(compressed), 20000,
+            CharsetNames.UTF_8));
+        assertEquals(archive.length, index.getGzipIndex().getUncompressedSize());
+        assertSameAsTarFile(archive, new TarFile(new SeekableInMemoryByteChannel(compressed), index));
+    }
+
+    @Test
+    public void indexOfGzipCompressedArchiveCreatedWhileWriting() throws Exception {
+        final TarIndex[] index = new TarIndex[1];
+        final byte[] archive = createArchive(index);
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setIndexSpan(30000);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final TarIndex combined;
+        try (GzipCompressorOutputStream gz = new GzipCompressorOutputStream(bos, parameters)) {
+            gz.write(archive);
+            gz.finish();
+            combined = persistAndRead(index[0].withGzipIndex(gz.getIndex()));
+        }
+        assertSameAsTarFile(archive, new TarFile(new SeekableInMemoryByteChannel(bos.toByteArray()), combined));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsGarbage() throws Exception {
+        TarIndex.read(new ByteArrayInputStream(new byte[100]));
+    }
+
+    private static void assertSameAsTarFile(final byte[] archive, final TarFile actual) throws IOException {
+        try (TarFile expected = new TarFile(new SeekableInMemoryByteChannel(archive), CharsetNames.UTF_8, false)) {
+            assertSame(expected, actual);
+        } finally {
+            actual.close();
+        }
+    }
+
+    private static void assertSame(final TarFile expected, final TarFile actual) throws IOException {
+        final List<TarArchiveEntry> expectedEntries = expected.getEntries();
+        final List<TarArchiveEntry> actualEntries = actual.getEntries();
+        assertEquals(expectedEntries.size(), actualEntries.size());
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            final TarArchiveEntry e = expectedEntries.get(i);
+            final TarArchiveEntry a = actualEntries.get(i);
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getLinkName(), a.getLinkName());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getUserName(), a.getUserName());
+            assertEquals(e.getModTime(), a.getModTime());
+            assertEquals(e.isDirectory(), a.isDirectory());
+            assertEquals(e.isSparse(), a.isSparse());
+            assertEquals(e.getRealSize(), a.getRealSize());
+            assertEquals(e.getDataOffset(), a.getDataOffset());
+            assertEquals(e.getExtraPaxHeaders(), a.getExtraPaxHeaders());
+            try (InputStream ein = expected.getInputStream(e); InputStream ain = actual.getInputStream(a)) {
+                assertArrayEquals(e.getName(), IOUtils.toByteArray(ein), IOUtils.toByteArray(ain));
+            }
+        }
+    }
+
+    private static TarIndex persistAndRead(final TarIndex index) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        index.writeTo(bos);
+        return TarIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    }
+
+    private static byte[] gzip(final byte[] data, final GzipParameters parameters) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(bos, parameters)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] createArchive(final TarIndex[] index) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(bos, CharsetNames.UTF_8)) {
+            tos.setCreateIndex(index != null);
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tos.setAddPaxHeadersForNonAsciiNames(true);
+            tos.putArchiveEntry(new TarArchiveEntry("dir/"));
+            tos.closeArchiveEntry();
+            final Random r = new Random(5);
+            for (int i = 0; i < 30; i++) {
+                final StringBuilder name = new StringBuilder("dir/");
+                for (int j = 0; j < i * 7; j++) {
+                    name.append((char) ('a' + j % 26));
+                }
+                name.append(i % 4 == 0 ? "ä" : "").append(i);
+                final TarArchiveEntry e = new TarArchiveEntry(name.toString());
+                e.setUserName("user" + i % 5);
+                if (i % 7 == 0) {
+                    e.addPaxHeader("SCHILY.xattr.user.test", "value" + i);
+                }
+                final byte[] data = new byte[r.nextInt(20000)];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) ('a' + r.nextInt(3));
+                }
+                e.setSize(data.length);
+                tos.putArchiveEntry(e);
+                tos.write(data);
+                tos.closeArchiveEntry();
+            }
+            tos.finish();
+            if (index != null) {
+                index[0] = tos.getIndex();
+            }
+        }
+        return bos.toByteArray();
+    }
+}
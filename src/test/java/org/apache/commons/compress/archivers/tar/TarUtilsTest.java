@@ -381,4 +381,41 @@ public void testRoundTripOctalOrBinary8_ValueTooBigForBinary() {
         }
     }
 
+    @Test
+    public void testReadBinary12ByteWithSignificantLeadingBytes() {
+        final byte[] b = new byte[] {
+            (byte) 0x80, 0, 0, 1,
+            0, 0, 0, 0,
+            0, 0, 0, 0,
+        };
+        try {
+            TarUtils.parseOctalOrBinary(b, 0, 12);
+            fail("Should throw exception - value exceeds a long");
+        } catch (final IllegalArgumentException expected) {
+        }
+        b[0] = (byte) 0xff;
+        b[1] = (byte) 0xff;
+        b[2] = (byte) 0xff;
+        b[3] = (byte) 0xff;
+        b[4] = (byte) 0x80;
+        try {
+            TarUtils.parseOctalOrBinary(b, 0, 12);
+            fail("Should throw exception - -2^63 can't be negated");
+        } catch (final IllegalArgumentException expected) {
+        }
+        b[11] = 1;
+        assertEquals(Long.MIN_VALUE + 1, TarUtils.parseOctalOrBinary(b, 0, 12));
+    }
+
+    @Test
+    public void testParseNameOfAsciiAndNonAsciiNames() throws Exception {
+        final ZipEncoding enc = ZipEncodingHelper.getZipEncoding(CharsetNames.UTF_8);
+        for (final String s : new String[] { "plain/ascii.txt", "caf\u00e9/\u00fcber.txt", "\u4e2d\u6587" }) {
+            final byte[] buff = new byte[100];
+            final int len = TarUtils.formatNameBytes(s, buff, 0, buff.length, enc);
+            assertEquals(s, TarUtils.parseName(buff, 0, len, enc));
+            assertEquals(s, TarUtils.parseName(buff, 0, buff.length, enc));
+        }
+    }
+
 }
@@ -19,23 +19,32 @@
 
 import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator.ParallelScatterZipEntry;
 import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.InMemoryScatterGatherBackingStoreSupplier;
 import org.apache.commons.compress.parallel.InputStreamSupplier;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
+import org.apache.commons.compress.utils.BoundedZlibPool;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.ZlibPool;
 import org.junit.After;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
 import static org.apache.commons.compress.AbstractTestCase.tryHardToDelete;
@@ -114,6 +123,304 @@ public ScatterGatherBackingStore get() throws IOException {
         assertNotNull(zipCreator.getStatisticsMessage());
     }
 
+    @Test
+    public void concurrentWithInMemoryBackingStores() throws Exception {
+        result = File.createTempFile("parallelScatterGather4", ".zip");
+        final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+        zos.setEncoding("UTF-8");
+        // small enough to make the stores spill
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+            Executors.newFixedThreadPool(4), true, new InMemoryScatterGatherBackingStoreSupplier(4096, 1024, false));
+
+        zipCreator.startWriteTo(zos);
+        final Map<String, byte[]> entries = writeEntries(zipCreator);
+        zipCreator.waitFinishWriteTo();
+
+        zos.close();
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.size() == 0);
+    }
+
+    @Test
+    public void storedEntriesAreNotCompressed() throws Exception {
+        result = File.createTempFile("parallelScatterGather3", ".zip");
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator();
+        final Map<String, byte[]> entries = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            final byte[] payloadBytes = ("content" + i + "content" + i).getBytes();
+            final ZipArchiveEntry za = createZipArchiveEntry(entries, i, payloadBytes);
+            za.setMethod(i % 2 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            zipCreator.addArchiveEntry(za, new InputStreamSupplier() {
+                @Override
+                public InputStream get() {
+                    return new ByteArrayInputStream(payloadBytes);
+                }
+            });
+        }
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            zipCreator.writeTo(zos);
+        }
+        try (ZipFile zf = new ZipFile(result)) {
+            for (int i = 0; i < 100; i++) {
+                final ZipArchiveEntry ze = zf.getEntry("file" + i);
+                assertEquals(i % 2 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED, ze.getMethod());
+                if (i % 2 == 0) {
+                    assertEquals(ze.getSize(), ze.getCompressedSize());
+                }
+            }
+        }
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    public void usesConfiguredCompressionLevel() throws Exception {
+        final byte[] payloadBytes = new byte[10000];
+        for (int i = 0; i < payloadBytes.length; i++) {
+            payloadBytes[i] = (byte) (i % 7);
+        }
+        final long[] sizes = new long[2];
+        final int[] levels = { Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION };
+        for (int l = 0; l < levels.length; l++) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+                Executors.newFixedThreadPool(2), true, tempFileBackingStoreSupplier(), levels[l]);
+            final ZipArchiveEntry za = new ZipArchiveEntry("file");
+            za.setMethod(ZipEntry.DEFLATED);
+            zipCreator.addArchiveEntry(za, new InputStreamSupplier() {
+                @Override
+                public InputStream get() {
+                    return new ByteArrayInputStream(payloadBytes);
+                }
+            });
+            try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+                zipCreator.writeTo(zos);
+            }
+            sizes[l] = bos.size();
+        }
+        assertTrue(sizes[0] > payloadBytes.length);
+        assertTrue(sizes[1] < payloadBytes.length / 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidCompressionLevel() {
+        new ParallelScatterZipCreator(Executors.newFixedThreadPool(2), true,
+            tempFileBackingStoreSupplier(), Deflater.BEST_COMPRESSION + 1);
+    }
+
+    @Test
+    public void dedicatedWriterWorksWithSingleThreadedExecutor() throws Exception {
+        result = File.createTempFile("parallelScatterGather7", ".zip");
+        final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+        zos.setEncoding("UTF-8");
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+            Executors.newSingleThreadExecutor(), true, tempFileBackingStoreSupplier());
+
+        zipCreator.startWriteTo(zos, Executors.defaultThreadFactory());
+        final Map<String, byte[]> entries = writeEntries(zipCreator);
+        zipCreator.waitFinishWriteTo();
+
+        zos.close();
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.size() == 0);
+    }
+
+    @Test
+    public void concurrentWithBoundedWindow() throws Exception {
+        result = File.createTempFile("parallelScatterGather5", ".zip");
+        final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+        zos.setEncoding("UTF-8");
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+            Executors.newFixedThreadPool(4), true, tempFileBackingStoreSupplier());
+        zipCreator.setMaxPendingEntries(16);
+        zipCreator.setMaxPendingBytes(1024);
+
+        zipCreator.startWriteTo(zos);
+        final Map<String, byte[]> entries = writeEntries(zipCreator);
+        zipCreator.waitFinishWriteTo();
+
+        zos.close();
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.size() == 0);
+        assertEquals(0, zipCreator.getPendingEntries());
+        assertEquals(0, zipCreator.getPendingBytes());
+    }
+
+    @Test
+    public void windowIsNotEnforcedBeforeWriting() throws Exception {
+        result = File.createTempFile("parallelScatterGather6", ".zip");
+        final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+            Executors.newFixedThreadPool(2), true, tempFileBackingStoreSupplier());
+        zipCreator.setMaxPendingEntries(1);
+
+        final Map<String, byte[]> entries = writeEntries(zipCreator);
+        assertEquals(NUMITEMS, zipCreator.getPendingEntries());
+        zipCreator.writeTo(zos);
+
+        zos.close();
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.size() == 0);
+    }
+
+    @Test
+    public void tryAddArchiveEntryFailsWhileWindowIsFull() throws Exception {
+        final CountDownLatch writerMayProceed = new CountDownLatch(1);
+        final OutputStream blockingStream = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(final byte[] b, final int off, final int len) {
+                try {
+                    writerMayProceed.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(b, off, len);
+            }
+        };
+        final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(blockingStream);
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+            Executors.newFixedThreadPool(3), true, tempFileBackingStoreSupplier());
+        zipCreator.setMaxPendingEntries(2);
+        zipCreator.setMaxPendingBytes(Long.MAX_VALUE);
+        zipCreator.startWriteTo(zos);
+
+        final Map<String, byte[]> entries = new HashMap<>();
+        zipCreator.addArchiveEntry(createZipArchiveEntry(entries, 0, new byte[10]), emptySupplier());
+        zipCreator.addArchiveEntry(createZipArchiveEntry(entries, 1, new byte[10]), emptySupplier());
+        assertFalse(zipCreator.tryAddArchiveEntry(createZipArchiveEntry(entries, 2, new byte[10]),
+            emptySupplier(), 50, TimeUnit.MILLISECONDS));
+        assertEquals(2, zipCreator.getPendingEntries());
+
+        zipCreator.setMaxPendingEntries(3);
+        assertTrue(zipCreator.tryAddArchiveEntry(createZipArchiveEntry(entries, 2, new byte[10]),
+            emptySupplier(), 50, TimeUnit.MILLISECONDS));
+
+        writerMayProceed.countDown();
+        zipCreator.waitFinishWriteTo();
+        zos.close();
+        assertEquals(0, zipCreator.getPendingEntries());
+        assertEquals(0, zipCreator.getPendingBytes());
+    }
+
+    @Test
+    public void deflatersAreReturnedToThePoolTheyWereBorrowedFrom() throws Exception {
+        final ZlibPool old = ZlibPool.getDefault();
+        final BoundedZlibPool borrowedFrom = new BoundedZlibPool(1);
+        final BoundedZlibPool replacement = new BoundedZlibPool(1);
+        ZlibPool.setDefault(borrowedFrom);
+        try {
+            final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+                Executors.newSingleThreadExecutor(), true);
+            final ZipArchiveEntry za = new ZipArchiveEntry("file");
+            za.setMethod(ZipEntry.DEFLATED);
+            zipCreator.addArchiveEntry(za, new InputStreamSupplier() {
+                @Override
+                public InputStream get() {
+                    // the deflater has been borrowed when the data is read
+                    return new ByteArrayInputStream(new byte[10]) {
+                        @Override
+                        public synchronized int read(final byte[] b, final int off, final int len) {
+                            ZlibPool.setDefault(replacement);
+                            return super.read(b, off, len);
+                        }
+                    };
+                }
+            });
+            final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new ByteArrayOutputStream());
+            zipCreator.writeTo(zos);
+            zos.close();
+        } finally {
+            ZlibPool.setDefault(old);
+        }
+        assertEquals(1, borrowedFrom.getDeflaterStatistics().getReturned());
+        assertEquals(0, borrowedFrom.getDeflaterStatistics().getOutstanding());
+        assertEquals(0, replacement.getDeflaterStatistics().getReturned());
+    }
+
+    @Test
+    public void deflatersAreEndedAndBackingStoresClosedIfWritingFails() throws Exception {
+        final ZlibPool old = ZlibPool.getDefault();
+        final BoundedZlibPool borrowedFrom = new BoundedZlibPool(1);
+        final BoundedZlibPool replacement = new BoundedZlibPool(1);
+        final AtomicBoolean closed = new AtomicBoolean();
+        ZlibPool.setDefault(borrowedFrom);
+        try {
+            final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(
+                Executors.newSingleThreadExecutor(), true, new ScatterGatherBackingStoreSupplier() {
+                    @Override
+                    public ScatterGatherBackingStore get() throws IOException {
+                        final File f = File.createTempFile("parallelscatter", "n");
+                        f.deleteOnExit();
+                        return new FileBasedScatterGatherBackingStore(f) {
+                            @Override
+                            public void close() throws IOException {
+                                closed.set(true);
+                                super.close();
+                            }
+                        };
+                    }
+                });
+            final ZipArchiveEntry za = new ZipArchiveEntry("file");
+            za.setMethod(ZipEntry.DEFLATED);
+            zipCreator.addArchiveEntry(za, new InputStreamSupplier() {
+                @Override
+                public InputStream get() {
+                    // the deflater has been borrowed when the data is read
+                    return new ByteArrayInputStream(new byte[10]) {
+                        @Override
+                        public synchronized int read(final byte[] b, final int off, final int len) {
+                            ZlibPool.setDefault(replacement);
+                            return super.read(b, off, len);
+                        }
+                    };
+                }
+            });
+            final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new OutputStream() {
+                @Override
+                public void write(final int b) throws IOException {
+                    throw new IOException("failed");
+                }
+            });
+            try {
+                zipCreator.writeTo(zos);
+                fail("expected an exception");
+            } catch (final IOException expected) {
+                // expected
+            }
+        } finally {
+            ZlibPool.setDefault(old);
+        }
+        // compression tasks may still be running, so nothing goes back to a pool
+        assertEquals(0, borrowedFrom.getDeflaterStatistics().getReturned());
+        assertEquals(0, replacement.getDeflaterStatistics().getReturned());
+        assertTrue(closed.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaxPendingEntries() {
+        new ParallelScatterZipCreator().setMaxPendingEntries(0);
+    }
+
+    private static InputStreamSupplier emptySupplier() {
+        return new InputStreamSupplier() {
+            @Override
+            public InputStream get() {
+                return new ByteArrayInputStream(new byte[10]);
+            }
+        };
+    }
+
+    private static ScatterGatherBackingStoreSupplier tempFileBackingStoreSupplier() {
+        return new ScatterGatherBackingStoreSupplier() {
+            @Override
+            public ScatterGatherBackingStore get() throws IOException {
+                final File f = File.createTempFile("parallelscatter", "n");
+                f.deleteOnExit();
+                return new FileBasedScatterGatherBackingStore(f);
+            }
+        };
+    }
+
     private void removeEntriesFoundInZipFile(final File result, final Map<String, byte[]> entries) throws IOException {
         final ZipFile zf = new ZipFile(result);
         final Enumeration<ZipArchiveEntry> entriesInPhysicalOrder = zf.getEntriesInPhysicalOrder();
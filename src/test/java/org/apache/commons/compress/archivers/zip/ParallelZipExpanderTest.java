@@ -0,0 +1,183 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ParallelZipExpanderTest extends AbstractTestCase {
+
+    private static final int ENTRIES = 600;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void expandsAllEntries() throws Exception {
+        final File archive = new File(dir, "test.zip");
+        long expectedBytes = 0;
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            zos.putArchiveEntry(new ZipArchiveEntry("empty/"));
+            zos.closeArchiveEntry();
+            for (int i = 0; i < ENTRIES; i++) {
+                final ZipArchiveEntry ze = new ZipArchiveEntry(name(i));
+                ze.setMethod(i % 3 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                zos.putArchiveEntry(ze);
+                final byte[] content = content(i);
+                zos.write(content);
+                zos.closeArchiveEntry();
+                expectedBytes += content.length;
+            }
+        }
+
+        final ExpandStatistics stats;
+        try (ZipFile zipFile = new ZipFile(archive);
+             ParallelZipExpander expander = new ParallelZipExpander()) {
+            stats = expander.expand(zipFile, resultDir);
+        }
+
+        assertTrue(new File(resultDir, "empty").isDirectory());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertArrayEquals(name(i), content(i), Files.readAllBytes(new File(resultDir, name(i)).toPath()));
+        }
+        assertEquals(ENTRIES, stats.getEntries());
+        assertEquals(expectedBytes, stats.getUncompressedBytes());
+        assertTrue(stats.getCompressedBytes() < expectedBytes);
+    }
+
+    @Test
+    public void canBeUsedForSeveralArchivesWithExternalExecutor() throws Exception {
+        final File archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            zos.putArchiveEntry(new ZipArchiveEntry("a/b/c.txt"));
+            zos.write("Hello, world".getBytes(StandardCharsets.UTF_8));
+            zos.closeArchiveEntry();
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (ParallelZipExpander expander = new ParallelZipExpander(executor, false)) {
+            for (final String target : new String[] { "first", "second" }) {
+                try (ZipFile zipFile = new ZipFile(archive)) {
+                    assertEquals(1, expander.expand(zipFile, new File(resultDir, target)).getEntries());
+                }
+                assertEquals("Hello, world", new String(Files.readAllBytes(
+                    new File(resultDir, target + "/a/b/c.txt").toPath()), StandardCharsets.UTF_8));
+            }
+        }
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    public void lastOfSeveralEntriesWithTheSameNameWins() throws Exception {
+        final File archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            zos.putArchiveEntry(new ZipArchiveEntry("dup.txt"));
+            zos.write("first".getBytes(StandardCharsets.UTF_8));
+            zos.closeArchiveEntry();
+            // make sure the two entries end up in different batches
+            for (int i = 0; i < ENTRIES; i++) {
+                zos.putArchiveEntry(new ZipArchiveEntry(name(i)));
+                zos.write(content(i));
+                zos.closeArchiveEntry();
+            }
+            zos.putArchiveEntry(new ZipArchiveEntry("dup.txt"));
+            zos.write("last".getBytes(StandardCharsets.UTF_8));
+            zos.closeArchiveEntry();
+        }
+        final ExpandStatistics stats;
+        try (ZipFile zipFile = new ZipFile(archive);
+             ParallelZipExpander expander = new ParallelZipExpander()) {
+            stats = expander.expand(zipFile, resultDir);
+        }
+        assertEquals("last", new String(Files.readAllBytes(new File(resultDir, "dup.txt").toPath()),
+            StandardCharsets.UTF_8));
+        assertEquals(ENTRIES + 1, stats.getEntries());
+    }
+
+    @Test
+    public void archiveCanStillBeReadIfExpandingFails() throws Exception {
+        final File archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                zos.putArchiveEntry(new ZipArchiveEntry(name(i)));
+                zos.write(content(i));
+                zos.closeArchiveEntry();
+            }
+        }
+        // a directory in place of the file makes writing the entry fail
+        assertTrue(new File(resultDir, name(ENTRIES / 2)).mkdirs());
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            try (ParallelZipExpander expander = new ParallelZipExpander()) {
+                expander.expand(zipFile, resultDir);
+                fail("expected an exception");
+            } catch (final IOException expected) {
+                // expected
+            }
+            for (int i = 0; i < ENTRIES; i++) {
+                try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name(i)))) {
+                    assertArrayEquals(name(i), content(i), IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fileCantEscapeDoubleDotPath() throws Exception {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("expanding ../foo would create file outside of");
+        final File archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            zos.putArchiveEntry(new ZipArchiveEntry("../foo"));
+            zos.closeArchiveEntry();
+        }
+        try (ZipFile zipFile = new ZipFile(archive);
+             ParallelZipExpander expander = new ParallelZipExpander()) {
+            expander.expand(zipFile, resultDir);
+        }
+    }
+
+    private static String name(final int i) {
+        return "dir" + (i % 7) + "/sub" + (i % 3) + "/file" + i + ".txt";
+    }
+
+    private static byte[] content(final int i) {
+        final StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < i % 50 * 20; j++) {
+            sb.append("line ").append(j).append(" of entry ").append(i).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
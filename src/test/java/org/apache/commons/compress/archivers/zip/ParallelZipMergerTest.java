@@ -0,0 +1,220 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ParallelZipMergerTest extends AbstractTestCase {
+
+    private static final int SOURCES = 5;
+    private static final int ENTRIES = 300;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void mergesAllEntries() throws Exception {
+        final List<ZipFile> sources = openSources(false);
+        final File target = new File(dir, "merged.zip");
+        final MergeStatistics stats;
+        try (ParallelZipMerger merger = new ParallelZipMerger()) {
+            stats = merger.merge(sources, target);
+        } finally {
+            closeAll(sources);
+        }
+
+        assertEquals(SOURCES * ENTRIES + 1, stats.getEntries());
+        assertEquals(SOURCES - 1, stats.getDuplicates());
+        try (ZipFile zf = new ZipFile(target)) {
+            final List<String> names = new ArrayList<>();
+            for (final Enumeration<ZipArchiveEntry> e = zf.getEntries(); e.hasMoreElements(); ) {
+                names.add(e.nextElement().getName());
+            }
+            assertEquals("common/", names.get(0));
+            assertEquals(SOURCES * ENTRIES + 1, names.size());
+            for (int s = 0; s < SOURCES; s++) {
+                for (int i = 0; i < ENTRIES; i++) {
+                    assertContent(zf, name(s, i), content(s, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void keepFirstAndKeepLast() throws Exception {
+        for (final ParallelZipMerger.DuplicatePolicy policy : new ParallelZipMerger.DuplicatePolicy[] {
+                ParallelZipMerger.DuplicatePolicy.KEEP_FIRST, ParallelZipMerger.DuplicatePolicy.KEEP_LAST }) {
+            final List<ZipFile> sources = openSources(true);
+            final File target = new File(dir, policy + ".zip");
+            final MergeStatistics stats;
+            try (ParallelZipMerger merger = new ParallelZipMerger(Executors.newSingleThreadExecutor(), true)) {
+                merger.setDuplicatePolicy(policy);
+                stats = merger.merge(sources, target);
+            } finally {
+                closeAll(sources);
+            }
+            assertEquals(SOURCES * (ENTRIES - 1) + 2, stats.getEntries());
+            assertEquals(2 * (SOURCES - 1), stats.getDuplicates());
+            final int winner = policy == ParallelZipMerger.DuplicatePolicy.KEEP_FIRST ? 0 : SOURCES - 1;
+            try (ZipFile zf = new ZipFile(target)) {
+                assertContent(zf, "duplicate.txt", content(winner, 0));
+                for (int s = 0; s < SOURCES; s++) {
+                    for (int i = 1; i < ENTRIES; i++) {
+                        assertContent(zf, name(s, i), content(s, i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void failsOnDuplicatesByDefault() throws Exception {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Duplicate entry duplicate.txt");
+        final List<ZipFile> sources = openSources(true);
+        try (ParallelZipMerger merger = new ParallelZipMerger()) {
+            merger.merge(sources, new File(dir, "merged.zip"));
+        } finally {
+            closeAll(sources);
+        }
+    }
+
+    @Test
+    public void sourcesCanStillBeReadIfMergingFails() throws Exception {
+        final List<ZipFile> sources = openSources(false);
+        final int broken = SOURCES / 2;
+        try {
+            // the entries' data of one source can no longer be read
+            try (FileChannel channel = FileChannel.open(new File(dir, "source" + broken + ".zip").toPath(),
+                     StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() / 2);
+            }
+            try (ParallelZipMerger merger = new ParallelZipMerger()) {
+                merger.merge(sources, new File(dir, "merged.zip"));
+                fail("expected an exception");
+            } catch (final IOException expected) {
+                // expected
+            }
+            for (int s = 0; s < SOURCES; s++) {
+                if (s != broken) {
+                    for (int i = 0; i < ENTRIES; i++) {
+                        assertContent(sources.get(s), name(s, i), content(s, i));
+                    }
+                }
+            }
+        } finally {
+            closeAll(sources);
+        }
+    }
+
+    @Test
+    public void mergedArchiveMatchesCopyRawEntries() throws Exception {
+        final List<ZipFile> sources = openSources(false);
+        final File merged = new File(dir, "merged.zip");
+        final File copied = new File(dir, "copied.zip");
+        try (ParallelZipMerger merger = new ParallelZipMerger()) {
+            merger.setDuplicatePolicy(ParallelZipMerger.DuplicatePolicy.KEEP_FIRST);
+            merger.merge(sources, merged);
+            // sources only share the directory entry which copyRawEntries can't skip
+            try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(copied)) {
+                for (int s = 0; s < SOURCES; s++) {
+                    final int source = s;
+                    sources.get(s).copyRawEntries(zos, new ZipArchiveEntryPredicate() {
+                        @Override
+                        public boolean test(final ZipArchiveEntry zipArchiveEntry) {
+                            return source == 0 || !zipArchiveEntry.isDirectory();
+                        }
+                    });
+                }
+            }
+        } finally {
+            closeAll(sources);
+        }
+        assertArrayEquals(Files.readAllBytes(copied.toPath()), Files.readAllBytes(merged.toPath()));
+    }
+
+    private List<ZipFile> openSources(final boolean withDuplicate) throws IOException {
+        final List<ZipFile> sources = new ArrayList<>();
+        for (int s = 0; s < SOURCES; s++) {
+            final File archive = new File(dir, "source" + s + ".zip");
+            try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+                zos.putArchiveEntry(new ZipArchiveEntry("common/"));
+                zos.closeArchiveEntry();
+                for (int i = 0; i < ENTRIES; i++) {
+                    final ZipArchiveEntry ze = new ZipArchiveEntry(withDuplicate && i == 0 ? "duplicate.txt"
+                        : name(s, i));
+                    ze.setMethod(i % 3 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                    zos.putArchiveEntry(ze);
+                    zos.write(content(s, i));
+                    zos.closeArchiveEntry();
+                }
+            }
+            sources.add(new ZipFile(archive));
+        }
+        return sources;
+    }
+
+    private static void closeAll(final List<ZipFile> sources) {
+        for (final ZipFile zf : sources) {
+            ZipFile.closeQuietly(zf);
+        }
+    }
+
+    private static void assertContent(final ZipFile zf, final String name, final byte[] expected)
+        throws IOException {
+        final ZipArchiveEntry ze = zf.getEntry(name);
+        try (InputStream in = zf.getInputStream(ze)) {
+            assertArrayEquals(name, expected, IOUtils.toByteArray(in));
+        }
+    }
+
+    private static String name(final int source, final int i) {
+        return "common/source" + source + "/file" + i + ".txt";
+    }
+
+    private static byte[] content(final int source, final int i) {
+        // a few entries are bigger than the copy buffer
+        final byte[] content = new byte[i % 100 == 7 ? 600 * 1024 : i % 50 * 100];
+        final byte[] line = ("entry " + i + " of source " + source + "\n").getBytes(StandardCharsets.UTF_8);
+        for (int j = 0; j < content.length; j++) {
+            content[j] = line[j % line.length];
+        }
+        return content;
+    }
+}
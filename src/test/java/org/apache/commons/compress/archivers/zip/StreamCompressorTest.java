@@ -25,9 +25,17 @@
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 import org.junit.Test;
 
 public class StreamCompressorTest {
@@ -68,4 +76,35 @@ public void testCreateDataOutputCompressor() throws IOException {
             assertNotNull(streamCompressor);
         }
     }
+
+    @Test(timeout = 10000)
+    public void transferFallsBackToCopyingIfTargetAcceptsNothing() throws IOException {
+        final byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final File f = File.createTempFile("commons-compress-streamcompressor", ".bin");
+        f.deleteOnExit();
+        Files.write(f.toPath(), data);
+        // never accepts data from within FileChannel.transferTo, which then returns 0
+        final SeekableInMemoryByteChannel target = new SeekableInMemoryByteChannel() {
+            @Override
+            public int write(final ByteBuffer b) throws IOException {
+                for (final StackTraceElement e : new Throwable().getStackTrace()) {
+                    if ("transferTo".equals(e.getMethodName())) {
+                        return 0;
+                    }
+                }
+                return super.write(b);
+            }
+        };
+        try (FileChannel source = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+             StreamCompressor sc = StreamCompressor.create(target, new Deflater())) {
+            sc.transferCounted(source, 100, 5000);
+            assertEquals(5000, sc.getTotalBytesWritten());
+        } finally {
+            f.delete();
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 5100), Arrays.copyOf(target.array(), (int) target.size()));
+    }
 }
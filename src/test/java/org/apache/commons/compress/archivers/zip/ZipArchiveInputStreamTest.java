@@ -27,16 +27,23 @@
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.ReadAheadInputStream;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -490,6 +497,154 @@ public void multiByteReadThrowsAtEofForCorruptedStoredEntry() throws Exception {
         }
     }
 
+    @Test
+    public void readsStoredEntriesWithDataDescriptor() throws Exception {
+        final byte[][] contents = storedContents();
+        for (final boolean ddSignature : new boolean[] { true, false }) {
+            final byte[] archive = storedArchiveWithDataDescriptors(contents, ddSignature);
+            try (ZipArchiveInputStream in = new ZipArchiveInputStream(new ByteArrayInputStream(archive),
+                     "UTF-8", true, true)) {
+                for (int i = 0; i < contents.length; i++) {
+                    final ZipArchiveEntry ze = in.getNextZipEntry();
+                    assertEquals("entry" + i, ze.getName());
+                    assertArrayEquals("entry" + i + " " + ddSignature, contents[i], IOUtils.toByteArray(in));
+                    assertEquals(contents[i].length, ze.getSize());
+                    assertEquals(contents[i].length, ze.getCompressedSize());
+                    assertEquals(contents[i].length, in.getCompressedCount());
+                    assertEquals(crc(contents[i]), ze.getCrc());
+                }
+                assertEquals(null, in.getNextZipEntry());
+            }
+        }
+    }
+
+    @Test
+    public void skipsStoredEntriesWithDataDescriptor() throws Exception {
+        final byte[][] contents = storedContents();
+        final byte[] archive = storedArchiveWithDataDescriptors(contents, false);
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(new ByteArrayInputStream(archive),
+                 "UTF-8", true, true)) {
+            for (int i = 0; i < contents.length; i++) {
+                assertEquals("entry" + i, in.getNextZipEntry().getName());
+            }
+            assertEquals(null, in.getNextZipEntry());
+        }
+    }
+
+    @Test
+    public void doesNotBufferStoredEntryWithDataDescriptor() throws Exception {
+        final byte[] content = new byte[1024 * 1024];
+        new Random(1).nextBytes(content);
+        final byte[] archive = storedArchiveWithDataDescriptors(new byte[][] { content }, true);
+        final int[] consumed = new int[1];
+        final InputStream counting = new ByteArrayInputStream(archive) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                final int r = super.read(b, off, len);
+                consumed[0] += Math.max(r, 0);
+                return r;
+            }
+        };
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(counting, "UTF-8", true, true)) {
+            in.getNextZipEntry();
+            final byte[] start = new byte[100];
+            assertEquals(100, IOUtils.readFully(in, start));
+            assertArrayEquals(Arrays.copyOf(content, 100), start);
+            assertTrue(consumed[0] < 4096);
+        }
+    }
+
+    @Test
+    public void readsArchiveThroughReadAheadInputStream() throws Exception {
+        final File archive = getFile("bla.zip");
+        try (ZipArchiveInputStream expected = new ZipArchiveInputStream(new FileInputStream(archive));
+             ZipArchiveInputStream actual = new ZipArchiveInputStream(
+                 new ReadAheadInputStream(new FileInputStream(archive), 100, 2, Executors.defaultThreadFactory()))) {
+            ZipArchiveEntry e;
+            int entries = 0;
+            while ((e = expected.getNextZipEntry()) != null) {
+                assertEquals(e.getName(), actual.getNextZipEntry().getName());
+                assertArrayEquals(IOUtils.toByteArray(expected), IOUtils.toByteArray(actual));
+                entries++;
+            }
+            assertEquals(null, actual.getNextZipEntry());
+            assertTrue(entries > 0);
+        }
+    }
+
+    private static byte[][] storedContents() {
+        final Random r = new Random(42);
+        final byte[] large = new byte[10000];
+        r.nextBytes(large);
+        // things that look almost like signatures
+        final byte[] nearMisses = "PK\3\3PK\7\7PK\1\1PKPK\3".getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(nearMisses, 0, large, 511, nearMisses.length);
+        return new byte[][] { "data\n".getBytes(StandardCharsets.US_ASCII), new byte[0], large, nearMisses,
+            "x".getBytes(StandardCharsets.US_ASCII) };
+    }
+
+    private static long crc(final byte[] data) {
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    /**
+     * Creates an archive of STORED entries with data descriptors,
+     * ZipArchiveOutputStream only writes those for DEFLATED entries.
+     */
+    private static byte[] storedArchiveWithDataDescriptors(final byte[][] contents, final boolean ddSignature)
+        throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ByteArrayOutputStream cd = new ByteArrayOutputStream();
+        for (int i = 0; i < contents.length; i++) {
+            final byte[] name = ("entry" + i).getBytes(StandardCharsets.US_ASCII);
+            final byte[] crc = ZipLong.getBytes(crc(contents[i]));
+            final byte[] size = ZipLong.getBytes(contents[i].length);
+            final int offset = bos.size();
+
+            bos.write(ZipLong.LFH_SIG.getBytes());
+            bos.write(ZipShort.getBytes(20)); // version needed
+            bos.write(ZipShort.getBytes(8)); // data descriptor flag
+            bos.write(ZipShort.getBytes(ZipEntry.STORED));
+            bos.write(new byte[16]); // time, crc and sizes
+            bos.write(ZipShort.getBytes(name.length));
+            bos.write(ZipShort.getBytes(0));
+            bos.write(name);
+            bos.write(contents[i]);
+            if (ddSignature) {
+                bos.write(ZipLong.DD_SIG.getBytes());
+            }
+            bos.write(crc);
+            bos.write(size);
+            bos.write(size);
+
+            cd.write(ZipLong.CFH_SIG.getBytes());
+            cd.write(ZipShort.getBytes(20)); // version made by
+            cd.write(ZipShort.getBytes(20));
+            cd.write(ZipShort.getBytes(8));
+            cd.write(ZipShort.getBytes(ZipEntry.STORED));
+            cd.write(new byte[4]); // time
+            cd.write(crc);
+            cd.write(size);
+            cd.write(size);
+            cd.write(ZipShort.getBytes(name.length));
+            cd.write(new byte[12]); // extra, comment, disk, attributes
+            cd.write(ZipLong.getBytes(offset));
+            cd.write(name);
+        }
+        final int cdOffset = bos.size();
+        cd.writeTo(bos);
+        bos.write(ZipArchiveOutputStream.EOCD_SIG);
+        bos.write(new byte[4]); // disk numbers
+        bos.write(ZipShort.getBytes(contents.length));
+        bos.write(ZipShort.getBytes(contents.length));
+        bos.write(ZipLong.getBytes(cd.size()));
+        bos.write(ZipLong.getBytes(cdOffset));
+        bos.write(ZipShort.getBytes(0));
+        return bos.toByteArray();
+    }
+
     private static byte[] readEntry(ZipArchiveInputStream zip, ZipArchiveEntry zae) throws IOException {
         final int len = (int)zae.getSize();
         final byte[] buff = new byte[len];
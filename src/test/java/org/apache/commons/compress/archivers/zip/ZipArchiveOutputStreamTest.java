@@ -0,0 +1,264 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.parallel.InMemoryScatterGatherBackingStore;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class ZipArchiveOutputStreamTest extends AbstractTestCase {
+
+    @Test
+    public void appendsToExistingArchive() throws Exception {
+        final File archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            zos.setComment("a comment that is longer than the new one");
+            addEntries(zos, 0, 3);
+        }
+        final byte[] original = Files.readAllBytes(archive.toPath());
+
+        try (SeekableByteChannel channel = Files.newByteChannel(archive.toPath(), StandardOpenOption.READ,
+                 StandardOpenOption.WRITE);
+             ZipArchiveOutputStream zos = new ZipArchiveOutputStream(channel, true)) {
+            zos.setComment("short");
+            addEntries(zos, 3, 5);
+        }
+
+        assertEntries(archive, 5);
+        // existing entries have not been touched
+        final byte[] appended = Files.readAllBytes(archive.toPath());
+        try (ZipFile zf = new ZipFile(archive)) {
+            final long firstNewEntry = zf.getEntry(name(3)).getLocalHeaderOffset();
+            assertArrayEquals(Arrays.copyOf(original, (int) firstNewEntry),
+                Arrays.copyOf(appended, (int) firstNewEntry));
+        }
+    }
+
+    @Test
+    public void canAppendSeveralTimes() throws Exception {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel();
+        for (int i = 0; i < 4; i++) {
+            channel.position(0);
+            try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new NonClosingChannel(channel), true)) {
+                addEntries(zos, 2 * i, 2 * i + 2);
+            }
+        }
+        final File archive = new File(dir, "test.zip");
+        Files.write(archive.toPath(), Arrays.copyOf(channel.array(), (int) channel.size()));
+        assertEntries(archive, 8);
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(Files.newInputStream(archive.toPath()))) {
+            for (int i = 0; i < 8; i++) {
+                assertEquals(name(i), in.getNextZipEntry().getName());
+                assertArrayEquals(content(i), IOUtils.toByteArray(in));
+            }
+            assertNull(in.getNextZipEntry());
+        }
+    }
+
+    @Test
+    public void appendingToEmptyChannelCreatesNewArchive() throws Exception {
+        final File archive = new File(dir, "test.zip");
+        try (SeekableByteChannel channel = Files.newByteChannel(archive.toPath(), StandardOpenOption.CREATE,
+                 StandardOpenOption.READ, StandardOpenOption.WRITE);
+             ZipArchiveOutputStream zos = new ZipArchiveOutputStream(channel, true)) {
+            addEntries(zos, 0, 2);
+        }
+        assertEntries(archive, 2);
+    }
+
+    @Test
+    public void centralDirectoryStoreDoesNotChangeTheArchive() throws Exception {
+        for (final Zip64Mode mode : new Zip64Mode[] { Zip64Mode.AsNeeded, Zip64Mode.Always }) {
+            for (final boolean seekable : new boolean[] { false, true }) {
+                final File expected = new File(dir, "expected.zip");
+                final File actual = new File(dir, "actual.zip");
+                for (final File f : new File[] { expected, actual }) {
+                    try (ZipArchiveOutputStream zos = seekable ? new ZipArchiveOutputStream(f)
+                         : new ZipArchiveOutputStream(Files.newOutputStream(f.toPath()))) {
+                        zos.setUseZip64(mode);
+                        if (f == actual) {
+                            // small enough to spill
+                            zos.setCentralDirectoryStore(new InMemoryScatterGatherBackingStore(256, 64, false));
+                        }
+                        addEntries(zos, 0, 20);
+                    }
+                }
+                assertArrayEquals(mode + " " + seekable, Files.readAllBytes(expected.toPath()),
+                    Files.readAllBytes(actual.toPath()));
+                assertEntries(actual, 20);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void centralDirectoryStoreMustBeSetBeforeAddingEntries() throws Exception {
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new SeekableInMemoryByteChannel())) {
+            addEntries(zos, 0, 1);
+            zos.setCentralDirectoryStore(new InMemoryScatterGatherBackingStore());
+        }
+    }
+
+    @Test
+    public void headersBiggerThanTheInitialBufferCanBeWritten() throws Exception {
+        final StringBuilder sb = new StringBuilder("dir/");
+        for (int i = 0; i < 1000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        final String longText = sb.toString();
+        for (final boolean withStore : new boolean[] { false, true }) {
+            final File archive = new File(dir, "test.zip");
+            try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+                if (withStore) {
+                    zos.setCentralDirectoryStore(new InMemoryScatterGatherBackingStore());
+                }
+                final ZipArchiveEntry withComment = new ZipArchiveEntry("short");
+                withComment.setComment(longText);
+                zos.putArchiveEntry(withComment);
+                zos.write(content(1));
+                zos.closeArchiveEntry();
+                zos.putArchiveEntry(new ZipArchiveEntry(longText));
+                zos.write(content(2));
+                zos.closeArchiveEntry();
+            }
+            try (ZipFile zf = new ZipFile(archive)) {
+                assertEquals(longText, zf.getEntry("short").getComment());
+                try (InputStream in = zf.getInputStream(zf.getEntry(longText))) {
+                    assertArrayEquals(content(2), IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    private static void addEntries(final ZipArchiveOutputStream zos, final int from, final int to)
+        throws IOException {
+        for (int i = from; i < to; i++) {
+            final ZipArchiveEntry ze = new ZipArchiveEntry(name(i));
+            ze.setTime(1500000000000L);
+            if (i % 2 == 0) {
+                // allows STORED entries to be written to non-seekable streams
+                final CRC32 crc = new CRC32();
+                crc.update(content(i));
+                ze.setMethod(ZipEntry.STORED);
+                ze.setSize(content(i).length);
+                ze.setCrc(crc.getValue());
+            } else {
+                ze.setMethod(ZipEntry.DEFLATED);
+            }
+            zos.putArchiveEntry(ze);
+            zos.write(content(i));
+            zos.closeArchiveEntry();
+        }
+    }
+
+    private static void assertEntries(final File archive, final int count) throws IOException {
+        try (ZipFile zf = new ZipFile(archive)) {
+            final List<ZipArchiveEntry> entries = Collections.list(zf.getEntries());
+            assertEquals(count, entries.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(name(i), entries.get(i).getName());
+                try (InputStream in = zf.getInputStream(entries.get(i))) {
+                    assertArrayEquals(content(i), IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    private static String name(final int i) {
+        return "dir/entry" + i + ".txt";
+    }
+
+    private static byte[] content(final int i) {
+        final StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < 100 * i; j++) {
+            sb.append("line ").append(j).append(" of entry ").append(i).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Keeps the in-memory channel usable after the stream has been closed.
+     */
+    private static final class NonClosingChannel implements SeekableByteChannel {
+        private final SeekableByteChannel delegate;
+
+        private NonClosingChannel(final SeekableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(final long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(final long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -30,7 +30,9 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 
 public class ZipFileIgnoringLocalFileHeaderTest {
 
@@ -102,6 +104,41 @@ public void testPhysicalOrder() throws IOException {
         }
     }
 
+    @Test
+    public void entriesMatchThoseCreatedWhenReadingLocalFileHeaders() throws IOException {
+        for (final String archive : new String[] { "bla.zip", "ordertest.zip", "COMPRESS-227.zip",
+                "COMPRESS-211_uid_gid_zip_test.zip", "COMPRESS-380/COMPRESS-380.zip", "utf8-7zip-test.zip" }) {
+            try (final ZipFile lazy = openZipWithoutLFH(archive);
+                 final ZipFile eager = new ZipFile(AbstractTestCase.getFile(archive))) {
+                final List<ZipArchiveEntry> lazyEntries = Collections.list(lazy.getEntries());
+                final List<ZipArchiveEntry> eagerEntries = Collections.list(eager.getEntries());
+                Assert.assertEquals(eagerEntries.size(), lazyEntries.size());
+                for (int i = 0; i < eagerEntries.size(); i++) {
+                    final ZipArchiveEntry l = lazyEntries.get(i);
+                    final ZipArchiveEntry e = eagerEntries.get(i);
+                    Assert.assertEquals(e.getName(), l.getName());
+                    Assert.assertEquals(e.getSize(), l.getSize());
+                    Assert.assertEquals(e.getCompressedSize(), l.getCompressedSize());
+                    Assert.assertEquals(e.getCrc(), l.getCrc());
+                    Assert.assertEquals(e.getMethod(), l.getMethod());
+                    Assert.assertEquals(e.getTime(), l.getTime());
+                    Assert.assertEquals(e.getComment(), l.getComment());
+                    Assert.assertEquals(e.getLocalHeaderOffset(), l.getLocalHeaderOffset());
+                    Assert.assertEquals(e.getName(), lazy.getEntry(e.getName()).getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameInstanceIsReturnedForAnEntry() throws IOException {
+        try (final ZipFile zf = openZipWithoutLFH("ordertest.zip")) {
+            final ZipArchiveEntry first = zf.getEntries().nextElement();
+            Assert.assertSame(first, zf.getEntries().nextElement());
+            Assert.assertSame(first, zf.getEntry(first.getName()));
+        }
+    }
+
     private static ZipFile openZipWithoutLFH(String fileName) throws IOException {
         return new ZipFile(AbstractTestCase.getFile(fileName), ZipEncodingHelper.UTF8, true, true);
     }
@@ -35,18 +35,29 @@
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.List;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 
+import org.apache.commons.compress.utils.BoundedZlibPool;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.compress.utils.ZlibPool;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class ZipFileTest {
+    private static final int CONCURRENT_READS_ENTRIES = 64;
+
     private ZipFile zf = null;
 
     @After
@@ -402,6 +413,52 @@ public void run() {
         assertEquals(2, passedCount.get());
     }
 
+    @Test
+    public void concurrentReadsOfManyEntriesFromFile() throws Exception {
+        final File archive = createArchiveForConcurrentReads();
+        try (ZipFile zipFile = new ZipFile(archive, ZipEncodingHelper.UTF8, true, true)) {
+            readAllEntriesConcurrently(zipFile);
+        }
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            readAllEntriesConcurrently(zipFile);
+        }
+    }
+
+    @Test
+    public void concurrentReadsOfManyEntriesFromSeekable() throws Exception {
+        final byte[] data;
+        try (FileInputStream fis = new FileInputStream(createArchiveForConcurrentReads())) {
+            data = IOUtils.toByteArray(fis);
+        }
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(data), ZipEncodingHelper.UTF8)) {
+            readAllEntriesConcurrently(zipFile);
+        }
+    }
+
+    @Test
+    public void inflaterIsReturnedToPoolOnlyOnce() throws Exception {
+        final ZlibPool old = ZlibPool.getDefault();
+        final BoundedZlibPool pool = new BoundedZlibPool(2);
+        ZlibPool.setDefault(pool);
+        try {
+            zf = new ZipFile(getFile("bla.zip"));
+            final ZipArchiveEntry ze = zf.getEntry("test1.xml");
+            final InputStream first = zf.getInputStream(ze);
+            first.close();
+            first.close();
+            try (InputStream second = zf.getInputStream(ze)) {
+                IOUtils.toByteArray(second);
+            }
+        } finally {
+            ZlibPool.setDefault(old);
+        }
+        final BoundedZlibPool.Statistics stats = pool.getInflaterStatistics();
+        assertEquals(2, stats.getBorrowed());
+        assertEquals(1, stats.getReused());
+        assertEquals(2, stats.getReturned());
+        assertEquals(1, stats.getIdle());
+    }
+
     /**
      * Test correct population of header and data offsets.
      */
@@ -616,6 +673,67 @@ public void readDeflate64CompressedStream() throws Exception {
         }
     }
 
+    @Test
+    public void getEntriesWithPrefixListsEntriesSortedByName() throws Exception {
+        final File archive = getFile("ordertest.zip");
+        for (final boolean ignoreLocalFileHeader : new boolean[] { false, true }) {
+            try (ZipFile zipFile = new ZipFile(archive, ZipEncodingHelper.UTF8, true, ignoreLocalFileHeader)) {
+                final ArrayList<ZipArchiveEntry> l = new ArrayList<>();
+                for (final ZipArchiveEntry ze : zipFile.getEntriesWithPrefix(
+                         "src/main/java/org/apache/commons/compress/archivers/zip/ZipE")) {
+                    l.add(ze);
+                }
+                assertEquals(3, l.size());
+                assertEntryName(l, 0, "ZipEncoding");
+                assertEntryName(l, 1, "ZipEncodingHelper");
+                assertEntryName(l, 2, "ZipExtraField");
+                assertSame(zipFile.getEntry(l.get(0).getName()), l.get(0));
+
+                int count = 0;
+                for (final ZipArchiveEntry ze : zipFile.getEntriesWithPrefix("src/")) {
+                    count++;
+                }
+                assertEquals(Collections.list(zipFile.getEntries()).size(), count);
+                assertFalse(zipFile.getEntriesWithPrefix("src/test/").iterator().hasNext());
+                assertFalse(zipFile.getEntriesWithPrefix("zzz").iterator().hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void getEntriesForUnknownNameIsEmpty() throws Exception {
+        readOrderTest();
+        assertNull(zf.getEntry("no such entry"));
+        assertFalse(zf.getEntries("no such entry").iterator().hasNext());
+        assertFalse(zf.getEntriesInPhysicalOrder("no such entry").iterator().hasNext());
+    }
+
+    @Test
+    public void readsCentralDirectoryBiggerThanReadBuffer() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            writeManyEntries(zos, 12000);
+        }
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()))) {
+            assertManyEntries(zipFile, 12000);
+        }
+    }
+
+    @Test
+    public void readsMemoryMappedCentralDirectory() throws Exception {
+        final File archive = File.createTempFile("commons-compress-many-entries", ".zip");
+        archive.deleteOnExit();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            writeManyEntries(zos, 12000);
+        }
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            assertManyEntries(zipFile, 12000);
+        }
+        try (ZipFile zipFile = new ZipFile(archive, ZipEncodingHelper.UTF8, true, true)) {
+            assertManyEntries(zipFile, 12000);
+        }
+    }
+
     @Test
     public void singleByteReadConsistentlyReturnsMinusOneAtEofUsingDeflate() throws Exception {
         singleByteReadConsistentlyReturnsMinusOneAtEof(getFile("bla.zip"));
@@ -646,6 +764,125 @@ public void singleByteReadConsistentlyReturnsMinusOneAtEofUsingBzip2() throws Ex
         singleByteReadConsistentlyReturnsMinusOneAtEof(getFile("bzip2-zip.zip"));
     }
 
+    /**
+     * Writes entries with long names so the central directory becomes
+     * bigger than 1 MB for 10000 entries.
+     */
+    private static void writeManyEntries(final ZipArchiveOutputStream zos, final int count) throws IOException {
+        zos.setMethod(ZipEntry.STORED);
+        for (int i = 0; i < count; i++) {
+            final ZipArchiveEntry ze = new ZipArchiveEntry(manyEntriesName(i));
+            ze.setSize(1);
+            ze.setCrc(calculateCrc32(new byte[] { (byte) i }));
+            if (i % 3 == 0) {
+                final X5455_ExtendedTimestamp ts = new X5455_ExtendedTimestamp();
+                ts.setModifyJavaTime(new java.util.Date(1000L * i));
+                ze.addExtraField(ts);
+            }
+            zos.putArchiveEntry(ze);
+            zos.write(i);
+            zos.closeArchiveEntry();
+        }
+    }
+
+    private static void assertManyEntries(final ZipFile zipFile, final int count) throws IOException {
+        final ArrayList<ZipArchiveEntry> l = Collections.list(zipFile.getEntries());
+        assertEquals(count, l.size());
+        for (int i = 0; i < count; i += 997) {
+            final ZipArchiveEntry ze = l.get(i);
+            assertEquals(manyEntriesName(i), ze.getName());
+            assertSame(ze, zipFile.getEntry(manyEntriesName(i)));
+            assertEquals(i % 3 == 0, ze.getExtraField(new X5455_ExtendedTimestamp().getHeaderId()) != null);
+            try (InputStream in = zipFile.getInputStream(ze)) {
+                assertEquals(i & 0xff, in.read());
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    private static File createArchiveForConcurrentReads() throws IOException {
+        final File archive = File.createTempFile("commons-compress-concurrent", ".zip");
+        archive.deleteOnExit();
+        final Random random = new Random(CONCURRENT_READS_ENTRIES);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            for (int i = 0; i < CONCURRENT_READS_ENTRIES; i++) {
+                final ZipArchiveEntry ze = new ZipArchiveEntry("entry-" + i);
+                ze.setMethod(i % 2 == 0 ? ZipEntry.DEFLATED : ZipEntry.STORED);
+                zos.putArchiveEntry(ze);
+                zos.write(concurrentReadsContent(random, i));
+                zos.closeArchiveEntry();
+            }
+        }
+        return archive;
+    }
+
+    private static byte[] concurrentReadsContent(final Random random, final int i) {
+        // a mix of compressible and incompressible data
+        final byte[] content = new byte[1000 + 100 * i];
+        for (int j = 0; j < content.length; j += 50) {
+            if (random.nextBoolean()) {
+                Arrays.fill(content, j, Math.min(j + 50, content.length), (byte) i);
+            } else {
+                for (int k = j; k < Math.min(j + 50, content.length); k++) {
+                    content[k] = (byte) random.nextInt();
+                }
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Has several threads start reading the entries at the same time,
+     * each thread starting at a different entry.
+     */
+    private static void readAllEntriesConcurrently(final ZipFile zipFile) throws Exception {
+        final List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntries());
+        assertEquals(CONCURRENT_READS_ENTRIES, entries.size());
+        final Map<String, Long> crcs = new HashMap<>();
+        final Random random = new Random(CONCURRENT_READS_ENTRIES);
+        for (int i = 0; i < CONCURRENT_READS_ENTRIES; i++) {
+            crcs.put("entry-" + i, calculateCrc32(concurrentReadsContent(random, i)));
+        }
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int first = t * CONCURRENT_READS_ENTRIES / threads;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int round = 0; round < 5; round++) {
+                            for (int i = 0; i < CONCURRENT_READS_ENTRIES; i++) {
+                                final ZipArchiveEntry ze = entries.get((first + i) % CONCURRENT_READS_ENTRIES);
+                                final byte[] content;
+                                try (InputStream in = zipFile.getInputStream(ze)) {
+                                    content = IOUtils.toByteArray(in);
+                                }
+                                assertEquals(ze.getName(), crcs.get(ze.getName()).longValue(),
+                                    calculateCrc32(content));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String manyEntriesName(final int i) {
+        return String.format("some/rather/deeply/nested/directory/structure/used/to/make/names/longer/entry-%06d.txt", i);
+    }
+
     private void singleByteReadConsistentlyReturnsMinusOneAtEof(File file) throws Exception {
         try (ZipFile archive = new ZipFile(file)) {
             ZipArchiveEntry e = archive.getEntries().nextElement();
@@ -762,7 +999,7 @@ private byte[] readStreamRest(byte[] beginning, int length, InputStream stream)
         return full;
     }
 
-    private long calculateCrc32(byte[] content) {
+    private static long calculateCrc32(byte[] content) {
         CRC32 crc = new CRC32();
         crc.update(content);
         return crc.getValue();
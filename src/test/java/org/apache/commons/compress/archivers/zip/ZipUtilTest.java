@@ -24,6 +24,7 @@
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.junit.Before;
@@ -90,6 +91,48 @@ public void testOutsideCalendar(){
         assertEquals(0, b1[3]);
     }
 
+    @Test
+    public void testToDosTimeMatchesCalendar() {
+        final Random random = new Random(42);
+        for (final String id : new String[] { "UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata",
+                                              "Australia/Lord_Howe" }) {
+            final TimeZone tz = TimeZone.getTimeZone(id);
+            final Calendar cal = Calendar.getInstance(tz);
+            // 1975 to 2100, includes times before 1980 and around DST switches
+            for (int i = 0; i < 10000; i++) {
+                final long t = 160000000000L + (long) (random.nextDouble() * 3950000000000L);
+                assertArrayEquals(id + " " + t, calendarDosTime(cal, t), dosTime(tz, t));
+            }
+            cal.clear();
+            cal.set(2018, Calendar.MARCH, 25, 0, 0, 0);
+            final long start = cal.getTimeInMillis();
+            for (long t = start; t < start + 86400000L; t += 59999) {
+                assertArrayEquals(id + " " + t, calendarDosTime(cal, t), dosTime(tz, t));
+            }
+        }
+    }
+
+    private static byte[] dosTime(final TimeZone tz, final long t) {
+        final byte[] b = new byte[4];
+        ZipUtil.toDosTime(tz, t, b, 0);
+        return b;
+    }
+
+    private static byte[] calendarDosTime(final Calendar cal, final long t) {
+        cal.setTimeInMillis(t);
+        final int year = cal.get(Calendar.YEAR);
+        if (year < 1980) {
+            return ZipLong.getBytes(0x00002100L);
+        }
+        final long value = ((year - 1980) << 25)
+            | ((cal.get(Calendar.MONTH) + 1) << 21)
+            | (cal.get(Calendar.DAY_OF_MONTH) << 16)
+            | (cal.get(Calendar.HOUR_OF_DAY) << 11)
+            | (cal.get(Calendar.MINUTE) << 5)
+            | (cal.get(Calendar.SECOND) >> 1);
+        return ZipLong.getBytes(value);
+    }
+
     @Test
     public void testInsideCalendar(){
         final TimeZone tz = TimeZone.getDefault();
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import static org.apache.commons.compress.AbstractTestCase.createTestData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class BZip2IndexTest {
+
+    @Test
+    public void readsFromArbitraryOffsets() throws Exception {
+        final byte[] data = createTestData(1000000, false);
+        final byte[] compressed = compress(data, 1);
+        final BZip2Index index = BZip2Index.create(new ByteArrayInputStream(compressed));
+        assertEquals(data.length, index.getUncompressedSize());
+        assertEquals(11, index.getBlockCount());
+        assertReadsFromArbitraryOffsets(compressed, data, persistAndRead(index));
+    }
+
+    @Test
+    public void readsConcatenatedStreams() throws Exception {
+        final byte[] first = createTestData(250000, false);
+        final byte[] second = createTestData(400000, false);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(compress(first, 1));
+        bos.write(compress(new byte[0], 9));
+        bos.write(compress(second, 2));
+        final byte[] compressed = bos.toByteArray();
+        final byte[] data = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, data, first.length, second.length);
+
+        final BZip2Index index = persistAndRead(BZip2Index.create(new ByteArrayInputStream(compressed)));
+        assertEquals(data.length, index.getUncompressedSize());
+        assertEquals(3 + 3, index.getBlockCount());
+        assertReadsFromArbitraryOffsets(compressed, data, index);
+        try (InputStream in = index.openStream(new SeekableInMemoryByteChannel(compressed), first.length - 10)) {
+            assertArrayEquals(Arrays.copyOfRange(data, first.length - 10, data.length), IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void indexOfEmptyStream() throws Exception {
+        final byte[] compressed = compress(new byte[0], 9);
+        final BZip2Index index = persistAndRead(BZip2Index.create(new ByteArrayInputStream(compressed)));
+        assertEquals(0, index.getBlockCount());
+        try (InputStream in = index.openStream(new SeekableInMemoryByteChannel(compressed), 0)) {
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsGarbage() throws Exception {
+        BZip2Index.read(new ByteArrayInputStream(new byte[100]));
+    }
+
+    private static void assertReadsFromArbitraryOffsets(final byte[] compressed, final byte[] data,
+                                                        final BZip2Index index) throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(compressed);
+        final Random r = new Random(7);
+        for (int i = 0; i < 30; i++) {
+            final int offset = i == 0 ? 0 : r.nextInt(data.length);
+            final int length = Math.min(150000, data.length - offset);
+            try (InputStream in = index.openStream(channel, offset)) {
+                final byte[] actual = new byte[length];
+                assertEquals(length, IOUtils.readFully(in, actual));
+                assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length), actual);
+            }
+        }
+        try (InputStream in = index.openStream(channel, data.length)) {
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static BZip2Index persistAndRead(final BZip2Index index) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        index.writeTo(bos);
+        bos.write(42);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bos.toByteArray());
+        final BZip2Index result = BZip2Index.read(in);
+        assertEquals(42, in.read());
+        return result;
+    }
+
+    private static byte[] compress(final byte[] data, final int blockSize) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(bos, blockSize)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import static org.apache.commons.compress.AbstractTestCase.createTestData;
+import static org.apache.commons.compress.AbstractTestCase.getFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Test;
+
+public class ParallelBZip2CompressorInputStreamTest {
+
+    @Test
+    public void readsTestFilesLikeBZip2CompressorInputStream() throws Exception {
+        for (final String name : new String[] { "bla.txt.bz2", "bla.tar.bz2", "bla.xml.bz2", "COMPRESS-131.bz2",
+                "multiple.bz2" }) {
+            final byte[] compressed;
+            try (InputStream in = new FileInputStream(getFile(name))) {
+                compressed = IOUtils.toByteArray(in);
+            }
+            for (final boolean concatenated : new boolean[] { false, true }) {
+                final byte[] expected;
+                try (InputStream in = new BZip2CompressorInputStream(new ByteArrayInputStream(compressed),
+                         concatenated)) {
+                    expected = IOUtils.toByteArray(in);
+                }
+                try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed),
+                         concatenated)) {
+                    assertArrayEquals(name, expected, IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readsManyBlocksAndConcatenatedStreams() throws Exception {
+        final byte[] first = createTestData(700000, true);
+        final byte[] second = createTestData(300000, false);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(compress(first, 1));
+        bos.write(compress(new byte[0], 9));
+        bos.write(compress(second, 3));
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(bos.toByteArray()),
+                 true, executor, true, 3)) {
+            final byte[] actual = IOUtils.toByteArray(in);
+            assertEquals(first.length + second.length, actual.length);
+            for (int i = 0; i < first.length; i++) {
+                assertEquals(first[i], actual[i]);
+            }
+            for (int i = 0; i < second.length; i++) {
+                assertEquals(second[i], actual[first.length + i]);
+            }
+        }
+        assertTrue(executor.isShutdown());
+    }
+
+    /**
+     * The bitmap of used byte values inside of the block header is
+     * chosen to contain the block magic.
+     */
+    @Test
+    public void recoversFromMagicInsideOfBlock() throws Exception {
+        final byte[] used = new byte[] { 0x21, 0x23, 0x24, 0x27, 0x2a, 0x2d, 0x2e,
+            0x31, 0x33, 0x36, 0x37, 0x39, 0x3b, 0x3c, 0x3f, 0x70, (byte) 0x90, (byte) 0xf0 };
+        final Random r = new Random(42);
+        final byte[] data = new byte[250000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = used[r.nextInt(used.length)];
+            if (i > 0 && data[i] == data[i - 1]) {
+                data[i] = data[i] == used[0] ? used[1] : used[0];
+            }
+        }
+        final byte[] compressed = compress(data, 1);
+        assertTrue(countBlockMagic(compressed) > (data.length + 99980) / 99981);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void detectsCorruptedBlock() throws Exception {
+        final byte[] compressed = compress(createTestData(300000, true), 1);
+        compressed[compressed.length / 2] ^= 0x10;
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed))) {
+            IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void detectsTruncatedStream() throws Exception {
+        final byte[] compressed = compress(createTestData(300000, true), 1);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed, 0,
+                 compressed.length - 20))) {
+            IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void doesNotBufferBlocksOfUnlimitedSize() throws Exception {
+        final byte[] header = new byte[] { 'B', 'Z', 'h', '1', 0x31, 0x41, 0x59, 0x26, 0x53, 0x59 };
+        final ZeroPaddedInputStream padded = new ZeroPaddedInputStream(header, 64 * 1024 * 1024);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(padded)) {
+            IOUtils.toByteArray(in);
+            fail("expected an exception");
+        } catch (final IOException expected) {
+            assertEquals("stream corrupted", expected.getMessage());
+        }
+        assertTrue(padded.count < 4 * 1024 * 1024);
+    }
+
+    @Test
+    public void ignoresLongGarbageAfterTheStream() throws Exception {
+        final byte[] data = createTestData(300000, true);
+        final ZeroPaddedInputStream padded = new ZeroPaddedInputStream(compress(data, 1), 64 * 1024 * 1024);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(padded)) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+        assertTrue(padded.count < 4 * 1024 * 1024);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsZipFile() throws Exception {
+        try (InputStream in = new FileInputStream(getFile("bla.zip"))) {
+            new ParallelBZip2CompressorInputStream(in).close();
+        }
+    }
+
+    /**
+     * Returns the given bytes followed by zeros and counts the bytes read.
+     */
+    private static final class ZeroPaddedInputStream extends InputStream {
+        private final byte[] start;
+        private final long length;
+        private long count;
+
+        private ZeroPaddedInputStream(final byte[] start, final long length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (count >= length) {
+                return -1;
+            }
+            final int n = (int) Math.min(len, length - count);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = count + i < start.length ? start[(int) count + i] : 0;
+            }
+            count += n;
+            return n;
+        }
+    }
+
+    private static int countBlockMagic(final byte[] compressed) {
+        int count = 0;
+        long register = 0;
+        for (int i = 0; i < compressed.length; i++) {
+            register = (register << 8) | (compressed[i] & 0xff);
+            for (int s = 0; i >= 6 && s < 8; s++) {
+                if (((register >>> (8 - s)) & 0xFFFFFFFFFFFFL) == 0x314159265359L) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static byte[] compress(final byte[] data, final int blockSize) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(bos, blockSize)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import static org.apache.commons.compress.AbstractTestCase.createTestData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Test;
+
+public class ParallelBZip2CompressorOutputStreamTest {
+
+    @Test
+    public void roundTripWithRunsAcrossBlockBoundaries() throws Exception {
+        final byte[] data = createTestData(1000000, true);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ParallelBZip2CompressorOutputStream out = new ParallelBZip2CompressorOutputStream(bos, 1, executor,
+                 true, 3)) {
+            // odd sized writes so chunks don't end where writes end
+            for (int off = 0; off < data.length; off += 77777) {
+                out.write(data, off, Math.min(77777, data.length - off));
+            }
+        }
+        assertTrue(executor.isShutdown());
+        assertArrayEquals(data, decompress(bos.toByteArray()));
+    }
+
+    @Test
+    public void sameOutputAsBZip2CompressorOutputStreamWithoutRuns() throws Exception {
+        for (final int size : new int[] { 0, 1, 5000, 99981, 99982, 400000 }) {
+            final byte[] data = createTestData(size, false);
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(expected, 1)) {
+                out.write(data);
+            }
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            try (ParallelBZip2CompressorOutputStream out = new ParallelBZip2CompressorOutputStream(actual, 1)) {
+                out.write(data);
+            }
+            assertArrayEquals("size " + size, expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void singleByteWrites() throws Exception {
+        final byte[] data = createTestData(250000, true);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ParallelBZip2CompressorOutputStream out = new ParallelBZip2CompressorOutputStream(bos, 1)) {
+            for (final byte b : data) {
+                out.write(b);
+            }
+        }
+        assertArrayEquals(data, decompress(bos.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void cannotWriteAfterFinish() throws Exception {
+        try (ParallelBZip2CompressorOutputStream out = new ParallelBZip2CompressorOutputStream(
+                 new ByteArrayOutputStream())) {
+            out.finish();
+            out.write(1);
+        }
+    }
+
+    private static byte[] decompress(final byte[] compressed) throws IOException {
+        // a single stream, not a concatenation of streams
+        try (InputStream in = new BZip2CompressorInputStream(new ByteArrayInputStream(compressed), false)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
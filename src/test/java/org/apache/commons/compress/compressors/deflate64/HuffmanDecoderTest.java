@@ -17,11 +17,17 @@
  */
 package org.apache.commons.compress.compressors.deflate64;
 
+import org.apache.commons.compress.utils.BitInputStream;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.zip.Deflater;
 
+import static org.apache.commons.compress.AbstractTestCase.createTestData;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -219,4 +225,38 @@ public void decodeFixedHuffmanBlockWithMemoryLookupInExactBuffer() throws Except
         len = decoder.decode(result);
         assertEquals(-1, len);
     }
+
+    @Test
+    public void decodeDeflaterOutputWithoutReadingBeyondTheEndOfTheStream() throws Exception {
+        final byte[] data = createTestData(300000, true);
+        for (final int strategy : new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED, Deflater.HUFFMAN_ONLY }) {
+            for (final int level : new int[] { 1, 6, 9 }) {
+                final Deflater deflater = new Deflater(level, true);
+                deflater.setStrategy(strategy);
+                deflater.setInput(data);
+                deflater.finish();
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                while (!deflater.finished()) {
+                    bos.write(buffer, 0, deflater.deflate(buffer));
+                }
+                deflater.end();
+                final int compressedLength = bos.size();
+                bos.write(42);
+
+                final ByteArrayInputStream in = new ByteArrayInputStream(bos.toByteArray());
+                final BitInputStream bits = new BitInputStream(in, ByteOrder.LITTLE_ENDIAN);
+                final HuffmanDecoder decoder = new HuffmanDecoder(bits, false, null);
+                final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                final byte[] result = new byte[777];
+                int len;
+                while ((len = decoder.decode(result)) >= 0) {
+                    actual.write(result, 0, len);
+                }
+                assertArrayEquals("level " + level + ", strategy " + strategy, data, actual.toByteArray());
+                assertEquals(compressedLength, bits.getBytesRead());
+                assertEquals(42, in.read());
+            }
+        }
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import static org.apache.commons.compress.AbstractTestCase.createTestData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class GzipIndexTest {
+
+    private static final int SPAN = 1 << 16;
+
+    @Test
+    public void readsFromArbitraryOffsets() throws Exception {
+        final byte[] data = createTestData(1 << 20, true);
+        final byte[] compressed = compress(data, new GzipParameters());
+        final GzipIndex index = createIndex(compressed, data);
+        assertEquals(data.length, index.getUncompressedSize());
+        assertTrue(index.getCheckpoints().size() > 4);
+        assertReadsFromArbitraryOffsets(compressed, data, index);
+    }
+
+    @Test
+    public void readsStoredBlocks() throws Exception {
+        final byte[] data = createTestData(300000, true);
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(Deflater.NO_COMPRESSION);
+        final byte[] compressed = compress(data, parameters);
+        assertReadsFromArbitraryOffsets(compressed, data, createIndex(compressed, data));
+    }
+
+    @Test
+    public void readsConcatenatedMembers() throws Exception {
+        final byte[] first = createTestData(200000, true);
+        final byte[] second = createTestData(300000, true);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(compress(first, new GzipParameters()));
+        final GzipParameters withName = new GzipParameters();
+        withName.setFilename("second.txt");
+        withName.setComment("a comment");
+        bos.write(compress(second, withName));
+        final byte[] compressed = bos.toByteArray();
+        final byte[] data = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, data, first.length, second.length);
+
+        final GzipIndex index = createIndex(compressed, data);
+        int memberStarts = 0;
+        for (final GzipIndex.Checkpoint c : index.getCheckpoints()) {
+            memberStarts += c.memberStart ? 1 : 0;
+        }
+        assertEquals(2, memberStarts);
+        assertReadsFromArbitraryOffsets(compressed, data, index);
+        try (InputStream in = index.openStream(new SeekableInMemoryByteChannel(compressed), first.length - 10)) {
+            assertArrayEquals(Arrays.copyOfRange(data, first.length - 10, data.length), IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void outputStreamCreatesIndex() throws Exception {
+        final byte[] data = createTestData(1 << 20, true);
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setIndexSpan(100000);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final GzipIndex index;
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(bos, parameters)) {
+            for (int off = 0; off < data.length; off += 30000) {
+                out.write(data, off, Math.min(30000, data.length - off));
+            }
+            out.finish();
+            index = out.getIndex();
+        }
+        final byte[] compressed = bos.toByteArray();
+        try (InputStream in = new GzipCompressorInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+        assertEquals(data.length, index.getUncompressedSize());
+        assertEquals(data.length / 100000 + 1, index.getCheckpoints().size());
+        assertReadsFromArbitraryOffsets(compressed, data, index);
+    }
+
+    @Test
+    public void outputStreamIndexIsAvailableAfterClose() throws Exception {
+        final byte[] data = createTestData(300000, true);
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setIndexSpan(100000);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final GzipCompressorOutputStream out = new GzipCompressorOutputStream(bos, parameters);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        final GzipIndex index = out.getIndex();
+        assertEquals(data.length, index.getUncompressedSize());
+        assertReadsFromArbitraryOffsets(bos.toByteArray(), data, index);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void outputStreamIndexIsOnlyAvailableAtTheEnd() throws Exception {
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setIndexSpan(100000);
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(new ByteArrayOutputStream(),
+                 parameters)) {
+            out.write(createTestData(1000, true));
+            out.getIndex();
+        }
+    }
+
+    @Test
+    public void persistedIndexIsEquivalent() throws Exception {
+        final byte[] data = createTestData(500000, true);
+        final byte[] compressed = compress(data, new GzipParameters());
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        createIndex(compressed, data).writeTo(bos);
+        bos.write(42);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bos.toByteArray());
+        final GzipIndex index = GzipIndex.read(in);
+        assertEquals(42, in.read());
+        assertReadsFromArbitraryOffsets(compressed, data, index);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void indexIsOnlyAvailableAtTheEnd() throws Exception {
+        final byte[] data = createTestData(100000, true);
+        try (GzipIndexingInputStream in = new GzipIndexingInputStream(
+                 new ByteArrayInputStream(compress(data, new GzipParameters())))) {
+            in.read();
+            in.getIndex();
+        }
+    }
+
+    private static GzipIndex createIndex(final byte[] compressed, final byte[] expected) throws IOException {
+        try (GzipIndexingInputStream in = new GzipIndexingInputStream(new ByteArrayInputStream(compressed),
+                 SPAN)) {
+            assertArrayEquals(expected, IOUtils.toByteArray(in));
+            return in.getIndex();
+        }
+    }
+
+    private static void assertReadsFromArbitraryOffsets(final byte[] compressed, final byte[] data,
+                                                        final GzipIndex index) throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(compressed);
+        final Random r = new Random(7);
+        for (int i = 0; i < 30; i++) {
+            final int offset = i == 0 ? 0 : r.nextInt(data.length);
+            final int length = Math.min(5000, data.length - offset);
+            try (InputStream in = index.openStream(channel, offset)) {
+                final byte[] actual = new byte[length];
+                assertEquals(length, IOUtils.readFully(in, actual));
+                assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length), actual);
+            }
+        }
+        try (InputStream in = index.openStream(channel, data.length)) {
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static byte[] compress(final byte[] data, final GzipParameters parameters) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(bos, parameters)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -42,7 +42,10 @@ public static Collection<Object[]> factory() {
                 new Object[] { "tuned for speed",
                     BlockLZ4CompressorOutputStream.createParameterBuilder().tunedForSpeed().build() },
                 new Object[] { "tuned for compression ratio",
-                    BlockLZ4CompressorOutputStream.createParameterBuilder().tunedForCompressionRatio().build() }
+                    BlockLZ4CompressorOutputStream.createParameterBuilder().tunedForCompressionRatio().build() },
+                new Object[] { "fast matching",
+                    BlockLZ4CompressorOutputStream.createParameterBuilder().tunedForSpeed().withFastMatching(true)
+                        .build() }
             });
     }
 
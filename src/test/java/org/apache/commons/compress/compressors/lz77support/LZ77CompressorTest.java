@@ -18,15 +18,18 @@
  */
 package org.apache.commons.compress.compressors.lz77support;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class LZ77CompressorTest {
 
@@ -305,6 +308,50 @@ public void accept(LZ77Compressor.Block block) {
         c.prefill(Arrays.copyOfRange(BLA, 2, 4));
     }
 
+    @Test
+    public void blaExampleWithFastMatching() throws IOException {
+        List<LZ77Compressor.Block> blocks = compress(Parameters.builder(128).withFastMatching(true).build(), BLA);
+        assertSize(4, blocks);
+        assertLiteralBlock("Blah b", blocks.get(0));
+        assertBackReference(5, 18, blocks.get(1));
+        assertLiteralBlock("!", blocks.get(2));
+    }
+
+    @Test
+    public void blocksReproduceInputWithFastMatchingAndLazyMatchingDepth() throws IOException {
+        final Random r = new Random(42);
+        final byte[] data = new byte[20000];
+        for (int i = 0; i < data.length; i++) {
+            // incompressible stretches followed by repetitions
+            data[i] = (i / 1000) % 2 == 0 || i < 1000 ? (byte) r.nextInt(256) : data[i - 1 - r.nextInt(3) * 300];
+        }
+        final Parameters[] params = new Parameters[] {
+            Parameters.builder(1024).withFastMatching(true).build(),
+            Parameters.builder(1024).withLazyMatchingDepth(3).build(),
+            Parameters.builder(1024).withFastMatching(true).withLazyMatchingDepth(2).withMaxLiteralLength(100).build(),
+        };
+        for (final Parameters p : params) {
+            final List<LZ77Compressor.Block> blocks = compress(p, Arrays.copyOfRange(data, 0, 7777),
+                Arrays.copyOfRange(data, 7777, data.length));
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            for (final LZ77Compressor.Block block : blocks) {
+                if (block instanceof LZ77Compressor.LiteralBlock) {
+                    final LZ77Compressor.LiteralBlock b = (LZ77Compressor.LiteralBlock) block;
+                    assertTrue(b.getLength() <= p.getMaxLiteralLength());
+                    bos.write(b.getData(), b.getOffset(), b.getLength());
+                } else if (block instanceof LZ77Compressor.BackReference) {
+                    final LZ77Compressor.BackReference b = (LZ77Compressor.BackReference) block;
+                    final byte[] sofar = bos.toByteArray();
+                    for (int i = 0; i < b.getLength(); i++) {
+                        bos.write(i < b.getOffset() ? sofar[sofar.length - b.getOffset() + i]
+                            : sofar[sofar.length - b.getOffset() + i % b.getOffset()]);
+                    }
+                }
+            }
+            assertArrayEquals(data, bos.toByteArray());
+        }
+    }
+
     private static final void assertSize(int expectedSize, List<LZ77Compressor.Block> blocks) {
         assertEquals(expectedSize, blocks.size());
         assertEquals(LZ77Compressor.Block.BlockType.EOD, blocks.get(expectedSize - 1).getType());
@@ -21,6 +21,8 @@
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ParametersTest {
 
@@ -34,6 +36,20 @@ public void defaultConstructor() {
         assertEquals(128, p.getMaxLiteralLength());
     }
 
+    @Test
+    public void lazyMatchingDepthIsOneAndFastMatchingIsDisabledByDefault() {
+        Parameters p = newParameters(128);
+        assertEquals(1, p.getLazyMatchingDepth());
+        assertFalse(p.getFastMatching());
+    }
+
+    @Test
+    public void lazyMatchingDepthIsAtLeastOne() {
+        Parameters p = Parameters.builder(128).withLazyMatchingDepth(0).withFastMatching(true).build();
+        assertEquals(1, p.getLazyMatchingDepth());
+        assertTrue(p.getFastMatching());
+    }
+
     @Test
     public void minBackReferenceLengthIsAtLeastThree() {
         Parameters p = newParameters(128, 2, 3, 4, 5);
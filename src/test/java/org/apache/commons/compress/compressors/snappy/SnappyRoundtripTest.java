@@ -95,6 +95,16 @@ public void blaTarRoundtripTunedForSpeed() throws IOException {
                 .build());
     }
 
+    @Test
+    public void blaTarRoundtripWithFastMatching() throws IOException {
+        System.err.println("Configuration: fast matching");
+        roundTripTest(getFile("bla.tar"),
+            SnappyCompressorOutputStream.createParameterBuilder(SnappyCompressorInputStream.DEFAULT_BLOCK_SIZE)
+                .tunedForSpeed()
+                .withFastMatching(true)
+                .build());
+    }
+
     @Test
     public void blaTarRoundtripTunedForCompressionRatio() throws IOException {
         System.err.println("Configuration: tuned for compression ratio");
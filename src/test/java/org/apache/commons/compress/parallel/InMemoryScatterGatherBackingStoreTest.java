@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.parallel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Test;
+
+public class InMemoryScatterGatherBackingStoreTest {
+
+    @Test
+    public void keepsDataBelowThresholdInMemory() throws IOException {
+        try (InMemoryScatterGatherBackingStore store = new InMemoryScatterGatherBackingStore(1000, 16, false)) {
+            final byte[] data = data(1000);
+            store.writeOut(data, 0, 500);
+            store.writeOut(data, 500, 500);
+            store.closeForWriting();
+            assertFalse(store.hasSpilled());
+            try (InputStream in = store.getInputStream()) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+        }
+    }
+
+    @Test
+    public void spillsDataAboveThreshold() throws IOException {
+        for (final boolean direct : new boolean[] { false, true }) {
+            try (InMemoryScatterGatherBackingStore store = new InMemoryScatterGatherBackingStore(1000, 64, direct)) {
+                final byte[] data = data(5000);
+                for (int i = 0; i < data.length; i += 700) {
+                    store.writeOut(data, i, Math.min(700, data.length - i));
+                }
+                store.closeForWriting();
+                assertTrue(store.hasSpilled());
+                try (InputStream in = store.getInputStream()) {
+                    assertArrayEquals(data, IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streamSeesDataWrittenAfterItHasBeenCreated() throws IOException {
+        try (InMemoryScatterGatherBackingStore store = new InMemoryScatterGatherBackingStore(100, 16, false)) {
+            final byte[] data = data(300);
+            final InputStream in = store.getInputStream();
+            assertEquals(-1, in.read());
+            store.writeOut(data, 0, 50);
+            final byte[] first = new byte[50];
+            assertEquals(50, IOUtils.readFully(in, first));
+            store.writeOut(data, 50, 250);
+            assertEquals(data[50] & 0xff, in.read());
+            assertEquals(100, in.skip(100));
+            final byte[] rest = new byte[149];
+            assertEquals(149, IOUtils.readFully(in, rest));
+            assertEquals(data[299], rest[148]);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void cannotWriteAfterCloseForWriting() throws IOException {
+        try (InMemoryScatterGatherBackingStore store = new InMemoryScatterGatherBackingStore()) {
+            store.closeForWriting();
+            store.writeOut(new byte[1], 0, 1);
+        }
+    }
+
+    private static byte[] data(final int length) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + i / 256);
+        }
+        return data;
+    }
+}
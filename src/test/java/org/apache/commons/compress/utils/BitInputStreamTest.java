@@ -206,6 +206,38 @@ public void availableWithCache() throws Exception {
         }
     }
 
+    @Test
+    public void peekBitsDoesNotConsumeBits() throws Exception {
+        try (final BitInputStream bis = new BitInputStream(getStream(), ByteOrder.LITTLE_ENDIAN)) {
+            assertEquals(0x08, bis.readBits(4));
+            assertEquals(0x140f, bis.peekBits(16));
+            assertEquals(20, bis.bitsCached());
+            assertEquals(0x140f, bis.readBits(16));
+            assertEquals(0x02f0, bis.peekBits(12));
+            assertEquals(0x02f0, bis.readBits(12));
+        }
+    }
+
+    @Test
+    public void peekBitsBigEndian() throws Exception {
+        try (final BitInputStream bis = new BitInputStream(getStream(), ByteOrder.BIG_ENDIAN)) {
+            assertEquals(0x0f, bis.readBits(4));
+            assertEquals(0x8400, bis.peekBits(16));
+            assertEquals(0x8400, bis.readBits(16));
+            assertEquals(0x12f, bis.peekBits(12));
+        }
+    }
+
+    @Test
+    public void peekBitsPadsWithZerosAtEof() throws Exception {
+        try (final BitInputStream bis = new BitInputStream(getStream(), ByteOrder.BIG_ENDIAN)) {
+            assertEquals(0xf84001, bis.readBits(24));
+            assertEquals(0x2f0, bis.peekBits(12));
+            assertEquals(8, bis.bitsCached());
+            assertEquals(-1, bis.readBits(12));
+        }
+    }
+
     private ByteArrayInputStream getStream() {
         return new ByteArrayInputStream(new byte[] {
                 (byte) 0xF8,  // 11111000
@@ -0,0 +1,74 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class BoundedSeekableByteChannelInputStreamTest {
+
+    private static final byte[] DATA = new byte[100];
+
+    static {
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = (byte) i;
+        }
+    }
+
+    @Test
+    public void readsOnlyTheGivenRange() throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(DATA);
+        try (InputStream in = new BoundedSeekableByteChannelInputStream(channel, 10, 20)) {
+            assertEquals(10, in.read());
+            assertEquals(5, in.skip(5));
+            assertArrayEquals(Arrays.copyOfRange(DATA, 16, 30), IOUtils.toByteArray(in));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void stopsAtTheEndOfTheChannel() throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(DATA);
+        try (InputStream in = new BoundedSeekableByteChannelInputStream(channel, 90, 20)) {
+            assertArrayEquals(Arrays.copyOfRange(DATA, 90, 100), IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void streamsReadingTheSameChannelDontInterfere() throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(DATA);
+        try (InputStream first = new BoundedSeekableByteChannelInputStream(channel, 0, 50);
+             InputStream second = new BoundedSeekableByteChannelInputStream(channel, 50, 50)) {
+            for (int i = 0; i < 50; i++) {
+                assertEquals(i, first.read());
+                assertEquals(50 + i, second.read());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRangesThatOverflow() {
+        new BoundedSeekableByteChannelInputStream(new SeekableInMemoryByteChannel(DATA), 10, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.Test;
+
+public class BoundedZlibPoolTest {
+
+    @Test
+    public void reusesReturnedInflaters() {
+        final BoundedZlibPool pool = new BoundedZlibPool(1);
+        final Inflater inflater = pool.borrowInflater(true);
+        pool.returnInflater(inflater, true);
+        assertNotSame(inflater, pool.borrowInflater(false));
+        assertSame(inflater, pool.borrowInflater(true));
+
+        final BoundedZlibPool.Statistics stats = pool.getInflaterStatistics();
+        assertEquals(3, stats.getBorrowed());
+        assertEquals(1, stats.getReused());
+        assertEquals(1, stats.getReturned());
+        assertEquals(2, stats.getOutstanding());
+        assertEquals(0, stats.getIdle());
+        assertEquals(1d / 3, stats.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void keepsAtMostMaxIdlePerKey() {
+        final BoundedZlibPool pool = new BoundedZlibPool(1);
+        final Deflater d1 = pool.borrowDeflater(5, true);
+        final Deflater d2 = pool.borrowDeflater(5, true);
+        final Deflater d3 = pool.borrowDeflater(6, true);
+        pool.returnDeflater(d1, 5, true);
+        pool.returnDeflater(d2, 5, true);
+        pool.returnDeflater(d3, 6, true);
+
+        final BoundedZlibPool.Statistics stats = pool.getDeflaterStatistics();
+        assertEquals(1, stats.getDiscarded());
+        assertEquals(2, stats.getIdle());
+        assertEquals(0, stats.getOutstanding());
+        assertSame(d1, pool.borrowDeflater(5, true));
+        assertSame(d3, pool.borrowDeflater(6, true));
+
+        pool.clear();
+        assertEquals(0, pool.getDeflaterStatistics().getIdle());
+    }
+
+    @Test
+    public void returnedDeflaterIsReset() throws Exception {
+        final BoundedZlibPool pool = new BoundedZlibPool(1);
+        final byte[] data = "Hello, world, hello, world".getBytes(StandardCharsets.UTF_8);
+        final byte[] expected = deflate(new Deflater(Deflater.BEST_SPEED, true), data);
+
+        final Deflater deflater = pool.borrowDeflater(Deflater.BEST_SPEED, true);
+        deflater.setLevel(Deflater.BEST_COMPRESSION);
+        deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+        deflate(deflater, data);
+        pool.returnDeflater(deflater, Deflater.BEST_SPEED, true);
+
+        final Deflater reused = pool.borrowDeflater(Deflater.BEST_SPEED, true);
+        assertSame(deflater, reused);
+        assertArrayEquals(expected, deflate(reused, data));
+    }
+
+    @Test
+    public void levelsOutsideOfTheSupportedRangeAreNotPooled() {
+        final BoundedZlibPool pool = new BoundedZlibPool(1);
+        final Deflater deflater = pool.borrowDeflater(Deflater.DEFAULT_COMPRESSION, false);
+        pool.returnDeflater(deflater, 42, false);
+        assertEquals(1, pool.getDeflaterStatistics().getDiscarded());
+    }
+
+    @Test
+    public void gzipCompressorInputStreamReturnsItsInflater() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(bos)) {
+            out.write("Hello, world".getBytes(StandardCharsets.UTF_8));
+        }
+        final ZlibPool old = ZlibPool.getDefault();
+        final BoundedZlibPool pool = new BoundedZlibPool(1);
+        ZlibPool.setDefault(pool);
+        try {
+            for (int i = 0; i < 3; i++) {
+                try (GzipCompressorInputStream in = new GzipCompressorInputStream(
+                    new ByteArrayInputStream(bos.toByteArray()))) {
+                    assertEquals("Hello, world", new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+                }
+            }
+        } finally {
+            ZlibPool.setDefault(old);
+        }
+        final BoundedZlibPool.Statistics stats = pool.getInflaterStatistics();
+        assertEquals(3, stats.getBorrowed());
+        assertEquals(2, stats.getReused());
+        assertEquals(0, stats.getOutstanding());
+    }
+
+    @Test
+    public void setDefaultNullDisablesPooling() {
+        final ZlibPool old = ZlibPool.getDefault();
+        ZlibPool.setDefault(null);
+        try {
+            assertSame(ZlibPool.nonPooling(), ZlibPool.getDefault());
+        } finally {
+            ZlibPool.setDefault(old);
+        }
+    }
+
+    private static byte[] deflate(final Deflater deflater, final byte[] data) {
+        deflater.setInput(data);
+        deflater.finish();
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final byte[] buf = new byte[100];
+        while (!deflater.finished()) {
+            bos.write(buf, 0, deflater.deflate(buf));
+        }
+        return bos.toByteArray();
+    }
+}
@@ -20,11 +20,16 @@
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.File;
 import java.io.FilterInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -102,6 +107,46 @@ public void readFullyOnChannelThrowsEof() throws IOException {
         readFully(source, b);
     }
 
+    @Test
+    public void readFullyAtPositionReadsFileChannelsWithoutMovingThem() throws IOException {
+        final File f = File.createTempFile("commons-compress-ioutils", ".bin");
+        f.deleteOnExit();
+        final byte[] source = new byte[20];
+        for (byte i = 0; i < 20; i++) {
+            source[i] = i;
+        }
+        Files.write(f.toPath(), source);
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            channel.position(3);
+            final ByteBuffer b = ByteBuffer.allocate(10);
+            IOUtils.readFully(channel, b, 5);
+            Assert.assertArrayEquals(Arrays.copyOfRange(source, 5, 15), b.array());
+            Assert.assertEquals(3, channel.position());
+        }
+    }
+
+    @Test
+    public void readFullyAtPositionReadsOtherChannels() throws IOException {
+        final byte[] source = new byte[20];
+        for (byte i = 0; i < 20; i++) {
+            source[i] = i;
+        }
+        final ByteBuffer b = ByteBuffer.allocate(10);
+        IOUtils.readFully(new SeekableInMemoryByteChannel(source), b, 5);
+        Assert.assertArrayEquals(Arrays.copyOfRange(source, 5, 15), b.array());
+    }
+
+    @Test(expected = EOFException.class)
+    public void readFullyAtPositionThrowsEof() throws IOException {
+        IOUtils.readFully(new SeekableInMemoryByteChannel(new byte[20]), ByteBuffer.allocate(10), 11);
+    }
+
+    @Test
+    public void readAtPositionReturnsMinusOneAtTheEnd() throws IOException {
+        Assert.assertEquals(-1, IOUtils.read(new SeekableInMemoryByteChannel(new byte[20]),
+            ByteBuffer.allocate(10), 20));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void copyThrowsOnZeroBufferSize() throws IOException {
         IOUtils.copy(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), 0);
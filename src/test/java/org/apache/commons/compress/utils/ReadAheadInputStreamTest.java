@@ -0,0 +1,150 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ReadAheadInputStreamTest {
+
+    @Test
+    public void readsAllBytesInOrder() throws IOException {
+        final byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+        try (ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), 1000, 3,
+                 newThreadFactory(new AtomicReference<Thread>()))) {
+            final byte[] result = new byte[data.length];
+            int pos = 0;
+            assertEquals(data[0] & 0xff, in.read());
+            pos++;
+            assertEquals(10, in.skip(10));
+            pos += 10;
+            final Random r = new Random(1);
+            int n;
+            while ((n = in.read(result, pos, Math.min(r.nextInt(3000) + 1, result.length - pos))) > 0) {
+                pos += n;
+            }
+            assertEquals(data.length, pos);
+            assertEquals(-1, in.read());
+            System.arraycopy(data, 0, result, 0, 11);
+            assertArrayEquals(data, result);
+        }
+    }
+
+    @Test
+    public void exceptionsOfTheWrappedStreamArePropagated() throws Exception {
+        final IOException failure = new IOException("failed");
+        final InputStream failing = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ < 10) {
+                    return 1;
+                }
+                throw failure;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                if (count >= 10) {
+                    throw failure;
+                }
+                b[off] = 1;
+                count++;
+                return 1;
+            }
+        };
+        try (ReadAheadInputStream in = new ReadAheadInputStream(failing)) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(1, in.read());
+            }
+            try {
+                in.read();
+                fail("expected an exception");
+            } catch (final IOException ex) {
+                assertSame(failure, ex);
+            }
+            // the failure doesn't look like the end of the stream later
+            try {
+                in.read(new byte[10]);
+                fail("expected an exception");
+            } catch (final IOException ex) {
+                assertSame(failure, ex);
+            }
+            try {
+                in.skip(10);
+                fail("expected an exception");
+            } catch (final IOException ex) {
+                assertSame(failure, ex);
+            }
+        }
+    }
+
+    @Test
+    public void closeStopsTheReader() throws Exception {
+        final AtomicReference<Thread> reader = new AtomicReference<>();
+        final InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+        };
+        final ReadAheadInputStream in = new ReadAheadInputStream(endless, 10, 2, newThreadFactory(reader));
+        assertEquals(0, in.read());
+        in.close();
+        reader.get().join(10000);
+        assertFalse(reader.get().isAlive());
+        try {
+            in.read();
+            fail("expected an exception");
+        } catch (final IOException ex) {
+            assertEquals("The stream is closed", ex.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveBufferCount() {
+        new ReadAheadInputStream(new ByteArrayInputStream(new byte[0]), 10, 0,
+            newThreadFactory(new AtomicReference<Thread>()));
+    }
+
+    private static ThreadFactory newThreadFactory(final AtomicReference<Thread> created) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r);
+                t.setDaemon(true);
+                created.set(t);
+                return t;
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Generates reproducible benchmark input.
+ *
+ * <p>All data is derived from a fixed seed so that runs on different
+ * machines (and without network access) operate on identical
+ * bytes.</p>
+ */
+public final class Corpus {
+
+    /** The kinds of data the benchmarks are run against. */
+    public enum Kind {
+        /** Natural-language like text built from a small vocabulary. */
+        TEXT,
+        /** Structured binary records with some redundancy. */
+        BINARY,
+        /** Output of DEFLATE, i.e. data that doesn't compress any further. */
+        COMPRESSED,
+        /** A short pattern repeated over and over with rare mutations. */
+        REPETITIVE
+    }
+
+    private static final long SEED = 0x436f6d7072657373L;
+
+    private static final String[] WORDS = {
+        "the", "of", "and", "to", "in", "is", "archive", "entry", "stream", "compress",
+        "block", "header", "offset", "data", "file", "zip", "tar", "window", "match",
+        "literal", "length", "distance", "huffman", "table", "symbol", "apache", "commons",
+        "a", "for", "with", "that", "be", "on", "as", "by", "this", "not", "are"
+    };
+
+    private Corpus() {
+    }
+
+    /**
+     * Creates {@code size} bytes of the given kind.
+     * @param kind the kind of data
+     * @param size number of bytes to return
+     * @return the generated data, identical for identical arguments
+     */
+    public static byte[] generate(final Kind kind, final int size) {
+        switch (kind) {
+        case TEXT:
+            return text(new Random(SEED), size);
+        case BINARY:
+            return binary(new Random(SEED), size);
+        case COMPRESSED:
+            return compressed(size);
+        case REPETITIVE:
+            return repetitive(new Random(SEED), size);
+        default:
+            throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    private static byte[] text(final Random r, final int size) {
+        final byte[] result = new byte[size];
+        int pos = 0;
+        int column = 0;
+        while (pos < size) {
+            final String w = WORDS[Math.min(WORDS.length - 1, (int) Math.abs(r.nextGaussian() * WORDS.length / 3))];
+            for (int i = 0; i < w.length() && pos < size; i++) {
+                result[pos++] = (byte) w.charAt(i);
+            }
+            column += w.length() + 1;
+            if (pos < size) {
+                if (column > 72) {
+                    result[pos++] = '\n';
+                    column = 0;
+                } else {
+                    result[pos++] = ' ';
+                }
+            }
+        }
+        return result;
+    }
+
+    private static byte[] binary(final Random r, final int size) {
+        final byte[] result = new byte[size];
+        int counter = 0;
+        int pos = 0;
+        while (pos < size) {
+            // a record: little endian sequence number, small value, random payload
+            final int recordLength = Math.min(16, size - pos);
+            final byte[] record = new byte[16];
+            counter++;
+            record[0] = (byte) counter;
+            record[1] = (byte) (counter >> 8);
+            record[2] = (byte) (counter >> 16);
+            record[3] = (byte) (counter >> 24);
+            record[4] = (byte) r.nextInt(16);
+            final long payload = r.nextLong();
+            for (int i = 0; i < 8; i++) {
+                record[8 + i] = (byte) (payload >> (8 * i));
+            }
+            System.arraycopy(record, 0, result, pos, recordLength);
+            pos += recordLength;
+        }
+        return result;
+    }
+
+    private static byte[] compressed(final int size) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(size);
+        final byte[] buffer = new byte[8192];
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            long seed = SEED;
+            while (bos.size() < size) {
+                final byte[] input = text(new Random(seed++), Math.max(size, 1 << 16) * 3);
+                deflater.reset();
+                deflater.setInput(input);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    final int n = deflater.deflate(buffer);
+                    bos.write(buffer, 0, n);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        final byte[] result = new byte[size];
+        System.arraycopy(bos.toByteArray(), 0, result, 0, size);
+        return result;
+    }
+
+    private static byte[] repetitive(final Random r, final int size) {
+        final byte[] pattern = new byte[64];
+        r.nextBytes(pattern);
+        final byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = pattern[i % pattern.length];
+        }
+        for (int i = 0; i < size / 4096; i++) {
+            result[r.nextInt(size)] = (byte) r.nextInt();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.archivers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.Corpus;
+import org.apache.commons.compress.archivers.ar.ArArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Creating, listing and extracting archives held in memory.
+ *
+ * <p>{@code zip} reads via {@link ZipFile}, {@code zip-stream} via
+ * {@link org.apache.commons.compress.archivers.zip.ZipArchiveInputStream};
+ * both write with the same {@code ZipArchiveOutputStream}.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiverBenchmark {
+
+    private static final String ZIP_STREAM = "zip-stream";
+
+    @Param({ ArchiveStreamFactory.ZIP, ZIP_STREAM, ArchiveStreamFactory.TAR, ArchiveStreamFactory.SEVEN_Z,
+            ArchiveStreamFactory.CPIO, ArchiveStreamFactory.AR })
+    public String format;
+
+    @Param({ "TEXT", "COMPRESSED" })
+    public Corpus.Kind kind;
+
+    @Param({ "1000" })
+    public int entries;
+
+    @Param({ "4096" })
+    public int entrySize;
+
+    private final ArchiveStreamFactory factory = new ArchiveStreamFactory();
+    private byte[][] contents;
+    private byte[] archive;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException, ArchiveException {
+        final byte[] corpus = Corpus.generate(kind, entries * entrySize);
+        contents = new byte[entries][];
+        for (int i = 0; i < entries; i++) {
+            contents[i] = Arrays.copyOfRange(corpus, i * entrySize, (i + 1) * entrySize);
+        }
+        archive = create();
+        buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public byte[] create() throws IOException, ArchiveException {
+        if (ArchiveStreamFactory.SEVEN_Z.equals(format)) {
+            final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel();
+            try (SevenZOutputFile out = new SevenZOutputFile(channel)) {
+                for (int i = 0; i < entries; i++) {
+                    final SevenZArchiveEntry entry = new SevenZArchiveEntry();
+                    entry.setName(name(i));
+                    out.putArchiveEntry(entry);
+                    out.write(contents[i]);
+                    out.closeArchiveEntry();
+                }
+            }
+            return Arrays.copyOf(channel.array(), (int) channel.size());
+        }
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(entries * entrySize);
+        try (ArchiveOutputStream out = factory.createArchiveOutputStream(outputFormat(), bos)) {
+            for (int i = 0; i < entries; i++) {
+                out.putArchiveEntry(createEntry(name(i), contents[i].length));
+                out.write(contents[i]);
+                out.closeArchiveEntry();
+            }
+            out.finish();
+        }
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public void list(final Blackhole bh) throws IOException, ArchiveException {
+        read(bh, false);
+    }
+
+    @Benchmark
+    public void extract(final Blackhole bh) throws IOException, ArchiveException {
+        read(bh, true);
+    }
+
+    private void read(final Blackhole bh, final boolean readContent) throws IOException, ArchiveException {
+        if (ArchiveStreamFactory.SEVEN_Z.equals(format)) {
+            try (SevenZFile in = new SevenZFile(new SeekableInMemoryByteChannel(archive))) {
+                SevenZArchiveEntry entry;
+                while ((entry = in.getNextEntry()) != null) {
+                    bh.consume(entry.getName());
+                    if (readContent) {
+                        int n;
+                        while ((n = in.read(buffer)) > 0) {
+                            bh.consume(n);
+                        }
+                    }
+                }
+            }
+        } else if (ArchiveStreamFactory.ZIP.equals(format)) {
+            try (ZipFile zf = new ZipFile(new SeekableInMemoryByteChannel(archive))) {
+                final Enumeration<ZipArchiveEntry> en = zf.getEntries();
+                while (en.hasMoreElements()) {
+                    final ZipArchiveEntry entry = en.nextElement();
+                    bh.consume(entry.getName());
+                    if (readContent) {
+                        consume(bh, zf.getInputStream(entry));
+                    }
+                }
+            }
+        } else {
+            try (ArchiveInputStream in = factory.createArchiveInputStream(outputFormat(),
+                    new ByteArrayInputStream(archive))) {
+                ArchiveEntry entry;
+                while ((entry = in.getNextEntry()) != null) {
+                    bh.consume(entry.getName());
+                    if (readContent) {
+                        int n;
+                        while ((n = in.read(buffer)) > 0) {
+                            bh.consume(n);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void consume(final Blackhole bh, final InputStream in) throws IOException {
+        try {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                bh.consume(n);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private String outputFormat() {
+        return ZIP_STREAM.equals(format) ? ArchiveStreamFactory.ZIP : format;
+    }
+
+    private ArchiveEntry createEntry(final String name, final long size) {
+        switch (outputFormat()) {
+        case ArchiveStreamFactory.ZIP:
+            final ZipArchiveEntry ze = new ZipArchiveEntry(name);
+            ze.setSize(size);
+            return ze;
+        case ArchiveStreamFactory.TAR:
+            final TarArchiveEntry te = new TarArchiveEntry(name);
+            te.setSize(size);
+            return te;
+        case ArchiveStreamFactory.CPIO:
+            return new CpioArchiveEntry(name, size);
+        case ArchiveStreamFactory.AR:
+            return new ArArchiveEntry(name, size);
+        default:
+            throw new IllegalArgumentException("Unsupported format " + format);
+        }
+    }
+
+    private static String name(final int i) {
+        // short enough for the original ar format
+        return String.format("e%07d", i);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time needed to list a synthetic archive of one million empty
+ * entries, where reading and parsing the headers dominates.
+ *
+ * <p>Run with {@code -prof gc} to see the allocation rate per
+ * operation.</p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TarArchiveInputStreamListBenchmark {
+
+    private static final int ENTRIES = 1000000;
+
+    private File archive;
+
+    @Setup
+    public void setup() throws IOException {
+        archive = File.createTempFile("tar-list-benchmark", ".tar");
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(archive)))) {
+            for (int i = 0; i < ENTRIES; i++) {
+                final TarArchiveEntry e = new TarArchiveEntry("dir" + (i % 100) + "/file" + i + ".txt");
+                e.setModTime(1500000000000L + i * 2000L);
+                e.setUserName("user");
+                e.setGroupName("group");
+                tos.putArchiveEntry(e);
+                tos.closeArchiveEntry();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        archive.delete();
+    }
+
+    @Benchmark
+    public long listEntries() throws IOException {
+        long sum = 0;
+        try (TarArchiveInputStream tis = new TarArchiveInputStream(
+                 new BufferedInputStream(new FileInputStream(archive)))) {
+            TarArchiveEntry e;
+            while ((e = tis.getNextTarEntry()) != null) {
+                sum += e.getName().length() + e.getSize();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.Corpus;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
+import org.apache.commons.compress.utils.CountingOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time needed to compress many small entries - similar to the class
+ * files of a jar - in parallel.
+ *
+ * <p>{@code compressWithStatePerEntry} and {@code
+ * compressWithStatePerThread} isolate the work done by
+ * ParallelScatterZipCreator for each entry, creating a new Deflater and
+ * StreamCompressor per entry versus reusing them per thread. {@code
+ * createArchive} measures the whole process including writing the
+ * archive after all entries have been compressed, the {@code
+ * createArchiveWhileAdding} variants write while entries are still
+ * being added, either using one of the pool's threads or a dedicated
+ * writer thread.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelScatterZipCreatorBenchmark {
+
+    private static final int ENTRIES = 20000;
+    private static final int THREADS = 4;
+
+    @Param({ "1", "-1", "9" })
+    public int level;
+
+    @Param({ "BINARY", "COMPRESSED" })
+    public Corpus.Kind kind;
+
+    @Param({ "DEFLATED", "STORED" })
+    public String method;
+
+    private byte[] data;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        data = Corpus.generate(kind, 8 << 20);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public long createArchive() throws IOException, InterruptedException, ExecutionException {
+        final ParallelScatterZipCreator creator = createCreator();
+        addEntries(creator);
+        final CountingOutputStream out = new CountingOutputStream(new DiscardingOutputStream());
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            creator.writeTo(zos);
+        }
+        return out.getBytesWritten();
+    }
+
+    @Benchmark
+    public long createArchiveWhileAddingWithWriterInPool()
+        throws IOException, InterruptedException, ExecutionException {
+        final ParallelScatterZipCreator creator = createCreator();
+        final CountingOutputStream out = new CountingOutputStream(new DiscardingOutputStream());
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            creator.startWriteTo(zos);
+            addEntries(creator);
+            creator.waitFinishWriteTo();
+        }
+        return out.getBytesWritten();
+    }
+
+    @Benchmark
+    public long createArchiveWhileAddingWithDedicatedWriter()
+        throws IOException, InterruptedException, ExecutionException {
+        final ParallelScatterZipCreator creator = createCreator();
+        final CountingOutputStream out = new CountingOutputStream(new DiscardingOutputStream());
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            creator.startWriteTo(zos, Executors.defaultThreadFactory());
+            addEntries(creator);
+            creator.waitFinishWriteTo();
+        }
+        return out.getBytesWritten();
+    }
+
+    private ParallelScatterZipCreator createCreator() {
+        return new ParallelScatterZipCreator(executor, false, new TempFileBackingStoreSupplier(), level);
+    }
+
+    private void addEntries(final ParallelScatterZipCreator creator) {
+        for (int i = 0; i < ENTRIES; i++) {
+            final ZipArchiveEntry entry = new ZipArchiveEntry("org/example/Class" + i + ".class");
+            entry.setMethod(methodCode());
+            final int offset = offset(i);
+            final int length = length(i);
+            creator.addArchiveEntry(entry, new InputStreamSupplier() {
+                @Override
+                public InputStream get() {
+                    return new ByteArrayInputStream(data, offset, length);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public long compressWithStatePerEntry() throws InterruptedException, ExecutionException {
+        return compress(false);
+    }
+
+    @Benchmark
+    public long compressWithStatePerThread() throws InterruptedException, ExecutionException {
+        return compress(true);
+    }
+
+    private long compress(final boolean reuse) throws InterruptedException, ExecutionException {
+        final List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int first = t;
+            results.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws IOException {
+                    final OutputStream out = new DiscardingOutputStream();
+                    final StreamCompressor reused = reuse
+                        ? StreamCompressor.create(out, new Deflater(level, true)) : null;
+                    long written = 0;
+                    for (int i = first; i < ENTRIES; i += THREADS) {
+                        final InputStream in = new ByteArrayInputStream(data, offset(i), length(i));
+                        if (reuse) {
+                            reused.deflate(in, methodCode());
+                            written += reused.getBytesWrittenForLastEntry();
+                        } else {
+                            try (StreamCompressor sc = StreamCompressor.create(out, new Deflater(level, true))) {
+                                sc.deflate(in, methodCode());
+                                written += sc.getBytesWrittenForLastEntry();
+                            }
+                        }
+                    }
+                    if (reused != null) {
+                        reused.close();
+                    }
+                    return written;
+                }
+            }));
+        }
+        long written = 0;
+        for (final Future<Long> result : results) {
+            written += result.get();
+        }
+        return written;
+    }
+
+    private int methodCode() {
+        return "STORED".equals(method) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+    }
+
+    private int offset(final int i) {
+        return (int) ((i * 7919L) % (data.length - 4096));
+    }
+
+    private static int length(final int i) {
+        // between 512 bytes and 4 KiB, like typical class files
+        return 512 + (i * 31) % 3584;
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+
+    private static final class TempFileBackingStoreSupplier implements ScatterGatherBackingStoreSupplier {
+        @Override
+        public ScatterGatherBackingStore get() throws IOException {
+            final File tempFile = File.createTempFile("parallelscatter-benchmark", ".tmp");
+            tempFile.deleteOnExit();
+            return new FileBasedScatterGatherBackingStore(tempFile);
+        }
+    }
+}
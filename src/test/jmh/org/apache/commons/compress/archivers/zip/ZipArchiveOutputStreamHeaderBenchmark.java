@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.utils.CountingOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time needed to write an archive of one million tiny entries, where
+ * creating local and central file headers dominates.
+ *
+ * <p>Run with {@code -prof gc} to see the allocation rate per
+ * operation.</p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipArchiveOutputStreamHeaderBenchmark {
+
+    private static final int ENTRIES = 1000000;
+
+    @Param({ "STORED", "DEFLATED" })
+    public String method;
+
+    private final byte[] data = new byte[16];
+    private String[] names;
+    private long crc;
+
+    @Setup
+    public void setup() {
+        names = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            names[i] = "dir" + (i % 100) + "/file" + i + ".txt";
+        }
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i);
+        }
+        final CRC32 c = new CRC32();
+        c.update(data);
+        crc = c.getValue();
+    }
+
+    @Benchmark
+    public long writeTinyEntries() throws IOException {
+        final int m = "STORED".equals(method) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+        final CountingOutputStream out = new CountingOutputStream(new DiscardingOutputStream());
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                final ZipArchiveEntry ze = new ZipArchiveEntry(names[i]);
+                ze.setMethod(m);
+                ze.setTime(1500000000000L + i * 2000L);
+                if (m == ZipEntry.STORED) {
+                    ze.setSize(data.length);
+                    ze.setCrc(crc);
+                }
+                zos.putArchiveEntry(ze);
+                zos.write(data);
+                zos.closeArchiveEntry();
+            }
+        }
+        return out.getBytesWritten();
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+}
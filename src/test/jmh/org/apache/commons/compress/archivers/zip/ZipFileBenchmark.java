@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time needed to open archives with many entries and to look up
+ * entries by name afterwards.
+ *
+ * <p>The archives are created in the temp directory once per trial and
+ * contain empty STORED entries, so the time is spent almost
+ * exclusively on the central directory.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ZipFileBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int entries;
+
+    /**
+     * Whether to open the archive in the mode that only reads the
+     * central directory.
+     */
+    @Param({ "false", "true" })
+    public boolean ignoreLocalFileHeader;
+
+    private File archive;
+    private ZipFile openArchive;
+    private int lookup;
+
+    @Setup
+    public void setup() throws IOException {
+        archive = File.createTempFile("commons-compress-benchmark", ".zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(archive)) {
+            out.setMethod(ZipArchiveOutputStream.STORED);
+            for (int i = 0; i < entries; i++) {
+                final ZipArchiveEntry entry = new ZipArchiveEntry(name(i));
+                entry.setSize(0);
+                entry.setCrc(0);
+                out.putArchiveEntry(entry);
+                out.closeArchiveEntry();
+            }
+        }
+        openArchive = open();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        openArchive.close();
+        if (!archive.delete()) {
+            archive.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public int openAndClose() throws IOException {
+        try (ZipFile zf = open()) {
+            return zf.hashCode();
+        }
+    }
+
+    @Benchmark
+    public ZipArchiveEntry getEntry() {
+        lookup = (lookup + 7919) % entries;
+        return openArchive.getEntry(name(lookup));
+    }
+
+    @Benchmark
+    public int listDirectory() {
+        lookup = (lookup + 7919) % entries;
+        int count = 0;
+        for (final ZipArchiveEntry entry : openArchive.getEntriesWithPrefix("org/example/p" + (lookup % 1000) + "/")) {
+            count++;
+        }
+        return count;
+    }
+
+    private ZipFile open() throws IOException {
+        return new ZipFile(archive, ZipEncodingHelper.UTF8, true, ignoreLocalFileHeader);
+    }
+
+    private static String name(final int i) {
+        return "org/example/p" + (i % 1000) + "/Class" + i + ".class";
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.Corpus;
+import org.apache.commons.compress.compressors.snappy.SnappyCompressorOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compression and decompression throughput of every codec that can
+ * both write and read its format.
+ *
+ * <p>With the default input size of 1 MiB the reported operations per
+ * second equal MiB/s of uncompressed data.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressorBenchmark {
+
+    @Param({ CompressorStreamFactory.GZIP, CompressorStreamFactory.BZIP2, CompressorStreamFactory.XZ,
+            CompressorStreamFactory.LZMA, CompressorStreamFactory.DEFLATE, CompressorStreamFactory.SNAPPY_RAW,
+            CompressorStreamFactory.SNAPPY_FRAMED, CompressorStreamFactory.LZ4_BLOCK,
+            CompressorStreamFactory.LZ4_FRAMED, CompressorStreamFactory.ZSTANDARD })
+    public String codec;
+
+    @Param({ "TEXT", "BINARY", "COMPRESSED", "REPETITIVE" })
+    public Corpus.Kind kind;
+
+    @Param({ "1048576" })
+    public int size;
+
+    private final CompressorStreamFactory factory = new CompressorStreamFactory();
+    private byte[] uncompressed;
+    private byte[] compressed;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException, CompressorException {
+        uncompressed = Corpus.generate(kind, size);
+        compressed = compress();
+        buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException, CompressorException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(size);
+        try (OutputStream out = createOutputStream(bos)) {
+            out.write(uncompressed);
+        }
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public void decompress(final Blackhole bh) throws IOException, CompressorException {
+        try (InputStream in = factory.createCompressorInputStream(codec, new ByteArrayInputStream(compressed))) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                bh.consume(n);
+            }
+        }
+    }
+
+    private OutputStream createOutputStream(final OutputStream target) throws IOException, CompressorException {
+        if (CompressorStreamFactory.SNAPPY_RAW.equals(codec)) {
+            // raw snappy needs the uncompressed size up front, so the factory doesn't create it
+            return new SnappyCompressorOutputStream(target, uncompressed.length);
+        }
+        return factory.createCompressorOutputStream(codec, target);
+    }
+}
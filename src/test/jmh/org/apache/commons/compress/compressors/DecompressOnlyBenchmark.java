@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decompression speed of the formats Compress can only read.
+ *
+ * <p>As there is no encoder available the inputs are taken from the
+ * test resources, so absolute numbers are dominated by stream setup
+ * for the smaller files.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecompressOnlyBenchmark {
+
+    @Param({ CompressorStreamFactory.Z, CompressorStreamFactory.BROTLI, CompressorStreamFactory.DEFLATE64 })
+    public String codec;
+
+    private final CompressorStreamFactory factory = new CompressorStreamFactory();
+    private byte[] compressed;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        if (CompressorStreamFactory.Z.equals(codec)) {
+            compressed = Files.readAllBytes(AbstractTestCase.getFile("bla.tar.Z").toPath());
+        } else if (CompressorStreamFactory.BROTLI.equals(codec)) {
+            compressed = Files.readAllBytes(AbstractTestCase.getFile("bla.tar.br").toPath());
+        } else {
+            compressed = rawDeflate64Data(AbstractTestCase.getFile("COMPRESS-380/COMPRESS-380.zip"));
+        }
+        buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public void decompress(final Blackhole bh) throws IOException, CompressorException {
+        try (InputStream in = factory.createCompressorInputStream(codec, new ByteArrayInputStream(compressed))) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                bh.consume(n);
+            }
+        }
+    }
+
+    private static byte[] rawDeflate64Data(final File zip) throws IOException {
+        try (ZipFile zf = new ZipFile(zip)) {
+            final ZipArchiveEntry entry = zf.getEntries().nextElement();
+            try (InputStream in = zf.getRawInputStream(entry)) {
+                return IOUtils.toByteArray(in);
+            }
+        }
+    }
+}